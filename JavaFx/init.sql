@@ -16,6 +16,152 @@ CREATE TABLE IF NOT EXISTS portfolio (
 CREATE INDEX IF NOT EXISTS idx_portfolio_symbol ON portfolio(symbol);
 CREATE INDEX IF NOT EXISTS idx_portfolio_sector ON portfolio(sector);
 
+-- Keyset paging: one (sort expression, id) index per sort order offered by the browser
+CREATE INDEX IF NOT EXISTS idx_portfolio_symbol_id ON portfolio(symbol, id);
+CREATE INDEX IF NOT EXISTS idx_portfolio_symbol_prefix ON portfolio(symbol varchar_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_portfolio_sector_symbol ON portfolio(sector, symbol, id);
+CREATE INDEX IF NOT EXISTS idx_portfolio_profit_loss ON portfolio(((current_price - purchase_price) * shares), id);
+CREATE INDEX IF NOT EXISTS idx_portfolio_market_value ON portfolio((current_price * shares), id);
+
+-- Sector totals for the stats bar and pie chart are read from this index alone
+CREATE INDEX IF NOT EXISTS idx_portfolio_sector_totals ON portfolio(sector) INCLUDE (shares, purchase_price, current_price);
+
+-- Row versions: every insert/update takes its transaction's row_version, every delete
+-- leaves a tombstone, so clients fetch only what changed since the version they last saw.
+-- A version is the writing transaction's id offset by 2^40 (above the sequence numbers
+-- older databases used); versions at or below the oldest running transaction are settled.
+CREATE SEQUENCE IF NOT EXISTS portfolio_row_version_seq;
+
+ALTER TABLE portfolio ADD COLUMN IF NOT EXISTS last_refreshed TIMESTAMP;
+ALTER TABLE portfolio ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT nextval('portfolio_row_version_seq');
+ALTER TABLE portfolio ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_portfolio_row_version ON portfolio(row_version);
+
+CREATE TABLE IF NOT EXISTS portfolio_tombstone (
+    id INTEGER PRIMARY KEY,
+    row_version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE INDEX IF NOT EXISTS idx_portfolio_tombstone_version ON portfolio_tombstone(row_version);
+
+CREATE OR REPLACE FUNCTION portfolio_write_version() RETURNS BIGINT AS $$
+    SELECT (1::BIGINT << 40) + pg_current_xact_id()::TEXT::BIGINT
+$$ LANGUAGE sql VOLATILE;
+
+CREATE OR REPLACE FUNCTION portfolio_settled_version() RETURNS BIGINT AS $$
+    SELECT (1::BIGINT << 40) + pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT - 1
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION bump_portfolio_version() RETURNS trigger AS $$
+BEGIN
+    NEW.row_version := portfolio_write_version();
+    NEW.updated_at := CURRENT_TIMESTAMP;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER portfolio_row_version
+    BEFORE INSERT OR UPDATE ON portfolio
+    FOR EACH ROW EXECUTE FUNCTION bump_portfolio_version();
+
+-- Deletes also NOTIFY the change feed; the payload carries the id and the settled version
+CREATE OR REPLACE FUNCTION record_portfolio_tombstone() RETURNS trigger AS $$
+DECLARE
+    v BIGINT := portfolio_write_version();
+BEGIN
+    INSERT INTO portfolio_tombstone (id, row_version) VALUES (OLD.id, v)
+        ON CONFLICT (id) DO UPDATE SET row_version = EXCLUDED.row_version, deleted_at = CURRENT_TIMESTAMP;
+    PERFORM pg_notify('portfolio_changes', json_build_object('op', 'D', 'v', portfolio_settled_version(), 'id', OLD.id)::text);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER portfolio_tombstone
+    AFTER DELETE ON portfolio
+    FOR EACH ROW EXECUTE FUNCTION record_portfolio_tombstone();
+
+-- Change feed: every committed insert/update is sent to listeners with the whole row
+CREATE OR REPLACE FUNCTION notify_portfolio_change() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('portfolio_changes',
+        json_build_object('op', 'U', 'v', portfolio_settled_version(), 'row', row_to_json(NEW))::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER portfolio_notify
+    AFTER INSERT OR UPDATE ON portfolio
+    FOR EACH ROW EXECUTE FUNCTION notify_portfolio_change();
+
+-- Price Alerts (one-shot; triggered_at is set when the alert fires)
+CREATE TABLE IF NOT EXISTS price_alert (
+    id SERIAL PRIMARY KEY,
+    symbol VARCHAR(10) NOT NULL,
+    direction VARCHAR(8) NOT NULL,
+    threshold DECIMAL(12,4) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    triggered_at TIMESTAMP,
+    trigger_value DECIMAL(12,4)
+    );
+
+-- Transactions Ledger (append-only: buys, sells matched per lot, fees)
+CREATE TABLE IF NOT EXISTS transactions (
+    id BIGSERIAL PRIMARY KEY,
+    txn_type VARCHAR(4) NOT NULL,
+    symbol VARCHAR(10) NOT NULL,
+    shares INTEGER NOT NULL DEFAULT 0,
+    price DECIMAL(12,4) NOT NULL DEFAULT 0,
+    fees DECIMAL(12,4) NOT NULL DEFAULT 0,
+    lot_id BIGINT,
+    realized_pl DECIMAL(14,4) NOT NULL DEFAULT 0,
+    executed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE OR REPLACE FUNCTION reject_ledger_change() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'transactions is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER transactions_append_only
+    BEFORE UPDATE OR DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION reject_ledger_change();
+
+-- Open Tax Lots (remaining shares of each BUY; lot_id = BUY transaction id)
+CREATE TABLE IF NOT EXISTS tax_lot (
+    lot_id BIGINT PRIMARY KEY REFERENCES transactions(id),
+    symbol VARCHAR(10) NOT NULL,
+    open_shares INTEGER NOT NULL,
+    cost_price DECIMAL(12,4) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL
+    );
+
+CREATE INDEX IF NOT EXISTS idx_tax_lot_open ON tax_lot(symbol, lot_id) WHERE open_shares > 0;
+
+-- Each lot belongs to one holding (portfolio row); older lots go to the oldest row of their symbol
+ALTER TABLE tax_lot ADD COLUMN IF NOT EXISTS holding_id INTEGER;
+
+UPDATE tax_lot t SET holding_id = (SELECT MIN(id) FROM portfolio p WHERE p.symbol = t.symbol)
+WHERE holding_id IS NULL AND open_shares > 0;
+
+CREATE INDEX IF NOT EXISTS idx_tax_lot_holding ON tax_lot(holding_id, lot_id) WHERE open_shares > 0;
+
+-- Completed OHLCV bars from the Real-Time Analysis window (1s, 1m and 5m)
+CREATE TABLE IF NOT EXISTS price_bar (
+    symbol VARCHAR(10) NOT NULL,
+    resolution_seconds INTEGER NOT NULL,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    open DECIMAL(12,4) NOT NULL,
+    high DECIMAL(12,4) NOT NULL,
+    low DECIMAL(12,4) NOT NULL,
+    close DECIMAL(12,4) NOT NULL,
+    volume DOUBLE PRECISION NOT NULL,
+    ticks BIGINT NOT NULL,
+    PRIMARY KEY (symbol, resolution_seconds, bucket_start)
+    );
+
 -- Insert Sample Data
 INSERT INTO portfolio (symbol, company, shares, purchase_price, current_price, sector) VALUES
                                                                                            ('AAPL', 'Apple Inc.', 100, 150.00, 175.50, 'Technology'),
@@ -14,6 +14,7 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import com.mcgill.application.model.Stock;
 import com.mcgill.application.controller.PortfolioController;
+import com.mcgill.application.service.AppExecutors;
 import com.mcgill.application.service.CalculatorService;
 
 /**
@@ -36,6 +37,7 @@ public class Main extends Application {
     private Scene mainScene;
     private Scene calculatorScene;
     private Scene portfolioScene;
+    private PortfolioController portfolioController;
     
     // Calculator window (separate stage)
     private Stage calculatorStage;
@@ -321,8 +323,8 @@ public class Main extends Application {
      */
     private void createPortfolio() {
         // Use the controller for this scene with callback for navigation
-        PortfolioController controller = new PortfolioController(() -> switchToMainMenu());
-        portfolioScene = controller.getScene();
+        portfolioController = new PortfolioController(() -> switchToMainMenu());
+        portfolioScene = portfolioController.getScene();
     }
     
     /**
@@ -374,6 +376,9 @@ public class Main extends Application {
                     calculatorStage = null;
                 }
                 
+                // Stop the portfolio's change feed; the next login starts a fresh one
+                closePortfolio();
+                
                 // Reset authentication state
                 isLoggedIn = false;
                 
@@ -395,6 +400,13 @@ public class Main extends Application {
         });
     }
     
+    private void closePortfolio() {
+        if (portfolioController != null) {
+            portfolioController.close();
+            portfolioController = null;
+        }
+    }
+    
     // Scene switching methods
     private void switchToPortfolio() {
         if (!isLoggedIn) {
@@ -462,6 +474,15 @@ public class Main extends Application {
         alert.showAndWait();
     }
     
+    /**
+     * Stop background work (change feed, price refreshes, kdb+ polls) when the application exits
+     */
+    @Override
+    public void stop() {
+        closePortfolio();
+        AppExecutors.getInstance().shutdown();
+    }
+    
     public static void main(String[] args) {
         launch(args);
     }
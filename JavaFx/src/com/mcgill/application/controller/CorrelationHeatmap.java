@@ -0,0 +1,151 @@
+package com.mcgill.application.controller;
+
+import com.mcgill.application.service.CovarianceEngine;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.List;
+
+/**
+ * CorrelationHeatmap - Correlation matrix of some symbols drawn on one Canvas
+ * Cell (row, column) is coloured by the correlation of the two symbols' bar
+ * returns, from blue at -1 through grey to red at +1. The matrix is read from
+ * the CovarianceEngine only when it has folded in a new bar or the pane was
+ * resized, and symbol labels are drawn where the cells are big enough.
+ */
+public class CorrelationHeatmap extends Pane implements AutoCloseable {
+
+    private static final int COLOR_STEPS = 20;
+    private static final double LABEL_MARGIN = 48;
+    private static final double LABEL_MIN_CELL = 12;
+    private static final double VALUE_MIN_CELL = 36;
+
+    private static final Color[] POSITIVE_COLORS = palette(Color.web("#D32F2F"));
+    private static final Color[] NEGATIVE_COLORS = palette(Color.web("#1565C0"));
+    private static final Color NO_DATA = Color.web("#1E1E1E");
+    private static final Color BACKGROUND = Color.web("#FAFAFA");
+    private static final Font LABEL_FONT = Font.font(11);
+
+    private final Canvas canvas = new Canvas();
+    private final CovarianceEngine covariance;
+    private final String[] symbols;
+    private final Tooltip tooltip = new Tooltip();
+
+    // Last matrix read, row-major
+    private double[] correlation;
+    private long shownUpdates = -1;
+    private boolean stale = true;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            long updates = covariance.getUpdates();
+            if (!stale && updates == shownUpdates) return;
+            shownUpdates = updates;
+            stale = false;
+            correlation = covariance.correlation(symbols);
+            paint();
+        }
+    };
+
+    public CorrelationHeatmap(CovarianceEngine covariance, List<String> symbols) {
+        this.covariance = covariance;
+        this.symbols = symbols.toArray(new String[0]);
+        getChildren().add(canvas);
+        widthProperty().addListener((obs, oldValue, newValue) -> stale = true);
+        heightProperty().addListener((obs, oldValue, newValue) -> stale = true);
+        canvas.setOnMouseMoved(e -> showTooltip(e.getX(), e.getY(), e.getScreenX(), e.getScreenY()));
+        canvas.setOnMouseExited(e -> tooltip.hide());
+        pulse.start();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+    }
+
+    private static Color[] palette(Color full) {
+        Color neutral = Color.web("#9E9E9E");
+        Color[] colors = new Color[COLOR_STEPS + 1];
+        for (int i = 0; i <= COLOR_STEPS; i++) {
+            colors[i] = neutral.interpolate(full, (double) i / COLOR_STEPS);
+        }
+        return colors;
+    }
+
+    private static Color colorFor(double rho) {
+        if (Double.isNaN(rho)) return NO_DATA;
+        int step = (int) Math.round(Math.min(Math.abs(rho), 1.0) * COLOR_STEPS);
+        return rho >= 0 ? POSITIVE_COLORS[step] : NEGATIVE_COLORS[step];
+    }
+
+    private double cellSize() {
+        int n = Math.max(symbols.length, 1);
+        return Math.max(Math.min(canvas.getWidth(), canvas.getHeight()) - LABEL_MARGIN, 0) / n;
+    }
+
+    private void paint() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(BACKGROUND);
+        g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        int n = symbols.length;
+        double cell = cellSize();
+        if (cell <= 0) return;
+
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                double rho = correlation[row * n + col];
+                g.setFill(colorFor(rho));
+                g.fillRect(LABEL_MARGIN + col * cell, LABEL_MARGIN + row * cell, Math.max(cell - 1, 0.5), Math.max(cell - 1, 0.5));
+                if (cell >= VALUE_MIN_CELL && !Double.isNaN(rho)) {
+                    g.setFill(Color.WHITE);
+                    g.setFont(LABEL_FONT);
+                    g.setTextAlign(TextAlignment.CENTER);
+                    g.setTextBaseline(VPos.CENTER);
+                    g.fillText(String.format("%.2f", rho), LABEL_MARGIN + (col + 0.5) * cell, LABEL_MARGIN + (row + 0.5) * cell, cell - 2);
+                }
+            }
+        }
+
+        if (cell >= LABEL_MIN_CELL) {
+            g.setFill(Color.web("#333333"));
+            g.setFont(LABEL_FONT);
+            g.setTextBaseline(VPos.CENTER);
+            for (int i = 0; i < n; i++) {
+                g.setTextAlign(TextAlignment.RIGHT);
+                g.fillText(symbols[i], LABEL_MARGIN - 4, LABEL_MARGIN + (i + 0.5) * cell, LABEL_MARGIN - 6);
+                g.setTextAlign(TextAlignment.CENTER);
+                g.fillText(symbols[i], LABEL_MARGIN + (i + 0.5) * cell, LABEL_MARGIN / 2, Math.max(cell - 2, 1));
+            }
+        }
+    }
+
+    private void showTooltip(double x, double y, double screenX, double screenY) {
+        double cell = cellSize();
+        int col = (int) Math.floor((x - LABEL_MARGIN) / cell);
+        int row = (int) Math.floor((y - LABEL_MARGIN) / cell);
+        int n = symbols.length;
+        if (correlation == null || cell <= 0 || x < LABEL_MARGIN || y < LABEL_MARGIN || row >= n || col >= n) {
+            tooltip.hide();
+            return;
+        }
+        double rho = correlation[row * n + col];
+        tooltip.setText(symbols[row] + " / " + symbols[col] + "\n"
+                + (Double.isNaN(rho) ? "Not enough bars yet" : String.format("Correlation: %+.3f", rho)));
+        tooltip.show(canvas, screenX + 12, screenY + 12);
+    }
+
+    @Override
+    public void close() {
+        pulse.stop();
+        tooltip.hide();
+    }
+}
@@ -1,17 +1,87 @@
 package com.mcgill.application.controller;
 
+import com.mcgill.application.model.LiveTick;
+import com.mcgill.application.model.PortfolioQuery;
+import com.mcgill.application.model.PortfolioSummary;
+import com.mcgill.application.model.PriceAlert;
 import com.mcgill.application.model.Stock;
+import com.mcgill.application.model.SymbolTrend;
+import com.mcgill.application.model.TaxLot;
+import com.mcgill.application.repository.BarRepository;
+import com.mcgill.application.service.AlertService;
+import com.mcgill.application.service.AllocationTracker;
+import com.mcgill.application.service.AppExecutors;
+import com.mcgill.application.service.BarEngine;
+import com.mcgill.application.service.BarStore;
+import com.mcgill.application.service.CovarianceEngine;
+import com.mcgill.application.service.ExportService;
+import com.mcgill.application.service.LotMatchingEngine;
+import com.mcgill.application.service.PagedPortfolio;
+import com.mcgill.application.service.PortfolioDelta;
+import com.mcgill.application.service.PortfolioImportService;
+import com.mcgill.application.service.PriceRefreshPipeline;
+import com.mcgill.application.service.PriceSeries;
+import com.mcgill.application.service.IndicatorEngine;
+import com.mcgill.application.service.KdbClientService;
+import com.mcgill.application.service.LastPriceBatch;
 import com.mcgill.application.service.StockService;
 import com.mcgill.application.service.StockPriceService;
+import com.mcgill.application.service.TickHistory;
+import com.mcgill.application.service.TickJournal;
+import com.mcgill.application.service.TickReplay;
+import com.mcgill.application.service.TickSource;
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Callback;
+import javafx.util.Duration;
+import javafx.util.StringConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleFunction;
+import java.util.function.Function;
 
 /**
  * PortfolioController - Handles Stock Portfolio Management UI and Events
@@ -24,6 +94,8 @@ public class PortfolioController {
     private StockPriceService stockPriceService;
     private TableView<Stock> table;
     private StockService stockService;
+    // Created in the background during startup; null until then
+    private volatile AlertService alertService;
     
     // UI Components
     private TextField idField;
@@ -38,21 +110,160 @@ public class PortfolioController {
     private Label totalInvestmentLabel;
     private Label currentValueLabel;
     private Label profitLossLabel;
+    private Label realizedLabel;
+    private Label riskLabel;
+    // Risk is recomputed from running per-symbol totals, at most CHART_UPDATES_PER_SECOND times a second
+    private AllocationTracker riskTracker;
+    private Timeline riskThrottle;
+    private final Tooltip riskTooltip = new Tooltip();
+    private boolean riskStale = true;
+    
+    // EWMA covariance of 1m bar returns, seeded from price_bar and fed live by the Real-Time Analysis window
+    private final CovarianceEngine covariance = new CovarianceEngine();
+    
+    // Alerts: fired alerts are collected by AlertService and shown here in batches
+    private Button alertsBtn;
+    
+    // Price refresh in progress (null when idle) and its controls
+    private PriceRefreshPipeline priceRefresh;
+    private Button refreshPricesBtn;
+    private ProgressBar refreshProgress;
+    private Label refreshStatusLabel;
+    private Button cancelRefreshBtn;
+    private int unreadAlerts;
+    private final ObservableList<String> alertLog = FXCollections.observableArrayList();
+    private final ObservableList<PriceAlert> activeAlertItems = FXCollections.observableArrayList();
     
     // Callback for navigation
     private Runnable onBackCallback;
+    
+    // Blocking work (HTTP, JDBC, kdb+) runs on the shared executors, never on raw threads
+    private final AppExecutors executors = AppExecutors.getInstance();
+    // Price refreshes give up on symbols that have not answered by then
+    private static final java.time.Duration REFRESH_TIMEOUT = java.time.Duration.ofMinutes(2);
+    
+    // Allocation chart: slices shown before the rest is grouped into "Other", and redraw rate
+    private static final int DEFAULT_CHART_SLICES = 20;
+    private static final int CHART_UPDATES_PER_SECOND = 4;
+    
+    // Real-time charts plot 1 s bars, downsampled to their pixel width; sparklines cover the latest bars only
+    private static final int MAX_CHART_POINTS = 4096;
+    private static final int SPARKLINE_WIDTH = 120;
+    private static final int SPARKLINE_HEIGHT = 24;
+    private static final int SPARKLINE_TICKS = 20_000;
+    private static final int TREND_UPDATES_PER_SECOND = 2;
+    // Rows of the real-time tick table (newest first)
+    private static final int LIVE_TABLE_ROWS = 1000;
+    // Bars close this long after their end (a tick can reach the RDB just before a poll and us just after);
+    // completed bars are flushed to PostgreSQL and kdb+ every few polls
+    private static final long BAR_CLOSE_GRACE_MILLIS = 1_500;
+    private static final int BAR_FLUSH_POLLS = 10;
+    // Portfolio σ is scaled from 1m bars to a trading day; the covariance is seeded from this much bar history
+    private static final int MINUTE_BARS_PER_DAY = 390;
+    private static final java.time.Duration COVARIANCE_SEED = java.time.Duration.ofDays(1);
+    private static final int MAX_CORRELATION_SYMBOLS = 100;
+    
+    // Large books: stats are aggregated by PostgreSQL, one query at a time
+    private boolean summaryInFlight;
+    private boolean summaryStale;
+    
+    // Startup timing (time-to-first-paint, time-to-fresh-prices)
+    private final long startupNanos;
+    private boolean freshPricesLogged;
 
     public PortfolioController(Runnable onBackCallback) {
         this.onBackCallback = onBackCallback;
+        startupNanos = System.nanoTime();
+        // Stage 1 (FX thread): holdings come from the local snapshot only, so the
+        // scene renders without waiting for PostgreSQL
         stockService = new StockService();
         stockPriceService = new StockPriceService();
         createScene();
+        logFirstPaint();
+        loadInBackground();
+    }
+    
+    /**
+     * Stage 2 (background): connect to PostgreSQL and load alerts in parallel,
+     * streaming holdings into the table as they arrive, then refresh prices
+     */
+    private void loadInBackground() {
+        CompletableFuture<PortfolioDelta> holdings = CompletableFuture.supplyAsync(() ->
+                stockService.loadFromDatabase(batch -> Platform.runLater(() -> {
+                    stockService.getAllStocks().addAll(batch);
+                    updatePortfolioStats();
+                })), executors.jdbc());
+        CompletableFuture<AlertService> alerts = CompletableFuture.supplyAsync(AlertService::new, executors.jdbc());
+        CompletableFuture.runAsync(this::seedCovariance, executors.jdbc());
+        
+        holdings.thenAcceptBoth(alerts, (delta, loadedAlerts) -> Platform.runLater(() -> {
+            stockService.finishLoading(delta);
+            // Other traders' adds and sells arrive through the change feed, in batches
+            stockService.startChangeFeed(changes -> Platform.runLater(() -> {
+                stockService.applyChanges(changes);
+                updatePortfolioStats();
+            }));
+            alertService = loadedAlerts;
+            startAlertNotifications();
+            updatePortfolioStats();
+            logStartup("database loaded (" + delta + ")");
+            
+            // Auto-refresh prices once loaded to ensure DB and UI show real-time values
+            // This runs asynchronously and persists new prices to PostgreSQL
+            refreshStockPrices();
+        })).whenComplete((ignored, error) -> {
+            if (error != null) {
+                Platform.runLater(() -> showError("Failed to load portfolio: " + error.getMessage()));
+            }
+        });
+    }
+    
+    /**
+     * Log when the first frame with the portfolio scene is rendered
+     */
+    private void logFirstPaint() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                logStartup("first paint (" + stockService.getAllStocks().size() + " holdings from snapshot)");
+            }
+        }.start();
+    }
+    
+    /**
+     * Replay the last day of stored 1m bars into the covariance, then show σ as each new bar closes
+     */
+    private void seedCovariance() {
+        long since = System.currentTimeMillis() - COVARIANCE_SEED.toMillis();
+        int bars = new BarRepository().forEachClose(BarEngine.Resolution.MINUTE.getSeconds(), since,
+                (symbol, close, bucket) -> covariance.onTick(symbol, close, 0.0, bucket));
+        covariance.setUpdateListener(() -> Platform.runLater(() -> riskStale = true));
+        Platform.runLater(() -> riskStale = true);
+        if (bars > 0) {
+            System.out.println("✓ Covariance seeded from " + bars + " bars (" + covariance.symbolCount() + " symbols)");
+        }
+    }
+    
+    private void logStartup(String stage) {
+        System.out.printf("✓ Startup: %s after %.0f ms%n", stage, (System.nanoTime() - startupNanos) / 1e6);
     }
     
     public Scene getScene() {
         return scene;
     }
     
+    /**
+     * Stop following other instances' changes (logout or application exit)
+     */
+    public void close() {
+        if (riskThrottle != null) {
+            riskThrottle.stop();
+            riskTracker.close();
+        }
+        stockService.close();
+    }
+    
     private void createScene() {
         // Title
         Label title = new Label("McGill Stock Market Portfolio");
@@ -70,13 +281,17 @@ public class PortfolioController {
         currentValueLabel.setId("currentValue");
         Label profitLossLabel = new Label();
         profitLossLabel.setId("profitLoss");
+        Label realizedLabel = new Label();
+        realizedLabel.setId("realizedProfitLoss");
+        Label riskLabel = new Label();
+        riskLabel.setId("portfolioSigma");
         
         // Date label (EDT)
         Label dateLabel = new Label();
         dateLabel.setStyle("-fx-font-weight: bold;");
-        java.time.ZoneId nyZone = java.time.ZoneId.of("America/New_York");
-        java.time.format.DateTimeFormatter dateFmt = java.time.format.DateTimeFormatter.ofPattern("dd/MM/yy");
-        dateLabel.setText("Date: " + java.time.ZonedDateTime.now(nyZone).format(dateFmt));
+        ZoneId nyZone = ZoneId.of("America/New_York");
+        DateTimeFormatter dateFmt = DateTimeFormatter.ofPattern("dd/MM/yy");
+        dateLabel.setText("Date: " + ZonedDateTime.now(nyZone).format(dateFmt));
         
         // View Graph Button
         Button viewGraphBtn = new Button("📊 View Graph");
@@ -84,9 +299,21 @@ public class PortfolioController {
         viewGraphBtn.setPrefHeight(35);
         viewGraphBtn.setOnAction(e -> showPortfolioChart());
         
+        // Heatmap Button
+        Button heatmapBtn = new Button("🗺 Heatmap");
+        heatmapBtn.getStyleClass().add("mcgill-button-secondary");
+        heatmapBtn.setPrefHeight(35);
+        heatmapBtn.setOnAction(e -> showHeatmap());
+        
+        // Correlation matrix of the holdings' 1m bar returns
+        Button correlationBtn = new Button("🔗 Correlation");
+        correlationBtn.getStyleClass().add("mcgill-button-secondary");
+        correlationBtn.setPrefHeight(35);
+        correlationBtn.setOnAction(e -> showCorrelation());
+        
 
         // Refresh button
-        Button refreshPricesBtn = new Button("🔄 Refresh Prices");
+        refreshPricesBtn = new Button("🔄 Refresh Prices");
         refreshPricesBtn.getStyleClass().add("mcgill-button-secondary");
         refreshPricesBtn.setPrefHeight(35);
         refreshPricesBtn.setOnAction(e -> refreshStockPrices());
@@ -97,178 +324,55 @@ public class PortfolioController {
         realTimeBtn.setPrefHeight(35);
         realTimeBtn.setOnAction(e -> openRealTimeAnalysisWindow());
 
+        // Price alerts button (shows unread count when alerts fire)
+        alertsBtn = new Button("🔔 Alerts");
+        alertsBtn.getStyleClass().add("mcgill-button-secondary");
+        alertsBtn.setPrefHeight(35);
+        alertsBtn.setOnAction(e -> showAlertsWindow());
+
         // include in statsBox with date
-        statsBox.getChildren().addAll(totalInvestmentLabel, currentValueLabel, profitLossLabel, dateLabel, viewGraphBtn, refreshPricesBtn, realTimeBtn);
+        statsBox.getChildren().addAll(totalInvestmentLabel, currentValueLabel, profitLossLabel, realizedLabel, riskLabel, dateLabel, viewGraphBtn, heatmapBtn, correlationBtn, refreshPricesBtn, realTimeBtn, alertsBtn);
         
         // Store labels as instance variables for updates
         this.totalInvestmentLabel = totalInvestmentLabel;
         this.currentValueLabel = currentValueLabel;
         this.profitLossLabel = profitLossLabel;
+        this.realizedLabel = realizedLabel;
+        this.riskLabel = riskLabel;
+        riskLabel.setTooltip(riskTooltip);
+        riskLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13pt; -fx-text-fill: #6A1B9A;");
+        
+        // Not during the initial load: each batch would otherwise cost a pass over the book
+        riskTracker = new AllocationTracker(stockService.getAllStocks());
+        riskThrottle = new Timeline(new KeyFrame(Duration.millis(1000.0 / CHART_UPDATES_PER_SECOND), e -> {
+            if (!stockService.isReady()) return;
+            if (riskTracker.takeChanged() | riskStale) {
+                riskStale = false;
+                showRisk();
+            }
+        }));
+        riskThrottle.setCycleCount(Timeline.INDEFINITE);
+        riskThrottle.play();
         
         updatePortfolioStats();
-
-        // Auto-refresh prices on load to ensure DB and UI show real-time values
-        // This runs asynchronously and persists new prices to PostgreSQL
-        refreshStockPrices();
+        
+        // Price refresh progress (bar and Cancel only show while a refresh runs)
+        refreshProgress = new ProgressBar(0);
+        refreshProgress.setPrefWidth(200);
+        refreshStatusLabel = new Label();
+        cancelRefreshBtn = new Button("Cancel");
+        cancelRefreshBtn.getStyleClass().add("mcgill-button-secondary");
+        cancelRefreshBtn.setOnAction(e -> cancelPriceRefresh());
+        HBox refreshBox = new HBox(10, refreshProgress, refreshStatusLabel, cancelRefreshBtn);
+        refreshBox.setAlignment(Pos.CENTER_LEFT);
+        showRefreshProgress(false);
 
 
         
         // Create table
         table = new TableView<>();
         
-        // Table Columns for Stock Portfolio
-        TableColumn<Stock, Number> idCol = new TableColumn<>("ID");
-        idCol.setCellValueFactory(cellData -> cellData.getValue().idProperty());
-        idCol.setPrefWidth(60);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("ID");
-            h.setWrapText(true);
-            h.setMaxWidth(60);
-            h.setStyle("-fx-font-weight: bold;");
-            idCol.setText("");
-            idCol.setGraphic(h);
-        }
-        
-        TableColumn<Stock, String> symbolCol = new TableColumn<>("Symbol");
-        symbolCol.setCellValueFactory(cellData -> cellData.getValue().symbolProperty());
-        symbolCol.setPrefWidth(80);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Symbol");
-            h.setWrapText(true);
-            h.setMaxWidth(80);
-            h.setStyle("-fx-font-weight: bold;");
-            symbolCol.setText("");
-            symbolCol.setGraphic(h);
-        }
-        
-        TableColumn<Stock, String> companyCol = new TableColumn<>("Company");
-        companyCol.setCellValueFactory(cellData -> cellData.getValue().companyProperty());
-        companyCol.setPrefWidth(200);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Company");
-            h.setWrapText(true);
-            h.setMaxWidth(200);
-            h.setStyle("-fx-font-weight: bold;");
-            companyCol.setText("");
-            companyCol.setGraphic(h);
-        }
-        
-        TableColumn<Stock, Number> sharesCol = new TableColumn<>("Shares");
-        sharesCol.setCellValueFactory(cellData -> cellData.getValue().sharesProperty());
-        sharesCol.setPrefWidth(80);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Shares");
-            h.setWrapText(true);
-            h.setMaxWidth(80);
-            h.setStyle("-fx-font-weight: bold;");
-            sharesCol.setText("");
-            sharesCol.setGraphic(h);
-        }
-        
-        TableColumn<Stock, Number> purchaseCol = new TableColumn<>("Purchase Price");
-        purchaseCol.setCellValueFactory(cellData -> cellData.getValue().purchasePriceProperty());
-        purchaseCol.setPrefWidth(120);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Purchase\nPrice");
-            h.setWrapText(true);
-            h.setMaxWidth(120);
-            h.setStyle("-fx-font-weight: bold;");
-            purchaseCol.setText("");
-            purchaseCol.setGraphic(h);
-        }
-        
-        TableColumn<Stock, Number> currentCol = new TableColumn<>("Current Price");
-        currentCol.setCellValueFactory(cellData -> cellData.getValue().currentPriceProperty());
-        currentCol.setPrefWidth(120);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Current\nPrice");
-            h.setWrapText(true);
-            h.setMaxWidth(120);
-            h.setStyle("-fx-font-weight: bold;");
-            currentCol.setText("");
-            currentCol.setGraphic(h);
-        }
-        
-        // Calculated Value Column
-        TableColumn<Stock, String> valueCol = new TableColumn<>("Total Value");
-        valueCol.setCellValueFactory(cellData -> {
-            Stock stock = cellData.getValue();
-            double value = stock.getTotalValue();
-            return new javafx.beans.property.SimpleStringProperty(String.format("$%.2f", value));
-        });
-        valueCol.setPrefWidth(120);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Total\nValue");
-            h.setWrapText(true);
-            h.setMaxWidth(120);
-            h.setStyle("-fx-font-weight: bold;");
-            valueCol.setText("");
-            valueCol.setGraphic(h);
-        }
-        
-        // Calculated Profit/Loss Column
-        TableColumn<Stock, String> plCol = new TableColumn<>("P/L");
-        plCol.setCellValueFactory(cellData -> {
-            Stock stock = cellData.getValue();
-            return new javafx.beans.property.SimpleStringProperty(stock.getProfitLossFormatted());
-        });
-        plCol.setPrefWidth(100);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("P/L");
-            h.setWrapText(true);
-            h.setMaxWidth(100);
-            h.setStyle("-fx-font-weight: bold;");
-            plCol.setText("");
-            plCol.setGraphic(h);
-        }
-        
-        // Calculated P/L % Column
-        TableColumn<Stock, String> plPercentCol = new TableColumn<>("P/L %");
-        plPercentCol.setCellValueFactory(cellData -> {
-            Stock stock = cellData.getValue();
-            return new javafx.beans.property.SimpleStringProperty(stock.getProfitLossPercentFormatted());
-        });
-        plPercentCol.setPrefWidth(90);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("P/L %");
-            h.setWrapText(true);
-            h.setMaxWidth(90);
-            h.setStyle("-fx-font-weight: bold;");
-            plPercentCol.setText("");
-            plPercentCol.setGraphic(h);
-        }
-        
-        TableColumn<Stock, String> sectorCol = new TableColumn<>("Sector");
-        sectorCol.setCellValueFactory(cellData -> cellData.getValue().sectorProperty());
-        sectorCol.setPrefWidth(120);
-        {
-            javafx.scene.control.Label h = new javafx.scene.control.Label("Sector");
-            h.setWrapText(true);
-            h.setMaxWidth(120);
-            h.setStyle("-fx-font-weight: bold;");
-            sectorCol.setText("");
-            sectorCol.setGraphic(h);
-        }
-        
-        // Last Refreshed column (formatted) – time only (EDT)
-        TableColumn<Stock, String> refreshedCol = new TableColumn<>("Refreshed At");
-        java.time.format.DateTimeFormatter fmt = java.time.format.DateTimeFormatter.ofPattern("HH/mm/ss");
-        refreshedCol.setCellValueFactory(cellData -> {
-            java.time.LocalDateTime t = cellData.getValue().getLastRefreshed();
-            if (t == null) return new javafx.beans.property.SimpleStringProperty("-");
-            java.time.ZoneId ny = java.time.ZoneId.of("America/New_York");
-            String s = t.atZone(ny).format(fmt);
-            return new javafx.beans.property.SimpleStringProperty(s);
-        });
-        refreshedCol.setPrefWidth(120);
-        // Wrap header text
-        javafx.scene.control.Label refreshedHeader = new javafx.scene.control.Label("Refreshed At\n(HH/mm/ss)");
-        refreshedHeader.setWrapText(true);
-        refreshedHeader.setMaxWidth(120);
-        refreshedCol.setText("");
-        refreshedCol.setGraphic(refreshedHeader);
-
-        table.getColumns().addAll(idCol, symbolCol, companyCol, sharesCol, purchaseCol, currentCol, valueCol, plCol, plPercentCol, sectorCol, refreshedCol);
+        addHoldingColumns(table);
         table.setItems(stockService.getAllStocks());
         
         // Add selection listener to auto-populate form
@@ -405,7 +509,19 @@ public class PortfolioController {
         sellBtn.getStyleClass().add("mcgill-button-delete");
         sellBtn.setOnAction(e -> handleSellShares());
         
-        buttonBox.getChildren().addAll(addBtn, updateBtn, sellBtn);
+        Button importBtn = new Button("📥 Import CSV");
+        importBtn.getStyleClass().add("mcgill-button-secondary");
+        importBtn.setOnAction(e -> handleImportCsv());
+        
+        Button exportBtn = new Button("📤 Export");
+        exportBtn.getStyleClass().add("mcgill-button-secondary");
+        exportBtn.setOnAction(e -> handleExport());
+        
+        Button browseBtn = new Button("📚 Browse Book");
+        browseBtn.getStyleClass().add("mcgill-button-secondary");
+        browseBtn.setOnAction(e -> showBrowseWindow());
+        
+        buttonBox.getChildren().addAll(addBtn, updateBtn, sellBtn, importBtn, exportBtn, browseBtn);
         
         // Layout with better organization
         VBox container = new VBox(20);
@@ -426,7 +542,7 @@ public class PortfolioController {
         topBox.getChildren().addAll(backBtnTop);
         
         // Add all sections to container
-        container.getChildren().addAll(topBox, title, statsBox, table);
+        container.getChildren().addAll(topBox, title, statsBox, refreshBox, table);
         
         // Make table grow to fill available space
         VBox.setVgrow(table, Priority.ALWAYS);
@@ -455,114 +571,327 @@ public class PortfolioController {
         );
     }
 
-    private void refreshStockPrices() {
-        Alert progressAlert = new Alert(Alert.AlertType.INFORMATION);
-        progressAlert.setTitle("Updating Prices");
-        progressAlert.setHeaderText("Fetching real-time stock prices...");
-        progressAlert.setContentText("Please wait...");
-        progressAlert.show();
-
-        Task<Void> task = new Task<Void>() {
-            private int updatedCount = 0;
-            private int attempted = 0;
-            private final StringBuilder updateSummary = new StringBuilder();
-            @Override
-            protected Void call() {
-                // Update only the stocks in your portfolio (already loaded from PostgreSQL)
-                for (Stock s : table.getItems()) {
-                    attempted++;
-                    double newPrice = stockPriceService.getCurrentPrice(s.getSymbol());
-                    if (newPrice > 0) {
-                        double oldPrice = s.getCurrentPrice();
-                        s.setCurrentPrice(newPrice);
-                        // persist to DB so it survives restarts
-                        s.setLastRefreshed(java.time.LocalDateTime.now());
-                        stockService.persist(s);
-                        updatedCount++;
-                        // Append to summary (limit length)
-                        if (updateSummary.length() < 300) {
-                            updateSummary.append(s.getSymbol())
-                                    .append(": $")
-                                    .append(String.format("%.2f", oldPrice))
-                                    .append(" → $")
-                                    .append(String.format("%.2f", newPrice))
-                                    .append("  ");
-                        }
-                    }
-                    try { Thread.sleep(500); } catch (InterruptedException ignored) {}
-                }
-                return null;
-            }
-
-            @Override
-            protected void succeeded() {
-                progressAlert.close();
-                updatePortfolioStats();
-                table.refresh();
-                if (updatedCount > 0) {
-                    showSuccess("Prices updated for " + updatedCount + "/" + attempted + " stocks.\n" + updateSummary);
-                } else {
-                    showError("No prices were updated. The API may have been rate-limited or returned no data.");
-                }
-            }
-
-            @Override
-            protected void failed() {
-                progressAlert.close();
-                showError("Failed to update prices. Check your internet connection.");
-            }
-        };
-
-        new Thread(task).start();
-    }
-    
     /**
-     * Handle Add Stock event
-     * Controllers delegate to services for business logic
+     * Holding columns, shared with PortfolioTableBenchmark
+     * Every column observes a property of its row, including the derived Total
+     * Value and P/L ones, so a price change repaints only that row's cells and
+     * the table never needs a full refresh().
      */
-    private void handleAddStock() {
-        String idStr = idField.getText().trim();
-        String symbol = symbolField.getText().trim().toUpperCase();
-        String company = companyField.getText().trim();
-        String sharesStr = sharesField.getText().trim();
-        String purchasePriceStr = purchasePriceField.getText().trim();
-        String currentPriceStr = currentPriceField.getText().trim();
-        String sector = sectorField.getText().trim();
+    static void addHoldingColumns(TableView<Stock> table) {
+        TableColumn<Stock, Number> idCol = new TableColumn<>("ID");
+        idCol.setCellValueFactory(cellData -> cellData.getValue().idProperty());
+        idCol.setPrefWidth(60);
+        {
+            Label h = new Label("ID");
+            h.setWrapText(true);
+            h.setMaxWidth(60);
+            h.setStyle("-fx-font-weight: bold;");
+            idCol.setText("");
+            idCol.setGraphic(h);
+        }
         
-        // Validate input
-        if (idStr.isEmpty() || symbol.isEmpty() || company.isEmpty() || 
-            sharesStr.isEmpty() || purchasePriceStr.isEmpty() || currentPriceStr.isEmpty()) {
-            showError("All fields are required!");
-            return;
+        TableColumn<Stock, String> symbolCol = new TableColumn<>("Symbol");
+        symbolCol.setCellValueFactory(cellData -> cellData.getValue().symbolProperty());
+        symbolCol.setPrefWidth(80);
+        {
+            Label h = new Label("Symbol");
+            h.setWrapText(true);
+            h.setMaxWidth(80);
+            h.setStyle("-fx-font-weight: bold;");
+            symbolCol.setText("");
+            symbolCol.setGraphic(h);
         }
         
-        // Set default sector if empty
-        if (sector.isEmpty()) {
-            sector = "Unknown";
+        TableColumn<Stock, String> companyCol = new TableColumn<>("Company");
+        companyCol.setCellValueFactory(cellData -> cellData.getValue().companyProperty());
+        companyCol.setPrefWidth(200);
+        {
+            Label h = new Label("Company");
+            h.setWrapText(true);
+            h.setMaxWidth(200);
+            h.setStyle("-fx-font-weight: bold;");
+            companyCol.setText("");
+            companyCol.setGraphic(h);
         }
         
-        try {
-            int id = Integer.parseInt(idStr);
-            int shares = Integer.parseInt(sharesStr);
-            double purchasePrice = Double.parseDouble(purchasePriceStr);
-            double currentPrice = Double.parseDouble(currentPriceStr);
-            
-            Stock stock = new Stock(id, symbol, company, shares, purchasePrice, currentPrice, sector);
-            
-            // Delegate to service for business logic
-            String errorMessage = stockService.addStock(stock);
-            
-            if (errorMessage != null) {
-                showError(errorMessage);
-            } else {
-                // Success - update stats and clear fields
-                updatePortfolioStats();
-                idField.clear();
-                symbolField.clear();
-                companyField.clear();
-                sharesField.clear();
-                purchasePriceField.clear();
-                currentPriceField.clear();
+        TableColumn<Stock, Number> sharesCol = new TableColumn<>("Shares");
+        sharesCol.setCellValueFactory(cellData -> cellData.getValue().sharesProperty());
+        sharesCol.setPrefWidth(80);
+        {
+            Label h = new Label("Shares");
+            h.setWrapText(true);
+            h.setMaxWidth(80);
+            h.setStyle("-fx-font-weight: bold;");
+            sharesCol.setText("");
+            sharesCol.setGraphic(h);
+        }
+        
+        TableColumn<Stock, Number> purchaseCol = new TableColumn<>("Purchase Price");
+        purchaseCol.setCellValueFactory(cellData -> cellData.getValue().purchasePriceProperty());
+        purchaseCol.setPrefWidth(120);
+        {
+            Label h = new Label("Purchase\nPrice");
+            h.setWrapText(true);
+            h.setMaxWidth(120);
+            h.setStyle("-fx-font-weight: bold;");
+            purchaseCol.setText("");
+            purchaseCol.setGraphic(h);
+        }
+        
+        TableColumn<Stock, Number> currentCol = new TableColumn<>("Current Price");
+        currentCol.setCellValueFactory(cellData -> cellData.getValue().currentPriceProperty());
+        currentCol.setPrefWidth(120);
+        {
+            Label h = new Label("Current\nPrice");
+            h.setWrapText(true);
+            h.setMaxWidth(120);
+            h.setStyle("-fx-font-weight: bold;");
+            currentCol.setText("");
+            currentCol.setGraphic(h);
+        }
+        
+        // Calculated Value Column
+        TableColumn<Stock, Number> valueCol = new TableColumn<>("Total Value");
+        valueCol.setCellValueFactory(cellData -> cellData.getValue().totalValueProperty());
+        valueCol.setCellFactory(formatted(value -> String.format("$%.2f", value)));
+        valueCol.setPrefWidth(120);
+        {
+            Label h = new Label("Total\nValue");
+            h.setWrapText(true);
+            h.setMaxWidth(120);
+            h.setStyle("-fx-font-weight: bold;");
+            valueCol.setText("");
+            valueCol.setGraphic(h);
+        }
+        
+        // Calculated Profit/Loss Column
+        TableColumn<Stock, Number> plCol = new TableColumn<>("P/L");
+        plCol.setCellValueFactory(cellData -> cellData.getValue().profitLossProperty());
+        plCol.setCellFactory(formatted(Stock::formatProfitLoss));
+        plCol.setPrefWidth(100);
+        {
+            Label h = new Label("P/L");
+            h.setWrapText(true);
+            h.setMaxWidth(100);
+            h.setStyle("-fx-font-weight: bold;");
+            plCol.setText("");
+            plCol.setGraphic(h);
+        }
+        
+        // Calculated P/L % Column
+        TableColumn<Stock, Number> plPercentCol = new TableColumn<>("P/L %");
+        plPercentCol.setCellValueFactory(cellData -> cellData.getValue().profitLossPercentProperty());
+        plPercentCol.setCellFactory(formatted(Stock::formatProfitLossPercent));
+        plPercentCol.setPrefWidth(90);
+        {
+            Label h = new Label("P/L %");
+            h.setWrapText(true);
+            h.setMaxWidth(90);
+            h.setStyle("-fx-font-weight: bold;");
+            plPercentCol.setText("");
+            plPercentCol.setGraphic(h);
+        }
+        
+        TableColumn<Stock, String> sectorCol = new TableColumn<>("Sector");
+        sectorCol.setCellValueFactory(cellData -> cellData.getValue().sectorProperty());
+        sectorCol.setPrefWidth(120);
+        {
+            Label h = new Label("Sector");
+            h.setWrapText(true);
+            h.setMaxWidth(120);
+            h.setStyle("-fx-font-weight: bold;");
+            sectorCol.setText("");
+            sectorCol.setGraphic(h);
+        }
+        
+        // Last Refreshed column (formatted) – time only (EDT)
+        TableColumn<Stock, LocalDateTime> refreshedCol = new TableColumn<>("Refreshed At");
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH/mm/ss");
+        ZoneId ny = ZoneId.of("America/New_York");
+        refreshedCol.setCellValueFactory(cellData -> cellData.getValue().lastRefreshedProperty());
+        refreshedCol.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(LocalDateTime item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : item == null ? "-" : item.atZone(ny).format(fmt));
+            }
+        });
+        refreshedCol.setPrefWidth(120);
+        // Wrap header text
+        Label refreshedHeader = new Label("Refreshed At\n(HH/mm/ss)");
+        refreshedHeader.setWrapText(true);
+        refreshedHeader.setMaxWidth(120);
+        refreshedCol.setText("");
+        refreshedCol.setGraphic(refreshedHeader);
+        
+        table.getColumns().addAll(idCol, symbolCol, companyCol, sharesCol, purchaseCol, currentCol, valueCol, plCol, plPercentCol, sectorCol, refreshedCol);
+    }
+    
+    /**
+     * Cell factory showing a number through the given format
+     */
+    private static Callback<TableColumn<Stock, Number>, TableCell<Stock, Number>> formatted(
+            DoubleFunction<String> format) {
+        return column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : format.apply(item.doubleValue()));
+            }
+        };
+    }
+    
+    private void refreshStockPrices() {
+        if (!stockService.isReady()) {
+            showError(StockService.LOADING_MESSAGE);
+            return;
+        }
+        if (priceRefresh != null) {
+            return;
+        }
+        
+        // Pick up rows other users changed since the last sync (changed rows only)
+        CompletableFuture.supplyAsync(stockService::fetchChanges, executors.jdbc())
+                .thenAccept(changes -> Platform.runLater(() -> {
+                    if (changes != null) {
+                        stockService.applyChanges(changes);
+                        updatePortfolioStats();
+                    }
+                }));
+        
+        // Runs alongside the user: progress shows under the stats bar, prices land
+        // in batches, and the user can cancel at any time
+        refreshPricesBtn.setDisable(true);
+        refreshProgress.setProgress(0);
+        refreshStatusLabel.setText("Fetching prices...");
+        showRefreshProgress(true);
+        
+        priceRefresh = new PriceRefreshPipeline(stockService, stockPriceService, Platform::runLater, REFRESH_TIMEOUT,
+                new PriceRefreshPipeline.Listener() {
+                    @Override
+                    public void onBatch(List<PriceRefreshPipeline.Quote> applied, PriceRefreshPipeline.Progress progress) {
+                        AlertService alerts = alertService;
+                        if (alerts != null) {
+                            for (PriceRefreshPipeline.Quote quote : applied) {
+                                alerts.onPrice(quote.getSymbol(), quote.getPrice());
+                            }
+                        }
+                        refreshProgress.setProgress(progress.getFraction());
+                        refreshStatusLabel.setText(String.format("Prices %d/%d symbols, %d holdings updated",
+                                progress.getFetched(), progress.getSymbols(), progress.getApplied()));
+                        if (!applied.isEmpty()) {
+                            updatePortfolioStats();
+                        }
+                    }
+                    
+                    @Override
+                    public void onFinished(PriceRefreshPipeline.Progress progress) {
+                        priceRefresh = null;
+                        refreshPricesBtn.setDisable(false);
+                        showRefreshProgress(false);
+                        logFreshPrices();
+                        updatePortfolioStats();
+                        AlertService alerts = alertService;
+                        if (alerts != null) {
+                            alerts.onPortfolioProfitLossPercent(stockService.getTotalProfitLossPercent());
+                        }
+                        refreshStatusLabel.setText(refreshSummary(progress));
+                        if (progress.getPersistError() != null) {
+                            showError("Prices were updated but could not be saved: " + progress.getPersistError());
+                        }
+                    }
+                });
+        priceRefresh.start(new ArrayList<>(table.getItems()));
+    }
+    
+    private void cancelPriceRefresh() {
+        if (priceRefresh != null) {
+            priceRefresh.cancel();
+            refreshStatusLabel.setText("Cancelling...");
+        }
+    }
+    
+    private void showRefreshProgress(boolean running) {
+        refreshProgress.setVisible(running);
+        refreshProgress.setManaged(running);
+        cancelRefreshBtn.setVisible(running);
+        cancelRefreshBtn.setManaged(running);
+    }
+    
+    private static String refreshSummary(PriceRefreshPipeline.Progress progress) {
+        if (progress.getApplied() == 0 && progress.getOutcome() == PriceRefreshPipeline.Outcome.COMPLETED) {
+            return "No prices were updated. The API may have been rate-limited or returned no data.";
+        }
+        String text = String.format("Prices updated for %d holdings (%d/%d symbols answered",
+                progress.getApplied(), progress.getFetched(), progress.getSymbols());
+        if (progress.getRejected() > 0) {
+            text += ", " + progress.getRejected() + " rejected";
+        }
+        text += ")";
+        if (progress.getPersistError() != null) {
+            text += " - not saved";
+        }
+        return switch (progress.getOutcome()) {
+            case CANCELLED -> text + " - cancelled";
+            case TIMED_OUT -> text + " - timed out";
+            default -> text;
+        };
+    }
+    
+    private void logFreshPrices() {
+        if (!freshPricesLogged) {
+            freshPricesLogged = true;
+            logStartup("fresh prices");
+        }
+    }
+    
+    /**
+     * Handle Add Stock event
+     * Controllers delegate to services for business logic
+     */
+    private void handleAddStock() {
+        String idStr = idField.getText().trim();
+        String symbol = symbolField.getText().trim().toUpperCase();
+        String company = companyField.getText().trim();
+        String sharesStr = sharesField.getText().trim();
+        String purchasePriceStr = purchasePriceField.getText().trim();
+        String currentPriceStr = currentPriceField.getText().trim();
+        String sector = sectorField.getText().trim();
+        
+        // Validate input
+        if (idStr.isEmpty() || symbol.isEmpty() || company.isEmpty() || 
+            sharesStr.isEmpty() || purchasePriceStr.isEmpty() || currentPriceStr.isEmpty()) {
+            showError("All fields are required!");
+            return;
+        }
+        
+        // Set default sector if empty
+        if (sector.isEmpty()) {
+            sector = "Unknown";
+        }
+        
+        try {
+            int id = Integer.parseInt(idStr);
+            int shares = Integer.parseInt(sharesStr);
+            double purchasePrice = Double.parseDouble(purchasePriceStr);
+            double currentPrice = Double.parseDouble(currentPriceStr);
+            
+            Stock stock = new Stock(id, symbol, company, shares, purchasePrice, currentPrice, sector);
+            
+            // Delegate to service for business logic
+            String errorMessage = stockService.addStock(stock);
+            
+            if (errorMessage != null) {
+                showError(errorMessage);
+            } else {
+                // Success - update stats and clear fields
+                updatePortfolioStats();
+                idField.clear();
+                symbolField.clear();
+                companyField.clear();
+                sharesField.clear();
+                purchasePriceField.clear();
+                currentPriceField.clear();
                 sectorField.clear();
             }
         } catch (NumberFormatException ex) {
@@ -570,9 +899,181 @@ public class PortfolioController {
         }
     }
     
+    /**
+     * Handle Import CSV event
+     * Streams a broker statement into the portfolio in the background with a
+     * progress bar; rejected rows are listed in a report next to the file
+     */
+    private void handleImportCsv() {
+        if (!stockService.isReady()) {
+            showError(StockService.LOADING_MESSAGE);
+            return;
+        }
+        
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Broker Statement");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(scene.getWindow());
+        if (file == null) return;
+        
+        Stage progressStage = new Stage();
+        progressStage.initModality(Modality.APPLICATION_MODAL);
+        progressStage.setTitle("Importing " + file.getName());
+        
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setPrefWidth(360);
+        Label progressLabel = new Label("Reading statement...");
+        Button cancelBtn = new Button("Cancel");
+        cancelBtn.getStyleClass().add("mcgill-button-delete");
+        
+        Task<PortfolioImportService.Result> task = new Task<PortfolioImportService.Result>() {
+            @Override
+            protected PortfolioImportService.Result call() throws Exception {
+                return stockService.importStatement(file.toPath(), (bytesRead, totalBytes, accepted, rejected) -> {
+                    updateProgress(bytesRead, totalBytes);
+                    updateMessage(String.format("%,d rows accepted, %,d rejected", accepted, rejected));
+                }, this::isCancelled);
+            }
+            
+            @Override
+            protected void succeeded() {
+                progressStage.close();
+                stockService.applyImport();
+                updatePortfolioStats();
+                PortfolioImportService.Result result = getValue();
+                StringBuilder message = new StringBuilder(String.format(
+                        "Imported %,d rows in %.1f s: %d new holdings, %d updated.",
+                        result.getAccepted(), result.getElapsedMillis() / 1000.0,
+                        result.getHoldingsInserted(), result.getHoldingsUpdated()));
+                if (result.getRejectReport() != null) {
+                    message.append(String.format("%n%,d rows were rejected, see:%n%s",
+                            result.getRejected(), result.getRejectReport()));
+                }
+                showSuccess(message.toString());
+            }
+            
+            @Override
+            protected void cancelled() {
+                progressStage.close();
+                // A cancel that lands after the merge committed still has holdings to show
+                stockService.applyImport();
+                updatePortfolioStats();
+                showError("Import cancelled.");
+            }
+            
+            @Override
+            protected void failed() {
+                progressStage.close();
+                Throwable error = getException();
+                showError("Import failed, no holdings were changed:\n" + error.getMessage());
+            }
+        };
+        
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressLabel.textProperty().bind(task.messageProperty());
+        cancelBtn.setOnAction(e -> task.cancel(false));
+        progressStage.setOnCloseRequest(e -> task.cancel(false));
+        
+        VBox box = new VBox(15, progressLabel, progressBar, cancelBtn);
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(20));
+        Scene progressScene = new Scene(box);
+        progressScene.getStylesheets().addAll(
+            getClass().getResource("/styles/theme.css").toExternalForm(),
+            getClass().getResource("/styles/common.css").toExternalForm()
+        );
+        progressStage.setScene(progressScene);
+        progressStage.show();
+        
+        executors.jdbc().execute(task);
+    }
+    
+    /**
+     * Export holdings, the ledger or recorded ticks to an Arrow stream or a CSV file
+     * The format follows the file type chosen in the save dialog.
+     */
+    private void handleExport() {
+        if (!stockService.isReady()) {
+            showError(StockService.LOADING_MESSAGE);
+            return;
+        }
+        
+        ChoiceDialog<ExportService.Dataset> datasetDialog = new ChoiceDialog<>(
+                ExportService.Dataset.HOLDINGS, ExportService.Dataset.values());
+        datasetDialog.setTitle("Export");
+        datasetDialog.setHeaderText("What would you like to export?");
+        Optional<ExportService.Dataset> choice = datasetDialog.showAndWait();
+        if (choice.isEmpty()) return;
+        ExportService.Dataset dataset = choice.get();
+        
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export " + dataset.name().toLowerCase());
+        FileChooser.ExtensionFilter arrowFilter = new FileChooser.ExtensionFilter("Arrow IPC stream", "*.arrows");
+        FileChooser.ExtensionFilter csvFilter = new FileChooser.ExtensionFilter("CSV files", "*.csv");
+        chooser.getExtensionFilters().addAll(arrowFilter, csvFilter);
+        chooser.setInitialFileName(dataset.name().toLowerCase() + ExportService.Format.ARROW.getExtension());
+        File file = chooser.showSaveDialog(scene.getWindow());
+        if (file == null) return;
+        String fileName = file.getName().toLowerCase();
+        ExportService.Format format = fileName.endsWith(".csv") ? ExportService.Format.CSV
+                : fileName.endsWith(".arrows") ? ExportService.Format.ARROW
+                : chooser.getSelectedExtensionFilter() == csvFilter ? ExportService.Format.CSV : ExportService.Format.ARROW;
+        
+        Stage progressStage = new Stage();
+        progressStage.initModality(Modality.APPLICATION_MODAL);
+        progressStage.setTitle("Exporting " + file.getName());
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(360);
+        Button cancelBtn = new Button("Cancel");
+        cancelBtn.getStyleClass().add("mcgill-button-delete");
+        
+        Task<ExportService.Result> task = new Task<ExportService.Result>() {
+            @Override
+            protected ExportService.Result call() throws Exception {
+                return stockService.export(dataset, format, file.toPath(), this::isCancelled);
+            }
+            
+            @Override
+            protected void succeeded() {
+                progressStage.close();
+                ExportService.Result result = getValue();
+                showSuccess(String.format("Exported %,d rows (%.1f MB) in %.1f s, %.0f MB/s.",
+                        result.getRows(), result.getBytes() / (1024.0 * 1024.0),
+                        result.getElapsedMillis() / 1000.0, result.getMegabytesPerSecond()));
+            }
+            
+            @Override
+            protected void cancelled() {
+                progressStage.close();
+                showError("Export cancelled.");
+            }
+            
+            @Override
+            protected void failed() {
+                progressStage.close();
+                showError("Export failed:\n" + getException().getMessage());
+            }
+        };
+        cancelBtn.setOnAction(e -> task.cancel(false));
+        progressStage.setOnCloseRequest(e -> task.cancel(false));
+        
+        VBox box = new VBox(15, new Label("Writing " + file.getName() + "..."), progressBar, cancelBtn);
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(20));
+        Scene progressScene = new Scene(box);
+        progressScene.getStylesheets().addAll(
+            getClass().getResource("/styles/theme.css").toExternalForm(),
+            getClass().getResource("/styles/common.css").toExternalForm()
+        );
+        progressStage.setScene(progressScene);
+        progressStage.show();
+        
+        executors.jdbc().execute(task);
+    }
+    
     /**
      * Handle Update Stock event
-     * Updates shares and purchase price of selected stock
+     * Changes the shares of the selected stock through a buy or sell
      */
     private void handleUpdateStock() {
         Stock selected = table.getSelectionModel().getSelectedItem();
@@ -605,13 +1106,12 @@ public class PortfolioController {
                 return;
             }
             
-            // Update the stock
-            selected.setShares(newShares);
-            selected.setPurchasePrice(newPurchasePrice);
-            
-            // Trigger table refresh to update calculated values
-            int selectedIndex = table.getSelectionModel().getSelectedIndex();
-            table.refresh();
+            // More shares are bought at the entered price, fewer are sold (FIFO) at the current price
+            String error = stockService.updateHolding(selected, newShares, newPurchasePrice);
+            if (error != null) {
+                showError(error);
+                return;
+            }
             
             // Show success
             showSuccess("Stock updated successfully!");
@@ -644,6 +1144,10 @@ public class PortfolioController {
             showError("Please select a stock to sell!");
             return;
         }
+        if (!stockService.isReady()) {
+            showError(StockService.LOADING_MESSAGE);
+            return;
+        }
         
         // Fetch live price before selling
         double livePrice = stockPriceService.getCurrentPrice(selected.getSymbol());
@@ -652,9 +1156,30 @@ public class PortfolioController {
             return;
         }
         selected.setCurrentPrice(livePrice);
-        selected.setLastRefreshed(java.time.LocalDateTime.now());
+        selected.setLastRefreshed(LocalDateTime.now());
         stockService.persist(selected); // persist so DB/UI align with the sell 
         
+        // Choose how to match tax lots: FIFO, LIFO, or one specific lot
+        List<TaxLot> openLots = stockService.getOpenLots(selected);
+        List<String> choices = new ArrayList<>();
+        choices.add("FIFO");
+        choices.add("LIFO");
+        for (TaxLot lot : openLots) {
+            choices.add(lot.toString());
+        }
+        ChoiceDialog<String> methodDialog = new ChoiceDialog<>("FIFO", choices);
+        methodDialog.setTitle("Sell Shares");
+        methodDialog.setHeaderText("Which lots should this sale use?");
+        methodDialog.setContentText("Lot matching:");
+        Optional<String> methodChoice = methodDialog.showAndWait();
+        if (methodChoice.isEmpty()) {
+            return;
+        }
+        int choiceIndex = choices.indexOf(methodChoice.get());
+        LotMatchingEngine.Method method = choiceIndex == 1 ? LotMatchingEngine.Method.LIFO
+            : choiceIndex >= 2 ? LotMatchingEngine.Method.SPECIFIC_ID : LotMatchingEngine.Method.FIFO;
+        long lotId = choiceIndex >= 2 ? openLots.get(choiceIndex - 2).getLotId() : 0;
+        
         // Show dialog to input number of shares to sell
         TextInputDialog dialog = new TextInputDialog("1");
         dialog.setTitle("Sell Shares");
@@ -678,29 +1203,30 @@ public class PortfolioController {
                 }
                 
                 // Delegate to service
-                String errorMessage = stockService.sellShares(selected, sharesToSell);
+                String errorMessage = stockService.sellShares(selected, sharesToSell, method, lotId);
                 
                 if (errorMessage != null) {
                     showError(errorMessage);
                 } else {
-                    // Trigger table refresh to update calculated values (Total Value, P/L)
+                    // The row's Total Value and P/L cells follow its shares on their own
                     int selectedIndex = table.getSelectionModel().getSelectedIndex();
-                    table.refresh();
                     if (selectedIndex >= 0 && selectedIndex < table.getItems().size()) {
                         table.getSelectionModel().clearSelection();
                     }
                     
                     // Success message with sold price/time (EDT)
-                    java.time.ZoneId ny = java.time.ZoneId.of("America/New_York");
-                    java.time.format.DateTimeFormatter tfmt = java.time.format.DateTimeFormatter.ofPattern("HH/mm/ss");
+                    ZoneId ny = ZoneId.of("America/New_York");
+                    DateTimeFormatter tfmt = DateTimeFormatter.ofPattern("HH/mm/ss");
                     String soldTime = selected.getLastRefreshed() == null ? "-" : selected.getLastRefreshed().atZone(ny).format(tfmt);
                     String soldAt = String.format("$%.2f", selected.getCurrentPrice());
+                    double realized = stockService.getLastRealizedProfitLoss();
+                    String realizedText = String.format("\nRealized P/L (%s): %s$%,.2f", method, realized >= 0 ? "+" : "", realized);
                     if (sharesToSell == currentShares) {
-                        showSuccess(String.format("Sold all %d shares of %s at %s (%s)", sharesToSell, selected.getSymbol(), soldAt, soldTime));
+                        showSuccess(String.format("Sold all %d shares of %s at %s (%s)", sharesToSell, selected.getSymbol(), soldAt, soldTime) + realizedText);
                     } else {
                         int remaining = currentShares - sharesToSell;
                         showSuccess(String.format("Sold %d shares of %s at %s (%s). %d shares remaining.", 
-                            sharesToSell, selected.getSymbol(), soldAt, soldTime, remaining));
+                            sharesToSell, selected.getSymbol(), soldAt, soldTime, remaining) + realizedText);
                     }
                     
                     // Update portfolio-level statistics
@@ -741,14 +1267,74 @@ public class PortfolioController {
      * Update portfolio statistics labels
      */
     private void updatePortfolioStats() {
-        if (totalInvestmentLabel == null || currentValueLabel == null || profitLossLabel == null) {
+        if (totalInvestmentLabel == null || currentValueLabel == null || profitLossLabel == null || realizedLabel == null) {
             return;
         }
         
-        double investment = stockService.getTotalInvestment();
-        double current = stockService.getTotalPortfolioValue();
-        double pl = stockService.getTotalProfitLoss();
-        double plPercent = stockService.getTotalProfitLossPercent();
+        if (stockService.isLargeBook()) {
+            requestServerSummary();
+        } else {
+            showStats(stockService.summarize());
+        }
+        
+        double realized = stockService.getRealizedProfitLoss();
+        realizedLabel.setText(String.format("Realized: %s$%,.2f", realized >= 0 ? "+" : "", realized));
+        realizedLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13pt; -fx-text-fill: " + (realized >= 0 ? "#2E7D32" : "#D32F2F") + ";");
+    }
+    
+    /**
+     * Portfolio σ over a trading day, from the covariance of 1m bar returns of the holdings that have bars
+     */
+    private void showRisk() {
+        Map<String, Double> exposures = riskTracker.values(AllocationTracker.Grouping.HOLDING);
+        double total = 0.0;
+        double covered = 0.0;
+        for (Map.Entry<String, Double> exposure : exposures.entrySet()) {
+            total += exposure.getValue();
+            if (covariance.covers(exposure.getKey())) covered += exposure.getValue();
+        }
+        double sigma = covariance.portfolioSigma(exposures) * Math.sqrt(MINUTE_BARS_PER_DAY);
+        
+        if (Double.isNaN(sigma)) {
+            riskLabel.setText("σ (1d): –");
+            riskTooltip.setText("No 1m bars for the holdings yet; Real-Time Analysis collects them");
+        } else {
+            riskLabel.setText(String.format("σ (1d): $%,.0f (%.2f%%)", sigma, total > 0 ? sigma / total * 100.0 : 0.0));
+            riskTooltip.setText(String.format("Covers %.0f%% of market value; %,d bars folded in",
+                    total > 0 ? covered / total * 100.0 : 0.0, covariance.getUpdates()));
+        }
+    }
+    
+    /**
+     * Large books: have PostgreSQL aggregate the totals in the background
+     * Requests made while one is running are folded into a single follow-up.
+     */
+    private void requestServerSummary() {
+        // Until loading finishes the summary cannot be queried; finishLoading updates the stats
+        if (!stockService.isReady()) return;
+        if (summaryInFlight) {
+            summaryStale = true;
+            return;
+        }
+        summaryInFlight = true;
+        CompletableFuture.supplyAsync(stockService::fetchSummary, executors.jdbc())
+                .thenAccept(summary -> Platform.runLater(() -> {
+                    summaryInFlight = false;
+                    if (summary != null) {
+                        showStats(summary);
+                    }
+                    if (summaryStale) {
+                        summaryStale = false;
+                        requestServerSummary();
+                    }
+                }));
+    }
+    
+    private void showStats(PortfolioSummary summary) {
+        double investment = summary.getTotalInvestment();
+        double current = summary.getMarketValue();
+        double pl = summary.getProfitLoss();
+        double plPercent = summary.getProfitLossPercent();
         
         totalInvestmentLabel.setText(String.format("Total Investment: $%,.2f", investment));
         totalInvestmentLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 13pt; -fx-text-fill: #333333;");
@@ -763,8 +1349,139 @@ public class PortfolioController {
     }
     
     /**
-     * Show portfolio pie chart in a new window
-     * Displays what percentage of total investment is in each stock
+     * Page through the whole book straight from PostgreSQL
+     * Filtering and sorting run in the database and only the pages near the visible
+     * rows are held, so this works the same for a few holdings or millions of them.
+     */
+    private void showBrowseWindow() {
+        PagedPortfolio book = new PagedPortfolio(Platform::runLater);
+
+        Stage browseStage = new Stage();
+        browseStage.setTitle("Browse Book");
+        browseStage.setOnHidden(e -> book.close());
+
+        TextField prefixField = new TextField();
+        prefixField.setPromptText("Symbol prefix");
+        prefixField.setPrefWidth(110);
+        TextField sectorFilterField = new TextField();
+        sectorFilterField.setPromptText("Sector");
+        sectorFilterField.setPrefWidth(120);
+        TextField minPlField = new TextField();
+        minPlField.setPromptText("Min P/L");
+        minPlField.setPrefWidth(90);
+        TextField maxPlField = new TextField();
+        maxPlField.setPromptText("Max P/L");
+        maxPlField.setPrefWidth(90);
+        ComboBox<PortfolioQuery.SortKey> sortBox =
+                new ComboBox<>(FXCollections.observableArrayList(PortfolioQuery.SortKey.values()));
+        sortBox.setValue(PortfolioQuery.SortKey.SYMBOL);
+        CheckBox descendingBox = new CheckBox("Descending");
+        Button applyBtn = new Button("Apply");
+        applyBtn.getStyleClass().add("mcgill-button");
+        applyBtn.setDefaultButton(true);
+
+        Label countLabel = new Label();
+        countLabel.setStyle("-fx-font-weight: bold;");
+        book.addListener((ListChangeListener<Stock>) c ->
+                countLabel.setText(String.format("%,d holdings — %s", book.size(), book.getQuery())));
+        
+        // A failed read stops fetching until the user retries the same query
+        Label errorLabel = new Label();
+        errorLabel.setStyle("-fx-text-fill: #D32F2F;");
+        Button retryBtn = new Button("Retry");
+        retryBtn.getStyleClass().add("mcgill-button");
+        HBox errorBox = new HBox(10, errorLabel, retryBtn);
+        errorBox.setAlignment(Pos.CENTER_LEFT);
+        errorBox.setVisible(false);
+        errorBox.setManaged(false);
+        book.setOnError(message -> {
+            errorLabel.setText(message + " — check the database connection.");
+            errorBox.setVisible(true);
+            errorBox.setManaged(true);
+        });
+        Runnable hideError = () -> {
+            errorBox.setVisible(false);
+            errorBox.setManaged(false);
+        };
+        retryBtn.setOnAction(e -> {
+            hideError.run();
+            book.query(book.getQuery());
+        });
+
+        TableView<Stock> browseTable = new TableView<>(book);
+        browseTable.setFixedCellSize(26);
+        browseTable.setPlaceholder(new Label("No matching holdings"));
+        browseTable.getColumns().addAll(List.of(
+                browseColumn("ID", 70, s -> String.valueOf(s.getId())),
+                browseColumn("Symbol", 90, Stock::getSymbol),
+                browseColumn("Company", 200, Stock::getCompany),
+                browseColumn("Shares", 80, s -> String.valueOf(s.getShares())),
+                browseColumn("Purchase", 100, s -> String.format("$%.2f", s.getPurchasePrice())),
+                browseColumn("Current", 100, s -> String.format("$%.2f", s.getCurrentPrice())),
+                browseColumn("Value", 120, s -> String.format("$%.2f", s.getTotalValue())),
+                browseColumn("P/L", 110, Stock::getProfitLossFormatted),
+                browseColumn("Sector", 130, Stock::getSector)));
+        VBox.setVgrow(browseTable, Priority.ALWAYS);
+
+        applyBtn.setOnAction(e -> {
+            try {
+                PortfolioQuery query = new PortfolioQuery(prefixField.getText(), sectorFilterField.getText(),
+                        parseBound(minPlField.getText()), parseBound(maxPlField.getText()),
+                        sortBox.getValue(), descendingBox.isSelected());
+                hideError.run();
+                book.query(query);
+                browseTable.scrollTo(0);
+            } catch (NumberFormatException ex) {
+                showError("Please enter valid P/L bounds!");
+            }
+        });
+
+        HBox filters = new HBox(10, prefixField, sectorFilterField, minPlField, maxPlField, sortBox, descendingBox, applyBtn);
+        filters.setAlignment(Pos.CENTER_LEFT);
+
+        VBox box = new VBox(10, filters, countLabel, errorBox, browseTable);
+        box.setPadding(new Insets(16));
+
+        Scene browseScene = new Scene(box, 1080, 640);
+        browseScene.getStylesheets().addAll(
+            getClass().getResource("/styles/theme.css").toExternalForm(),
+            getClass().getResource("/styles/common.css").toExternalForm()
+        );
+        browseStage.setScene(browseScene);
+        browseStage.show();
+
+        book.query(PortfolioQuery.all());
+    }
+
+    /**
+     * Read-only text column for the browse table; blank while the row's page loads.
+     * Sorting is done by the database, so clicking a header does nothing.
+     */
+    private TableColumn<Stock, String> browseColumn(String title, double width, Function<Stock, String> text) {
+        TableColumn<Stock, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cellData -> new SimpleStringProperty(
+                PagedPortfolio.isLoading(cellData.getValue()) ? "" : text.apply(cellData.getValue())));
+        column.setPrefWidth(width);
+        column.setSortable(false);
+        return column;
+    }
+
+    private static Double parseBound(String text) {
+        if (text == null || text.isBlank()) return null;
+        double bound = Double.parseDouble(text.trim());
+        // "NaN" and "Infinity" parse, but have no NUMERIC value to filter on
+        if (!Double.isFinite(bound)) {
+            throw new NumberFormatException("Not a finite number: " + text);
+        }
+        return bound;
+    }
+
+    /**
+     * Show a live allocation pie chart in a new window
+     * Market value by holding or by sector, from an AllocationTracker kept up to
+     * date as prices and holdings change. Slices are updated in place at most
+     * CHART_UPDATES_PER_SECOND times a second, and everything past the largest
+     * ones is grouped into "Other", so books with thousands of names stay responsive.
      */
     private void showPortfolioChart() {
         if (stockService.getAllStocks().isEmpty()) {
@@ -772,46 +1489,66 @@ public class PortfolioController {
             return;
         }
         
-        // Create new window (Stage)
+        AllocationTracker tracker = new AllocationTracker(stockService.getAllStocks());
+        
         Stage chartStage = new Stage();
-        chartStage.setTitle("Portfolio Investment Distribution");
-        chartStage.setWidth(600);
-        chartStage.setHeight(500);
+        chartStage.setTitle("Portfolio Allocation");
+        chartStage.setWidth(700);
+        chartStage.setHeight(600);
         
-        // Create PieChart
         PieChart pieChart = new PieChart();
-        pieChart.setTitle("Investment by Stock");
         pieChart.setLabelLineLength(10);
+        // Slices change many times a second; animating each change would only lag behind
+        pieChart.setAnimated(false);
+        
+        ComboBox<AllocationTracker.Grouping> groupingBox = new ComboBox<>(
+            FXCollections.observableArrayList(AllocationTracker.Grouping.values()));
+        groupingBox.setValue(AllocationTracker.Grouping.HOLDING);
+        Spinner<Integer> slicesSpinner = new Spinner<>(2, 100, DEFAULT_CHART_SLICES);
+        slicesSpinner.setPrefWidth(80);
+        Label totalLabel = new Label();
+        
+        Map<String, PieChart.Data> shown = new HashMap<>();
+        Runnable redraw = () -> {
+            AllocationTracker.Grouping grouping = groupingBox.getValue();
+            pieChart.setTitle(grouping == AllocationTracker.Grouping.SECTOR ? "Market Value by Sector" : "Market Value by Holding");
+            updateSlices(pieChart, shown, tracker.slices(grouping, slicesSpinner.getValue()), tracker.getTotal());
+            totalLabel.setText(String.format("Total: $%,.0f", tracker.getTotal()));
+        };
+        groupingBox.setOnAction(e -> {
+            pieChart.getData().clear();
+            shown.clear();
+            redraw.run();
+        });
+        slicesSpinner.valueProperty().addListener((obs, oldValue, newValue) -> redraw.run());
+        redraw.run();
+        tracker.takeChanged();
         
-        // Calculate total investment
-        double totalInvestment = stockService.getTotalInvestment();
-        
-        // Add data for each stock
-        javafx.collections.ObservableList<Stock> stocks = stockService.getAllStocks();
-        for (Stock stock : stocks) {
-            double stockInvestment = stock.getShares() * stock.getPurchasePrice();
-            double percentage = (stockInvestment / totalInvestment) * 100.0;
-            
-            String label = String.format("%s (%s): $%,.0f (%.1f%%)", 
-                stock.getSymbol(), 
-                stock.getCompany(), 
-                stockInvestment, 
-                percentage);
-            
-            PieChart.Data slice = new PieChart.Data(label, stockInvestment);
-            pieChart.getData().add(slice);
-        }
+        Timeline throttle = new Timeline(new KeyFrame(Duration.millis(1000.0 / CHART_UPDATES_PER_SECOND), e -> {
+            if (tracker.takeChanged()) {
+                redraw.run();
+            }
+        }));
+        throttle.setCycleCount(Timeline.INDEFINITE);
+        throttle.play();
+        chartStage.setOnHidden(e -> {
+            throttle.stop();
+            tracker.close();
+        });
         
-        // Create close button
         Button closeBtn = new Button("Close");
         closeBtn.getStyleClass().add("mcgill-button");
         closeBtn.setOnAction(e -> chartStage.close());
         
+        HBox controls = new HBox(10, new Label("Group by:"), groupingBox, new Label("Slices:"), slicesSpinner, totalLabel);
+        controls.setAlignment(Pos.CENTER);
+        
         // Layout
         VBox chartContainer = new VBox(15);
         chartContainer.setAlignment(Pos.CENTER);
         chartContainer.setPadding(new Insets(20));
-        chartContainer.getChildren().addAll(pieChart, closeBtn);
+        chartContainer.getChildren().addAll(controls, pieChart, closeBtn);
+        VBox.setVgrow(pieChart, Priority.ALWAYS);
         
         Scene chartScene = new Scene(chartContainer);
         chartScene.getStylesheets().addAll(
@@ -822,31 +1559,424 @@ public class PortfolioController {
         chartStage.setScene(chartScene);
         chartStage.show();
     }
+    
+    /**
+     * Show every holding as a tile of a live heatmap, sized by value and coloured by P/L %
+     * While the window is open, kdb+ quotes are applied to the holdings' prices in
+     * memory (as the headless feed does), which moves the tiles through the
+     * AllocationTracker behind the heatmap.
+     */
+    private void showHeatmap() {
+        if (stockService.getAllStocks().isEmpty()) {
+            showError("No stocks in portfolio to display!");
+            return;
+        }
+        
+        Stage heatmapStage = new Stage();
+        heatmapStage.setTitle("Portfolio Heatmap");
+        PortfolioHeatmap heatmap = new PortfolioHeatmap(stockService.getAllStocks());
+        Label legend = new Label("Tile size: market value   Colour: P/L % (full colour at ±5%)");
+        VBox heatmapContainer = new VBox(10, legend, heatmap);
+        heatmapContainer.setPadding(new Insets(10));
+        VBox.setVgrow(heatmap, Priority.ALWAYS);
+        
+        Scene heatmapScene = new Scene(heatmapContainer, 1200, 800);
+        heatmapScene.getStylesheets().addAll(
+            getClass().getResource("/styles/theme.css").toExternalForm(),
+            getClass().getResource("/styles/common.css").toExternalForm()
+        );
+        heatmapStage.setScene(heatmapScene);
+        heatmapStage.show();
+        
+        KdbClientService kdb = new KdbClientService();
+        AppExecutors.TaskGroup heatmapTasks = executors.newGroup("heatmap");
+        heatmapStage.setOnHidden(e -> {
+            heatmapTasks.close();
+            kdb.close();
+            heatmap.close();
+        });
+        heatmapTasks.submit(executors.io(), () -> {
+            try {
+                kdb.connect("localhost", 5012);
+            } catch (Exception e) {
+                System.err.println("✗ kdb+ unavailable, heatmap shows last known prices: " + e.getMessage());
+                return;
+            }
+            // kdb+ reduces the ticks since the last poll to the last one per symbol
+            long[] since = {0};
+            heatmapTasks.scheduleAtFixedRate(executors.io(), () -> {
+                Map<String, Double> prices = new HashMap<>();
+                try {
+                    LastPriceBatch last = kdb.lastPrices(null, since[0]).get();
+                    for (int i = 0; i < last.size(); i++) {
+                        prices.put(last.getSymbols()[i].toUpperCase(), last.getPrices()[i]);
+                    }
+                    since[0] = last.maxTimeMillis(since[0]);
+                } catch (Exception e) {
+                    System.err.println("Error polling kdb+ quotes: " + e.getMessage());
+                    return;
+                }
+                if (!prices.isEmpty()) {
+                    Platform.runLater(() -> applyLivePrices(prices));
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+        });
+    }
+    
+    /**
+     * Show the correlation of the largest holdings that have bars, updated as bars close
+     */
+    private void showCorrelation() {
+        Map<String, Double> exposures = riskTracker.values(AllocationTracker.Grouping.HOLDING);
+        List<String> symbols = new ArrayList<>();
+        for (String symbol : exposures.keySet()) {
+            if (covariance.covers(symbol)) symbols.add(symbol);
+        }
+        if (symbols.size() < 2) {
+            showError("Correlation needs 1m bars for at least two holdings; open Real-Time Analysis to collect them!");
+            return;
+        }
+        symbols.sort((a, b) -> Double.compare(exposures.get(b), exposures.get(a)));
+        if (symbols.size() > MAX_CORRELATION_SYMBOLS) {
+            symbols = new ArrayList<>(symbols.subList(0, MAX_CORRELATION_SYMBOLS));
+        }
+        Collections.sort(symbols);
+        
+        Stage correlationStage = new Stage();
+        correlationStage.setTitle("Holdings Correlation");
+        CorrelationHeatmap heatmap = new CorrelationHeatmap(covariance, symbols);
+        Label legend = new Label(String.format("EWMA correlation of 1m bar returns (λ = %.2f)   Red: +1   Blue: −1   Dark: not enough bars",
+                CovarianceEngine.DEFAULT_LAMBDA));
+        VBox correlationContainer = new VBox(10, legend, heatmap);
+        correlationContainer.setPadding(new Insets(10));
+        VBox.setVgrow(heatmap, Priority.ALWAYS);
+        
+        Scene correlationScene = new Scene(correlationContainer, 900, 900);
+        correlationScene.getStylesheets().addAll(
+            getClass().getResource("/styles/theme.css").toExternalForm(),
+            getClass().getResource("/styles/common.css").toExternalForm()
+        );
+        correlationStage.setScene(correlationScene);
+        correlationStage.setOnHidden(e -> heatmap.close());
+        correlationStage.show();
+    }
+    
+    /**
+     * Set in-memory prices of holdings from live quotes; not persisted
+     */
+    private void applyLivePrices(Map<String, Double> prices) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Stock stock : stockService.getAllStocks()) {
+            Double price = prices.get(stock.getSymbol());
+            if (price != null && price > 0 && price != stock.getCurrentPrice()) {
+                stock.setCurrentPrice(price);
+                stock.setLastRefreshed(now);
+            }
+        }
+    }
+    
+    /**
+     * Bring the chart to the given slices, changing existing ones in place
+     * Only slices that appear or disappear touch the chart's data list.
+     */
+    private static void updateSlices(PieChart chart, Map<String, PieChart.Data> shown,
+                                     List<AllocationTracker.Slice> slices, double total) {
+        Set<String> keep = new HashSet<>();
+        for (AllocationTracker.Slice slice : slices) {
+            keep.add(slice.getName());
+        }
+        shown.entrySet().removeIf(entry -> {
+            if (keep.contains(entry.getKey())) return false;
+            chart.getData().remove(entry.getValue());
+            return true;
+        });
+        
+        for (AllocationTracker.Slice slice : slices) {
+            String label = String.format("%s: $%,.0f (%.1f%%)", slice.getLabel(), slice.getValue(),
+                    total > 0 ? slice.getValue() / total * 100.0 : 0.0);
+            PieChart.Data data = shown.get(slice.getName());
+            if (data == null) {
+                data = new PieChart.Data(label, slice.getValue());
+                shown.put(slice.getName(), data);
+                chart.getData().add(data);
+            } else {
+                data.setPieValue(slice.getValue());
+                data.setName(label);
+            }
+        }
+        
+        // Slices that joined the largest ones were appended; keep "Other" at the end
+        PieChart.Data other = shown.get(AllocationTracker.OTHER);
+        ObservableList<PieChart.Data> data = chart.getData();
+        if (other != null && data.get(data.size() - 1) != other) {
+            data.remove(other);
+            data.add(other);
+        }
+    }
+
+    /**
+     * Poll AlertService once a second and deliver fired alerts as one batch
+     */
+    private void startAlertNotifications() {
+        Timeline poll = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            List<PriceAlert> fired = alertService.drainNotifications();
+            if (fired.isEmpty()) return;
+
+            DateTimeFormatter tfmt = DateTimeFormatter.ofPattern("HH:mm:ss");
+            for (PriceAlert alert : fired) {
+                String value = alert.isPortfolioAlert()
+                    ? String.format("%.2f%%", alert.getTriggerValue())
+                    : String.format("$%.2f", alert.getTriggerValue());
+                alertLog.add(0, alert.getTriggeredAt().format(tfmt) + "  " + alert + "  (at " + value + ")");
+            }
+            if (alertLog.size() > 500) alertLog.remove(500, alertLog.size());
+            activeAlertItems.setAll(alertService.getActiveAlerts());
+
+            unreadAlerts += fired.size();
+            alertsBtn.setText("🔔 Alerts (" + unreadAlerts + ")");
+        }));
+        poll.setCycleCount(Timeline.INDEFINITE);
+        poll.play();
+    }
+
+    /**
+     * Show active alerts, a form to add new ones, and the triggered-alert log
+     */
+    private void showAlertsWindow() {
+        if (alertService == null) {
+            showError("Alerts are still loading, please try again in a moment!");
+            return;
+        }
+        unreadAlerts = 0;
+        alertsBtn.setText("🔔 Alerts");
+        activeAlertItems.setAll(alertService.getActiveAlerts());
+
+        Stage alertStage = new Stage();
+        alertStage.setTitle("Price Alerts");
+
+        ListView<PriceAlert> activeList = new ListView<>(activeAlertItems);
+        activeList.setPrefHeight(180);
+        ListView<String> logList = new ListView<>(alertLog);
+        logList.setPrefHeight(180);
+
+        TextField alertSymbolField = new TextField();
+        alertSymbolField.setPromptText("AAPL or " + PriceAlert.PORTFOLIO_PL_PERCENT);
+        ComboBox<PriceAlert.Direction> directionBox = new ComboBox<>(FXCollections.observableArrayList(PriceAlert.Direction.values()));
+        directionBox.setValue(PriceAlert.Direction.CROSSES);
+        TextField thresholdField = new TextField();
+        thresholdField.setPromptText("Price, or P/L % for portfolio");
+
+        Button addAlertBtn = new Button("Add Alert");
+        addAlertBtn.getStyleClass().add("mcgill-button");
+        addAlertBtn.setOnAction(e -> {
+            String symbol = alertSymbolField.getText().trim().toUpperCase();
+            try {
+                double threshold = Double.parseDouble(thresholdField.getText().trim());
+                String errorMessage = alertService.addAlert(symbol, directionBox.getValue(), threshold, currentValueOf(symbol));
+                if (errorMessage != null) {
+                    showError(errorMessage);
+                } else {
+                    activeAlertItems.setAll(alertService.getActiveAlerts());
+                    alertSymbolField.clear();
+                    thresholdField.clear();
+                }
+            } catch (NumberFormatException ex) {
+                showError("Please enter a valid threshold!");
+            }
+        });
+
+        Button removeAlertBtn = new Button("Remove Selected");
+        removeAlertBtn.getStyleClass().add("mcgill-button-delete");
+        removeAlertBtn.setOnAction(e -> {
+            String errorMessage = alertService.removeAlert(activeList.getSelectionModel().getSelectedItem());
+            if (errorMessage != null) {
+                showError(errorMessage);
+            } else {
+                activeAlertItems.setAll(alertService.getActiveAlerts());
+            }
+        });
+
+        HBox form = new HBox(10, alertSymbolField, directionBox, thresholdField, addAlertBtn, removeAlertBtn);
+        form.setAlignment(Pos.CENTER_LEFT);
+
+        Label activeTitle = new Label("Active Alerts");
+        activeTitle.setStyle("-fx-font-weight: bold;");
+        Label logTitle = new Label("Triggered");
+        logTitle.setStyle("-fx-font-weight: bold;");
+
+        VBox box = new VBox(10, activeTitle, activeList, form, logTitle, logList);
+        box.setPadding(new Insets(16));
+
+        Scene alertScene = new Scene(box, 760, 520);
+        alertScene.getStylesheets().addAll(
+            getClass().getResource("/styles/theme.css").toExternalForm(),
+            getClass().getResource("/styles/common.css").toExternalForm()
+        );
+        alertStage.setScene(alertScene);
+        alertStage.show();
+    }
+
+    /**
+     * Latest known value for an alert symbol (portfolio P/L % or holding price), NaN if unknown
+     */
+    private double currentValueOf(String symbol) {
+        if (PriceAlert.PORTFOLIO_PL_PERCENT.equals(symbol)) {
+            return stockService.getTotalProfitLossPercent();
+        }
+        for (Stock s : stockService.getAllStocks()) {
+            if (symbol.equals(s.getSymbol())) return s.getCurrentPrice();
+        }
+        return Double.NaN;
+    }
 
     private void openRealTimeAnalysisWindow() {
+        openRealTimeAnalysisWindow(null);
+    }
+
+    /**
+     * Pick a recorded tick journal and a speed, and replay it in a new real-time window
+     */
+    private void chooseReplay(Window owner) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Replay Tick Session");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Tick journals", "*" + TickJournal.EXTENSION));
+        File directory = TickJournal.defaultDirectory().toFile();
+        if (directory.isDirectory()) {
+            chooser.setInitialDirectory(directory);
+        }
+        File file = chooser.showOpenDialog(owner);
+        if (file == null) return;
+        
+        ChoiceDialog<String> speedDialog = new ChoiceDialog<>("1×", "1×", "10×", "100×", "Max");
+        speedDialog.setTitle("Replay Tick Session");
+        speedDialog.setHeaderText("Replay " + file.getName());
+        speedDialog.setContentText("Speed:");
+        Optional<String> speed = speedDialog.showAndWait();
+        if (speed.isEmpty()) return;
+        
+        try {
+            openRealTimeAnalysisWindow(new TickReplay(file.toPath(), TickReplay.parseSpeed(speed.get())));
+        } catch (IOException e) {
+            showError("Cannot open tick journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param replay Recorded session to play instead of the live kdb+ feed, or null for live
+     *               (live ticks are recorded to a new session journal)
+     */
+    private void openRealTimeAnalysisWindow(TickReplay replay) {
         Stage rtStage = new Stage();
-        rtStage.setTitle("Real-Time Analysis");
+        rtStage.setTitle(replay == null ? "Real-Time Analysis"
+                : "Real-Time Analysis — replay of " + replay.getFile().getFileName() + " at " + TickReplay.describeSpeed(replay.getSpeed()));
 
         // Table and data
-        javafx.collections.ObservableList<com.mcgill.application.model.LiveTick> data = javafx.collections.FXCollections.observableArrayList();
-        javafx.scene.control.TableView<com.mcgill.application.model.LiveTick> table = new javafx.scene.control.TableView<>(data);
-        table.setColumnResizePolicy(javafx.scene.control.TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        ObservableList<LiveTick> data = FXCollections.observableArrayList();
+        TableView<LiveTick> table = new TableView<>(data);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
 
-        javafx.scene.control.TableColumn<com.mcgill.application.model.LiveTick, String> symCol = new javafx.scene.control.TableColumn<>("Symbol");
+        TableColumn<LiveTick, String> symCol = new TableColumn<>("Symbol");
         symCol.setCellValueFactory(c -> c.getValue().symbolProperty());
-        javafx.scene.control.TableColumn<com.mcgill.application.model.LiveTick, String> timeCol = new javafx.scene.control.TableColumn<>("Time");
+        TableColumn<LiveTick, String> timeCol = new TableColumn<>("Time");
         timeCol.setCellValueFactory(c -> c.getValue().timeProperty());
-        javafx.scene.control.TableColumn<com.mcgill.application.model.LiveTick, Number> pxCol = new javafx.scene.control.TableColumn<>("Price");
+        TableColumn<LiveTick, Number> pxCol = new TableColumn<>("Price");
         pxCol.setCellValueFactory(c -> c.getValue().priceProperty());
         table.getColumns().addAll(symCol, timeCol, pxCol);
 
+        // Rolling indicators (count window for SMA/EMA/σ, time window for VWAP and range)
+        IndicatorEngine indicators = new IndicatorEngine();
+        String n = String.valueOf(indicators.getCountWindow());
+        String span = indicators.getTimeWindow().toMinutes() + "m";
+        table.getColumns().addAll(
+            indicatorColumn("SMA(" + n + ")", c -> c.getValue().smaProperty()),
+            indicatorColumn("EMA(" + n + ")", c -> c.getValue().emaProperty()),
+            indicatorColumn("VWAP(" + span + ")", c -> c.getValue().vwapProperty()),
+            indicatorColumn("Min(" + span + ")", c -> c.getValue().minProperty()),
+            indicatorColumn("Max(" + span + ")", c -> c.getValue().maxProperty()),
+            indicatorColumn("σ(" + n + ")", c -> c.getValue().stdDevProperty()));
+
+        // Intraday history per symbol, one point per completed 1 s bar: a sparkline per row of
+        // the trend table, and the selected symbol's whole day in the line chart, both downsampled with LTTB
+        TickHistory history = new TickHistory();
+        BarEngine bars = new BarEngine();
+        bars.setCloseListener(BarEngine.Resolution.SECOND, history);
+        if (replay == null) {
+            // Live 1m bars update the stats bar's σ; a replay's are history and would rewind it
+            bars.setCloseListener(BarEngine.Resolution.MINUTE, covariance);
+        }
+        ObservableList<SymbolTrend> trends = FXCollections.observableArrayList();
+        TableView<SymbolTrend> trendTable = new TableView<>(trends);
+        trendTable.setPrefWidth(SPARKLINE_WIDTH + 200);
+        TableColumn<SymbolTrend, String> trendSymCol = new TableColumn<>("Symbol");
+        trendSymCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getSymbol()));
+        TableColumn<SymbolTrend, Number> lastCol = new TableColumn<>("Last");
+        lastCol.setCellValueFactory(c -> c.getValue().lastProperty());
+        lastCol.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null || Double.isNaN(item.doubleValue()) ? null : String.format("%.2f", item.doubleValue()));
+            }
+        });
+        TableColumn<SymbolTrend, Number> trendCol = new TableColumn<>("Trend");
+        trendCol.setPrefWidth(SPARKLINE_WIDTH + 10);
+        trendCol.setSortable(false);
+        double[] sparkTimes = new double[SPARKLINE_WIDTH];
+        double[] sparkPrices = new double[SPARKLINE_WIDTH];
+        trendCol.setCellValueFactory(c -> c.getValue().revisionProperty());
+        trendCol.setCellFactory(c -> new TableCell<>() {
+            private final Canvas canvas = new Canvas(SPARKLINE_WIDTH, SPARKLINE_HEIGHT);
+
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || getIndex() < 0 || getIndex() >= getTableView().getItems().size()) {
+                    setGraphic(null);
+                    return;
+                }
+                SymbolTrend row = getTableView().getItems().get(getIndex());
+                drawSparkline(canvas, history.get(row.getSymbol()), sparkTimes, sparkPrices);
+                setGraphic(canvas);
+            }
+        });
+        trendTable.getColumns().addAll(trendSymCol, lastCol, trendCol);
+
+        NumberAxis timeAxis = new NumberAxis();
+        timeAxis.setForceZeroInRange(false);
+        timeAxis.setTickLabelFormatter(new StringConverter<Number>() {
+            @Override
+            public String toString(Number millis) {
+                return Instant.ofEpochMilli(millis.longValue())
+                        .atZone(ZoneId.of("America/New_York")).format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+            }
+
+            @Override
+            public Number fromString(String text) {
+                return null;
+            }
+        });
+        NumberAxis priceAxis = new NumberAxis();
+        priceAxis.setForceZeroInRange(false);
+        LineChart<Number, Number> intraday = new LineChart<>(timeAxis, priceAxis);
+        intraday.setAnimated(false);
+        intraday.setCreateSymbols(false);
+        intraday.setLegendVisible(false);
+        XYChart.Series<Number, Number> line = new XYChart.Series<>();
+        intraday.getData().add(line);
+        HBox.setHgrow(intraday, Priority.ALWAYS);
+
         // Layout
-        VBox box = new VBox(12, table);
+        Button replayBtn = new Button("⏪ Replay Session…");
+        replayBtn.getStyleClass().add("mcgill-button-secondary");
+        replayBtn.setOnAction(e -> chooseReplay(rtStage));
+        HBox charts = new HBox(12, trendTable, intraday);
+        charts.setPrefHeight(320);
+        VBox box = new VBox(12, replayBtn, charts, table);
         box.setAlignment(Pos.CENTER_LEFT);
         box.setPadding(new Insets(16));
         box.getStyleClass().add("card");
 
-        Scene scene = new Scene(box, 700, 420);
+        Scene scene = new Scene(box, 1100, 760);
         scene.getStylesheets().addAll(
             getClass().getResource("/styles/theme.css").toExternalForm(),
             getClass().getResource("/styles/common.css").toExternalForm(),
@@ -855,32 +1985,222 @@ public class PortfolioController {
         rtStage.setScene(scene);
         rtStage.show();
 
-        // Connect to kdb and poll quote table every second
-        com.mcgill.application.service.KdbClientService kdb = new com.mcgill.application.service.KdbClientService();
-        try {
-            kdb.connect("localhost", 5012);
-            java.util.concurrent.ScheduledExecutorService ses = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
-            ses.scheduleAtFixedRate(() -> {
+        // Connect to kdb (recording what arrives) or open the replay, and poll new ticks
+        // every second; closing the window stops the poll, flushes the bars and drops the connection.
+        // Live bars are stored in PostgreSQL and kdb+; a replay's were stored when it was recorded
+        KdbClientService kdb = replay == null ? new KdbClientService() : null;
+        TickSource source = replay == null ? kdb : replay;
+        BarStore barStore = replay == null ? new BarStore(new BarRepository(), kdb) : null;
+        AppExecutors.TaskGroup rtTasks = executors.newGroup("real-time window");
+        // Redraw on the pulse, but only what has new ticks: the chart when the selected
+        // symbol's series moved or the plot was resized, the trend rows a few times a second
+        double[] chartTimes = new double[MAX_CHART_POINTS];
+        double[] chartPrices = new double[MAX_CHART_POINTS];
+        AnimationTimer redraw = new AnimationTimer() {
+            private long lastTrendUpdate;
+            private String shownSymbol;
+            private long shownVersion = -1;
+            private int shownWidth;
+
+            @Override
+            public void handle(long now) {
+                if (now - lastTrendUpdate >= 1_000_000_000L / TREND_UPDATES_PER_SECOND) {
+                    lastTrendUpdate = now;
+                    updateTrends(history, trends);
+                    if (trendTable.getSelectionModel().isEmpty() && !trends.isEmpty()) {
+                        trendTable.getSelectionModel().selectFirst();
+                    }
+                }
+                SymbolTrend selected = trendTable.getSelectionModel().getSelectedItem();
+                if (selected == null) return;
+                PriceSeries series = history.get(selected.getSymbol());
+                long version = series.getVersion();
+                int width = (int) Math.max(2, Math.min(timeAxis.getWidth(), MAX_CHART_POINTS));
+                if (selected.getSymbol().equals(shownSymbol) && version == shownVersion && width == shownWidth) return;
+                shownSymbol = selected.getSymbol();
+                shownVersion = version;
+                shownWidth = width;
+                intraday.setTitle(shownSymbol + " (" + series.size() + " 1s bars)");
+                setPoints(line.getData(), chartTimes, chartPrices, series.downsample(width, chartTimes, chartPrices));
+            }
+        };
+        redraw.start();
+        rtStage.setOnHidden(e -> {
+            redraw.stop();
+            rtTasks.close();
+            executors.io().execute(() -> {
+                if (barStore != null) {
+                    synchronized (bars) {
+                        bars.closeBefore(source.currentTimeMillis() - BAR_CLOSE_GRACE_MILLIS);
+                        barStore.flushAndWait(bars);
+                    }
+                }
+                source.close();
+            });
+        });
+        IndicatorEngine.Snapshot snap = new IndicatorEngine.Snapshot();
+        DateTimeFormatter timeFmt = DateTimeFormatter.ofPattern("HH:mm:ss");
+        AtomicBoolean replayReported = new AtomicBoolean();
+        int[] polls = {0};
+        rtTasks.submit(executors.io(), () -> {
+            if (kdb != null) {
                 try {
-                    Object obj = kdb.exec("select sym,px from quote");
-                    if (obj instanceof com.kx.c.Flip f) {
-                        String[] sym = (String[]) f.y[0];
-                        double[] px = (double[]) f.y[1];
-                        javafx.application.Platform.runLater(() -> {
-                            for (int i = 0; i < sym.length; i++) {
-                                com.mcgill.application.model.LiveTick lt = new com.mcgill.application.model.LiveTick();
-                                lt.setSymbol(sym[i]);
-                                lt.setPrice(px[i]);
-                                lt.setTime(java.time.ZonedDateTime.now(java.time.ZoneId.of("America/New_York"))
-                                    .format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")));
-                                data.add(0, lt);
-                                if (data.size() > 1000) data.remove(data.size() - 1);
-                            }
+                    kdb.connect("localhost", 5012);
+                } catch (Exception e) {
+                    System.err.println("✗ kdb+ unavailable for real-time analysis: " + e.getMessage());
+                    return;
+                }
+                try {
+                    kdb.startRecording();
+                } catch (IOException e) {
+                    System.err.println("✗ Cannot record ticks: " + e.getMessage());
+                }
+            }
+            rtTasks.scheduleAtFixedRate(executors.io(), () -> {
+                // The bar engine is confined to one thread at a time; the final flush on close takes the lock too
+                synchronized (bars) {
+                    try {
+                        // Only the newest LIVE_TABLE_ROWS ticks can be shown; older rows of the poll are reused
+                        ArrayDeque<LiveTick> batch = new ArrayDeque<>();
+                        String now = Instant.ofEpochMilli(source.currentTimeMillis())
+                                .atZone(ZoneId.of("America/New_York")).format(timeFmt);
+                        source.pollQuotes((sym, px, size, t) -> {
+                            indicators.onTick(sym, px, size, t);
+                            bars.onTick(sym, px, size, t);
+                            // Replayed prices are history; they must not fire (and persist) live alerts
+                            AlertService alerts = alertService;
+                            if (alerts != null && replay == null) alerts.onPrice(sym, px);
+                            indicators.read(sym, snap);
+                            LiveTick lt = batch.size() == LIVE_TABLE_ROWS
+                                    ? batch.pollFirst() : new LiveTick();
+                            lt.setSymbol(sym);
+                            lt.setPrice(px);
+                            lt.setTime(now);
+                            lt.setSma(snap.getSma());
+                            lt.setEma(snap.getEma());
+                            lt.setVwap(snap.getVwap());
+                            lt.setMin(snap.getMin());
+                            lt.setMax(snap.getMax());
+                            lt.setStdDev(snap.getStdDev());
+                            batch.add(lt);
                         });
-                    }
-                } catch (Exception ignored2) {}
-            }, 0, 1, java.util.concurrent.TimeUnit.SECONDS);
-        } catch (Exception ignored) {}
+                        indicators.expire(source.currentTimeMillis());
+                        bars.closeBefore(source.currentTimeMillis() - BAR_CLOSE_GRACE_MILLIS);
+                        if (barStore != null && ++polls[0] % BAR_FLUSH_POLLS == 0) {
+                            barStore.flush(bars);
+                        }
+                        if (replay != null && replay.isFinished() && replayReported.compareAndSet(false, true)) {
+                            bars.closeBefore(Long.MAX_VALUE);
+                            System.out.printf("✓ Replayed %,d ticks from %s, at most %.1f ms behind%n", replay.getDelivered(),
+                                    replay.getFile().getFileName(), replay.getMaxLagNanos() / 1e6);
+                        }
+                        if (batch.isEmpty()) return;
+                        Platform.runLater(() -> {
+                            // Newest first, then as many of the rows shown so far as still fit, in one change
+                            List<LiveTick> rows = new ArrayList<>(LIVE_TABLE_ROWS);
+                            batch.descendingIterator().forEachRemaining(rows::add);
+                            rows.addAll(data.subList(0, Math.min(data.size(), LIVE_TABLE_ROWS - rows.size())));
+                            data.setAll(rows);
+                        });
+                    } catch (Exception ignored2) {}
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+        });
+    }
+
+    /**
+     * Add rows for new symbols and bump the revision of rows whose series has new ticks
+     */
+    private static void updateTrends(TickHistory history, ObservableList<SymbolTrend> trends) {
+        if (trends.size() != history.symbolCount()) {
+            Set<String> shown = new HashSet<>();
+            for (SymbolTrend trend : trends) shown.add(trend.getSymbol());
+            List<String> added = new ArrayList<>();
+            for (String symbol : history.symbols()) {
+                if (!shown.contains(symbol)) added.add(symbol);
+            }
+            Collections.sort(added);
+            for (String symbol : added) trends.add(new SymbolTrend(symbol));
+        }
+        for (SymbolTrend trend : trends) {
+            PriceSeries series = history.get(trend.getSymbol());
+            long version = series.getVersion();
+            if (version != trend.getRevision()) {
+                trend.setLast(series.last());
+                trend.setRevision(version);
+            }
+        }
+    }
+
+    /**
+     * Move the chart's points to the new values in place; points are only added or removed at the end
+     */
+    private static void setPoints(ObservableList<XYChart.Data<Number, Number>> points,
+                                  double[] times, double[] prices, int count) {
+        int reused = Math.min(points.size(), count);
+        for (int i = 0; i < reused; i++) {
+            XYChart.Data<Number, Number> point = points.get(i);
+            point.setXValue(times[i]);
+            point.setYValue(prices[i]);
+        }
+        if (count > reused) {
+            List<XYChart.Data<Number, Number>> added = new ArrayList<>(count - reused);
+            for (int i = reused; i < count; i++) {
+                added.add(new XYChart.Data<>(times[i], prices[i]));
+            }
+            points.addAll(added);
+        } else if (points.size() > count) {
+            points.remove(count, points.size());
+        }
+    }
+
+    /**
+     * Latest ticks of a series across the canvas, green if the price is up over them and red if down
+     * The scratch arrays are at least as long as the canvas is wide.
+     */
+    private static void drawSparkline(Canvas canvas, PriceSeries series, double[] times, double[] prices) {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        g.clearRect(0, 0, width, height);
+        int n = series == null ? 0 : series.downsampleLatest(SPARKLINE_TICKS, (int) width, times, prices);
+        if (n < 2) return;
+
+        boolean up = prices[n - 1] >= prices[0];
+        double minPrice = prices[0];
+        double maxPrice = prices[0];
+        for (int i = 1; i < n; i++) {
+            minPrice = Math.min(minPrice, prices[i]);
+            maxPrice = Math.max(maxPrice, prices[i]);
+        }
+        double start = times[0];
+        double timeSpan = Math.max(times[n - 1] - start, 1);
+        double priceSpan = Math.max(maxPrice - minPrice, 1e-9);
+        for (int i = 0; i < n; i++) {
+            times[i] = 1 + (times[i] - start) / timeSpan * (width - 2);
+            prices[i] = height - 1 - (prices[i] - minPrice) / priceSpan * (height - 2);
+        }
+        g.setStroke(Color.web(up ? "#2E7D32" : "#D32F2F"));
+        g.setLineWidth(1);
+        g.strokePolyline(times, prices, n);
+    }
+
+    /**
+     * Numeric indicator column rendered with two decimals
+     */
+    private TableColumn<LiveTick, Number> indicatorColumn(
+            String title,
+            Callback<TableColumn.CellDataFeatures<LiveTick, Number>, ObservableValue<Number>> value) {
+        TableColumn<LiveTick, Number> col = new TableColumn<>(title);
+        col.setCellValueFactory(value);
+        col.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null || Double.isNaN(item.doubleValue()) ? null : String.format("%.2f", item.doubleValue()));
+            }
+        });
+        return col;
     }
 }
 
@@ -0,0 +1,192 @@
+package com.mcgill.application.controller;
+
+import com.mcgill.application.model.Stock;
+import com.mcgill.application.service.AllocationTracker;
+import com.mcgill.application.service.TreemapLayout;
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PortfolioHeatmap - Holdings as a treemap drawn on one Canvas
+ * Each symbol is a tile sized by its market value and coloured by its P/L %.
+ * The tiles are plain rectangles in an array rather than scene-graph nodes, so
+ * thousands of symbols cost one canvas. The squarified layout is kept until
+ * holdings change, the pane is resized or RELAYOUT_SECONDS pass (so sizes
+ * follow prices); in between, each pulse repaints only the tiles of symbols the
+ * AllocationTracker reports as changed.
+ */
+public class PortfolioHeatmap extends Pane implements AutoCloseable {
+
+    // Sizes drift from values as prices move; lay out again this often even without holding changes
+    private static final int RELAYOUT_SECONDS = 30;
+    // P/L % at which a tile reaches full green or red
+    private static final double FULL_COLOR_PERCENT = 5.0;
+    private static final int COLOR_STEPS = 20;
+    private static final double LABEL_MIN_WIDTH = 36;
+    private static final double LABEL_MIN_HEIGHT = 14;
+
+    private static final Color[] GAIN_COLORS = palette(Color.web("#2E7D32"));
+    private static final Color[] LOSS_COLORS = palette(Color.web("#D32F2F"));
+    private static final Color BORDER = Color.web("#1E1E1E");
+    private static final Font LABEL_FONT = Font.font(11);
+
+    private final Canvas canvas = new Canvas();
+    private final AllocationTracker tracker;
+    private final Tooltip tooltip = new Tooltip();
+
+    // Current layout: tile i shows symbols[i] at rects[4i .. 4i + 3]
+    private String[] symbols = new String[0];
+    private double[] rects = new double[0];
+    private final Map<String, Integer> tileIndex = new HashMap<>();
+    private long layoutVersion = -1;
+    private long laidOutAt;
+    private boolean layoutStale = true;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            paint(now);
+        }
+    };
+
+    public PortfolioHeatmap(ObservableList<Stock> stocks) {
+        tracker = new AllocationTracker(stocks);
+        getChildren().add(canvas);
+        widthProperty().addListener((obs, oldValue, newValue) -> layoutStale = true);
+        heightProperty().addListener((obs, oldValue, newValue) -> layoutStale = true);
+        canvas.setOnMouseMoved(e -> showTooltip(e.getX(), e.getY(), e.getScreenX(), e.getScreenY()));
+        canvas.setOnMouseExited(e -> tooltip.hide());
+        pulse.start();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+    }
+
+    private static Color[] palette(Color full) {
+        Color neutral = Color.web("#424242");
+        Color[] colors = new Color[COLOR_STEPS + 1];
+        for (int i = 0; i <= COLOR_STEPS; i++) {
+            colors[i] = neutral.interpolate(full, (double) i / COLOR_STEPS);
+        }
+        return colors;
+    }
+
+    private static Color colorFor(double profitLossPercent) {
+        int step = (int) Math.round(Math.min(Math.abs(profitLossPercent) / FULL_COLOR_PERCENT, 1.0) * COLOR_STEPS);
+        return profitLossPercent >= 0 ? GAIN_COLORS[step] : LOSS_COLORS[step];
+    }
+
+    /**
+     * Called on every pulse: lay out and repaint everything, or repaint the changed tiles
+     */
+    private void paint(long now) {
+        if (layoutStale || tracker.getHoldingsVersion() != layoutVersion
+                || now - laidOutAt >= RELAYOUT_SECONDS * 1_000_000_000L) {
+            relayout();
+            laidOutAt = now;
+            tracker.takeChangedSymbols();
+            paintAll();
+            return;
+        }
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        for (String symbol : tracker.takeChangedSymbols()) {
+            Integer tile = tileIndex.get(symbol);
+            if (tile != null) {
+                paintTile(g, tile);
+            }
+        }
+    }
+
+    private void relayout() {
+        List<AllocationTracker.Slice> slices = tracker.slices(AllocationTracker.Grouping.HOLDING, Integer.MAX_VALUE);
+        int count = slices.size();
+        double[] values = new double[count];
+        symbols = new String[count];
+        tileIndex.clear();
+        for (int i = 0; i < count; i++) {
+            values[i] = slices.get(i).getValue();
+            symbols[i] = slices.get(i).getName();
+            tileIndex.put(symbols[i], i);
+        }
+        rects = new double[count * 4];
+        TreemapLayout.layout(values, count, 0, 0, canvas.getWidth(), canvas.getHeight(), rects);
+        layoutVersion = tracker.getHoldingsVersion();
+        layoutStale = false;
+    }
+
+    private void paintAll() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(BORDER);
+        g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        for (int i = 0; i < symbols.length; i++) {
+            paintTile(g, i);
+        }
+    }
+
+    private void paintTile(GraphicsContext g, int tile) {
+        double x = rects[tile * 4];
+        double y = rects[tile * 4 + 1];
+        double w = rects[tile * 4 + 2];
+        double h = rects[tile * 4 + 3];
+        if (w <= 0 || h <= 0) return;
+        AllocationTracker.Slice slice = tracker.slice(AllocationTracker.Grouping.HOLDING, symbols[tile]);
+        // Sold since the last layout: leave a gap until the next one
+        double profitLossPercent = slice == null ? 0.0 : slice.getProfitLossPercent();
+
+        g.setFill(BORDER);
+        g.fillRect(x, y, w, h);
+        if (slice == null) return;
+        g.setFill(colorFor(profitLossPercent));
+        // One pixel of border on the right and bottom edges, where the tile has room for it
+        g.fillRect(x, y, Math.max(w - 1, 0.5), Math.max(h - 1, 0.5));
+
+        if (w >= LABEL_MIN_WIDTH && h >= LABEL_MIN_HEIGHT) {
+            g.setFill(Color.WHITE);
+            g.setFont(LABEL_FONT);
+            g.setTextAlign(TextAlignment.CENTER);
+            g.setTextBaseline(VPos.CENTER);
+            String label = h >= LABEL_MIN_HEIGHT * 2.5
+                    ? symbols[tile] + "\n" + String.format("%+.2f%%", profitLossPercent)
+                    : symbols[tile];
+            g.fillText(label, x + w / 2, y + h / 2, w - 4);
+        }
+    }
+
+    private void showTooltip(double x, double y, double screenX, double screenY) {
+        for (int i = 0; i < symbols.length; i++) {
+            int r = i * 4;
+            if (x >= rects[r] && x < rects[r] + rects[r + 2] && y >= rects[r + 1] && y < rects[r + 1] + rects[r + 3]) {
+                AllocationTracker.Slice slice = tracker.slice(AllocationTracker.Grouping.HOLDING, symbols[i]);
+                if (slice == null) break;
+                tooltip.setText(String.format("%s\nValue: $%,.2f (%.1f%%)\nP/L: %+.2f%%", slice.getName(), slice.getValue(),
+                        tracker.getTotal() > 0 ? slice.getValue() / tracker.getTotal() * 100.0 : 0.0,
+                        slice.getProfitLossPercent()));
+                tooltip.show(canvas, screenX + 12, screenY + 12);
+                return;
+            }
+        }
+        tooltip.hide();
+    }
+
+    @Override
+    public void close() {
+        pulse.stop();
+        tooltip.hide();
+        tracker.close();
+    }
+}
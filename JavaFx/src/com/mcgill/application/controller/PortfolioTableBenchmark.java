@@ -0,0 +1,137 @@
+package com.mcgill.application.controller;
+
+import com.mcgill.application.model.Stock;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Scene;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * PortfolioTableBenchmark - Frame times of the holdings table under price updates
+ * Shows the real holding columns over synthetic rows and changes random prices
+ * at a fixed rate, spread over the animation pulses. Every few seconds it prints
+ * the frame interval (pulse to pulse, 16.7 ms at 60 fps) and the time spent in
+ * the update code of each frame.
+ *
+ * --refresh also calls table.refresh() after every pulse's updates, which is
+ * how the table used to pick up Total Value and P/L changes, for comparison.
+ *
+ * Usage: PortfolioTableBenchmark [rows=10000] [updatesPerSecond=1000] [seconds=30] [--refresh]
+ */
+public class PortfolioTableBenchmark extends Application {
+
+    private static final int REPORT_SECONDS = 5;
+    // Histogram buckets of 0.1 ms, up to one second
+    private static final int BUCKETS = 10_000;
+
+    private final Random random = new Random(42);
+    private long[] intervals = new long[BUCKETS + 1];
+    private long[] updateTimes = new long[BUCKETS + 1];
+
+    @Override
+    public void start(Stage stage) {
+        List<String> args = getParameters().getUnnamed();
+        int rows = args.size() > 0 ? Integer.parseInt(args.get(0)) : 10_000;
+        int rate = args.size() > 1 ? Integer.parseInt(args.get(1)) : 1000;
+        int seconds = args.size() > 2 ? Integer.parseInt(args.get(2)) : 30;
+        boolean fullRefresh = getParameters().getRaw().contains("--refresh");
+
+        ObservableList<Stock> stocks = FXCollections.observableArrayList();
+        for (int i = 0; i < rows; i++) {
+            double price = 10 + random.nextDouble() * 490;
+            stocks.add(new Stock(i + 1, "S" + i, "Company " + i, 1 + random.nextInt(1000),
+                    price, price, "Sector " + (i % 11)));
+        }
+        TableView<Stock> table = new TableView<>(stocks);
+        PortfolioController.addHoldingColumns(table);
+
+        stage.setTitle("Table benchmark: " + rows + " rows, " + rate + " updates/s" + (fullRefresh ? ", full refresh" : ""));
+        stage.setScene(new Scene(table, 1400, 900));
+        stage.show();
+        System.out.printf("Benchmarking %,d rows at %,d updates/s for %ds%s%n",
+                rows, rate, seconds, fullRefresh ? " with table.refresh()" : "");
+
+        new AnimationTimer() {
+            private long start = -1;
+            private long last;
+            private long lastReport;
+            private long updates;
+            private long frames;
+
+            @Override
+            public void handle(long now) {
+                if (start < 0) {
+                    start = now;
+                    last = now;
+                    lastReport = now;
+                    return;
+                }
+                record(intervals, now - last);
+                last = now;
+                frames++;
+
+                // Catch up to the target rate, whatever the frame rate turned out to be
+                long work = System.nanoTime();
+                long due = (long) ((now - start) / 1e9 * rate) - updates;
+                for (long i = 0; i < due; i++) {
+                    Stock stock = stocks.get(random.nextInt(rows));
+                    stock.setCurrentPrice(stock.getCurrentPrice() * (0.99 + random.nextDouble() * 0.02));
+                }
+                updates += Math.max(due, 0);
+                if (fullRefresh) {
+                    table.refresh();
+                }
+                record(updateTimes, System.nanoTime() - work);
+
+                if (now - lastReport >= REPORT_SECONDS * 1_000_000_000L) {
+                    report((now - start) / 1_000_000_000L, frames, (now - lastReport) / 1e9, updates);
+                    frames = 0;
+                    lastReport = now;
+                }
+                if (now - start >= seconds * 1_000_000_000L) {
+                    stop();
+                    Platform.exit();
+                }
+            }
+        }.start();
+    }
+
+    private static void record(long[] histogram, long nanos) {
+        histogram[(int) Math.min(nanos / 100_000, BUCKETS)]++;
+    }
+
+    private void report(long elapsed, long frames, double intervalSeconds, long updates) {
+        System.out.printf("%4ds  %5.1f fps  frame p50 %s  p99 %s  max %s  |  update work p50 %s  p99 %s  |  %,d updates%n",
+                elapsed, frames / intervalSeconds,
+                percentile(intervals, 0.50), percentile(intervals, 0.99), percentile(intervals, 1.0),
+                percentile(updateTimes, 0.50), percentile(updateTimes, 0.99), updates);
+        intervals = new long[BUCKETS + 1];
+        updateTimes = new long[BUCKETS + 1];
+    }
+
+    private static String percentile(long[] counts, double p) {
+        long total = 0;
+        for (long count : counts) total += count;
+        if (total == 0) return "-";
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == BUCKETS ? ">1000ms" : String.format("%.1fms", i / 10.0);
+            }
+        }
+        return "-";
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
@@ -1,23 +1,41 @@
 package com.mcgill.application.database;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Database Connection Manager
- * Singleton pattern for managing PostgreSQL connections
+ * Singleton pool of PostgreSQL connections
+ *
+ * getConnection() lends a connection to one caller at a time; closing it (the
+ * repositories' try-with-resources) hands it back instead of closing the
+ * socket, after rolling back anything left uncommitted and restoring
+ * autocommit and the isolation level. At most POOL_SIZE are lent at once, so
+ * concurrent tasks never share a connection or close one another's.
  */
 public class DatabaseConnection {
-    
+
+    // Connections open at once; AppExecutors' jdbc pool stays below this
+    public static final int POOL_SIZE = 6;
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
     private static DatabaseConnection instance;
-    private Connection connection;
-    
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private final Semaphore available = new Semaphore(POOL_SIZE, true);
+
     // Database credentials
     private static final String URL = "jdbc:postgresql://localhost:5433/stock_portfolio";
     private static final String USER = "mcgill_user";
     private static final String PASSWORD = "mcgill123";
-    
+
     private DatabaseConnection() {
         try {
             // Load PostgreSQL driver
@@ -27,51 +45,144 @@ public class DatabaseConnection {
             e.printStackTrace();
         }
     }
-    
+
     public static synchronized DatabaseConnection getInstance() {
         if (instance == null) {
             instance = new DatabaseConnection();
         }
         return instance;
     }
-    
+
     /**
-     * Get database connection
-     * @return Connection object
-     * @throws SQLException if connection fails
+     * Borrow a pooled connection; close it to give it back
+     * @return Connection object, used by the caller alone until closed
+     * @throws SQLException if connection fails or none is free within BORROW_TIMEOUT_SECONDS
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("✓ Connected to PostgreSQL database");
+        try {
+            if (!available.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("No database connection free after " + BORROW_TIMEOUT_SECONDS + " s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            Connection physical = idle.poll();
+            while (physical != null && physical.isClosed()) {
+                physical = idle.poll();
+            }
+            if (physical == null) {
+                physical = DriverManager.getConnection(URL, USER, PASSWORD);
+                System.out.println("✓ Connected to PostgreSQL database");
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new Lease(physical));
+        } catch (SQLException | RuntimeException e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    /**
+     * A borrowed connection: close() returns it to the pool, once
+     */
+    private final class Lease implements InvocationHandler {
+        private final Connection physical;
+        private volatile boolean returned;
+
+        Lease(Connection physical) {
+            this.physical = physical;
         }
-        return connection;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    giveBack();
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "pooled " + physical;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection already returned to the pool");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private synchronized void giveBack() {
+            if (returned) return;
+            returned = true;
+            try {
+                if (!physical.isClosed()) {
+                    if (!physical.getAutoCommit()) {
+                        physical.rollback();
+                        physical.setAutoCommit(true);
+                    }
+                    if (physical.getTransactionIsolation() != Connection.TRANSACTION_READ_COMMITTED) {
+                        physical.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                    }
+                    idle.offer(physical);
+                }
+            } catch (SQLException e) {
+                // Broken: drop it, a new one is opened on demand
+                try { physical.close(); } catch (SQLException ignored) {}
+            } finally {
+                available.release();
+            }
+        }
+    }
+
+    /**
+     * Open a new connection that is not shared with the rest of the app
+     * Use for long-running work (bulk loads, listeners); the caller must close it
+     * @return Connection object
+     * @throws SQLException if connection fails
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
     }
-    
+
     /**
-     * Close database connection
+     * Close the idle pooled connections
      */
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("✓ Database connection closed");
+        int closed = 0;
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            try {
+                conn.close();
+                closed++;
+            } catch (SQLException e) {
+                System.err.println("Error closing database connection: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+        }
+        if (closed > 0) {
+            System.out.println("✓ Database connections closed (" + closed + ")");
         }
     }
-    
+
     /**
      * Test database connection
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
             System.err.println("Database connection failed: " + e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,445 @@
+package com.mcgill.application.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ArrowStreamWriter - Writes rows as an Apache Arrow IPC stream (".arrows")
+ * Rows are collected column by column into primitive arrays and written as one
+ * record batch every rowGroupRows rows, so memory stays at one row group however
+ * long the export. SYMBOL columns are dictionary-encoded: each distinct value is
+ * written once, in a dictionary batch (a delta after the first) just before
+ * the record batch that first uses it.
+ *
+ * Readable with pyarrow.ipc.open_stream, Arrow Java's ArrowStreamReader, or
+ * DuckDB/Polars through pyarrow. Metadata version V5, little-endian, no compression.
+ */
+public class ArrowStreamWriter implements TableWriter {
+
+    public static final int DEFAULT_ROW_GROUP_ROWS = 65_536;
+
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final short METADATA_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_TIMESTAMP = 10;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short UNIT_MILLISECOND = 1;
+    private static final byte[] PADDING = new byte[8];
+
+    /**
+     * One column's values for the current row group
+     */
+    private static final class Column {
+        final ExportColumn.Type type;
+        final long dictionaryId;
+        int[] ints;
+        long[] longs;
+        double[] doubles;
+        // STRING: UTF-8 bytes of all values, and where each one starts
+        byte[] chars;
+        int charLength;
+        int[] offsets;
+        byte[] validity;
+        int nullCount;
+        // SYMBOL: index of each value seen, and values not yet sent in a dictionary batch
+        Map<String, Integer> dictionary;
+        List<String> unsent;
+        boolean dictionarySent;
+
+        Column(ExportColumn.Type type, long dictionaryId, int rows) {
+            this.type = type;
+            this.dictionaryId = dictionaryId;
+            validity = new byte[(rows + 7) / 8];
+            switch (type) {
+                case INT32 -> ints = new int[rows];
+                case INT64, TIMESTAMP -> longs = new long[rows];
+                case FLOAT64 -> doubles = new double[rows];
+                case STRING -> {
+                    chars = new byte[rows * 8];
+                    offsets = new int[rows + 1];
+                }
+                case SYMBOL -> {
+                    ints = new int[rows];
+                    dictionary = new HashMap<>();
+                    unsent = new ArrayList<>();
+                }
+            }
+        }
+    }
+
+    private final OutputStream out;
+    private final List<ExportColumn> schema;
+    private final Column[] columns;
+    private final int rowGroupRows;
+    // Little-endian staging for primitive arrays on their way to the stream
+    private ByteBuffer scratch = ByteBuffer.allocate(0);
+    private final byte[] header = new byte[8];
+
+    private int column;
+    private int rowsInGroup;
+    private long rows;
+    private long bytesWritten;
+    private int batches;
+
+    public ArrowStreamWriter(OutputStream out, List<ExportColumn> schema) throws IOException {
+        this(out, schema, DEFAULT_ROW_GROUP_ROWS);
+    }
+
+    public ArrowStreamWriter(OutputStream out, List<ExportColumn> schema, int rowGroupRows) throws IOException {
+        if (rowGroupRows <= 0) {
+            throw new IllegalArgumentException("Row group size must be greater than zero!");
+        }
+        this.out = out;
+        this.schema = schema;
+        this.rowGroupRows = rowGroupRows;
+        this.columns = new Column[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(schema.get(i).getType(), i, rowGroupRows);
+        }
+        writeSchema();
+    }
+
+    // --- Rows ---
+
+    private Column next(ExportColumn.Type... accepted) {
+        if (column >= columns.length) {
+            throw new IllegalStateException("Row has more values than the " + columns.length + " columns");
+        }
+        Column c = columns[column];
+        for (ExportColumn.Type type : accepted) {
+            if (c.type == type) {
+                column++;
+                return c;
+            }
+        }
+        throw new IllegalStateException("Column " + schema.get(column).getName() + " is " + c.type);
+    }
+
+    private void setValid(Column c) {
+        c.validity[rowsInGroup >> 3] |= (byte) (1 << (rowsInGroup & 7));
+    }
+
+    @Override
+    public void writeInt(int value) {
+        Column c = next(ExportColumn.Type.INT32);
+        c.ints[rowsInGroup] = value;
+        setValid(c);
+    }
+
+    @Override
+    public void writeLong(long value) {
+        Column c = next(ExportColumn.Type.INT64);
+        c.longs[rowsInGroup] = value;
+        setValid(c);
+    }
+
+    @Override
+    public void writeDouble(double value) {
+        Column c = next(ExportColumn.Type.FLOAT64);
+        c.doubles[rowsInGroup] = value;
+        setValid(c);
+    }
+
+    @Override
+    public void writeString(String value) {
+        Column c = next(ExportColumn.Type.STRING, ExportColumn.Type.SYMBOL);
+        if (c.type == ExportColumn.Type.SYMBOL) {
+            if (value == null) {
+                c.ints[rowsInGroup] = 0;
+                c.nullCount++;
+                return;
+            }
+            Integer index = c.dictionary.get(value);
+            if (index == null) {
+                index = c.dictionary.size();
+                c.dictionary.put(value, index);
+                c.unsent.add(value);
+            }
+            c.ints[rowsInGroup] = index;
+            setValid(c);
+            return;
+        }
+        if (value == null) {
+            c.nullCount++;
+        } else {
+            c.charLength = appendUtf8(c, value);
+            setValid(c);
+        }
+        c.offsets[rowsInGroup + 1] = c.charLength;
+    }
+
+    /**
+     * Append a value's UTF-8 bytes; ASCII (nearly everything here) is copied without encoding
+     */
+    private static int appendUtf8(Column c, String value) {
+        int length = value.length();
+        int end = c.charLength;
+        if (end + length * 3 > c.chars.length) {
+            c.chars = Arrays.copyOf(c.chars, Math.max(c.chars.length * 2, end + length * 3));
+        }
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch >= 0x80) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(bytes, 0, c.chars, c.charLength, bytes.length);
+                return c.charLength + bytes.length;
+            }
+            c.chars[end++] = (byte) ch;
+        }
+        return end;
+    }
+
+    @Override
+    public void writeTimestamp(LocalDateTime value) {
+        Column c = next(ExportColumn.Type.TIMESTAMP);
+        if (value == null) {
+            c.longs[rowsInGroup] = 0;
+            c.nullCount++;
+        } else {
+            // Without a time zone Arrow stores the wall-clock time as if it were UTC
+            c.longs[rowsInGroup] = value.toInstant(ZoneOffset.UTC).toEpochMilli();
+            setValid(c);
+        }
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        if (column != columns.length) {
+            throw new IllegalStateException("Row has " + column + " values for " + columns.length + " columns");
+        }
+        column = 0;
+        rowsInGroup++;
+        rows++;
+        if (rowsInGroup == rowGroupRows) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Record batches written so far
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rowsInGroup > 0) {
+            flushRowGroup();
+        }
+        // End of stream: a continuation marker and an empty message
+        writeInts(CONTINUATION, 0);
+        out.flush();
+    }
+
+    // --- Messages ---
+
+    private void writeSchema() throws IOException {
+        List<FlatBuffer.Table> fields = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            ExportColumn.Type type = columns[i].type;
+            FlatBuffer.Table field = new FlatBuffer.Table()
+                    .addString(0, schema.get(i).getName())
+                    .addBool(1, true)
+                    .addTableVector(5, List.of());
+            switch (type) {
+                case INT32 -> field.addByte(2, TYPE_INT).addTable(3, intType(32));
+                case INT64 -> field.addByte(2, TYPE_INT).addTable(3, intType(64));
+                case FLOAT64 -> field.addByte(2, TYPE_FLOATING_POINT)
+                        .addTable(3, new FlatBuffer.Table().addShort(0, PRECISION_DOUBLE));
+                case STRING -> field.addByte(2, TYPE_UTF8).addTable(3, new FlatBuffer.Table());
+                case SYMBOL -> field.addByte(2, TYPE_UTF8).addTable(3, new FlatBuffer.Table())
+                        .addTable(4, new FlatBuffer.Table()
+                                .addLong(0, columns[i].dictionaryId)
+                                .addTable(1, intType(32))
+                                .addBool(2, false));
+                case TIMESTAMP -> field.addByte(2, TYPE_TIMESTAMP)
+                        .addTable(3, new FlatBuffer.Table().addShort(0, UNIT_MILLISECOND));
+            }
+            fields.add(field);
+        }
+        FlatBuffer.Table schemaTable = new FlatBuffer.Table()
+                .addShort(0, 0)
+                .addTableVector(1, fields);
+        writeMessage(HEADER_SCHEMA, schemaTable, 0);
+    }
+
+    private static FlatBuffer.Table intType(int bitWidth) {
+        return new FlatBuffer.Table().addInt(0, bitWidth).addBool(1, true);
+    }
+
+    private void flushRowGroup() throws IOException {
+        for (Column c : columns) {
+            if (c.type == ExportColumn.Type.SYMBOL && (!c.dictionarySent || !c.unsent.isEmpty())) {
+                writeDictionary(c);
+            }
+        }
+
+        int n = rowsInGroup;
+        long[] nodes = new long[columns.length * 2];
+        Body body = new Body();
+        for (int i = 0; i < columns.length; i++) {
+            Column c = columns[i];
+            nodes[i * 2] = n;
+            nodes[i * 2 + 1] = c.nullCount;
+            // All valid: the bitmap may be left out
+            body.add(c.validity, c.nullCount == 0 ? 0 : (n + 7) / 8);
+            switch (c.type) {
+                case INT32, SYMBOL -> body.add(c.ints, n * 4);
+                case INT64, TIMESTAMP -> body.add(c.longs, n * 8);
+                case FLOAT64 -> body.add(c.doubles, n * 8);
+                case STRING -> {
+                    body.add(c.offsets, (n + 1) * 4);
+                    body.add(c.chars, c.charLength);
+                }
+            }
+        }
+        writeMessage(HEADER_RECORD_BATCH, recordBatch(n, nodes, body), body.length);
+        body.writeTo();
+        batches++;
+
+        for (Column c : columns) {
+            Arrays.fill(c.validity, (byte) 0);
+            c.nullCount = 0;
+            c.charLength = 0;
+        }
+        rowsInGroup = 0;
+    }
+
+    /**
+     * Send the dictionary values a column gained since its last dictionary batch
+     */
+    private void writeDictionary(Column c) throws IOException {
+        int n = c.unsent.size();
+        int[] offsets = new int[n + 1];
+        Column values = new Column(ExportColumn.Type.STRING, 0, 1);
+        for (int i = 0; i < n; i++) {
+            values.charLength = appendUtf8(values, c.unsent.get(i));
+            offsets[i + 1] = values.charLength;
+        }
+        Body body = new Body();
+        body.add(PADDING, 0);
+        body.add(offsets, (n + 1) * 4);
+        body.add(values.chars, values.charLength);
+
+        FlatBuffer.Table dictionaryBatch = new FlatBuffer.Table()
+                .addLong(0, c.dictionaryId)
+                .addTable(1, recordBatch(n, new long[] {n, 0}, body))
+                .addBool(2, c.dictionarySent);
+        writeMessage(HEADER_DICTIONARY_BATCH, dictionaryBatch, body.length);
+        body.writeTo();
+        c.unsent.clear();
+        c.dictionarySent = true;
+    }
+
+    private static FlatBuffer.Table recordBatch(int length, long[] nodes, Body body) {
+        return new FlatBuffer.Table()
+                .addLong(0, length)
+                .addStructVector(1, nodes, 2)
+                .addStructVector(2, body.layout(), 2);
+    }
+
+    /**
+     * Continuation marker, metadata length, then the Message flatbuffer (already padded to 8)
+     */
+    private void writeMessage(byte headerType, FlatBuffer.Table header, long bodyLength) throws IOException {
+        byte[] metadata = FlatBuffer.finish(new FlatBuffer.Table()
+                .addShort(0, METADATA_V5)
+                .addByte(1, headerType)
+                .addTable(2, header)
+                .addLong(3, bodyLength));
+        writeInts(CONTINUATION, metadata.length);
+        write(metadata, metadata.length);
+    }
+
+    private void writeInts(int first, int second) throws IOException {
+        ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).putInt(first).putInt(second);
+        write(header, 8);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        bytesWritten += length;
+    }
+
+    /**
+     * The buffers of one message body, each padded to 8 bytes
+     */
+    private final class Body {
+        private final List<Object> arrays = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        long length;
+
+        void add(Object array, int bytes) {
+            arrays.add(array);
+            lengths.add(bytes);
+            length += padded(bytes);
+        }
+
+        /** Offset and length of each buffer, as Arrow's Buffer structs */
+        long[] layout() {
+            long[] layout = new long[lengths.size() * 2];
+            long offset = 0;
+            for (int i = 0; i < lengths.size(); i++) {
+                layout[i * 2] = offset;
+                layout[i * 2 + 1] = lengths.get(i);
+                offset += padded(lengths.get(i));
+            }
+            return layout;
+        }
+
+        void writeTo() throws IOException {
+            for (int i = 0; i < arrays.size(); i++) {
+                int bytes = lengths.get(i);
+                if (bytes == 0) continue;
+                Object array = arrays.get(i);
+                if (array instanceof byte[] raw) {
+                    write(raw, bytes);
+                } else {
+                    if (scratch.capacity() < bytes) {
+                        scratch = ByteBuffer.allocate(Math.max(bytes, rowGroupRows * 8)).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                    scratch.clear();
+                    if (array instanceof int[] ints) {
+                        scratch.asIntBuffer().put(ints, 0, bytes / 4);
+                    } else if (array instanceof long[] longs) {
+                        scratch.asLongBuffer().put(longs, 0, bytes / 8);
+                    } else {
+                        scratch.asDoubleBuffer().put((double[]) array, 0, bytes / 8);
+                    }
+                    write(scratch.array(), bytes);
+                }
+                write(PADDING, padded(bytes) - bytes);
+            }
+        }
+    }
+
+    private static int padded(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
@@ -0,0 +1,247 @@
+package com.mcgill.application.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * CsvTableWriter - Writes rows as RFC 4180 CSV with a header line
+ * The fallback for tools that cannot read Arrow. Values are encoded straight
+ * into a byte buffer: doubles are printed with up to six decimals (exact for
+ * the DECIMAL(12,4) columns) by integer arithmetic instead of String.format,
+ * timestamps as ISO-8601 local date-times, and strings are quoted only when
+ * they contain a comma, quote or line break. Nulls are empty fields.
+ */
+public class CsvTableWriter implements TableWriter {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int DECIMALS = 6;
+    private static final long SCALE = 1_000_000L;
+    // Beyond this the scaled value no longer fits a long; such values fall back to Double.toString
+    private static final double MAX_FIXED = 1e12;
+
+    private final OutputStream out;
+    private final int columnCount;
+    private final byte[] buf = new byte[BUFFER_BYTES];
+    private final byte[] digits = new byte[20];
+    private int pos;
+    private int column;
+    private long rows;
+    private long bytesWritten;
+
+    public CsvTableWriter(OutputStream out, List<ExportColumn> schema) throws IOException {
+        this.out = out;
+        this.columnCount = schema.size();
+        for (ExportColumn c : schema) {
+            writeString(c.getName());
+        }
+        newLine();
+    }
+
+    private void separator() {
+        if (column >= columnCount) {
+            throw new IllegalStateException("Row has more values than the " + columnCount + " columns");
+        }
+        if (column++ > 0) {
+            put((byte) ',');
+        }
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        ensure(21);
+        separator();
+        appendLong(value);
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        ensure(40);
+        separator();
+        if (!Double.isFinite(value) || Math.abs(value) >= MAX_FIXED) {
+            appendAscii(Double.toString(value));
+            return;
+        }
+        long scaled = Math.round(value * SCALE);
+        if (scaled < 0) {
+            put((byte) '-');
+            scaled = -scaled;
+        }
+        appendLong(scaled / SCALE);
+        int fraction = (int) (scaled % SCALE);
+        if (fraction == 0) return;
+        int places = DECIMALS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            places--;
+        }
+        put((byte) '.');
+        for (int i = places - 1; i >= 0; i--) {
+            buf[pos + i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        pos += places;
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        ensure(1);
+        separator();
+        if (value == null) return;
+        boolean quote = false;
+        boolean ascii = true;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') quote = true;
+            if (ch >= 0x80) ascii = false;
+        }
+        if (!quote && ascii) {
+            appendAscii(value);
+            return;
+        }
+        if (ascii && value.length() * 2 + 2 <= buf.length) {
+            ensure(value.length() * 2 + 2);
+            put((byte) '"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"') put((byte) '"');
+                put((byte) ch);
+            }
+            put((byte) '"');
+            return;
+        }
+        String text = quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ensure(bytes.length);
+        if (bytes.length > buf.length) {
+            out.write(bytes);
+            bytesWritten += bytes.length;
+            return;
+        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    @Override
+    public void writeTimestamp(LocalDateTime value) throws IOException {
+        ensure(24);
+        separator();
+        if (value == null) return;
+        pad(value.getYear(), 4);
+        put((byte) '-');
+        pad(value.getMonthValue(), 2);
+        put((byte) '-');
+        pad(value.getDayOfMonth(), 2);
+        put((byte) 'T');
+        pad(value.getHour(), 2);
+        put((byte) ':');
+        pad(value.getMinute(), 2);
+        put((byte) ':');
+        pad(value.getSecond(), 2);
+        int millis = value.getNano() / 1_000_000;
+        if (millis != 0) {
+            put((byte) '.');
+            pad(millis, 3);
+        }
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        if (column != columnCount) {
+            throw new IllegalStateException("Row has " + column + " values for " + columnCount + " columns");
+        }
+        newLine();
+        rows++;
+    }
+
+    private void newLine() throws IOException {
+        ensure(2);
+        put((byte) '\r');
+        put((byte) '\n');
+        column = 0;
+    }
+
+    @Override
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    // --- Encoding ---
+
+    private void ensure(int bytes) throws IOException {
+        if (pos + bytes > buf.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buf, 0, pos);
+        bytesWritten += pos;
+        pos = 0;
+    }
+
+    private void put(byte b) {
+        buf[pos++] = b;
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            appendAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) {
+            put(digits[--n]);
+        }
+    }
+
+    private void pad(int value, int width) {
+        for (int i = width - 1; i >= 0; i--) {
+            buf[pos + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += width;
+    }
+
+    private void appendAscii(String value) throws IOException {
+        int length = value.length();
+        if (pos + length > buf.length) {
+            flushBuffer();
+            if (length > buf.length) {
+                byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+                out.write(bytes);
+                bytesWritten += bytes.length;
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            buf[pos++] = (byte) value.charAt(i);
+        }
+    }
+}
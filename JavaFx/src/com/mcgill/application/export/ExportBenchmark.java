@@ -0,0 +1,68 @@
+package com.mcgill.application.export;
+
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.service.ExportService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * ExportBenchmark - Export throughput of the Arrow and CSV writers, in MB/s
+ * Writes synthetic holdings (the real export columns, a few thousand distinct
+ * symbols over eleven sectors) to a temporary file in each format, a few times
+ * each so the JIT has settled, and prints rows/s and MB/s of the last run.
+ * No database is needed, so the numbers are the writers' alone.
+ *
+ * Usage: ExportBenchmark [rows=2000000] [runs=3]
+ */
+public class ExportBenchmark {
+
+    private static final int SYMBOLS = 5000;
+    private static final int SECTORS = 11;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        HoldingRow[] sample = new HoldingRow[SYMBOLS];
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < SYMBOLS; i++) {
+            double price = 10 + random.nextDouble() * 490;
+            sample[i] = new HoldingRow(i + 1, "S" + i, "Company " + i + ", Inc.", 1 + random.nextInt(1000),
+                    Math.round(price * 10_000) / 10_000.0, Math.round(price * 1.1 * 10_000) / 10_000.0,
+                    "Sector " + (i % SECTORS), now.minusSeconds(i));
+        }
+
+        System.out.printf("Exporting %,d holdings rows, best of %d runs%n", rows, runs);
+        for (ExportService.Format format : ExportService.Format.values()) {
+            Path file = Files.createTempFile("export-benchmark", format.getExtension());
+            try {
+                long bestNanos = Long.MAX_VALUE;
+                long bytes = 0;
+                for (int run = 0; run < runs; run++) {
+                    long start = System.nanoTime();
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+                        TableWriter writer = ExportService.openWriter(format, out, ExportService.HOLDINGS_COLUMNS);
+                        for (int i = 0; i < rows; i++) {
+                            ExportService.writeHolding(writer, sample[i % SYMBOLS]);
+                        }
+                        writer.close();
+                        bytes = writer.getBytesWritten();
+                    }
+                    bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+                }
+                double seconds = bestNanos / 1e9;
+                System.out.printf("%-6s %8.1f MB  %6.2f s  %,12.0f rows/s  %8.1f MB/s%n",
+                        format, bytes / (1024.0 * 1024.0), seconds, rows / seconds, bytes / (1024.0 * 1024.0) / seconds);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.mcgill.application.export;
+
+/**
+ * ExportColumn - Name and type of one column of an export
+ */
+public final class ExportColumn {
+
+    public enum Type {
+        INT32,
+        INT64,
+        FLOAT64,
+        STRING,
+        /** A string from a small set of values (symbols, sectors): dictionary-encoded in Arrow */
+        SYMBOL,
+        /** Local date-time, stored in Arrow as milliseconds without a time zone */
+        TIMESTAMP
+    }
+
+    private final String name;
+    private final Type type;
+
+    public ExportColumn(String name, Type type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getName() { return name; }
+    public Type getType() { return type; }
+}
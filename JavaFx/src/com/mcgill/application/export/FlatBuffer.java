@@ -0,0 +1,222 @@
+package com.mcgill.application.export;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FlatBuffer - Just enough of a FlatBuffers encoder for Arrow IPC metadata
+ * Tables are described as (field id, value) pairs and serialised front to back:
+ * each table is preceded by its vtable and followed by the strings, vectors and
+ * tables it points to, so every offset points forward as the format requires.
+ * Scalars are always written, even when equal to the schema default.
+ */
+final class FlatBuffer {
+
+    private enum Kind { SCALAR, STRING, TABLE, TABLE_VECTOR, STRUCT_VECTOR }
+
+    private static final class Field {
+        final int id;
+        final Kind kind;
+        final int size;
+        final long bits;
+        final Object child;
+
+        Field(int id, Kind kind, int size, long bits, Object child) {
+            this.id = id;
+            this.kind = kind;
+            this.size = size;
+            this.bits = bits;
+            this.child = child;
+        }
+    }
+
+    /**
+     * A table under construction; fields may be added in any id order
+     */
+    static final class Table {
+        private final List<Field> fields = new ArrayList<>();
+
+        Table addBool(int id, boolean value) {
+            return scalar(id, 1, value ? 1 : 0);
+        }
+
+        Table addByte(int id, int value) {
+            return scalar(id, 1, value);
+        }
+
+        Table addShort(int id, int value) {
+            return scalar(id, 2, value);
+        }
+
+        Table addInt(int id, int value) {
+            return scalar(id, 4, value);
+        }
+
+        Table addLong(int id, long value) {
+            return scalar(id, 8, value);
+        }
+
+        Table addString(int id, String value) {
+            fields.add(new Field(id, Kind.STRING, 4, 0, value.getBytes(StandardCharsets.UTF_8)));
+            return this;
+        }
+
+        Table addTable(int id, Table value) {
+            fields.add(new Field(id, Kind.TABLE, 4, 0, value));
+            return this;
+        }
+
+        Table addTableVector(int id, List<Table> values) {
+            fields.add(new Field(id, Kind.TABLE_VECTOR, 4, 0, values));
+            return this;
+        }
+
+        /**
+         * Vector of structs made only of longs (Arrow's FieldNode and Buffer)
+         * @param longs The structs one after the other
+         */
+        Table addStructVector(int id, long[] longs, int longsPerStruct) {
+            fields.add(new Field(id, Kind.STRUCT_VECTOR, 4, longsPerStruct, longs));
+            return this;
+        }
+
+        private Table scalar(int id, int size, long bits) {
+            fields.add(new Field(id, Kind.SCALAR, size, bits, null));
+            return this;
+        }
+    }
+
+    private byte[] buf = new byte[256];
+    private int pos;
+
+    private FlatBuffer() {
+    }
+
+    /**
+     * Serialise a root table, padded to a multiple of 8 bytes
+     */
+    static byte[] finish(Table root) {
+        FlatBuffer fb = new FlatBuffer();
+        fb.pos = 4;
+        int rootPos = fb.writeTable(root);
+        fb.putInt(0, rootPos);
+        fb.align(8);
+        return Arrays.copyOf(fb.buf, fb.pos);
+    }
+
+    private int writeTable(Table table) {
+        int maxId = -1;
+        for (Field field : table.fields) {
+            maxId = Math.max(maxId, field.id);
+        }
+        align(2);
+        int vtablePos = pos;
+        int vtableSize = 4 + 2 * (maxId + 1);
+        reserve(vtableSize);
+
+        // The table starts with the signed distance back to its vtable
+        align(8);
+        int tablePos = pos;
+        reserve(4);
+        int[] fieldPos = new int[table.fields.size()];
+        for (int i = 0; i < table.fields.size(); i++) {
+            Field field = table.fields.get(i);
+            align(field.size);
+            fieldPos[i] = pos;
+            reserve(field.size);
+            if (field.kind == Kind.SCALAR) {
+                for (int b = 0; b < field.size; b++) {
+                    buf[fieldPos[i] + b] = (byte) (field.bits >>> (8 * b));
+                }
+            }
+        }
+        putInt(tablePos, tablePos - vtablePos);
+        putShort(vtablePos, vtableSize);
+        putShort(vtablePos + 2, pos - tablePos);
+        for (int i = 0; i < table.fields.size(); i++) {
+            putShort(vtablePos + 4 + 2 * table.fields.get(i).id, fieldPos[i] - tablePos);
+        }
+
+        for (int i = 0; i < table.fields.size(); i++) {
+            Field field = table.fields.get(i);
+            if (field.kind != Kind.SCALAR) {
+                int target = writeChild(field);
+                putInt(fieldPos[i], target - fieldPos[i]);
+            }
+        }
+        return tablePos;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int writeChild(Field field) {
+        switch (field.kind) {
+            case STRING: {
+                byte[] bytes = (byte[]) field.child;
+                align(4);
+                int start = pos;
+                reserve(4 + bytes.length + 1);
+                putInt(start, bytes.length);
+                System.arraycopy(bytes, 0, buf, start + 4, bytes.length);
+                return start;
+            }
+            case TABLE:
+                return writeTable((Table) field.child);
+            case TABLE_VECTOR: {
+                List<Table> tables = (List<Table>) field.child;
+                align(4);
+                int start = pos;
+                reserve(4 + 4 * tables.size());
+                putInt(start, tables.size());
+                for (int i = 0; i < tables.size(); i++) {
+                    int slot = start + 4 + 4 * i;
+                    putInt(slot, writeTable(tables.get(i)) - slot);
+                }
+                return start;
+            }
+            case STRUCT_VECTOR: {
+                long[] longs = (long[]) field.child;
+                // Elements must be 8-aligned, so the length in front of them sits at 4 mod 8
+                while ((pos + 4) % 8 != 0) reserve(1);
+                int start = pos;
+                reserve(4 + 8 * longs.length);
+                putInt(start, longs.length / (int) field.bits);
+                for (int i = 0; i < longs.length; i++) {
+                    putLong(start + 4 + 8 * i, longs[i]);
+                }
+                return start;
+            }
+            default:
+                throw new IllegalStateException("Not an offset field: " + field.kind);
+        }
+    }
+
+    private void align(int alignment) {
+        while (pos % alignment != 0) reserve(1);
+    }
+
+    private void reserve(int bytes) {
+        if (pos + bytes > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+        }
+        pos += bytes;
+    }
+
+    private void putShort(int at, int value) {
+        buf[at] = (byte) value;
+        buf[at + 1] = (byte) (value >>> 8);
+    }
+
+    private void putInt(int at, int value) {
+        for (int b = 0; b < 4; b++) {
+            buf[at + b] = (byte) (value >>> (8 * b));
+        }
+    }
+
+    private void putLong(int at, long value) {
+        for (int b = 0; b < 8; b++) {
+            buf[at + b] = (byte) (value >>> (8 * b));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.mcgill.application.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * TableWriter - Streams rows of a fixed list of columns to an export file
+ * Each row is written one value at a time in column order and closed with
+ * endRow(). Only STRING, SYMBOL and TIMESTAMP columns accept null. Closing
+ * writes whatever is buffered and ends the file, but does not close the stream.
+ */
+public interface TableWriter extends Closeable {
+
+    void writeInt(int value) throws IOException;
+
+    void writeLong(long value) throws IOException;
+
+    void writeDouble(double value) throws IOException;
+
+    /** For STRING and SYMBOL columns */
+    void writeString(String value) throws IOException;
+
+    void writeTimestamp(LocalDateTime value) throws IOException;
+
+    void endRow() throws IOException;
+
+    long getRows();
+
+    /** Bytes handed to the output stream so far */
+    long getBytesWritten();
+}
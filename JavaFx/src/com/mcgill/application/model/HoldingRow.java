@@ -0,0 +1,71 @@
+package com.mcgill.application.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * HoldingRow Model Class
+ * One portfolio row as plain values, for bulk readers that look at every row
+ * but keep few of them. Much lighter than a Stock, whose fields are JavaFX
+ * properties; toStock() makes one for the rows that are kept.
+ */
+public class HoldingRow {
+
+    private final int id;
+    private final String symbol;
+    private final String company;
+    private final int shares;
+    private final double purchasePrice;
+    private final double currentPrice;
+    private final String sector;
+    private final LocalDateTime lastRefreshed;
+
+    public HoldingRow(int id, String symbol, String company, int shares, double purchasePrice,
+                      double currentPrice, String sector, LocalDateTime lastRefreshed) {
+        this.id = id;
+        this.symbol = symbol;
+        this.company = company;
+        this.shares = shares;
+        this.purchasePrice = purchasePrice;
+        this.currentPrice = currentPrice;
+        this.sector = sector;
+        this.lastRefreshed = lastRefreshed;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getCompany() {
+        return company;
+    }
+
+    public int getShares() {
+        return shares;
+    }
+
+    public double getPurchasePrice() {
+        return purchasePrice;
+    }
+
+    public double getCurrentPrice() {
+        return currentPrice;
+    }
+
+    public String getSector() {
+        return sector;
+    }
+
+    public LocalDateTime getLastRefreshed() {
+        return lastRefreshed;
+    }
+
+    public Stock toStock() {
+        Stock stock = new Stock(id, symbol, company, shares, purchasePrice, currentPrice, sector);
+        stock.setLastRefreshed(lastRefreshed);
+        return stock;
+    }
+}
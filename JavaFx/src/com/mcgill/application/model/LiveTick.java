@@ -10,6 +10,14 @@ public class LiveTick {
     private final StringProperty time = new SimpleStringProperty();
     private final DoubleProperty price = new SimpleDoubleProperty();
 
+    // Rolling indicators at the time of this tick (see IndicatorEngine)
+    private final DoubleProperty sma = new SimpleDoubleProperty();
+    private final DoubleProperty ema = new SimpleDoubleProperty();
+    private final DoubleProperty vwap = new SimpleDoubleProperty();
+    private final DoubleProperty min = new SimpleDoubleProperty();
+    private final DoubleProperty max = new SimpleDoubleProperty();
+    private final DoubleProperty stdDev = new SimpleDoubleProperty();
+
     public String getSymbol() { return symbol.get(); }
     public void setSymbol(String value) { symbol.set(value); }
     public StringProperty symbolProperty() { return symbol; }
@@ -21,6 +29,28 @@ public class LiveTick {
     public double getPrice() { return price.get(); }
     public void setPrice(double value) { price.set(value); }
     public DoubleProperty priceProperty() { return price; }
-}
 
+    public double getSma() { return sma.get(); }
+    public void setSma(double value) { sma.set(value); }
+    public DoubleProperty smaProperty() { return sma; }
+
+    public double getEma() { return ema.get(); }
+    public void setEma(double value) { ema.set(value); }
+    public DoubleProperty emaProperty() { return ema; }
+
+    public double getVwap() { return vwap.get(); }
+    public void setVwap(double value) { vwap.set(value); }
+    public DoubleProperty vwapProperty() { return vwap; }
 
+    public double getMin() { return min.get(); }
+    public void setMin(double value) { min.set(value); }
+    public DoubleProperty minProperty() { return min; }
+
+    public double getMax() { return max.get(); }
+    public void setMax(double value) { max.set(value); }
+    public DoubleProperty maxProperty() { return max; }
+
+    public double getStdDev() { return stdDev.get(); }
+    public void setStdDev(double value) { stdDev.set(value); }
+    public DoubleProperty stdDevProperty() { return stdDev; }
+}
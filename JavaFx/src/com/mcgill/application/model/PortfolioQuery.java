@@ -0,0 +1,71 @@
+package com.mcgill.application.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PortfolioQuery Model Class
+ * Which holdings to page through and in what order; null filters match everything.
+ * Filtering and sorting are done by the database.
+ */
+public class PortfolioQuery {
+
+    public enum SortKey {
+        SYMBOL("Symbol"), PROFIT_LOSS("P/L"), MARKET_VALUE("Market Value");
+
+        private final String label;
+
+        SortKey(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final String symbolPrefix;
+    private final String sector;
+    private final Double minProfitLoss;
+    private final Double maxProfitLoss;
+    private final SortKey sortKey;
+    private final boolean descending;
+
+    public PortfolioQuery(String symbolPrefix, String sector, Double minProfitLoss, Double maxProfitLoss,
+                          SortKey sortKey, boolean descending) {
+        this.symbolPrefix = blankToNull(symbolPrefix == null ? null : symbolPrefix.toUpperCase());
+        this.sector = blankToNull(sector);
+        this.minProfitLoss = minProfitLoss;
+        this.maxProfitLoss = maxProfitLoss;
+        this.sortKey = sortKey == null ? SortKey.SYMBOL : sortKey;
+        this.descending = descending;
+    }
+
+    /** Every holding, by symbol */
+    public static PortfolioQuery all() {
+        return new PortfolioQuery(null, null, null, null, SortKey.SYMBOL, false);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public String getSymbolPrefix() { return symbolPrefix; }
+    public String getSector() { return sector; }
+    public Double getMinProfitLoss() { return minProfitLoss; }
+    public Double getMaxProfitLoss() { return maxProfitLoss; }
+    public SortKey getSortKey() { return sortKey; }
+    public boolean isDescending() { return descending; }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        if (symbolPrefix != null) parts.add("symbol " + symbolPrefix + "*");
+        if (sector != null) parts.add("sector " + sector);
+        if (minProfitLoss != null) parts.add("P/L ≥ " + minProfitLoss);
+        if (maxProfitLoss != null) parts.add("P/L ≤ " + maxProfitLoss);
+        String filter = parts.isEmpty() ? "all holdings" : String.join(", ", parts);
+        return filter + ", by " + sortKey + (descending ? " ↓" : " ↑");
+    }
+}
@@ -0,0 +1,100 @@
+package com.mcgill.application.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PortfolioSummary Model Class
+ * Cost and market value of the book, in total and per sector. Either summed
+ * from the holdings in memory or aggregated by the database for large books.
+ */
+public class PortfolioSummary {
+
+    public static final String NO_SECTOR = "Unassigned";
+
+    /**
+     * Totals for the holdings of one sector
+     */
+    public static class SectorTotal {
+        private final String sector;
+        private final int holdings;
+        private final double investment;
+        private final double marketValue;
+
+        public SectorTotal(String sector, int holdings, double investment, double marketValue) {
+            this.sector = sectorKey(sector);
+            this.holdings = holdings;
+            this.investment = investment;
+            this.marketValue = marketValue;
+        }
+
+        public String getSector() { return sector; }
+        public int getHoldings() { return holdings; }
+        public double getInvestment() { return investment; }
+        public double getMarketValue() { return marketValue; }
+        public double getProfitLoss() { return marketValue - investment; }
+    }
+
+    private final List<SectorTotal> sectors;
+    private final int holdings;
+    private final double investment;
+    private final double marketValue;
+
+    public PortfolioSummary(List<SectorTotal> sectors) {
+        List<SectorTotal> sorted = new ArrayList<>(sectors);
+        sorted.sort(Comparator.comparingDouble(SectorTotal::getInvestment).reversed());
+        this.sectors = Collections.unmodifiableList(sorted);
+        int count = 0;
+        double cost = 0;
+        double value = 0;
+        for (SectorTotal s : sectors) {
+            count += s.holdings;
+            cost += s.investment;
+            value += s.marketValue;
+        }
+        this.holdings = count;
+        this.investment = cost;
+        this.marketValue = value;
+    }
+
+    /**
+     * The group a sector is totalled under: trimmed, with no sector and blank ones as NO_SECTOR
+     * (StockRepositoryPostgreSQL.summarize groups the same way)
+     */
+    public static String sectorKey(String sector) {
+        String trimmed = sector == null ? "" : sector.trim();
+        return trimmed.isEmpty() ? NO_SECTOR : trimmed;
+    }
+
+    /**
+     * Sum holdings held in memory
+     */
+    public static PortfolioSummary of(Iterable<Stock> stocks) {
+        // sector -> {holdings, investment, market value}
+        Map<String, double[]> bySector = new LinkedHashMap<>();
+        for (Stock stock : stocks) {
+            double[] t = bySector.computeIfAbsent(sectorKey(stock.getSector()), k -> new double[3]);
+            t[0]++;
+            t[1] += stock.getShares() * stock.getPurchasePrice();
+            t[2] += stock.getShares() * stock.getCurrentPrice();
+        }
+        List<SectorTotal> sectors = new ArrayList<>(bySector.size());
+        bySector.forEach((sector, t) -> sectors.add(new SectorTotal(sector, (int) t[0], t[1], t[2])));
+        return new PortfolioSummary(sectors);
+    }
+
+    /** Per-sector totals, largest investment first */
+    public List<SectorTotal> getSectors() { return sectors; }
+    public int getHoldings() { return holdings; }
+    public double getTotalInvestment() { return investment; }
+    public double getMarketValue() { return marketValue; }
+    public double getProfitLoss() { return marketValue - investment; }
+
+    public double getProfitLossPercent() {
+        return investment == 0 ? 0.0 : getProfitLoss() / investment * 100.0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mcgill.application.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * PriceAlert Model Class
+ * A one-shot threshold alert on a symbol's price, or on the portfolio P/L % when
+ * the symbol is PORTFOLIO_PL_PERCENT
+ */
+public class PriceAlert {
+
+    /** Pseudo-symbol for alerts on the whole portfolio's P/L percentage */
+    public static final String PORTFOLIO_PL_PERCENT = "PORTFOLIO";
+
+    /**
+     * ABOVE fires when the value rises through the threshold, BELOW when it falls through it,
+     * CROSSES in either direction
+     */
+    public enum Direction {
+        ABOVE, BELOW, CROSSES
+    }
+
+    private int id;
+    private final String symbol;
+    private final Direction direction;
+    private final double threshold;
+    private LocalDateTime createdAt;
+    private LocalDateTime triggeredAt;
+    private double triggerValue;
+
+    public PriceAlert(int id, String symbol, Direction direction, double threshold) {
+        this.id = id;
+        this.symbol = symbol;
+        this.direction = direction;
+        this.threshold = threshold;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public boolean isPortfolioAlert() {
+        return PORTFOLIO_PL_PERCENT.equals(symbol);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getTriggeredAt() {
+        return triggeredAt;
+    }
+
+    public double getTriggerValue() {
+        return triggerValue;
+    }
+
+    /**
+     * Record the value that fired this alert
+     */
+    public void markTriggered(double value, LocalDateTime at) {
+        this.triggerValue = value;
+        this.triggeredAt = at;
+    }
+
+    @Override
+    public String toString() {
+        String dir = direction.name().toLowerCase();
+        if (isPortfolioAlert()) {
+            return String.format("Portfolio P/L %s %.2f%%", dir, threshold);
+        }
+        return String.format("%s %s $%.2f", symbol, dir, threshold);
+    }
+}
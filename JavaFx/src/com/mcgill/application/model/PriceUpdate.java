@@ -0,0 +1,33 @@
+package com.mcgill.application.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * PriceUpdate Model Class
+ * A refreshed price for one holding, captured when it was applied so it can
+ * be written to the database later without reading the live Stock.
+ */
+public class PriceUpdate {
+
+    private final int id;
+    private final double price;
+    private final LocalDateTime refreshedAt;
+
+    public PriceUpdate(int id, double price, LocalDateTime refreshedAt) {
+        this.id = id;
+        this.price = price;
+        this.refreshedAt = refreshedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mcgill.application.model;
 
+import javafx.beans.binding.DoubleBinding;
 import javafx.beans.property.*;
 import java.time.LocalDateTime;
 import javafx.beans.property.ObjectProperty;
@@ -25,6 +26,12 @@ public class Stock {
     private final StringProperty sector = new SimpleStringProperty();
     private final ObjectProperty<LocalDateTime> lastRefreshed = new SimpleObjectProperty<>();
     
+    // Derived values for the table; created on first use, and lazy: a change to
+    // shares or a price only marks them invalid, they recompute when next read
+    private DoubleBinding totalValue;
+    private DoubleBinding profitLoss;
+    private DoubleBinding profitLossPercent;
+    
     public Stock() {
         // Default constructor
     }
@@ -177,19 +184,76 @@ public class Stock {
         return ((currentPrice.get() - purchasePrice.get()) / purchasePrice.get()) * 100.0;
     }
     
+    /**
+     * Observable shares × currentPrice
+     */
+    public DoubleBinding totalValueProperty() {
+        if (totalValue == null) {
+            totalValue = new DoubleBinding() {
+                { bind(shares, currentPrice); }
+                
+                @Override
+                protected double computeValue() {
+                    return getTotalValue();
+                }
+            };
+        }
+        return totalValue;
+    }
+    
+    /**
+     * Observable (currentPrice - purchasePrice) × shares
+     */
+    public DoubleBinding profitLossProperty() {
+        if (profitLoss == null) {
+            profitLoss = new DoubleBinding() {
+                { bind(shares, purchasePrice, currentPrice); }
+                
+                @Override
+                protected double computeValue() {
+                    return getProfitLoss();
+                }
+            };
+        }
+        return profitLoss;
+    }
+    
+    /**
+     * Observable P/L percentage
+     */
+    public DoubleBinding profitLossPercentProperty() {
+        if (profitLossPercent == null) {
+            profitLossPercent = new DoubleBinding() {
+                { bind(purchasePrice, currentPrice); }
+                
+                @Override
+                protected double computeValue() {
+                    return getProfitLossPercent();
+                }
+            };
+        }
+        return profitLossPercent;
+    }
+    
     /**
      * Get formatted profit/loss with sign
      */
     public String getProfitLossFormatted() {
-        double pl = getProfitLoss();
-        return String.format("%s$%.2f", pl >= 0 ? "+" : "", pl);
+        return formatProfitLoss(getProfitLoss());
     }
     
     /**
      * Get formatted profit/loss percentage with sign
      */
     public String getProfitLossPercentFormatted() {
-        double plpct = getProfitLossPercent();
+        return formatProfitLossPercent(getProfitLossPercent());
+    }
+    
+    public static String formatProfitLoss(double pl) {
+        return String.format("%s$%.2f", pl >= 0 ? "+" : "", pl);
+    }
+    
+    public static String formatProfitLossPercent(double plpct) {
         return String.format("%s%.2f%%", plpct >= 0 ? "+" : "", plpct);
     }
 }
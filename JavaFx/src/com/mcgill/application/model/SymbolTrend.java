@@ -0,0 +1,31 @@
+package com.mcgill.application.model;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
+
+/**
+ * SymbolTrend - One row of the real-time trend table
+ * The sparkline is drawn from the symbol's PriceSeries; revision moves
+ * whenever the series did, so only rows with new ticks are redrawn.
+ */
+public class SymbolTrend {
+    private final String symbol;
+    private final DoubleProperty last = new SimpleDoubleProperty(Double.NaN);
+    private final LongProperty revision = new SimpleLongProperty();
+
+    public SymbolTrend(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() { return symbol; }
+
+    public double getLast() { return last.get(); }
+    public void setLast(double value) { last.set(value); }
+    public DoubleProperty lastProperty() { return last; }
+
+    public long getRevision() { return revision.get(); }
+    public void setRevision(long value) { revision.set(value); }
+    public LongProperty revisionProperty() { return revision; }
+}
@@ -0,0 +1,62 @@
+package com.mcgill.application.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * TaxLot Model Class
+ * Shares acquired by one BUY transaction that have not been sold yet.
+ * The lot ID is the ID of the BUY row in the transactions ledger; the holding ID
+ * is the portfolio row the shares belong to.
+ */
+public class TaxLot {
+
+    private final long lotId;
+    private final int holdingId;
+    private final String symbol;
+    private final double costPrice;
+    private final LocalDateTime acquiredAt;
+    private int openShares;
+
+    public TaxLot(long lotId, int holdingId, String symbol, int openShares, double costPrice, LocalDateTime acquiredAt) {
+        this.lotId = lotId;
+        this.holdingId = holdingId;
+        this.symbol = symbol;
+        this.openShares = openShares;
+        this.costPrice = costPrice;
+        this.acquiredAt = acquiredAt;
+    }
+
+    public long getLotId() {
+        return lotId;
+    }
+
+    public int getHoldingId() {
+        return holdingId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getOpenShares() {
+        return openShares;
+    }
+
+    public void setOpenShares(int openShares) {
+        this.openShares = openShares;
+    }
+
+    public double getCostPrice() {
+        return costPrice;
+    }
+
+    public LocalDateTime getAcquiredAt() {
+        return acquiredAt;
+    }
+
+    @Override
+    public String toString() {
+        String date = acquiredAt == null ? "-" : acquiredAt.toLocalDate().toString();
+        return String.format("Lot #%d: %d @ $%.2f (%s)", lotId, openShares, costPrice, date);
+    }
+}
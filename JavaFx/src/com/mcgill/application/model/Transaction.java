@@ -0,0 +1,89 @@
+package com.mcgill.application.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transaction Model Class
+ * One row of the append-only ledger: a buy, a sell matched against one tax lot, or a fee
+ */
+public class Transaction {
+
+    public enum Type {
+        BUY, SELL, FEE
+    }
+
+    private long id;
+    private final Type type;
+    private final String symbol;
+    private final int shares;
+    private final double price;
+    private final double fees;
+    private final long lotId;
+    private final double realizedProfitLoss;
+    private final LocalDateTime executedAt;
+
+    /**
+     * @param lotId Lot consumed by a SELL (0 for buys and fees)
+     * @param realizedProfitLoss Gain/loss realised by a SELL against its lot's cost price
+     */
+    public Transaction(long id, Type type, String symbol, int shares, double price, double fees,
+                       long lotId, double realizedProfitLoss, LocalDateTime executedAt) {
+        this.id = id;
+        this.type = type;
+        this.symbol = symbol;
+        this.shares = shares;
+        this.price = price;
+        this.fees = fees;
+        this.lotId = lotId;
+        this.realizedProfitLoss = realizedProfitLoss;
+        this.executedAt = executedAt;
+    }
+
+    public static Transaction buy(String symbol, int shares, double price, LocalDateTime at) {
+        return new Transaction(0, Type.BUY, symbol, shares, price, 0.0, 0, 0.0, at);
+    }
+
+    public static Transaction fee(String symbol, double amount, LocalDateTime at) {
+        return new Transaction(0, Type.FEE, symbol, 0, 0.0, amount, 0, 0.0, at);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getShares() {
+        return shares;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getFees() {
+        return fees;
+    }
+
+    public long getLotId() {
+        return lotId;
+    }
+
+    public double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    public LocalDateTime getExecutedAt() {
+        return executedAt;
+    }
+}
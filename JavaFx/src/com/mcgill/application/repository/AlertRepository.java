@@ -0,0 +1,136 @@
+package com.mcgill.application.repository;
+
+import com.mcgill.application.database.DatabaseConnection;
+import com.mcgill.application.model.PriceAlert;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostgreSQL Repository for price alerts
+ * Alerts live in the price_alert table next to portfolio; triggered alerts are
+ * kept (with triggered_at set) as history rather than deleted
+ */
+public class AlertRepository {
+
+    private final DatabaseConnection dbConnection;
+
+    public AlertRepository() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        initializeDatabase();
+    }
+
+    /**
+     * Create the price_alert table if an older database volume predates it
+     */
+    private void initializeDatabase() {
+        String sql = "CREATE TABLE IF NOT EXISTS price_alert (" +
+                "id SERIAL PRIMARY KEY, " +
+                "symbol VARCHAR(10) NOT NULL, " +
+                "direction VARCHAR(8) NOT NULL, " +
+                "threshold DECIMAL(12,4) NOT NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "triggered_at TIMESTAMP, " +
+                "trigger_value DECIMAL(12,4))";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        } catch (SQLException e) {
+            System.err.println("✗ Failed to prepare price_alert table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Insert an alert and assign its generated ID
+     */
+    public void save(PriceAlert alert) {
+        String sql = "INSERT INTO price_alert (symbol, direction, threshold) VALUES (?, ?, ?)";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setString(1, alert.getSymbol());
+            pstmt.setString(2, alert.getDirection().name());
+            pstmt.setDouble(3, alert.getThreshold());
+            pstmt.executeUpdate();
+
+            ResultSet keys = pstmt.getGeneratedKeys();
+            if (keys.next()) {
+                alert.setId(keys.getInt(1));
+            }
+            System.out.println("✓ Alert saved: " + alert);
+        } catch (SQLException e) {
+            System.err.println("Error saving alert: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Find all alerts that have not fired yet
+     */
+    public List<PriceAlert> findActive() {
+        List<PriceAlert> alerts = new ArrayList<>();
+        String sql = "SELECT id, symbol, direction, threshold, created_at FROM price_alert " +
+                "WHERE triggered_at IS NULL ORDER BY symbol, threshold";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                PriceAlert alert = new PriceAlert(
+                        rs.getInt(1),
+                        rs.getString(2),
+                        PriceAlert.Direction.valueOf(rs.getString(3)),
+                        rs.getDouble(4));
+                Timestamp created = rs.getTimestamp(5);
+                if (created != null) alert.setCreatedAt(created.toLocalDateTime());
+                alerts.add(alert);
+            }
+
+            System.out.println("✓ Loaded " + alerts.size() + " active alerts");
+        } catch (SQLException e) {
+            System.err.println("Error fetching alerts: " + e.getMessage());
+        }
+
+        return alerts;
+    }
+
+    /**
+     * Delete alert by ID
+     */
+    public void delete(int id) {
+        String sql = "DELETE FROM price_alert WHERE id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error deleting alert: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record fired alerts in one JDBC batch
+     */
+    public void markTriggered(List<PriceAlert> fired) {
+        if (fired.isEmpty()) return;
+        String sql = "UPDATE price_alert SET triggered_at = ?, trigger_value = ? WHERE id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (PriceAlert alert : fired) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(alert.getTriggeredAt()));
+                pstmt.setDouble(2, alert.getTriggerValue());
+                pstmt.setInt(3, alert.getId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("Error recording triggered alerts: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.mcgill.application.repository;
+
+import com.mcgill.application.database.DatabaseConnection;
+import com.mcgill.application.service.BarBatch;
+import java.sql.*;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * PostgreSQL Repository for completed OHLCV bars
+ * price_bar holds one row per (symbol, resolution, bucket); saving a bar that is
+ * already there replaces it, so flushing the same bars twice is harmless.
+ * Buckets are TIMESTAMPTZ instants: a local TIMESTAMP repeats the fall-back hour
+ * when clocks go back, and that hour's bars would overwrite each other.
+ */
+public class BarRepository {
+
+    private static final String UPSERT = "INSERT INTO price_bar " +
+            "(symbol, resolution_seconds, bucket_start, open, high, low, close, volume, ticks) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (symbol, resolution_seconds, bucket_start) DO UPDATE SET " +
+            "open = EXCLUDED.open, high = EXCLUDED.high, low = EXCLUDED.low, close = EXCLUDED.close, " +
+            "volume = EXCLUDED.volume, ticks = EXCLUDED.ticks";
+
+    // Volumes created before buckets were instants; their local times are read in the session time zone
+    private static final String MIGRATE_BUCKETS = "DO $$ BEGIN " +
+            "IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'price_bar' " +
+            "AND column_name = 'bucket_start' AND data_type = 'timestamp without time zone') THEN " +
+            "ALTER TABLE price_bar ALTER COLUMN bucket_start TYPE TIMESTAMPTZ; " +
+            "END IF; END $$";
+
+    // Rows per executeBatch, so one flush of many bars is not a single huge batch
+    private static final int BATCH_ROWS = 1000;
+
+    private final DatabaseConnection dbConnection;
+
+    /**
+     * Receives stored bars' closes in bucket order
+     */
+    @FunctionalInterface
+    public interface CloseListener {
+        void onClose(String symbol, double close, long bucketMillis);
+    }
+
+    public BarRepository() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        initializeDatabase();
+    }
+
+    /**
+     * Create the price_bar table if an older database volume predates it
+     */
+    private void initializeDatabase() {
+        String sql = "CREATE TABLE IF NOT EXISTS price_bar (" +
+                "symbol VARCHAR(10) NOT NULL, " +
+                "resolution_seconds INTEGER NOT NULL, " +
+                "bucket_start TIMESTAMPTZ NOT NULL, " +
+                "open DECIMAL(12,4) NOT NULL, " +
+                "high DECIMAL(12,4) NOT NULL, " +
+                "low DECIMAL(12,4) NOT NULL, " +
+                "close DECIMAL(12,4) NOT NULL, " +
+                "volume DOUBLE PRECISION NOT NULL, " +
+                "ticks BIGINT NOT NULL, " +
+                "PRIMARY KEY (symbol, resolution_seconds, bucket_start))";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            stmt.execute(MIGRATE_BUCKETS);
+        } catch (SQLException e) {
+            System.err.println("✗ Failed to prepare price_bar table: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write bars of one resolution in JDBC batches, in one transaction
+     * Runs on a dedicated connection, so its transaction never touches a pooled one.
+     * @return Bars written, or 0 on error
+     */
+    public int saveBars(int resolutionSeconds, BarBatch bars) {
+        if (bars.size() == 0) return 0;
+        long[] buckets = bars.getBuckets();
+        String[] symbols = bars.getSymbols();
+
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT)) {
+                for (int i = 0; i < bars.size(); i++) {
+                    pstmt.setString(1, symbols[i]);
+                    pstmt.setInt(2, resolutionSeconds);
+                    pstmt.setObject(3, instant(buckets[i]));
+                    pstmt.setDouble(4, bars.getOpen()[i]);
+                    pstmt.setDouble(5, bars.getHigh()[i]);
+                    pstmt.setDouble(6, bars.getLow()[i]);
+                    pstmt.setDouble(7, bars.getClose()[i]);
+                    pstmt.setDouble(8, bars.getVolume()[i]);
+                    pstmt.setLong(9, bars.getTicks()[i]);
+                    pstmt.addBatch();
+                    if ((i + 1) % BATCH_ROWS == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                return bars.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error saving bars: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Stream the closes of stored bars of one resolution from a time on, ordered by bucket then symbol
+     * @return Bars read, or 0 on error
+     */
+    public int forEachClose(int resolutionSeconds, long sinceMillis, CloseListener listener) {
+        String sql = "SELECT symbol, close, bucket_start FROM price_bar " +
+                "WHERE resolution_seconds = ? AND bucket_start >= ? ORDER BY bucket_start, symbol";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, resolutionSeconds);
+            pstmt.setObject(2, instant(sinceMillis));
+            int read = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    listener.onClose(rs.getString(1), rs.getDouble(2), rs.getObject(3, OffsetDateTime.class).toInstant().toEpochMilli());
+                    read++;
+                }
+            }
+            return read;
+        } catch (SQLException e) {
+            System.err.println("Error loading bars: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static OffsetDateTime instant(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,187 @@
+package com.mcgill.application.repository;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mcgill.application.database.DatabaseConnection;
+import com.mcgill.application.model.Stock;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * PostgreSQL change feed for the portfolio table
+ * Triggers on portfolio NOTIFY every committed insert/update (with the whole row)
+ * and delete (with the id) on CHANNEL. This listener holds its own connection,
+ * blocks in the driver until notifications arrive, and hands each wake-up's
+ * notifications over as one batch of changes. A payload's version is the one
+ * settled when the change was written, so the owner's version never passes a
+ * change still in flight.
+ *
+ * Notifications sent while no connection is listening are lost, so every
+ * (re)connect is reported as a gap and the owner resyncs from its row version,
+ * reading over this listener's connection rather than a pooled one.
+ */
+public class PortfolioChangeListener implements AutoCloseable {
+
+    public static final String CHANNEL = "portfolio_changes";
+
+    // How long one wait for notifications may block before checking for close()
+    private static final int WAIT_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final DatabaseConnection dbConnection;
+    private final Executor executor;
+    private final ChangeHandler onChanges;
+    private final GapHandler onGap;
+    private volatile boolean running;
+    // Thread the executor runs the listen loop on, so close() can wake it
+    private volatile Thread thread;
+
+    /**
+     * Receives one batch of changes
+     */
+    @FunctionalInterface
+    public interface ChangeHandler {
+        /**
+         * @param conn The listener's own connection, for any follow-up reads; do not close it
+         */
+        void onChanges(StockRepositoryPostgreSQL.Changes changes, Connection conn);
+    }
+
+    /**
+     * Catches up after a gap in the feed
+     */
+    @FunctionalInterface
+    public interface GapHandler {
+        /**
+         * @param conn The listener's own connection, to read the missed changes over; do not close it
+         */
+        void onGap(Connection conn);
+    }
+
+    /**
+     * @param executor  Runs the listen loop; it holds its task until close()
+     * @param onChanges Receives each batch of changes (on the listener thread)
+     * @param onGap     Called (on the listener thread) after every (re)connect, once LISTEN is active
+     */
+    public PortfolioChangeListener(Executor executor, ChangeHandler onChanges, GapHandler onGap) {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.executor = executor;
+        this.onChanges = onChanges;
+        this.onGap = onGap;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        executor.execute(this::run);
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        Thread listening = thread;
+        if (listening != null) {
+            listening.interrupt();
+        }
+    }
+
+    private void run() {
+        thread = Thread.currentThread();
+        try {
+            listen();
+        } finally {
+            thread = null;
+        }
+    }
+
+    private void listen() {
+        long backoff = 1000;
+        while (running) {
+            try (Connection conn = dbConnection.openDedicatedConnection()) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                System.out.println("✓ Listening for portfolio changes");
+                backoff = 1000;
+                // Whatever changed before LISTEN took effect was not announced to us
+                onGap.onGap(conn);
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(WAIT_MILLIS);
+                    if (notifications == null || notifications.length == 0) continue;
+                    StockRepositoryPostgreSQL.Changes changes = parse(notifications);
+                    if (changes == null) {
+                        onGap.onGap(conn);
+                    } else {
+                        onChanges.onChanges(changes, conn);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) break;
+                System.err.println("✗ Portfolio change feed lost: " + e.getMessage() + " (retrying in " + backoff / 1000 + " s)");
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Turn one batch of notifications into changes
+     * @return null if a payload could not be read (the caller treats it as a gap)
+     */
+    static StockRepositoryPostgreSQL.Changes parse(PGNotification[] notifications) {
+        List<Stock> upserted = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        long version = -1;
+        try {
+            for (PGNotification n : notifications) {
+                if (!CHANNEL.equals(n.getName())) continue;
+                JsonObject payload = JsonParser.parseString(n.getParameter()).getAsJsonObject();
+                version = Math.max(version, payload.get("v").getAsLong());
+                if ("D".equals(payload.get("op").getAsString())) {
+                    deletedIds.add(payload.get("id").getAsInt());
+                } else {
+                    upserted.add(toStock(payload.get("row").getAsJsonObject()));
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("✗ Unreadable portfolio change payload: " + e.getMessage());
+            return null;
+        }
+        return new StockRepositoryPostgreSQL.Changes(upserted, deletedIds, version);
+    }
+
+    private static Stock toStock(JsonObject row) {
+        Stock stock = new Stock();
+        stock.setId(row.get("id").getAsInt());
+        stock.setSymbol(text(row.get("symbol")));
+        stock.setCompany(text(row.get("company")));
+        stock.setShares(row.get("shares").getAsInt());
+        stock.setPurchasePrice(row.get("purchase_price").getAsDouble());
+        stock.setCurrentPrice(row.get("current_price").getAsDouble());
+        stock.setSector(text(row.get("sector")));
+        String refreshed = text(row.get("last_refreshed"));
+        if (refreshed != null) {
+            stock.setLastRefreshed(LocalDateTime.parse(refreshed));
+        }
+        return stock;
+    }
+
+    private static String text(JsonElement value) {
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.mcgill.application.repository;
+
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.model.Stock;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Reads portfolio rows by column index
+ * The indexes are looked up once per result set; reading by name would look
+ * each one up again on every row.
+ */
+final class PortfolioColumns {
+
+    /** The columns a holding is read from, for SELECT lists */
+    static final String SELECT_LIST =
+            "id, symbol, company, shares, purchase_price, current_price, sector, last_refreshed";
+
+    private final int id;
+    private final int symbol;
+    private final int company;
+    private final int shares;
+    private final int purchasePrice;
+    private final int currentPrice;
+    private final int sector;
+    private final int lastRefreshed;
+
+    PortfolioColumns(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        symbol = rs.findColumn("symbol");
+        company = rs.findColumn("company");
+        shares = rs.findColumn("shares");
+        purchasePrice = rs.findColumn("purchase_price");
+        currentPrice = rs.findColumn("current_price");
+        sector = rs.findColumn("sector");
+        lastRefreshed = rs.findColumn("last_refreshed");
+    }
+
+    Stock toStock(ResultSet rs) throws SQLException {
+        Stock stock = new Stock(rs.getInt(id), rs.getString(symbol), rs.getString(company), rs.getInt(shares),
+                rs.getDouble(purchasePrice), rs.getDouble(currentPrice), rs.getString(sector));
+        stock.setLastRefreshed(refreshedAt(rs));
+        return stock;
+    }
+
+    HoldingRow toRow(ResultSet rs) throws SQLException {
+        return new HoldingRow(rs.getInt(id), rs.getString(symbol), rs.getString(company), rs.getInt(shares),
+                rs.getDouble(purchasePrice), rs.getDouble(currentPrice), rs.getString(sector), refreshedAt(rs));
+    }
+
+    private LocalDateTime refreshedAt(ResultSet rs) throws SQLException {
+        Timestamp ts = rs.getTimestamp(lastRefreshed);
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+}
@@ -0,0 +1,205 @@
+package com.mcgill.application.repository;
+
+import com.mcgill.application.database.DatabaseConnection;
+import com.mcgill.application.model.PortfolioQuery;
+import com.mcgill.application.model.Stock;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Paged, sorted and filtered reads of the portfolio table
+ * Pages are found by keyset: the next page starts after the (sort value, id) of the
+ * last row already shown, which the (sort expression, id) indexes turn into an index
+ * seek however deep into the book it is. OFFSET is only used to land on a page with
+ * no cached neighbour, e.g. after dragging the scroll bar.
+ */
+public class PortfolioPageRepository {
+
+    /**
+     * Position of a row in a sort order: its sort value and id
+     */
+    public static final class Key {
+        private final Object sortValue;
+        private final int id;
+
+        Key(Object sortValue, int id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+    }
+
+    /**
+     * One page of rows with the keys of its first and last row
+     */
+    public static final class Page {
+        private final List<Stock> rows;
+        private final Key first;
+        private final Key last;
+
+        Page(List<Stock> rows, Key first, Key last) {
+            this.rows = rows;
+            this.first = first;
+            this.last = last;
+        }
+
+        public List<Stock> getRows() { return rows; }
+        public Key getFirst() { return first; }
+        public Key getLast() { return last; }
+    }
+
+    private static final String PROFIT_LOSS = "((current_price - purchase_price) * shares)";
+    private static final String MARKET_VALUE = "(current_price * shares)";
+
+    private final DatabaseConnection dbConnection;
+
+    public PortfolioPageRepository() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Count the holdings that match a filter
+     * @return -1 on error
+     */
+    public int count(PortfolioQuery query) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM portfolio" + where(query, params);
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting holdings: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * The page that follows a row
+     * @return null on error
+     */
+    public Page findAfter(PortfolioQuery query, Key after, int limit) {
+        return find(query, after, false, 0, limit);
+    }
+
+    /**
+     * The page that ends just before a row
+     * @return null on error
+     */
+    public Page findBefore(PortfolioQuery query, Key before, int limit) {
+        return find(query, before, true, 0, limit);
+    }
+
+    /**
+     * The page starting at a row number, for jumps with no neighbouring page to seek from
+     * @return null on error
+     */
+    public Page findAt(PortfolioQuery query, int offset, int limit) {
+        return find(query, null, false, offset, limit);
+    }
+
+    private Page find(PortfolioQuery query, Key key, boolean backward, int offset, int limit) {
+        String sortExpression = sortExpression(query.getSortKey());
+        // Reading backwards walks the index in the opposite direction, then flips the rows
+        boolean scanDescending = query.isDescending() != backward;
+        String direction = scanDescending ? "DESC" : "ASC";
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + PortfolioColumns.SELECT_LIST + ", ")
+                .append(sortExpression).append(" AS sort_value FROM portfolio")
+                .append(where(query, params));
+        if (key != null) {
+            sql.append(params.isEmpty() ? " WHERE " : " AND ")
+                    .append('(').append(sortExpression).append(", id) ")
+                    .append(scanDescending ? "<" : ">").append(" (?, ?)");
+            params.add(key.sortValue);
+            params.add(key.id);
+        }
+        sql.append(" ORDER BY ").append(sortExpression).append(' ').append(direction)
+                .append(", id ").append(direction)
+                .append(" LIMIT ?");
+        params.add(limit);
+        if (offset > 0) {
+            sql.append(" OFFSET ?");
+            params.add(offset);
+        }
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            bind(pstmt, params);
+            List<Stock> rows = new ArrayList<>(limit);
+            List<Key> keys = new ArrayList<>(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                PortfolioColumns columns = new PortfolioColumns(rs);
+                int sortValue = rs.findColumn("sort_value");
+                while (rs.next()) {
+                    Stock stock = columns.toStock(rs);
+                    rows.add(stock);
+                    keys.add(new Key(rs.getObject(sortValue), stock.getId()));
+                }
+            }
+            if (backward) {
+                Collections.reverse(rows);
+                Collections.reverse(keys);
+            }
+            return rows.isEmpty()
+                    ? new Page(rows, null, null)
+                    : new Page(rows, keys.get(0), keys.get(keys.size() - 1));
+        } catch (SQLException e) {
+            System.err.println("Error reading portfolio page: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sort expressions; each one leads an (expression, id) index in the schema
+     */
+    private static String sortExpression(PortfolioQuery.SortKey sortKey) {
+        switch (sortKey) {
+            case PROFIT_LOSS: return PROFIT_LOSS;
+            case MARKET_VALUE: return MARKET_VALUE;
+            default: return "symbol";
+        }
+    }
+
+    private static String where(PortfolioQuery query, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (query.getSymbolPrefix() != null) {
+            conditions.add("symbol LIKE ?");
+            params.add(escapeLike(query.getSymbolPrefix()) + "%");
+        }
+        if (query.getSector() != null) {
+            conditions.add("sector = ?");
+            params.add(query.getSector());
+        }
+        // Bound as NUMERIC so the comparison stays on the indexed expression
+        if (query.getMinProfitLoss() != null) {
+            conditions.add(PROFIT_LOSS + " >= ?");
+            params.add(BigDecimal.valueOf(query.getMinProfitLoss()));
+        }
+        if (query.getMaxProfitLoss() != null) {
+            conditions.add(PROFIT_LOSS + " <= ?");
+            params.add(BigDecimal.valueOf(query.getMaxProfitLoss()));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static void bind(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+}
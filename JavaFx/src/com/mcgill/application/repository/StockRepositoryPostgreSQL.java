@@ -1,17 +1,74 @@
 package com.mcgill.application.repository;
 
 import com.mcgill.application.database.DatabaseConnection;
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.model.PortfolioSummary;
+import com.mcgill.application.model.PriceUpdate;
 import com.mcgill.application.model.Stock;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * PostgreSQL Implementation of StockRepository
  * Replaces in-memory storage with database persistence
+ *
+ * Every insert/update stamps the row with its transaction's row_version and every
+ * delete leaves a tombstone, so findChangedSince can return just the rows that
+ * changed. A row_version is the writing transaction's id (offset by 2^40 so it
+ * sorts after the sequence numbers older databases handed out): transaction ids
+ * are assigned in order, so every version at or below the oldest transaction
+ * still running is settled and can never be committed later.
  */
 public class StockRepositoryPostgreSQL {
 
+    private static final String[] SCHEMA = {
+        "CREATE SEQUENCE IF NOT EXISTS portfolio_row_version_seq",
+        "ALTER TABLE portfolio ADD COLUMN IF NOT EXISTS last_refreshed TIMESTAMP",
+        "ALTER TABLE portfolio ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT nextval('portfolio_row_version_seq')",
+        "ALTER TABLE portfolio ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_row_version ON portfolio(row_version)",
+        "CREATE TABLE IF NOT EXISTS portfolio_tombstone (" +
+            "id INTEGER PRIMARY KEY, " +
+            "row_version BIGINT NOT NULL, " +
+            "deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_tombstone_version ON portfolio_tombstone(row_version)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_symbol_id ON portfolio(symbol, id)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_symbol_prefix ON portfolio(symbol varchar_pattern_ops)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_sector_symbol ON portfolio(sector, symbol, id)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_profit_loss ON portfolio(((current_price - purchase_price) * shares), id)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_market_value ON portfolio((current_price * shares), id)",
+        "CREATE INDEX IF NOT EXISTS idx_portfolio_sector_totals ON portfolio(sector) INCLUDE (shares, purchase_price, current_price)",
+        "CREATE OR REPLACE FUNCTION portfolio_write_version() RETURNS BIGINT AS $$ " +
+            "SELECT (1::BIGINT << 40) + pg_current_xact_id()::TEXT::BIGINT $$ LANGUAGE sql VOLATILE",
+        "CREATE OR REPLACE FUNCTION portfolio_settled_version() RETURNS BIGINT AS $$ " +
+            "SELECT (1::BIGINT << 40) + pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT - 1 $$ LANGUAGE sql STABLE",
+        "CREATE OR REPLACE FUNCTION bump_portfolio_version() RETURNS trigger AS $$ " +
+            "BEGIN NEW.row_version := portfolio_write_version(); " +
+            "NEW.updated_at := CURRENT_TIMESTAMP; RETURN NEW; END; $$ LANGUAGE plpgsql",
+        "CREATE OR REPLACE TRIGGER portfolio_row_version BEFORE INSERT OR UPDATE ON portfolio " +
+            "FOR EACH ROW EXECUTE FUNCTION bump_portfolio_version()",
+        "CREATE OR REPLACE FUNCTION record_portfolio_tombstone() RETURNS trigger AS $$ " +
+            "DECLARE v BIGINT := portfolio_write_version(); " +
+            "BEGIN INSERT INTO portfolio_tombstone (id, row_version) VALUES (OLD.id, v) " +
+            "ON CONFLICT (id) DO UPDATE SET row_version = EXCLUDED.row_version, deleted_at = CURRENT_TIMESTAMP; " +
+            "PERFORM pg_notify('" + PortfolioChangeListener.CHANNEL + "', " +
+            "json_build_object('op', 'D', 'v', portfolio_settled_version(), 'id', OLD.id)::text); " +
+            "RETURN OLD; END; $$ LANGUAGE plpgsql",
+        "CREATE OR REPLACE TRIGGER portfolio_tombstone AFTER DELETE ON portfolio " +
+            "FOR EACH ROW EXECUTE FUNCTION record_portfolio_tombstone()",
+        "CREATE OR REPLACE FUNCTION notify_portfolio_change() RETURNS trigger AS $$ " +
+            "BEGIN PERFORM pg_notify('" + PortfolioChangeListener.CHANNEL + "', " +
+            "json_build_object('op', 'U', 'v', portfolio_settled_version(), 'row', row_to_json(NEW))::text); " +
+            "RETURN NULL; END; $$ LANGUAGE plpgsql",
+        "CREATE OR REPLACE TRIGGER portfolio_notify AFTER INSERT OR UPDATE ON portfolio " +
+            "FOR EACH ROW EXECUTE FUNCTION notify_portfolio_change()"
+    };
+
     private final DatabaseConnection dbConnection;
 
     public StockRepositoryPostgreSQL() {
@@ -23,8 +80,12 @@ public class StockRepositoryPostgreSQL {
      * Initialize database connection and create table if needed
      */
     private void initializeDatabase() {
-        try (Connection conn = dbConnection.getConnection()) {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
             System.out.println("✓ Database connection established");
+            for (String sql : SCHEMA) {
+                stmt.execute(sql);
+            }
         } catch (SQLException e) {
             System.err.println("✗ Failed to connect to database: " + e.getMessage());
         }
@@ -32,14 +93,26 @@ public class StockRepositoryPostgreSQL {
 
     /**
      * Save a stock to the database
+     * The stock takes the id PostgreSQL generated, so later updates and deletes hit its row
      */
     public void save(Stock stock) {
-        String sql = "INSERT INTO portfolio (symbol, company, shares, purchase_price, current_price, sector) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = dbConnection.getConnection()) {
+            stock.setId(insert(conn, stock));
+            System.out.println("✓ Stock saved: " + stock.getSymbol());
+        } catch (SQLException e) {
+            System.err.println("Error saving stock: " + e.getMessage());
+        }
+    }
 
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Insert a holding on the caller's connection (and transaction)
+     * @return The id PostgreSQL generated
+     */
+    static int insert(Connection conn, Stock stock) throws SQLException {
+        String sql = "INSERT INTO portfolio (symbol, company, shares, purchase_price, current_price, sector) " +
+                "VALUES (?, ?, ?, ?, ?, ?) RETURNING id";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, stock.getSymbol());
             pstmt.setString(2, stock.getCompany());
             pstmt.setInt(3, stock.getShares());
@@ -47,10 +120,10 @@ public class StockRepositoryPostgreSQL {
             pstmt.setDouble(5, stock.getCurrentPrice());
             pstmt.setString(6, stock.getSector());
 
-            pstmt.executeUpdate();
-            System.out.println("✓ Stock saved: " + stock.getSymbol());
-        } catch (SQLException e) {
-            System.err.println("Error saving stock: " + e.getMessage());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
         }
     }
 
@@ -59,15 +132,15 @@ public class StockRepositoryPostgreSQL {
      */
     public List<Stock> findAll() {
         List<Stock> stocks = new ArrayList<>();
-        String sql = "SELECT * FROM portfolio ORDER BY symbol";
+        String sql = "SELECT " + PortfolioColumns.SELECT_LIST + " FROM portfolio ORDER BY symbol";
 
         try (Connection conn = dbConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            PortfolioColumns columns = new PortfolioColumns(rs);
             while (rs.next()) {
-                Stock stock = mapResultSetToStock(rs);
-                stocks.add(stock);
+                stocks.add(columns.toStock(rs));
             }
 
             System.out.println("✓ Loaded " + stocks.size() + " stocks from database");
@@ -78,11 +151,218 @@ public class StockRepositoryPostgreSQL {
         return stocks;
     }
 
+    /**
+     * Stream all stocks in batches as the rows arrive (server-side cursor)
+     * Runs on its own connection so a background load does not hold the shared one.
+     * @param batchSize Rows fetched per round trip and handed to onBatch at a time
+     * @return false if the query failed (the batches seen so far are incomplete)
+     */
+    public boolean findAll(int batchSize, Consumer<List<Stock>> onBatch) {
+        List<Stock> batch = new ArrayList<>(batchSize);
+        boolean complete = forEachRow(batchSize, row -> {
+            batch.add(row.toStock());
+            if (batch.size() == batchSize) {
+                onBatch.accept(new ArrayList<>(batch));
+                batch.clear();
+            }
+        });
+        if (complete && !batch.isEmpty()) {
+            onBatch.accept(batch);
+        }
+        return complete;
+    }
+
+    /**
+     * Hand every holding to onRow, one row at a time, as it comes off a server-side cursor
+     * For bulk readers (reconcile, export, aggregation): only fetchSize rows are
+     * buffered at once, whatever the size of the table, and no Stock is built
+     * unless the consumer asks for one. Runs on its own connection.
+     * @param fetchSize Rows fetched per round trip
+     * @return false if the query failed part way (the rows seen so far are incomplete)
+     */
+    public boolean forEachRow(int fetchSize, Consumer<HoldingRow> onRow) {
+        String sql = "SELECT " + PortfolioColumns.SELECT_LIST + " FROM portfolio ORDER BY symbol";
+        int total = 0;
+
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            // PostgreSQL only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(fetchSize);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    PortfolioColumns columns = new PortfolioColumns(rs);
+                    while (rs.next()) {
+                        onRow.accept(columns.toRow(rs));
+                        total++;
+                    }
+                }
+            }
+            conn.commit();
+            System.out.println("✓ Streamed " + total + " stocks from database");
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error streaming stocks: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Latest settled row version: every change at or below it has committed or rolled back
+     * Read it before a full load; findChangedSince from there catches anything
+     * that changed while the load was running.
+     * @return The version, or -1 if the query failed
+     */
+    public long currentVersion() {
+        try (Connection conn = dbConnection.getConnection()) {
+            return currentVersion(conn);
+        } catch (SQLException e) {
+            System.err.println("Error reading portfolio version: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * currentVersion over a connection the caller holds (e.g. the change listener's)
+     * @return The version, or -1 if the query failed
+     */
+    public long currentVersion(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT portfolio_settled_version()")) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading portfolio version: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Rows inserted or updated, and ids deleted, after the given version
+     * Both index scans read only the changed rows, from one REPEATABLE READ
+     * snapshot. Only settled versions are returned: a transaction still running
+     * when the snapshot is taken has a version above the returned one, so its
+     * rows come with a later call once it commits.
+     * @return The changes, or null if the query failed
+     */
+    public Changes findChangedSince(long version) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return findChangedSince(conn, version);
+        } catch (SQLException e) {
+            System.err.println("Error fetching portfolio changes: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * findChangedSince over a connection the caller holds (e.g. the change listener's)
+     * @return The changes, or null if the query failed
+     */
+    public Changes findChangedSince(Connection conn, long version) {
+        try {
+            boolean autoCommit = conn.getAutoCommit();
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                // The first statement takes the snapshot the two scans below share
+                long high;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT portfolio_settled_version()")) {
+                    high = rs.next() ? Math.max(rs.getLong(1), version) : version;
+                }
+
+                List<Stock> upserted = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT " + PortfolioColumns.SELECT_LIST + " FROM portfolio " +
+                        "WHERE row_version > ? AND row_version <= ? ORDER BY row_version")) {
+                    pstmt.setLong(1, version);
+                    pstmt.setLong(2, high);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        PortfolioColumns columns = new PortfolioColumns(rs);
+                        while (rs.next()) {
+                            upserted.add(columns.toStock(rs));
+                        }
+                    }
+                }
+
+                List<Integer> deletedIds = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT id FROM portfolio_tombstone WHERE row_version > ? AND row_version <= ?")) {
+                    pstmt.setLong(1, version);
+                    pstmt.setLong(2, high);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            deletedIds.add(rs.getInt(1));
+                        }
+                    }
+                }
+                conn.commit();
+                return new Changes(upserted, deletedIds, high);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+                conn.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching portfolio changes: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Result of findChangedSince
+     */
+    public static final class Changes {
+        private final List<Stock> upserted;
+        private final List<Integer> deletedIds;
+        private final long version;
+
+        Changes(List<Stock> upserted, List<Integer> deletedIds, long version) {
+            this.upserted = upserted;
+            this.deletedIds = deletedIds;
+            this.version = version;
+        }
+
+        public List<Stock> getUpserted() { return upserted; }
+        public List<Integer> getDeletedIds() { return deletedIds; }
+        /** Version to pass to the next findChangedSince */
+        public long getVersion() { return version; }
+    }
+
+    /**
+     * Cost and market value per sector, aggregated by the database
+     * Reads only the (sector, shares, prices) covering index, so the stats of a
+     * large book are available without fetching its rows.
+     * @return The summary, or null if the query failed
+     */
+    public PortfolioSummary summarize() {
+        // Grouped like PortfolioSummary.sectorKey, so "Tech", "Tech " and blank/NULL sectors each land in one group
+        String sectorKey = "COALESCE(NULLIF(TRIM(sector), ''), '" + PortfolioSummary.NO_SECTOR + "')";
+        String sql = "SELECT " + sectorKey + ", COUNT(*), SUM(shares * purchase_price), SUM(shares * current_price) " +
+                "FROM portfolio GROUP BY 1";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            List<PortfolioSummary.SectorTotal> sectors = new ArrayList<>();
+            while (rs.next()) {
+                sectors.add(new PortfolioSummary.SectorTotal(rs.getString(1), rs.getInt(2), rs.getDouble(3), rs.getDouble(4)));
+            }
+            return new PortfolioSummary(sectors);
+        } catch (SQLException e) {
+            System.err.println("Error summarizing portfolio: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Find stock by ID
      */
     public Stock findById(int id) {
-        String sql = "SELECT * FROM portfolio WHERE id = ?";
+        String sql = "SELECT " + PortfolioColumns.SELECT_LIST + " FROM portfolio WHERE id = ?";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -91,7 +371,7 @@ public class StockRepositoryPostgreSQL {
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return mapResultSetToStock(rs);
+                return new PortfolioColumns(rs).toStock(rs);
             }
         } catch (SQLException e) {
             System.err.println("Error finding stock: " + e.getMessage());
@@ -147,6 +427,65 @@ public class StockRepositoryPostgreSQL {
         }
     }
 
+    /**
+     * Open a writer for refreshed prices on a dedicated connection
+     * One price refresh writes all its batches through it; the caller must close it.
+     */
+    public PriceWriter openPriceWriter() throws SQLException {
+        return new PriceWriter(dbConnection.openDedicatedConnection());
+    }
+
+    /**
+     * Writes refreshed prices in JDBC batches over a connection of its own
+     */
+    public static final class PriceWriter implements AutoCloseable {
+
+        private static final String UPDATE_PRICE =
+                "UPDATE portfolio SET current_price = ?, last_refreshed = ? WHERE id = ?";
+
+        private final Connection conn;
+        private final PreparedStatement pstmt;
+
+        private PriceWriter(Connection conn) throws SQLException {
+            this.conn = conn;
+            try {
+                pstmt = conn.prepareStatement(UPDATE_PRICE);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Write one batch of prices
+         * @return Rows updated
+         */
+        public int write(List<PriceUpdate> updates) throws SQLException {
+            if (updates.isEmpty()) return 0;
+            for (PriceUpdate update : updates) {
+                pstmt.setDouble(1, update.getPrice());
+                pstmt.setTimestamp(2, Timestamp.valueOf(update.getRefreshedAt()));
+                pstmt.setInt(3, update.getId());
+                pstmt.addBatch();
+            }
+            int updated = 0;
+            for (int count : pstmt.executeBatch()) {
+                updated += Math.max(count, 0);
+            }
+            return updated;
+        }
+
+        @Override
+        public void close() {
+            try {
+                pstmt.close();
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing price writer connection: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Check if stock with ID exists
      */
@@ -170,19 +509,128 @@ public class StockRepositoryPostgreSQL {
     }
 
     /**
-     * Map ResultSet to Stock object
+     * Start a bulk load: rows are streamed with COPY into a temporary staging
+     * table on a dedicated connection, and merged into portfolio on merge()
+     * Rows use COPY text format, tab separated and newline terminated:
+     * line_no, symbol, company, shares, purchase_price, current_price, sector
      */
-    private Stock mapResultSetToStock(ResultSet rs) throws SQLException {
-        Stock stock = new Stock();
-        stock.setId(rs.getInt("id"));
-        stock.setSymbol(rs.getString("symbol"));
-        stock.setCompany(rs.getString("company"));
-        stock.setShares(rs.getInt("shares"));
-        stock.setPurchasePrice(rs.getDouble("purchase_price"));
-        stock.setCurrentPrice(rs.getDouble("current_price"));
-        stock.setSector(rs.getString("sector"));
-        java.sql.Timestamp ts = rs.getTimestamp("last_refreshed");
-        if (ts != null) stock.setLastRefreshed(ts.toLocalDateTime());
-        return stock;
+    public BulkLoad openBulkLoad() throws SQLException {
+        return new BulkLoad(dbConnection.openDedicatedConnection());
+    }
+
+    /**
+     * One COPY + merge, all in a single database transaction
+     * Closing without a successful merge() rolls everything back.
+     */
+    public static final class BulkLoad implements AutoCloseable {
+
+        private static final String CREATE_STAGING = "CREATE TEMP TABLE portfolio_import (" +
+                "line_no BIGINT, symbol TEXT, company TEXT, shares INTEGER, " +
+                "purchase_price NUMERIC, current_price NUMERIC, sector TEXT) ON COMMIT DROP";
+
+        private static final String COPY_STAGING = "COPY portfolio_import " +
+                "(line_no, symbol, company, shares, purchase_price, current_price, sector) FROM STDIN";
+
+        // One row per symbol: shares summed, cost averaged, the last line wins for price and sector
+        private static final String AGGREGATE = "CREATE TEMP TABLE portfolio_import_agg ON COMMIT DROP AS " +
+                "SELECT symbol, MAX(company) AS company, SUM(shares) AS shares, " +
+                "SUM(shares * purchase_price) / SUM(shares) AS purchase_price, " +
+                "(ARRAY_AGG(current_price ORDER BY line_no DESC))[1] AS current_price, " +
+                "(ARRAY_AGG(sector ORDER BY line_no DESC))[1] AS sector " +
+                "FROM portfolio_import GROUP BY symbol";
+
+        // Existing holdings grow and re-average their cost. A symbol held in several rows only
+        // merges into its oldest (MIN(id)) row, and INSERT_LOTS opens the new lots on that row too;
+        // the other rows keep their shares and lots as they were
+        private static final String MERGE_EXISTING = "UPDATE portfolio p SET " +
+                "purchase_price = ROUND((p.shares * p.purchase_price + a.shares * a.purchase_price) / (p.shares + a.shares), 2), " +
+                "shares = p.shares + a.shares, current_price = ROUND(a.current_price, 2) " +
+                "FROM portfolio_import_agg a " +
+                "WHERE p.id = (SELECT MIN(id) FROM portfolio WHERE symbol = a.symbol)";
+
+        private static final String INSERT_NEW = "INSERT INTO portfolio " +
+                "(symbol, company, shares, purchase_price, current_price, sector) " +
+                "SELECT symbol, company, shares, ROUND(purchase_price, 2), ROUND(current_price, 2), sector " +
+                "FROM portfolio_import_agg a WHERE NOT EXISTS (SELECT 1 FROM portfolio p WHERE p.symbol = a.symbol)";
+
+        // Every statement line is a BUY in the ledger and opens its own tax lot on the row it merged into
+        private static final String INSERT_LOTS = "WITH buys AS (" +
+                "INSERT INTO transactions (txn_type, symbol, shares, price) " +
+                "SELECT 'BUY', symbol, shares, purchase_price FROM portfolio_import ORDER BY line_no " +
+                "RETURNING id, symbol, shares, price, executed_at) " +
+                "INSERT INTO tax_lot (lot_id, holding_id, symbol, open_shares, cost_price, acquired_at) " +
+                "SELECT id, (SELECT MIN(p.id) FROM portfolio p WHERE p.symbol = buys.symbol), " +
+                "symbol, shares, price, executed_at FROM buys";
+
+        private final Connection conn;
+        private final CopyIn copyIn;
+        private boolean merged;
+        private int holdingsUpdated;
+        private int holdingsInserted;
+        private int lotsOpened;
+
+        private BulkLoad(Connection conn) throws SQLException {
+            this.conn = conn;
+            try {
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_STAGING);
+                }
+                copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Stream a block of COPY rows to the server
+         */
+        public void write(byte[] rows) throws SQLException {
+            copyIn.writeToCopy(rows, 0, rows.length);
+        }
+
+        /**
+         * Finish the COPY, merge the staged rows and commit
+         * @return Number of rows staged
+         */
+        public long merge() throws SQLException {
+            long staged = copyIn.endCopy();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(AGGREGATE);
+                holdingsUpdated = stmt.executeUpdate(MERGE_EXISTING);
+                holdingsInserted = stmt.executeUpdate(INSERT_NEW);
+                lotsOpened = stmt.executeUpdate(INSERT_LOTS);
+            }
+            conn.commit();
+            merged = true;
+            System.out.println("✓ Imported " + staged + " rows: " + holdingsInserted + " new holdings, "
+                    + holdingsUpdated + " updated");
+            return staged;
+        }
+
+        public int getHoldingsUpdated() { return holdingsUpdated; }
+        public int getHoldingsInserted() { return holdingsInserted; }
+        public int getLotsOpened() { return lotsOpened; }
+
+        @Override
+        public void close() {
+            try {
+                if (!merged) {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                    conn.rollback();
+                }
+            } catch (SQLException e) {
+                System.err.println("Error aborting bulk load: " + e.getMessage());
+            } finally {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing bulk load connection: " + e.getMessage());
+                }
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,532 @@
+package com.mcgill.application.repository;
+
+import com.mcgill.application.database.DatabaseConnection;
+import com.mcgill.application.model.Stock;
+import com.mcgill.application.model.TaxLot;
+import com.mcgill.application.model.Transaction;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * PostgreSQL Repository for the transactions ledger and open tax lots
+ *
+ * transactions is append-only (a trigger rejects UPDATE/DELETE); tax_lot holds
+ * the remaining open shares of each BUY so startup only loads open lots instead
+ * of replaying the whole ledger. Each lot belongs to one portfolio row
+ * (holding_id); lots opened before that column existed are given to the oldest
+ * row of their symbol. Buys and sells write the ledger, the lots and the
+ * portfolio row in one transaction, so they can never disagree after a failure.
+ */
+public class TransactionRepository {
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS transactions (" +
+            "id BIGSERIAL PRIMARY KEY, " +
+            "txn_type VARCHAR(4) NOT NULL, " +
+            "symbol VARCHAR(10) NOT NULL, " +
+            "shares INTEGER NOT NULL DEFAULT 0, " +
+            "price DECIMAL(12,4) NOT NULL DEFAULT 0, " +
+            "fees DECIMAL(12,4) NOT NULL DEFAULT 0, " +
+            "lot_id BIGINT, " +
+            "realized_pl DECIMAL(14,4) NOT NULL DEFAULT 0, " +
+            "executed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS tax_lot (" +
+            "lot_id BIGINT PRIMARY KEY REFERENCES transactions(id), " +
+            "symbol VARCHAR(10) NOT NULL, " +
+            "open_shares INTEGER NOT NULL, " +
+            "cost_price DECIMAL(12,4) NOT NULL, " +
+            "acquired_at TIMESTAMP NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_tax_lot_open ON tax_lot(symbol, lot_id) WHERE open_shares > 0",
+        "ALTER TABLE tax_lot ADD COLUMN IF NOT EXISTS holding_id INTEGER",
+        "UPDATE tax_lot t SET holding_id = (SELECT MIN(id) FROM portfolio p WHERE p.symbol = t.symbol) " +
+            "WHERE holding_id IS NULL AND open_shares > 0",
+        "CREATE INDEX IF NOT EXISTS idx_tax_lot_holding ON tax_lot(holding_id, lot_id) WHERE open_shares > 0",
+        "CREATE OR REPLACE FUNCTION reject_ledger_change() RETURNS trigger AS $$ " +
+            "BEGIN RAISE EXCEPTION 'transactions is append-only'; END; $$ LANGUAGE plpgsql",
+        "CREATE OR REPLACE TRIGGER transactions_append_only BEFORE UPDATE OR DELETE ON transactions " +
+            "FOR EACH ROW EXECUTE FUNCTION reject_ledger_change()"
+    };
+
+    private static final String INSERT_TXN = "INSERT INTO transactions " +
+            "(txn_type, symbol, shares, price, fees, lot_id, realized_pl, executed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LOT = "INSERT INTO tax_lot " +
+            "(lot_id, holding_id, symbol, open_shares, cost_price, acquired_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // A lot another writer has already drawn down below the shares sold matches no row
+    private static final String CLOSE_LOT =
+            "UPDATE tax_lot SET open_shares = open_shares - ? WHERE lot_id = ? AND open_shares >= ?";
+
+    // Shares move by the trade and the purchase price becomes the average cost of the open lots
+    private static final String ADJUST_HOLDING = "UPDATE portfolio SET shares = shares + ?, " +
+            "purchase_price = COALESCE((SELECT SUM(open_shares * cost_price) / SUM(open_shares) " +
+            "FROM tax_lot WHERE holding_id = ? AND open_shares > 0), purchase_price) " +
+            "WHERE id = ? AND shares + ? >= 0 RETURNING shares, purchase_price";
+
+    private final DatabaseConnection dbConnection;
+
+    public TransactionRepository() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        initializeDatabase();
+    }
+
+    /**
+     * Create ledger tables if an older database volume predates them
+     */
+    private void initializeDatabase() {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String sql : SCHEMA) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Failed to prepare ledger tables: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Committed state of a holding after a buy or sell
+     */
+    public static final class Trade {
+        private final TaxLot lot;
+        private final int shares;
+        private final double purchasePrice;
+
+        Trade(TaxLot lot, int shares, double purchasePrice) {
+            this.lot = lot;
+            this.shares = shares;
+            this.purchasePrice = purchasePrice;
+        }
+
+        /** Lot opened by a buy (null for a sell) */
+        public TaxLot getLot() { return lot; }
+        /** Shares left on the holding; 0 means its row was deleted */
+        public int getShares() { return shares; }
+        public double getPurchasePrice() { return purchasePrice; }
+    }
+
+    /**
+     * Insert a new holding, append its BUY and open its tax lot in one database transaction
+     * The stock takes the generated id once that has committed.
+     * @return The committed holding, or null if the write failed (nothing was written)
+     */
+    public Trade recordAdd(Stock stock, Transaction buy) {
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int holdingId = StockRepositoryPostgreSQL.insert(conn, stock);
+                TaxLot lot = openLot(conn, buy, holdingId);
+                conn.commit();
+                buy.setId(lot.getLotId());
+                stock.setId(holdingId);
+                return new Trade(lot, stock.getShares(), stock.getPurchasePrice());
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error recording new holding: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Append a BUY into an existing holding: opens its lot and grows the portfolio row,
+     * all in one database transaction, on a dedicated connection
+     * @return The committed holding, or null if the write failed or the row is gone (nothing was written)
+     */
+    public Trade recordBuy(Stock holding, Transaction buy) {
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                TaxLot lot = openLot(conn, buy, holding.getId());
+                Trade trade = adjustHolding(conn, holding.getId(), buy.getShares(), lot);
+                if (trade == null) {
+                    conn.rollback();
+                    System.err.println("✗ Buy rejected: holding #" + holding.getId() + " no longer exists");
+                    return null;
+                }
+                conn.commit();
+                buy.setId(lot.getLotId());
+                return trade;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error recording buy: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Append the SELL rows of one sale (one per lot consumed), shrink those lots and
+     * the portfolio row (deleting it when no shares are left), all in one database
+     * transaction on a dedicated connection. A lot or row that another writer already
+     * drew down below the shares sold rejects the whole sale.
+     * @return The committed holding, or null if the write failed or was rejected (nothing was written)
+     */
+    public Trade recordSell(Stock holding, List<Transaction> sells) {
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ledger = conn.prepareStatement(INSERT_TXN);
+                 PreparedStatement lots = conn.prepareStatement(CLOSE_LOT)) {
+                int sold = 0;
+                for (Transaction sell : sells) {
+                    bind(ledger, sell);
+                    ledger.addBatch();
+                    lots.setInt(1, sell.getShares());
+                    lots.setLong(2, sell.getLotId());
+                    lots.setInt(3, sell.getShares());
+                    lots.addBatch();
+                    sold += sell.getShares();
+                }
+                ledger.executeBatch();
+                for (int count : lots.executeBatch()) {
+                    if (count != 1) {
+                        conn.rollback();
+                        System.err.println("✗ Sell rejected: a tax lot no longer holds the shares being sold");
+                        return null;
+                    }
+                }
+                Trade trade = adjustHolding(conn, holding.getId(), -sold, null);
+                if (trade == null) {
+                    conn.rollback();
+                    System.err.println("✗ Sell rejected: holding #" + holding.getId() + " no longer has the shares being sold");
+                    return null;
+                }
+                if (trade.getShares() == 0) {
+                    try (PreparedStatement delete = conn.prepareStatement("DELETE FROM portfolio WHERE id = ?")) {
+                        delete.setInt(1, holding.getId());
+                        delete.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return trade;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error recording sell: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Append a FEE row
+     */
+    public void recordFee(Transaction fee) {
+        try (Connection conn = dbConnection.getConnection()) {
+            fee.setId(insert(conn, fee));
+        } catch (SQLException e) {
+            System.err.println("Error recording fee: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load open lots per holding in acquisition order (ledger history is not replayed)
+     * Lots of no holding come back with holding ID 0.
+     */
+    public List<TaxLot> findOpenLots() {
+        try (Connection conn = dbConnection.getConnection()) {
+            return readOpenLots(conn);
+        } catch (SQLException e) {
+            System.err.println("Error fetching tax lots: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Open lots of some holdings, per holding in acquisition order
+     * @return The lots, or null if the query failed
+     */
+    public List<TaxLot> findOpenLots(Collection<Integer> holdingIds) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return findOpenLots(conn, holdingIds);
+        } catch (SQLException e) {
+            System.err.println("Error fetching tax lots: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Same, over the caller's connection (the change listener's)
+     */
+    public List<TaxLot> findOpenLots(Connection conn, Collection<Integer> holdingIds) {
+        String sql = "SELECT lot_id, holding_id, symbol, open_shares, cost_price, acquired_at FROM tax_lot " +
+                "WHERE open_shares > 0 AND holding_id = ANY(?) ORDER BY holding_id, lot_id";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, conn.createArrayOf("integer", holdingIds.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readLots(rs);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching tax lots: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Bring the open lots in line with the holdings' share counts, then load them
+     * One database transaction on a dedicated connection, with tax_lot locked against
+     * other writers. A holding with more shares than open lots (one that predates the
+     * ledger) gets an opening BUY for the difference at its purchase price; surplus
+     * lots, oldest first, and lots of holdings that no longer exist are closed by
+     * SELLs at cost, so no P/L is realised. All rows are written in batches.
+     * @return Open lots per holding in acquisition order, or null if the reconcile failed (nothing was written)
+     */
+    public List<TaxLot> reconcileLots() {
+        String gaps = "SELECT p.id, p.symbol, p.shares - COALESCE(SUM(t.open_shares), 0), p.purchase_price " +
+                "FROM portfolio p LEFT JOIN tax_lot t ON t.holding_id = p.id AND t.open_shares > 0 " +
+                "GROUP BY p.id HAVING p.shares <> COALESCE(SUM(t.open_shares), 0) ORDER BY p.id";
+        String surplus = "SELECT lot_id, holding_id, symbol, open_shares, cost_price FROM tax_lot t " +
+                "WHERE open_shares > 0 AND (holding_id = ANY(?) " +
+                "OR NOT EXISTS (SELECT 1 FROM portfolio p WHERE p.id = t.holding_id)) ORDER BY holding_id, lot_id";
+        LocalDateTime now = LocalDateTime.now();
+
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LOCK TABLE tax_lot IN SHARE ROW EXCLUSIVE MODE");
+                }
+
+                List<Transaction> buys = new ArrayList<>();
+                List<Integer> buyHoldings = new ArrayList<>();
+                Map<Integer, Integer> excess = new HashMap<>();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(gaps)) {
+                    while (rs.next()) {
+                        int missing = rs.getInt(3);
+                        if (missing > 0) {
+                            buys.add(Transaction.buy(rs.getString(2), missing, rs.getDouble(4), now));
+                            buyHoldings.add(rs.getInt(1));
+                        } else {
+                            excess.put(rs.getInt(1), -missing);
+                        }
+                    }
+                }
+
+                List<Transaction> sells = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(surplus)) {
+                    pstmt.setArray(1, conn.createArrayOf("integer", excess.keySet().toArray()));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            int holdingId = rs.getInt(2);
+                            int open = rs.getInt(4);
+                            // Lots of a missing holding close in full; surplus lots until the excess is gone
+                            Integer left = excess.get(holdingId);
+                            int qty = left == null ? open : Math.min(open, left);
+                            if (qty == 0) continue;
+                            if (left != null) excess.put(holdingId, left - qty);
+                            sells.add(new Transaction(0, Transaction.Type.SELL, rs.getString(3), qty, rs.getDouble(5),
+                                    0.0, rs.getLong(1), 0.0, now));
+                        }
+                    }
+                }
+
+                if (!buys.isEmpty()) {
+                    openLots(conn, buys, buyHoldings);
+                }
+                if (!sells.isEmpty()) {
+                    closeLots(conn, sells);
+                }
+                List<TaxLot> lots = readOpenLots(conn);
+                conn.commit();
+                if (!buys.isEmpty() || !sells.isEmpty()) {
+                    System.out.println("✓ Reconciled tax lots: " + buys.size() + " opened, " + sells.size() + " closed at cost");
+                }
+                return lots;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reconciling tax lots: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hand every ledger row to onRow in id order, as it comes off a server-side cursor
+     * Only fetchSize rows are buffered at once. Runs on its own connection.
+     * @return false if the query failed part way (the rows seen so far are incomplete)
+     */
+    public boolean forEachTransaction(int fetchSize, Consumer<Transaction> onRow) {
+        String sql = "SELECT id, txn_type, symbol, shares, price, fees, lot_id, realized_pl, executed_at " +
+                "FROM transactions ORDER BY id";
+        long total = 0;
+
+        try (Connection conn = dbConnection.openDedicatedConnection()) {
+            // PostgreSQL only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(fetchSize);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp executed = rs.getTimestamp(9);
+                        onRow.accept(new Transaction(rs.getLong(1), Transaction.Type.valueOf(rs.getString(2)),
+                                rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getDouble(6), rs.getLong(7),
+                                rs.getDouble(8), executed == null ? null : executed.toLocalDateTime()));
+                        total++;
+                    }
+                }
+            }
+            conn.commit();
+            System.out.println("✓ Streamed " + total + " ledger rows from database");
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error streaming ledger: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Realised P/L of all sells net of all fees
+     */
+    public double findRealizedProfitLoss() {
+        String sql = "SELECT COALESCE(SUM(realized_pl), 0) - COALESCE(SUM(fees), 0) FROM transactions";
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error computing realized P/L: " + e.getMessage());
+        }
+        return 0.0;
+    }
+
+    private List<TaxLot> readOpenLots(Connection conn) throws SQLException {
+        String sql = "SELECT lot_id, holding_id, symbol, open_shares, cost_price, acquired_at FROM tax_lot " +
+                "WHERE open_shares > 0 ORDER BY holding_id, lot_id";
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return readLots(rs);
+        }
+    }
+
+    private List<TaxLot> readLots(ResultSet rs) throws SQLException {
+        List<TaxLot> lots = new ArrayList<>();
+        while (rs.next()) {
+            Timestamp acquired = rs.getTimestamp(6);
+            lots.add(new TaxLot(rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getInt(4), rs.getDouble(5),
+                    acquired == null ? null : acquired.toLocalDateTime()));
+        }
+        return lots;
+    }
+
+    /**
+     * Batch-insert BUY rows and open a lot for each on the matching holding
+     */
+    private void openLots(Connection conn, List<Transaction> buys, List<Integer> holdingIds) throws SQLException {
+        try (PreparedStatement ledger = conn.prepareStatement(INSERT_TXN, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement lots = conn.prepareStatement(INSERT_LOT)) {
+            for (Transaction buy : buys) {
+                bind(ledger, buy);
+                ledger.addBatch();
+            }
+            ledger.executeBatch();
+            try (ResultSet keys = ledger.getGeneratedKeys()) {
+                for (int i = 0; i < buys.size() && keys.next(); i++) {
+                    Transaction buy = buys.get(i);
+                    bindLot(lots, keys.getLong(1), holdingIds.get(i), buy);
+                    lots.addBatch();
+                }
+            }
+            lots.executeBatch();
+        }
+    }
+
+    /**
+     * Batch-insert SELL rows and take their shares off the lots they name
+     * @throws SQLException if a lot no longer holds the shares (the caller rolls back)
+     */
+    private void closeLots(Connection conn, List<Transaction> sells) throws SQLException {
+        try (PreparedStatement ledger = conn.prepareStatement(INSERT_TXN);
+             PreparedStatement lots = conn.prepareStatement(CLOSE_LOT)) {
+            for (Transaction sell : sells) {
+                bind(ledger, sell);
+                ledger.addBatch();
+                lots.setInt(1, sell.getShares());
+                lots.setLong(2, sell.getLotId());
+                lots.setInt(3, sell.getShares());
+                lots.addBatch();
+            }
+            ledger.executeBatch();
+            for (int count : lots.executeBatch()) {
+                if (count != 1) {
+                    throw new SQLException("a tax lot no longer holds the shares being sold");
+                }
+            }
+        }
+    }
+
+    private void bindLot(PreparedStatement pstmt, long lotId, int holdingId, Transaction buy) throws SQLException {
+        pstmt.setLong(1, lotId);
+        pstmt.setInt(2, holdingId);
+        pstmt.setString(3, buy.getSymbol());
+        pstmt.setInt(4, buy.getShares());
+        pstmt.setDouble(5, buy.getPrice());
+        pstmt.setTimestamp(6, Timestamp.valueOf(buy.getExecutedAt()));
+    }
+
+    private TaxLot openLot(Connection conn, Transaction buy, int holdingId) throws SQLException {
+        long id = insert(conn, buy);
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_LOT)) {
+            bindLot(pstmt, id, holdingId, buy);
+            pstmt.executeUpdate();
+        }
+        return new TaxLot(id, holdingId, buy.getSymbol(), buy.getShares(), buy.getPrice(), buy.getExecutedAt());
+    }
+
+    /**
+     * @return The row's new state, or null if it is gone or would go below zero shares
+     */
+    private Trade adjustHolding(Connection conn, int holdingId, int shares, TaxLot lot) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ADJUST_HOLDING)) {
+            pstmt.setInt(1, shares);
+            pstmt.setInt(2, holdingId);
+            pstmt.setInt(3, holdingId);
+            pstmt.setInt(4, shares);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Trade(lot, rs.getInt(1), rs.getDouble(2)) : null;
+            }
+        }
+    }
+
+    private long insert(Connection conn, Transaction txn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_TXN, Statement.RETURN_GENERATED_KEYS)) {
+            bind(pstmt, txn);
+            pstmt.executeUpdate();
+            ResultSet keys = pstmt.getGeneratedKeys();
+            return keys.next() ? keys.getLong(1) : 0;
+        }
+    }
+
+    private void bind(PreparedStatement pstmt, Transaction txn) throws SQLException {
+        pstmt.setString(1, txn.getType().name());
+        pstmt.setString(2, txn.getSymbol());
+        pstmt.setInt(3, txn.getShares());
+        pstmt.setDouble(4, txn.getPrice());
+        pstmt.setDouble(5, txn.getFees());
+        if (txn.getLotId() > 0) {
+            pstmt.setLong(6, txn.getLotId());
+        } else {
+            pstmt.setNull(6, Types.BIGINT);
+        }
+        pstmt.setDouble(7, txn.getRealizedProfitLoss());
+        pstmt.setTimestamp(8, Timestamp.valueOf(txn.getExecutedAt()));
+    }
+}
@@ -0,0 +1,172 @@
+package com.mcgill.application.server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadTestClient - Opens many WebSocket subscribers against PortfolioServer
+ * Every few seconds it prints how many are connected, the message and byte
+ * rates, and the delivery latency (receive time minus the frame's publish
+ * time "t", so run it on the same box as the server or with synced clocks).
+ *
+ * Usage: LoadTestClient [ws://localhost:8080/ws] [subscribers=2000] [seconds=60]
+ * Several thousand subscribers need a raised open-file limit (ulimit -n) on
+ * both sides.
+ */
+public class LoadTestClient {
+
+    private static final int REPORT_SECONDS = 5;
+    // Connections opened per ramp step, and the pause between steps
+    private static final int RAMP_STEP = 200;
+    private static final long RAMP_PAUSE_MILLIS = 100;
+    private static final int MAX_LATENCY_MILLIS = 10_000;
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    // Per-millisecond latency counts for the current report interval
+    private final AtomicReference<AtomicLongArray> latencies =
+            new AtomicReference<>(new AtomicLongArray(MAX_LATENCY_MILLIS + 1));
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args.length > 0 ? args[0] : "ws://localhost:8080/ws");
+        int subscribers = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        new LoadTestClient().run(uri, subscribers, seconds);
+    }
+
+    private void run(URI uri, int subscribers, int seconds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        ConcurrentLinkedQueue<WebSocket> sockets = new ConcurrentLinkedQueue<>();
+        System.out.println("Opening " + subscribers + " subscribers to " + uri);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < subscribers; i++) {
+            client.newWebSocketBuilder()
+                    .buildAsync(uri, new Subscriber())
+                    .whenComplete((ws, error) -> {
+                        if (error != null) {
+                            if (failed.incrementAndGet() <= 5) {
+                                System.err.println("✗ Connect failed: " + error.getMessage());
+                            }
+                        } else {
+                            connected.incrementAndGet();
+                            sockets.add(ws);
+                        }
+                    });
+            if ((i + 1) % RAMP_STEP == 0) {
+                Thread.sleep(RAMP_PAUSE_MILLIS);
+            }
+        }
+
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long lastMessages = 0;
+        long lastBytes = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(REPORT_SECONDS));
+            long totalMessages = messages.sum();
+            long totalBytes = bytes.sum();
+            AtomicLongArray interval = latencies.getAndSet(new AtomicLongArray(MAX_LATENCY_MILLIS + 1));
+            System.out.printf("%4ds  connected %,d  failed %,d  %,.0f msg/s  %.2f MB/s  latency p50 %s  p99 %s  max %s%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                    connected.get(), failed.get(),
+                    (totalMessages - lastMessages) / (double) REPORT_SECONDS,
+                    (totalBytes - lastBytes) / (double) REPORT_SECONDS / (1024 * 1024),
+                    percentile(interval, 0.50), percentile(interval, 0.99), percentile(interval, 1.0));
+            lastMessages = totalMessages;
+            lastBytes = totalBytes;
+        }
+
+        for (WebSocket ws : sockets) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+        System.out.printf("✓ %,d subscribers received %,d messages (%,.1f MB)%n",
+                connected.get(), messages.sum(), bytes.sum() / (1024.0 * 1024));
+    }
+
+    private static String percentile(AtomicLongArray counts, double p) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        if (total == 0) return "-";
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return i == MAX_LATENCY_MILLIS ? ">" + MAX_LATENCY_MILLIS + "ms" : i + "ms";
+            }
+        }
+        return "-";
+    }
+
+    /**
+     * Counts whole messages and records the latency of each
+     */
+    private final class Subscriber implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                long now = System.currentTimeMillis();
+                String message = partial.toString();
+                partial.setLength(0);
+                messages.increment();
+                bytes.add(message.getBytes(StandardCharsets.UTF_8).length);
+                long published = publishedAt(message);
+                if (published > 0) {
+                    int millis = (int) Math.min(Math.max(now - published, 0), MAX_LATENCY_MILLIS);
+                    latencies.get().incrementAndGet(millis);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            connected.decrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            connected.decrementAndGet();
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * The "t" field sits in the message header, so there is no need to parse the rest
+     */
+    static long publishedAt(String message) {
+        int i = message.indexOf("\"t\":");
+        if (i < 0 || i > 64) return -1;
+        long value = 0;
+        for (int j = i + 4; j < message.length(); j++) {
+            char c = message.charAt(j);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,355 @@
+package com.mcgill.application.server;
+
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.model.PortfolioSummary;
+import com.mcgill.application.model.Stock;
+import com.mcgill.application.service.AppExecutors;
+import com.mcgill.application.service.KdbClientService;
+import com.mcgill.application.service.LastPriceBatch;
+import com.mcgill.application.service.PortfolioDelta;
+import com.mcgill.application.service.StockPriceService;
+import com.mcgill.application.service.StockService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PortfolioFeed - Headless owner of the portfolio for the server
+ * StockService expects one thread to own its holdings (the FX thread on the
+ * desktop); here one long-running task on the io pool plays that part, taking
+ * work from a queue. Loading, price ticks and other instances' changes all run
+ * on it, and every PUBLISH_MILLIS it publishes an immutable Frame of the book
+ * and of what changed since the last one.
+ * Readers (REST handlers, WebSocket subscribers) only ever see published frames,
+ * so any number of them can read without touching the live holdings.
+ *
+ * Prices come from kdb+ (polled every second) when configured and from Yahoo
+ * every YAHOO_REFRESH_SECONDS. They are served, not written back; the desktop
+ * refresh remains what persists prices.
+ */
+public class PortfolioFeed implements AutoCloseable {
+
+    static final long PUBLISH_MILLIS = 250;
+    private static final long KDB_POLL_MILLIS = 1000;
+    private static final long YAHOO_REFRESH_SECONDS = 60;
+    private static final int YAHOO_BATCH = 50;
+
+    /**
+     * One published state of the book
+     * The update lists only the holdings changed since the previous frame; it is
+     * absent when the whole book was (re)loaded. Encoded WebSocket messages are
+     * built at most once and shared by every subscriber.
+     */
+    public static final class Frame {
+        final long seq;
+        final long publishedAt;
+        final List<HoldingRow> holdings;
+        final PortfolioSummary summary;
+        final double realized;
+        final List<HoldingRow> changed;
+        final Set<Integer> removedIds;
+        private volatile byte[] snapshotMessage;
+        private volatile byte[] updateMessage;
+
+        Frame(long seq, List<HoldingRow> holdings, PortfolioSummary summary, double realized,
+              List<HoldingRow> changed, Set<Integer> removedIds) {
+            this.seq = seq;
+            this.publishedAt = System.currentTimeMillis();
+            this.holdings = holdings;
+            this.summary = summary;
+            this.realized = realized;
+            this.changed = changed;
+            this.removedIds = removedIds;
+        }
+
+        boolean hasUpdate() {
+            return changed != null;
+        }
+
+        byte[] snapshotMessage() {
+            byte[] message = snapshotMessage;
+            if (message == null) {
+                message = WebSocketConnection.textFrame(PortfolioJson.snapshotMessage(this).toString());
+                snapshotMessage = message;
+            }
+            return message;
+        }
+
+        byte[] updateMessage() {
+            byte[] message = updateMessage;
+            if (message == null) {
+                message = WebSocketConnection.textFrame(PortfolioJson.updateMessage(this).toString());
+                updateMessage = message;
+            }
+            return message;
+        }
+    }
+
+    private final StockService stockService;
+    private final StockPriceService stockPriceService;
+    private final String kdbHost;
+    private final int kdbPort;
+    private final boolean yahoo;
+
+    // Loading, kdb+ polls, Yahoo requests and the owner task run on the shared executors
+    private final AppExecutors executors = AppExecutors.getInstance();
+    private final AppExecutors.TaskGroup sources = executors.newGroup("portfolio feed");
+    // Work for the owner task, run in order
+    private final LinkedBlockingQueue<Runnable> ownerQueue = new LinkedBlockingQueue<>();
+    private final Executor owner = ownerQueue::add;
+
+    // Owner thread only: what changed since the last frame
+    private final Set<Integer> dirtyIds = new HashSet<>();
+    private final Set<Integer> removedIds = new HashSet<>();
+    private boolean reloaded = true;
+    private boolean statsDirty = true;
+    private long seq;
+
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final Condition published = publishLock.newCondition();
+    private volatile Frame latest;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private volatile KdbClientService kdb;
+
+    /**
+     * @param kdbHost kdb+ tickerplant/RDB host for live quotes, or null for none
+     * @param yahoo   Whether to refresh prices from Yahoo periodically
+     */
+    public PortfolioFeed(String kdbHost, int kdbPort, boolean yahoo) {
+        this.stockService = new StockService();
+        this.stockPriceService = new StockPriceService();
+        this.kdbHost = kdbHost;
+        this.kdbPort = kdbPort;
+        this.yahoo = yahoo;
+    }
+
+    /**
+     * Serve the local snapshot straight away, then load from PostgreSQL and start the price sources
+     */
+    public void start() {
+        sources.submit(executors.io(), this::runOwner);
+
+        CompletableFuture.supplyAsync(() -> stockService.loadFromDatabase(batch -> owner.execute(() -> {
+                    stockService.getAllStocks().addAll(batch);
+                    reloaded = true;
+                })), executors.jdbc())
+                .thenAccept(delta -> owner.execute(() -> {
+                    stockService.finishLoading(delta);
+                    reloaded = true;
+                    stockService.startChangeFeed(changes -> owner.execute(() -> applyChanges(changes)));
+                    System.out.println("✓ Server portfolio loaded: " + stockService.getAllStocks().size() + " holdings");
+                    sources.submit(executors.io(), this::startPriceSources);
+                }))
+                .exceptionally(error -> {
+                    System.err.println("✗ Failed to load portfolio: " + error.getMessage());
+                    return null;
+                });
+    }
+
+    private void startPriceSources() {
+        if (kdbHost != null) {
+            KdbClientService kdb = new KdbClientService();
+            try {
+                kdb.connect(kdbHost, kdbPort);
+                this.kdb = kdb;
+                System.out.println("✓ Polling kdb+ quotes from " + kdbHost + ":" + kdbPort);
+                long[] since = {0};
+                sources.scheduleAtFixedRate(executors.io(), () -> pollKdb(kdb, since), 0, KDB_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                System.err.println("✗ kdb+ unavailable, serving without live quotes: " + e.getMessage());
+            }
+        }
+        if (yahoo) {
+            sources.scheduleAtFixedRate(executors.http(), this::refreshFromYahoo, 0, YAHOO_REFRESH_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @param since Receive time (kdb+ clock) to fetch from; advanced after each poll
+     */
+    private void pollKdb(KdbClientService kdb, long[] since) {
+        // kdb+ reduces the ticks since the last poll to the last one per symbol
+        Map<String, Double> prices = new LinkedHashMap<>();
+        try {
+            LastPriceBatch last = kdb.lastPrices(null, since[0]).get();
+            for (int i = 0; i < last.size(); i++) {
+                prices.put(last.getSymbols()[i].toUpperCase(), last.getPrices()[i]);
+            }
+            since[0] = last.maxTimeMillis(since[0]);
+        } catch (Exception e) {
+            System.err.println("Error polling kdb+ quotes: " + e.getMessage());
+            return;
+        }
+        if (!prices.isEmpty()) {
+            owner.execute(() -> applyPrices(prices));
+        }
+    }
+
+    private void refreshFromYahoo() {
+        Frame frame = latest;
+        if (frame == null) return;
+        List<String> symbols = frame.holdings.stream().map(HoldingRow::getSymbol).distinct().toList();
+        for (int i = 0; i < symbols.size(); i += YAHOO_BATCH) {
+            Map<String, Double> prices = stockPriceService.getBatchPrices(
+                    symbols.subList(i, Math.min(i + YAHOO_BATCH, symbols.size())));
+            if (!prices.isEmpty()) {
+                owner.execute(() -> applyPrices(prices));
+            }
+        }
+    }
+
+    /**
+     * The owner task: runs queued work in order and publishes a frame every PUBLISH_MILLIS
+     * until close() interrupts it
+     */
+    private void runOwner() {
+        long publishAt = System.nanoTime();
+        try {
+            while (true) {
+                long wait = publishAt - System.nanoTime();
+                // Once a frame is due it goes out before any more queued work
+                Runnable task = wait > 0 ? ownerQueue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                if (task == null) {
+                    publish();
+                    publishAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PUBLISH_MILLIS);
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error in portfolio owner task: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            // close()
+        }
+    }
+
+    // Owner thread
+    private void applyPrices(Map<String, Double> prices) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Stock stock : stockService.getAllStocks()) {
+            Double price = prices.get(stock.getSymbol());
+            if (price != null && price > 0 && price != stock.getCurrentPrice()) {
+                stock.setCurrentPrice(price);
+                stock.setLastRefreshed(now);
+                dirtyIds.add(stock.getId());
+            }
+        }
+    }
+
+    // Owner thread
+    private void applyChanges(PortfolioDelta delta) {
+        stockService.applyChanges(delta);
+        for (Stock row : delta.getUpserted()) {
+            dirtyIds.add(row.getId());
+            removedIds.remove(row.getId());
+        }
+        removedIds.addAll(delta.getDeletedIds());
+        dirtyIds.removeAll(delta.getDeletedIds());
+        statsDirty = true;
+    }
+
+    // Owner thread, every PUBLISH_MILLIS
+    private void publish() {
+        try {
+            if (!reloaded && !statsDirty && dirtyIds.isEmpty() && removedIds.isEmpty()) return;
+
+            List<Stock> stocks = stockService.getAllStocks();
+            List<HoldingRow> holdings = new ArrayList<>(stocks.size());
+            List<HoldingRow> changed = reloaded ? null : new ArrayList<>(dirtyIds.size());
+            for (Stock stock : stocks) {
+                HoldingRow row = new HoldingRow(stock.getId(), stock.getSymbol(), stock.getCompany(), stock.getShares(),
+                        stock.getPurchasePrice(), stock.getCurrentPrice(), stock.getSector(), stock.getLastRefreshed());
+                holdings.add(row);
+                if (changed != null && dirtyIds.contains(row.getId())) {
+                    changed.add(row);
+                }
+            }
+            Frame frame = new Frame(++seq, Collections.unmodifiableList(holdings), stockService.summarize(),
+                    stockService.getRealizedProfitLoss(), changed,
+                    reloaded ? Set.of() : Set.copyOf(removedIds));
+            reloaded = false;
+            statsDirty = false;
+            dirtyIds.clear();
+            removedIds.clear();
+
+            publishLock.lock();
+            try {
+                latest = frame;
+                published.signalAll();
+            } finally {
+                publishLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            // Keep publishing; a failure here must not end the owner task
+            System.err.println("Error publishing portfolio frame: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Latest published frame, or null before the first one
+     */
+    public Frame latest() {
+        return latest;
+    }
+
+    /**
+     * Wait for a frame newer than seq
+     * @return The newest frame, or null if none was published within the timeout
+     */
+    Frame awaitAfter(long seq, long timeoutMillis) throws InterruptedException {
+        Frame frame = latest;
+        if (frame != null && frame.seq > seq) return frame;
+        publishLock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while ((frame = latest) == null || frame.seq <= seq) {
+                if (nanos <= 0) return null;
+                nanos = published.awaitNanos(nanos);
+            }
+            return frame;
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    AtomicInteger subscribers() {
+        return subscribers;
+    }
+
+    boolean isLoaded() {
+        return stockService.isReady();
+    }
+
+    /**
+     * The kdb+ quote source, or null when not connected
+     */
+    KdbClientService kdb() {
+        return kdb;
+    }
+
+    @Override
+    public void close() {
+        stockService.close();
+        sources.close();
+        KdbClientService source = kdb;
+        if (source != null) {
+            source.close();
+        }
+        ownerQueue.clear();
+    }
+}
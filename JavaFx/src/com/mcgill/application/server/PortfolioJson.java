@@ -0,0 +1,107 @@
+package com.mcgill.application.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.model.PortfolioSummary;
+
+import java.util.Collection;
+
+/**
+ * PortfolioJson - JSON shapes served to REST and WebSocket clients
+ * Messages start with type, seq and t (publish time, epoch millis) so clients
+ * can route and time them without parsing the rest.
+ */
+final class PortfolioJson {
+
+    private PortfolioJson() {
+    }
+
+    static JsonObject holding(HoldingRow row) {
+        double value = row.getShares() * row.getCurrentPrice();
+        double cost = row.getShares() * row.getPurchasePrice();
+        JsonObject json = new JsonObject();
+        json.addProperty("id", row.getId());
+        json.addProperty("symbol", row.getSymbol());
+        json.addProperty("company", row.getCompany());
+        json.addProperty("sector", row.getSector());
+        json.addProperty("shares", row.getShares());
+        json.addProperty("purchasePrice", row.getPurchasePrice());
+        json.addProperty("currentPrice", row.getCurrentPrice());
+        json.addProperty("marketValue", value);
+        json.addProperty("profitLoss", value - cost);
+        json.addProperty("profitLossPercent", cost == 0 ? 0.0 : (value - cost) / cost * 100.0);
+        if (row.getLastRefreshed() != null) {
+            json.addProperty("lastRefreshed", row.getLastRefreshed().toString());
+        }
+        return json;
+    }
+
+    static JsonArray holdings(Collection<HoldingRow> rows) {
+        JsonArray array = new JsonArray();
+        for (HoldingRow row : rows) {
+            array.add(holding(row));
+        }
+        return array;
+    }
+
+    static JsonObject stats(PortfolioFeed.Frame frame) {
+        PortfolioSummary summary = frame.summary;
+        JsonObject json = new JsonObject();
+        json.addProperty("holdings", summary.getHoldings());
+        json.addProperty("totalInvestment", summary.getTotalInvestment());
+        json.addProperty("marketValue", summary.getMarketValue());
+        json.addProperty("profitLoss", summary.getProfitLoss());
+        json.addProperty("profitLossPercent", summary.getProfitLossPercent());
+        json.addProperty("realized", frame.realized);
+        JsonArray sectors = new JsonArray();
+        for (PortfolioSummary.SectorTotal sector : summary.getSectors()) {
+            JsonObject s = new JsonObject();
+            s.addProperty("sector", sector.getSector());
+            s.addProperty("holdings", sector.getHoldings());
+            s.addProperty("totalInvestment", sector.getInvestment());
+            s.addProperty("marketValue", sector.getMarketValue());
+            s.addProperty("profitLoss", sector.getProfitLoss());
+            sectors.add(s);
+        }
+        json.add("sectors", sectors);
+        return json;
+    }
+
+    /** The whole book; sent on subscribe and to subscribers that missed a frame */
+    static JsonObject snapshotMessage(PortfolioFeed.Frame frame) {
+        JsonObject json = header("snapshot", frame);
+        json.add("stats", stats(frame));
+        json.add("holdings", holdings(frame.holdings));
+        return json;
+    }
+
+    /** Only the holdings changed or removed since the previous frame */
+    static JsonObject updateMessage(PortfolioFeed.Frame frame) {
+        JsonObject json = header("update", frame);
+        json.add("stats", stats(frame));
+        json.add("holdings", holdings(frame.changed));
+        JsonArray removed = new JsonArray();
+        for (Integer id : frame.removedIds) {
+            JsonObject r = new JsonObject();
+            r.addProperty("id", id);
+            removed.add(r);
+        }
+        json.add("removed", removed);
+        return json;
+    }
+
+    static JsonObject error(String message) {
+        JsonObject json = new JsonObject();
+        json.addProperty("error", message);
+        return json;
+    }
+
+    private static JsonObject header(String type, PortfolioFeed.Frame frame) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", type);
+        json.addProperty("seq", frame.seq);
+        json.addProperty("t", frame.publishedAt);
+        return json;
+    }
+}
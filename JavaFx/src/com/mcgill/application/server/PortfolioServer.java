@@ -0,0 +1,394 @@
+package com.mcgill.application.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.service.AppExecutors;
+import com.mcgill.application.service.KdbClientService;
+import com.mcgill.application.service.LatencyHistogram;
+import com.mcgill.application.service.StockService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PortfolioServer - Headless entry point serving the portfolio over HTTP
+ * Runs the same StockService as the desktop app (through PortfolioFeed) with no
+ * JavaFX window, for desks and scripts that only need valuations.
+ *
+ *   GET /api/holdings[?symbol=AAPL&sector=Technology]   holdings with value and P/L
+ *   GET /api/stats                                       totals, realized P/L and sectors
+ *   GET /health                                          load state, subscribers, executors, kdb+ query latency
+ *   GET /ws  (WebSocket)                                 snapshot, then conflated updates
+ *
+ * Every connection gets its own virtual thread, which blocks on its socket
+ * without holding a platform thread, so thousands of idle subscribers cost
+ * little more than their buffers. Subscribers receive at most one message per
+ * published frame; one that falls behind skips to a fresh snapshot.
+ *
+ * Usage: PortfolioServer [--port 8080] [--kdb host:port] [--no-yahoo]
+ */
+public class PortfolioServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int ACCEPT_BACKLOG = 4096;
+    private static final int MAX_LINE = 8192;
+    private static final int MAX_HEADERS = 100;
+    // Idle subscribers are pinged this often so dead connections are noticed
+    private static final long PING_MILLIS = 30_000;
+
+    private final int port;
+    private final PortfolioFeed feed;
+
+    public PortfolioServer(int port, PortfolioFeed feed) {
+        this.port = port;
+        this.feed = feed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String kdbHost = null;
+        int kdbPort = 0;
+        boolean yahoo = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--kdb" -> {
+                    String[] hostPort = args[++i].split(":");
+                    kdbHost = hostPort[0];
+                    kdbPort = Integer.parseInt(hostPort[1]);
+                }
+                case "--no-yahoo" -> yahoo = false;
+                default -> {
+                    System.err.println("Usage: PortfolioServer [--port 8080] [--kdb host:port] [--no-yahoo]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        PortfolioFeed feed = new PortfolioFeed(kdbHost, kdbPort, yahoo);
+        feed.start();
+        new PortfolioServer(port, feed).serve();
+    }
+
+    /**
+     * Accept connections forever, one virtual thread each
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, ACCEPT_BACKLOG)) {
+            System.out.println("✓ Portfolio server listening on port " + port);
+            while (true) {
+                Socket socket = server.accept();
+                Thread.ofVirtual().name("http-" + socket.getPort()).start(() -> handle(socket));
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                Request request;
+                try {
+                    request = Request.read(in);
+                } catch (BadRequest e) {
+                    respond(out, e.status, PortfolioJson.error(e.getMessage()), false);
+                    return;
+                }
+                if (request == null) return;
+                if (request.isWebSocketUpgrade()) {
+                    if (!"/ws".equals(request.path)) {
+                        respond(out, 404, PortfolioJson.error("No WebSocket at " + request.path), false);
+                    } else {
+                        subscribe(request, in, out);
+                    }
+                    return;
+                }
+                route(request, out);
+                if (!request.keepAlive()) return;
+            }
+        } catch (IOException e) {
+            // Client went away or sent something unreadable
+        }
+    }
+
+    private void route(Request request, OutputStream out) throws IOException {
+        boolean keepAlive = request.keepAlive();
+        if (!"GET".equals(request.method)) {
+            respond(out, 405, PortfolioJson.error("Only GET is supported"), keepAlive);
+            return;
+        }
+        if ("/health".equals(request.path)) {
+            PortfolioFeed.Frame frame = feed.latest();
+            JsonObject health = new JsonObject();
+            health.addProperty("status", feed.isLoaded() ? "ok" : "loading");
+            health.addProperty("seq", frame == null ? 0 : frame.seq);
+            health.addProperty("subscribers", feed.subscribers().get());
+            health.add("executors", executors());
+            KdbClientService kdb = feed.kdb();
+            if (kdb != null) {
+                health.add("kdb", kdb(kdb));
+            }
+            respond(out, 200, health, keepAlive);
+            return;
+        }
+
+        PortfolioFeed.Frame frame = feed.latest();
+        if (frame == null) {
+            respond(out, 503, PortfolioJson.error(StockService.LOADING_MESSAGE), keepAlive);
+            return;
+        }
+        switch (request.path) {
+            case "/api/holdings" -> {
+                String symbol = request.query.get("symbol");
+                String sector = request.query.get("sector");
+                List<HoldingRow> rows = frame.holdings.stream()
+                        .filter(row -> symbol == null || symbol.equalsIgnoreCase(row.getSymbol()))
+                        .filter(row -> sector == null || sector.equalsIgnoreCase(row.getSector()))
+                        .toList();
+                respond(out, 200, PortfolioJson.holdings(rows), keepAlive);
+            }
+            case "/api/stats" -> respond(out, 200, PortfolioJson.stats(frame), keepAlive);
+            default -> respond(out, 404, PortfolioJson.error("Not found: " + request.path), keepAlive);
+        }
+    }
+
+    /**
+     * Complete the WebSocket handshake, then push frames until the client leaves
+     * This thread writes; a second virtual thread reads the client's close and pings.
+     */
+    private void subscribe(Request request, InputStream in, OutputStream out) throws IOException {
+        String key = request.headers.get("sec-websocket-key");
+        if (key == null || !"13".equals(request.headers.get("sec-websocket-version"))) {
+            respond(out, 426, PortfolioJson.error("WebSocket version 13 required"), false);
+            return;
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Accept: " + WebSocketConnection.acceptKey(key) + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+
+        WebSocketConnection ws = new WebSocketConnection(in, out);
+        Thread writer = Thread.currentThread();
+        Thread reader = Thread.ofVirtual().name(writer.getName() + "-read").start(() -> {
+            ws.readUntilClosed();
+            writer.interrupt();
+        });
+        feed.subscribers().incrementAndGet();
+        try {
+            long sent = -1;
+            while (ws.isOpen()) {
+                PortfolioFeed.Frame frame = feed.awaitAfter(sent, PING_MILLIS);
+                if (frame == null) {
+                    ws.ping();
+                    continue;
+                }
+                // Conflation: one message per frame at most, and a subscriber that
+                // missed frames (slow, or just joined) gets the whole book instead
+                boolean next = sent >= 0 && frame.seq == sent + 1 && frame.hasUpdate();
+                ws.send(next ? frame.updateMessage() : frame.snapshotMessage());
+                sent = frame.seq;
+            }
+        } catch (InterruptedException e) {
+            // Reader saw the client close
+        } finally {
+            feed.subscribers().decrementAndGet();
+            ws.close();
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * Running, waiting and finished counts of the shared executors, and the thread counts
+     */
+    private static JsonObject executors() {
+        AppExecutors executors = AppExecutors.getInstance();
+        JsonObject json = new JsonObject();
+        for (AppExecutors.Pool pool : List.of(executors.http(), executors.jdbc(), executors.io())) {
+            JsonObject p = new JsonObject();
+            p.addProperty("running", pool.getRunning());
+            p.addProperty("waiting", pool.getWaiting());
+            p.addProperty("completed", pool.getCompleted());
+            p.addProperty("failed", pool.getFailed());
+            json.add(pool.getName(), p);
+        }
+        json.addProperty("scheduledTimers", executors.getScheduledTimers());
+        json.addProperty("platformThreads", executors.getPlatformThreads());
+        return json;
+    }
+
+    private static JsonObject kdb(KdbClientService kdb) {
+        JsonObject json = new JsonObject();
+        LatencyHistogram latency = kdb.getQueryLatency();
+        json.addProperty("connectionsUp", kdb.getConnectionsUp());
+        json.addProperty("inFlight", kdb.getInFlight());
+        json.addProperty("queries", latency.getCount());
+        json.addProperty("p50Ms", latency.percentileMicros(0.50) / 1000.0);
+        json.addProperty("p90Ms", latency.percentileMicros(0.90) / 1000.0);
+        json.addProperty("p99Ms", latency.percentileMicros(0.99) / 1000.0);
+        json.addProperty("maxMs", latency.percentileMicros(1.0) / 1000.0);
+        return json;
+    }
+
+    private static void respond(OutputStream out, int status, JsonElement body, boolean keepAlive) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\n" +
+                "Content-Type: application/json; charset=utf-8\r\n" +
+                "Content-Length: " + bytes.length + "\r\n" +
+                "Access-Control-Allow-Origin: *\r\n" +
+                "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 200 -> "OK";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 426 -> "Upgrade Required";
+            case 431 -> "Request Header Fields Too Large";
+            case 503 -> "Service Unavailable";
+            default -> "Status " + status;
+        };
+    }
+
+    /**
+     * A request that cannot be parsed; answered with its status (400 unless given) and the connection closed
+     */
+    static final class BadRequest extends IOException {
+        final int status;
+
+        BadRequest(String message) {
+            this(400, message);
+        }
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Request line and headers of one HTTP/1.1 request (bodies are skipped)
+     */
+    static final class Request {
+        final String method;
+        final String path;
+        final String version;
+        final Map<String, String> query;
+        final Map<String, String> headers;
+
+        private Request(String method, String path, String version, Map<String, String> query, Map<String, String> headers) {
+            this.method = method;
+            this.path = path;
+            this.version = version;
+            this.query = query;
+            this.headers = headers;
+        }
+
+        /**
+         * @return The next request, or null once the client has closed the connection
+         */
+        static Request read(InputStream in) throws IOException {
+            String line = readLine(in, 400);
+            while (line != null && line.isEmpty()) {
+                line = readLine(in, 400);
+            }
+            if (line == null) return null;
+            String[] parts = line.split(" ");
+            if (parts.length != 3) throw new BadRequest("Malformed request line");
+
+            Map<String, String> headers = new HashMap<>();
+            String header;
+            while ((header = readLine(in, 431)) != null && !header.isEmpty()) {
+                int colon = header.indexOf(':');
+                if (colon > 0) {
+                    headers.put(header.substring(0, colon).trim().toLowerCase(Locale.ROOT), header.substring(colon + 1).trim());
+                }
+                if (headers.size() > MAX_HEADERS) throw new BadRequest(431, "Too many headers");
+            }
+            String contentLength = headers.get("content-length");
+            if (contentLength != null) {
+                long length;
+                try {
+                    length = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    throw new BadRequest("Malformed Content-Length");
+                }
+                if (length < 0) throw new BadRequest("Malformed Content-Length");
+                in.skipNBytes(length);
+            }
+
+            String target = parts[1];
+            int q = target.indexOf('?');
+            String path = q < 0 ? target : target.substring(0, q);
+            Map<String, String> query = new HashMap<>();
+            if (q >= 0) {
+                for (String pair : target.substring(q + 1).split("&")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        try {
+                            query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                        } catch (IllegalArgumentException e) {
+                            throw new BadRequest("Malformed query string");
+                        }
+                    }
+                }
+            }
+            return new Request(parts[0], path, parts[2], query, headers);
+        }
+
+        boolean isWebSocketUpgrade() {
+            String upgrade = headers.get("upgrade");
+            String connection = headers.get("connection");
+            return upgrade != null && upgrade.equalsIgnoreCase("websocket")
+                    && connection != null && connection.toLowerCase(Locale.ROOT).contains("upgrade");
+        }
+
+        boolean keepAlive() {
+            String connection = headers.get("connection");
+            if ("HTTP/1.0".equals(version)) {
+                return connection != null && connection.equalsIgnoreCase("keep-alive");
+            }
+            return connection == null || !connection.equalsIgnoreCase("close");
+        }
+
+        /**
+         * @param tooLongStatus Status a line longer than MAX_LINE is refused with
+         */
+        private static String readLine(InputStream in, int tooLongStatus) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (b == '\n') {
+                    byte[] bytes = line.toByteArray();
+                    int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                    return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+                }
+                line.write(b);
+                if (line.size() > MAX_LINE) throw new BadRequest(tooLongStatus, "Line longer than " + MAX_LINE + " bytes");
+            }
+            return line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mcgill.application.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server side of one WebSocket (RFC 6455), just enough for a push feed
+ * Text frames go out unmasked and unfragmented, so one encoded frame can be
+ * written to every subscriber as is. Incoming frames are only read for close
+ * and ping; anything a client sends otherwise is ignored.
+ */
+final class WebSocketConnection {
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+    // Clients have no reason to send big frames; anything larger ends the connection
+    private static final int MAX_INCOMING_PAYLOAD = 64 * 1024;
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean open = true;
+
+    WebSocketConnection(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Sec-WebSocket-Accept value for a client's Sec-WebSocket-Key
+     */
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key.trim() + GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Encode a complete, unmasked text frame
+     */
+    static byte[] textFrame(String text) {
+        return frame(OP_TEXT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] frame(int opcode, byte[] payload) {
+        int length = payload.length;
+        int headerLength = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        byte[] frame = new byte[headerLength + length];
+        frame[0] = (byte) (0x80 | opcode);
+        if (length < 126) {
+            frame[1] = (byte) length;
+        } else if (length <= 0xFFFF) {
+            frame[1] = 126;
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+        } else {
+            frame[1] = 127;
+            long l = length;
+            for (int i = 0; i < 8; i++) {
+                frame[2 + i] = (byte) (l >>> (56 - 8 * i));
+            }
+        }
+        System.arraycopy(payload, 0, frame, headerLength, length);
+        return frame;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Write an encoded frame; blocks (this virtual thread only) while the client is slow
+     */
+    void send(byte[] encodedFrame) throws IOException {
+        writeLock.lock();
+        try {
+            out.write(encodedFrame);
+            out.flush();
+        } catch (IOException e) {
+            open = false;
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void ping() throws IOException {
+        send(frame(OP_PING, new byte[0]));
+    }
+
+    /**
+     * Read client frames until the client closes or goes away, answering pings and close
+     */
+    void readUntilClosed() {
+        try {
+            while (open) {
+                int b0 = in.read();
+                int b1 = in.read();
+                if (b0 < 0 || b1 < 0) break;
+                int opcode = b0 & 0x0F;
+                boolean masked = (b1 & 0x80) != 0;
+                long length = b1 & 0x7F;
+                if (length == 126) {
+                    length = (readByte() << 8) | readByte();
+                } else if (length == 127) {
+                    length = 0;
+                    for (int i = 0; i < 8; i++) {
+                        length = (length << 8) | readByte();
+                    }
+                }
+                // Client frames must be masked (RFC 6455 5.1)
+                if (!masked || length > MAX_INCOMING_PAYLOAD) break;
+                byte[] mask = in.readNBytes(4);
+                byte[] payload = in.readNBytes((int) length);
+                if (mask.length < 4 || payload.length < length) break;
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+
+                if (opcode == OP_CLOSE) {
+                    // Echo the status code back, then we are done
+                    send(frame(OP_CLOSE, payload.length >= 2 ? new byte[]{payload[0], payload[1]} : new byte[0]));
+                    break;
+                } else if (opcode == OP_PING) {
+                    send(frame(OP_PONG, payload));
+                }
+                // Pongs, text and binary frames from subscribers are ignored
+            }
+        } catch (IOException e) {
+            // Client went away
+        } finally {
+            open = false;
+        }
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) throw new EOFException();
+        return b;
+    }
+
+    /**
+     * Send a normal close (1000) if the connection is still open
+     */
+    void close() {
+        if (!open) return;
+        open = false;
+        try {
+            send(frame(OP_CLOSE, new byte[]{0x03, (byte) 0xE8}));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
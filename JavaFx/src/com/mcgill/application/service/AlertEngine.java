@@ -0,0 +1,165 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.PriceAlert;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AlertEngine - Threshold index for price alerts
+ * Keeps one sorted threshold array per symbol. A new price only inspects the
+ * thresholds between the previous and the new price (found by binary search),
+ * so the cost of a tick does not depend on how many alerts exist.
+ *
+ * Not thread-safe on its own; AlertService serialises access.
+ */
+class AlertEngine {
+
+    private final Map<String, ThresholdIndex> indexes = new HashMap<>();
+    private int size;
+
+    void add(PriceAlert alert) {
+        indexes.computeIfAbsent(alert.getSymbol(), k -> new ThresholdIndex()).add(alert);
+        size++;
+    }
+
+    boolean remove(PriceAlert alert) {
+        ThresholdIndex index = indexes.get(alert.getSymbol());
+        if (index != null && index.remove(alert)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Set the reference value of a symbol if none has been seen yet, so that the
+     * first tick after creating an alert can already cross it
+     */
+    void seed(String symbol, double value) {
+        ThresholdIndex index = indexes.get(symbol);
+        if (index != null && Double.isNaN(index.lastValue)) {
+            index.lastValue = value;
+        }
+    }
+
+    /**
+     * Apply a new value and move every alert it crossed into {@code fired}
+     * @return Number of alerts fired
+     */
+    int onValue(String symbol, double value, List<PriceAlert> fired) {
+        ThresholdIndex index = indexes.get(symbol);
+        if (index == null) {
+            return 0;
+        }
+        int count = index.cross(value, fired);
+        size -= count;
+        return count;
+    }
+
+    /**
+     * Sorted thresholds with the alerts that own them, kept in parallel arrays
+     */
+    private static final class ThresholdIndex {
+        private double[] thresholds = new double[8];
+        private PriceAlert[] alerts = new PriceAlert[8];
+        private int size;
+        private double lastValue = Double.NaN;
+
+        void add(PriceAlert alert) {
+            if (size == thresholds.length) {
+                thresholds = java.util.Arrays.copyOf(thresholds, size * 2);
+                alerts = java.util.Arrays.copyOf(alerts, size * 2);
+            }
+            int i = upperBound(alert.getThreshold());
+            System.arraycopy(thresholds, i, thresholds, i + 1, size - i);
+            System.arraycopy(alerts, i, alerts, i + 1, size - i);
+            thresholds[i] = alert.getThreshold();
+            alerts[i] = alert;
+            size++;
+        }
+
+        boolean remove(PriceAlert alert) {
+            for (int i = lowerBound(alert.getThreshold()); i < size && thresholds[i] == alert.getThreshold(); i++) {
+                if (alerts[i] == alert) {
+                    System.arraycopy(thresholds, i + 1, thresholds, i, size - i - 1);
+                    System.arraycopy(alerts, i + 1, alerts, i, size - i - 1);
+                    alerts[--size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Rising from p to v crosses thresholds in (p, v]; falling crosses [v, p)
+         */
+        int cross(double value, List<PriceAlert> fired) {
+            double previous = lastValue;
+            lastValue = value;
+            if (Double.isNaN(previous) || previous == value) {
+                return 0;
+            }
+
+            boolean rising = value > previous;
+            int from = rising ? upperBound(previous) : lowerBound(value);
+            int to = rising ? upperBound(value) : lowerBound(previous);
+            if (from >= to) {
+                return 0;
+            }
+
+            // Compact the crossed range in place, keeping alerts that watch the other direction
+            LocalDateTime now = LocalDateTime.now();
+            int write = from;
+            for (int i = from; i < to; i++) {
+                PriceAlert alert = alerts[i];
+                PriceAlert.Direction dir = alert.getDirection();
+                boolean hit = dir == PriceAlert.Direction.CROSSES
+                        || (rising ? dir == PriceAlert.Direction.ABOVE : dir == PriceAlert.Direction.BELOW);
+                if (hit) {
+                    alert.markTriggered(value, now);
+                    fired.add(alert);
+                } else {
+                    thresholds[write] = thresholds[i];
+                    alerts[write] = alert;
+                    write++;
+                }
+            }
+            int removed = to - write;
+            if (removed > 0) {
+                System.arraycopy(thresholds, to, thresholds, write, size - to);
+                System.arraycopy(alerts, to, alerts, write, size - to);
+                for (int i = size - removed; i < size; i++) {
+                    alerts[i] = null;
+                }
+                size -= removed;
+            }
+            return removed;
+        }
+
+        /** First index whose threshold is >= v */
+        private int lowerBound(double v) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (thresholds[mid] < v) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /** First index whose threshold is > v */
+        private int upperBound(double v) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (thresholds[mid] <= v) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.PriceAlert;
+import com.mcgill.application.repository.AlertRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * AlertService - Business Logic Layer for price and portfolio P/L alerts
+ * Evaluates alerts on every kdb tick and price refresh through AlertEngine,
+ * persists them in PostgreSQL, and queues fired alerts so the UI can pick
+ * them up in batches instead of one dialog per alert.
+ *
+ * Price feeds call in from background threads; methods are thread-safe.
+ * Fired alerts are marked triggered on the JDBC pool, after they are queued.
+ */
+public class AlertService {
+
+    private final AlertRepository repository;
+    private final AppExecutors.Pool persistence = AppExecutors.getInstance().jdbc();
+    private final AlertEngine engine = new AlertEngine();
+    private final Set<PriceAlert> active = new LinkedHashSet<>();
+    private final ConcurrentLinkedQueue<PriceAlert> notifications = new ConcurrentLinkedQueue<>();
+
+    // Reused per evaluation so ticks that fire nothing do not allocate
+    private final List<PriceAlert> fired = new ArrayList<>();
+
+    public AlertService() {
+        repository = new AlertRepository();
+        for (PriceAlert alert : repository.findActive()) {
+            engine.add(alert);
+            active.add(alert);
+        }
+    }
+
+    /**
+     * Create an alert (Business Logic)
+     * @param currentValue Latest known price (or P/L %) of the symbol, used as the crossing reference; NaN if unknown
+     * @return Error message if any, null if success
+     */
+    public String addAlert(String symbol, PriceAlert.Direction direction, double threshold, double currentValue) {
+        if (symbol == null || symbol.trim().isEmpty()) {
+            return "Alert symbol is required!";
+        }
+        symbol = symbol.trim().toUpperCase();
+        boolean portfolio = PriceAlert.PORTFOLIO_PL_PERCENT.equals(symbol);
+
+        if (!portfolio && !symbol.matches("^[A-Z]{1,5}$")) {
+            return "Stock symbol must be 1-5 uppercase letters!";
+        }
+        if (direction == null) {
+            return "Please choose an alert direction!";
+        }
+        if (Double.isNaN(threshold) || Double.isInfinite(threshold)) {
+            return "Threshold must be a number!";
+        }
+        if (!portfolio && (threshold <= 0 || threshold > 10000)) {
+            return "Price threshold must be between $0 and $10,000!";
+        }
+        if (portfolio && threshold <= -100) {
+            return "P/L threshold must be greater than -100%!";
+        }
+
+        PriceAlert alert = new PriceAlert(0, symbol, direction, threshold);
+        repository.save(alert);
+        synchronized (this) {
+            engine.add(alert);
+            active.add(alert);
+            if (!Double.isNaN(currentValue)) {
+                engine.seed(symbol, currentValue);
+            }
+        }
+        return null; // Success
+    }
+
+    public String removeAlert(PriceAlert alert) {
+        if (alert == null) {
+            return "Please select an alert to remove!";
+        }
+        synchronized (this) {
+            engine.remove(alert);
+            active.remove(alert);
+        }
+        repository.delete(alert.getId());
+        return null; // Success
+    }
+
+    /**
+     * Evaluate one price (kdb tick or refresh result)
+     */
+    public void onPrice(String symbol, double price) {
+        List<PriceAlert> batch;
+        synchronized (this) {
+            if (engine.onValue(symbol, price, fired) == 0) {
+                return;
+            }
+            batch = drainFired();
+        }
+        publish(batch);
+    }
+
+    /**
+     * Evaluate a whole refresh result, persisting everything it fired in one batch
+     */
+    public void onPrices(Map<String, Double> prices) {
+        List<PriceAlert> batch;
+        synchronized (this) {
+            for (Map.Entry<String, Double> e : prices.entrySet()) {
+                engine.onValue(e.getKey(), e.getValue(), fired);
+            }
+            if (fired.isEmpty()) {
+                return;
+            }
+            batch = drainFired();
+        }
+        publish(batch);
+    }
+
+    public void onPortfolioProfitLossPercent(double percent) {
+        onPrice(PriceAlert.PORTFOLIO_PL_PERCENT, percent);
+    }
+
+    /**
+     * Take every alert that fired since the last call (called periodically by the UI)
+     */
+    public List<PriceAlert> drainNotifications() {
+        List<PriceAlert> out = new ArrayList<>();
+        PriceAlert alert;
+        while ((alert = notifications.poll()) != null) {
+            out.add(alert);
+        }
+        return out;
+    }
+
+    public synchronized List<PriceAlert> getActiveAlerts() {
+        return new ArrayList<>(active);
+    }
+
+    private List<PriceAlert> drainFired() {
+        List<PriceAlert> batch = new ArrayList<>(fired);
+        fired.clear();
+        active.removeAll(batch);
+        return batch;
+    }
+
+    /**
+     * Queue the batch for the UI now and mark it triggered in PostgreSQL on the JDBC pool,
+     * so a price feed (or the FX thread) never waits on the database
+     */
+    private void publish(List<PriceAlert> batch) {
+        notifications.addAll(batch);
+        persistence.execute(() -> repository.markTriggered(batch));
+    }
+}
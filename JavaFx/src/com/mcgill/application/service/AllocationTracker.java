@@ -0,0 +1,291 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.PortfolioSummary;
+import com.mcgill.application.model.Stock;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * AllocationTracker - Market value of the book per holding and per sector, kept up to date
+ * Listens to the holdings list and to each row's shares, price, symbol and
+ * sector, and applies only the difference a change makes to the totals, so a
+ * price tick costs the same for ten holdings as for ten thousand. Readers poll
+ * takeChanged() at their own pace and ask for the largest slices, or drain the
+ * symbols that moved with takeChangedSymbols(). FX thread only.
+ */
+public class AllocationTracker implements AutoCloseable {
+
+    public enum Grouping { HOLDING, SECTOR }
+
+    // Key of the slice the smaller groups are folded into. PostgreSQL text cannot hold NUL,
+    // so no symbol or sector can share it; "Other" is only the label shown for it
+    public static final String OTHER = "\u0000other";
+    private static final String OTHER_LABEL = "Other";
+
+    /**
+     * One slice of the allocation: a symbol or sector, or everything past the largest ones
+     */
+    public static final class Slice {
+        private final String name;
+        private final double value;
+        private final double cost;
+        private final int holdings;
+
+        Slice(String name, double value, double cost, int holdings) {
+            this.name = name;
+            this.value = value;
+            this.cost = cost;
+            this.holdings = holdings;
+        }
+
+        /** The symbol or sector, or OTHER */
+        public String getName() { return name; }
+        public boolean isOther() { return OTHER.equals(name); }
+        /** Name to display */
+        public String getLabel() { return isOther() ? OTHER_LABEL : name; }
+        public double getValue() { return value; }
+        /** Shares times purchase price */
+        public double getCost() { return cost; }
+        public int getHoldings() { return holdings; }
+
+        public double getProfitLossPercent() {
+            return cost > 0 ? (value - cost) / cost * 100.0 : 0.0;
+        }
+    }
+
+    /** Running total of one group */
+    private static final class Total {
+        double value;
+        double cost;
+        int holdings;
+    }
+
+    /**
+     * A row's current contribution, so a change can be applied as a difference
+     */
+    private final class Entry implements InvalidationListener {
+        final Stock stock;
+        String symbol;
+        String sector;
+        double value;
+        double cost;
+
+        Entry(Stock stock) {
+            this.stock = stock;
+            add();
+            stock.sharesProperty().addListener(this);
+            stock.currentPriceProperty().addListener(this);
+            stock.purchasePriceProperty().addListener(this);
+            stock.symbolProperty().addListener(this);
+            stock.sectorProperty().addListener(this);
+        }
+
+        @Override
+        public void invalidated(Observable observable) {
+            if (observable == stock.currentPriceProperty() || observable == stock.purchasePriceProperty()) {
+                double nextValue = marketValue(stock);
+                double nextCost = cost(stock);
+                shift(bySymbol, symbol, nextValue - value, nextCost - cost, 0);
+                shift(bySector, sector, nextValue - value, nextCost - cost, 0);
+                changedSymbols.add(symbol);
+                total += nextValue - value;
+                value = nextValue;
+                cost = nextCost;
+            } else {
+                // Shares, symbol or sector: what is held changed, not just what it is worth
+                remove();
+                add();
+                holdingsVersion++;
+            }
+            changed = true;
+        }
+
+        void add() {
+            symbol = stock.getSymbol() == null ? "" : stock.getSymbol();
+            sector = PortfolioSummary.sectorKey(stock.getSector());
+            value = marketValue(stock);
+            cost = cost(stock);
+            shift(bySymbol, symbol, value, cost, 1);
+            shift(bySector, sector, value, cost, 1);
+            changedSymbols.add(symbol);
+            total += value;
+        }
+
+        void remove() {
+            shift(bySymbol, symbol, -value, -cost, -1);
+            shift(bySector, sector, -value, -cost, -1);
+            changedSymbols.add(symbol);
+            total -= value;
+        }
+
+        void detach() {
+            stock.sharesProperty().removeListener(this);
+            stock.currentPriceProperty().removeListener(this);
+            stock.purchasePriceProperty().removeListener(this);
+            stock.symbolProperty().removeListener(this);
+            stock.sectorProperty().removeListener(this);
+        }
+    }
+
+    private final ObservableList<Stock> stocks;
+    private final Map<Stock, Entry> entries = new IdentityHashMap<>();
+    private final Map<String, Total> bySymbol = new HashMap<>();
+    private final Map<String, Total> bySector = new HashMap<>();
+    private final Set<String> changedSymbols = new HashSet<>();
+    private double total;
+    private boolean changed = true;
+    private long holdingsVersion;
+
+    private final ListChangeListener<Stock> listListener = change -> {
+        while (change.next()) {
+            if (change.wasPermutated()) continue;
+            for (Stock removed : change.getRemoved()) {
+                Entry entry = entries.remove(removed);
+                if (entry != null) {
+                    entry.remove();
+                    entry.detach();
+                }
+            }
+            for (Stock added : change.getAddedSubList()) {
+                entries.computeIfAbsent(added, Entry::new);
+            }
+        }
+        changed = true;
+        holdingsVersion++;
+    };
+
+    public AllocationTracker(ObservableList<Stock> stocks) {
+        this.stocks = stocks;
+        for (Stock stock : stocks) {
+            entries.computeIfAbsent(stock, Entry::new);
+        }
+        stocks.addListener(listListener);
+    }
+
+    private static double marketValue(Stock stock) {
+        return stock.getShares() * stock.getCurrentPrice();
+    }
+
+    private static double cost(Stock stock) {
+        return stock.getShares() * stock.getPurchasePrice();
+    }
+
+    private static void shift(Map<String, Total> totals, String key, double value, double cost, int holdings) {
+        Total t = totals.computeIfAbsent(key, k -> new Total());
+        t.value += value;
+        t.cost += cost;
+        t.holdings += holdings;
+        // Drop empty groups rather than keep a rounding residue around
+        if (t.holdings == 0) {
+            totals.remove(key);
+        }
+    }
+
+    /**
+     * @return Whether anything changed since the last call
+     */
+    public boolean takeChanged() {
+        boolean was = changed;
+        changed = false;
+        return was;
+    }
+
+    /**
+     * Symbols whose value or cost changed since the last call; the caller owns the returned set
+     */
+    public Set<String> takeChangedSymbols() {
+        Set<String> symbols = new HashSet<>(changedSymbols);
+        changedSymbols.clear();
+        return symbols;
+    }
+
+    /**
+     * Moves when holdings are added, removed or change shares, symbol or sector, but not on price changes
+     */
+    public long getHoldingsVersion() {
+        return holdingsVersion;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Market value per symbol or sector; the caller owns the returned map
+     */
+    public Map<String, Double> values(Grouping grouping) {
+        Map<String, Total> totals = grouping == Grouping.SECTOR ? bySector : bySymbol;
+        Map<String, Double> values = new HashMap<>(totals.size() * 2);
+        for (Map.Entry<String, Total> group : totals.entrySet()) {
+            values.put(group.getKey(), group.getValue().value);
+        }
+        return values;
+    }
+
+    /**
+     * @return The group's current totals, or null if nothing is held in it
+     */
+    public Slice slice(Grouping grouping, String name) {
+        Total t = (grouping == Grouping.SECTOR ? bySector : bySymbol).get(name);
+        return t == null ? null : new Slice(name, t.value, t.cost, t.holdings);
+    }
+
+    /**
+     * Largest groups by market value, largest first, with the rest folded into one OTHER slice
+     * @param maxSlices Most slices returned, OTHER included
+     */
+    public List<Slice> slices(Grouping grouping, int maxSlices) {
+        Map<String, Total> totals = grouping == Grouping.SECTOR ? bySector : bySymbol;
+        int keep = totals.size() <= maxSlices ? maxSlices : Math.max(maxSlices - 1, 1);
+
+        // Smallest of the kept groups on top, so each group costs log(keep)
+        Comparator<Map.Entry<String, Total>> byValue = Comparator.comparingDouble(e -> e.getValue().value);
+        PriorityQueue<Map.Entry<String, Total>> largest = new PriorityQueue<>(Math.min(keep, totals.size()) + 1, byValue);
+        double otherValue = 0;
+        double otherCost = 0;
+        int otherHoldings = 0;
+        for (Map.Entry<String, Total> group : totals.entrySet()) {
+            if (group.getValue().value <= 0) continue;
+            largest.add(group);
+            if (largest.size() > keep) {
+                Map.Entry<String, Total> smallest = largest.poll();
+                otherValue += smallest.getValue().value;
+                otherCost += smallest.getValue().cost;
+                otherHoldings += smallest.getValue().holdings;
+            }
+        }
+
+        List<Slice> slices = new ArrayList<>(largest.size() + 1);
+        while (!largest.isEmpty()) {
+            Map.Entry<String, Total> group = largest.poll();
+            slices.add(new Slice(group.getKey(), group.getValue().value, group.getValue().cost, group.getValue().holdings));
+        }
+        Collections.reverse(slices);
+        if (otherHoldings > 0) {
+            slices.add(new Slice(OTHER, otherValue, otherCost, otherHoldings));
+        }
+        return slices;
+    }
+
+    @Override
+    public void close() {
+        stocks.removeListener(listListener);
+        for (Entry entry : entries.values()) {
+            entry.detach();
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,478 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.database.DatabaseConnection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AppExecutors - The one place the application gets threads from
+ *
+ * Blocking calls run on virtual threads, one per task:
+ *   http()  Yahoo and other HTTP requests, at most HTTP_PERMITS in flight
+ *   jdbc()  PostgreSQL work, at most JDBC_PERMITS at a time so a burst of tasks
+ *           cannot pile onto the database; each task borrows its own connection
+ *           from DatabaseConnection's pool, which is larger than JDBC_PERMITS
+ *   io()    Other blocking work (kdb+ sockets, files), unlimited
+ * A task waiting for a permit parks its virtual thread and holds nothing else.
+ * CPU-bound work that splits into parallel pieces (the covariance update) runs
+ * on compute(), a ForkJoinPool with a platform thread per spare core.
+ *
+ * Timers run on TIMER_THREADS platform threads and only hand work to a pool,
+ * so a slow call never delays another timer. Work owned by a window goes
+ * through a TaskGroup, which cancels it when the window closes; fan-out work
+ * that must finish together goes through a Scope. shutdown() stops everything
+ * when the application exits.
+ */
+public final class AppExecutors {
+
+    private static final int TIMER_THREADS = 2;
+    private static final int HTTP_PERMITS = 8;
+    // One pooled connection per jdbc task, leaving two for the FX thread's writes and the change feed's resync
+    private static final int JDBC_PERMITS = DatabaseConnection.POOL_SIZE - 2;
+    // How long closing a Scope waits for cancelled subtasks to finish
+    private static final long SCOPE_CLOSE_SECONDS = 5;
+
+    private static AppExecutors instance;
+
+    private final ExecutorService virtualThreads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("app-vt-", 0).factory());
+    private final ScheduledThreadPoolExecutor timers;
+    private final Pool http = new Pool("http", HTTP_PERMITS);
+    private final Pool jdbc = new Pool("jdbc", JDBC_PERMITS);
+    private final Pool io = new Pool("io", 0);
+    private final ForkJoinPool compute;
+    private volatile boolean shutdown;
+
+    private AppExecutors() {
+        AtomicInteger timerThreads = new AtomicInteger();
+        timers = new ScheduledThreadPoolExecutor(TIMER_THREADS, r -> {
+            Thread t = new Thread(r, "app-timer-" + timerThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Cancelled timers leave the queue straight away, so the queue size stays honest
+        timers.setRemoveOnCancelPolicy(true);
+        // Leave a core for the FX thread
+        AtomicInteger computeThreads = new AtomicInteger();
+        compute = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("app-compute-" + computeThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors();
+        }
+        return instance;
+    }
+
+    public Pool http() {
+        return http;
+    }
+
+    public Pool jdbc() {
+        return jdbc;
+    }
+
+    public Pool io() {
+        return io;
+    }
+
+    public ForkJoinPool compute() {
+        return compute;
+    }
+
+    /**
+     * New group for the work of one window; close it when the window closes
+     */
+    public TaskGroup newGroup(String name) {
+        return new TaskGroup(name);
+    }
+
+    /**
+     * New fan-out scope whose subtasks run on the given pool
+     */
+    public Scope openScope(Pool pool) {
+        return new Scope(pool);
+    }
+
+    /**
+     * Stop the timers and interrupt every running task, then log the final counts
+     */
+    public void shutdown() {
+        if (shutdown) return;
+        shutdown = true;
+        timers.shutdownNow();
+        compute.shutdownNow();
+        virtualThreads.shutdownNow();
+        try {
+            if (!virtualThreads.awaitTermination(2, TimeUnit.SECONDS)) {
+                System.err.println("✗ Some background tasks were still running at exit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("✓ Executors stopped: " + describe());
+    }
+
+    // --- Metrics ---
+
+    /** Timers waiting for their next run */
+    public int getScheduledTimers() {
+        return timers.getQueue().size();
+    }
+
+    /** Platform threads in the JVM (virtual threads are counted by the pools) */
+    public int getPlatformThreads() {
+        return threads().getThreadCount();
+    }
+
+    public int getPeakPlatformThreads() {
+        return threads().getPeakThreadCount();
+    }
+
+    private static ThreadMXBean threads() {
+        return ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * One line with every pool, the timer queue and the platform thread count
+     */
+    public String describe() {
+        return http + "; " + jdbc + "; " + io + "; compute " + compute.getParallelism() + " threads, "
+                + compute.getStealCount() + " steals; timers " + getScheduledTimers()
+                + " queued; platform threads " + getPlatformThreads() + " (peak " + getPeakPlatformThreads() + ")";
+    }
+
+    /**
+     * Virtual-thread-per-task executor, optionally limited to a number of running tasks
+     */
+    public final class Pool implements Executor {
+        private final String name;
+        private final Semaphore permits;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        /**
+         * @param limit Most tasks running at once, or 0 for no limit
+         */
+        private Pool(String name, int limit) {
+            this.name = name;
+            this.permits = limit > 0 ? new Semaphore(limit) : null;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (shutdown) {
+                throw new RejectedExecutionException(name + " executor is shut down");
+            }
+            submitted.increment();
+            virtualThreads.execute(() -> run(task));
+        }
+
+        private void run(Runnable task) {
+            if (permits != null) {
+                waiting.incrementAndGet();
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // Shut down before it could start
+                    failed.increment();
+                    return;
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            running.incrementAndGet();
+            try {
+                task.run();
+                completed.increment();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                running.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSubmitted() {
+            return submitted.sum();
+        }
+
+        public int getRunning() {
+            return running.get();
+        }
+
+        /** Tasks waiting for a permit */
+        public int getWaiting() {
+            return waiting.get();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + getRunning() + " running, " + getWaiting() + " waiting, "
+                    + getCompleted() + " done, " + getFailed() + " failed";
+        }
+    }
+
+    /**
+     * Tasks and timers owned by one window
+     * close() cancels the timers and interrupts whatever is still running, so
+     * nothing keeps polling after the window is gone.
+     */
+    public final class TaskGroup implements AutoCloseable {
+        private final String name;
+        private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        private TaskGroup(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Run a task on the pool; failures are logged, since nobody may be waiting on the future
+         */
+        public Future<?> submit(Pool pool, Runnable task) {
+            if (closed) {
+                throw new RejectedExecutionException(name + " is closed");
+            }
+            FutureTask<Void> future = new FutureTask<>(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error in " + name + ": " + e.getMessage());
+                    throw e;
+                }
+            }, null) {
+                @Override
+                protected void done() {
+                    tasks.remove(this);
+                }
+            };
+            track(future);
+            pool.execute(future);
+            return future;
+        }
+
+        /**
+         * Run a task on the pool every period; a run still going when the next is
+         * due makes the timer skip that tick rather than queue behind it
+         */
+        public ScheduledFuture<?> scheduleAtFixedRate(Pool pool, Runnable task, long initialDelay, long period, TimeUnit unit) {
+            if (closed) {
+                throw new RejectedExecutionException(name + " is closed");
+            }
+            AtomicBoolean busy = new AtomicBoolean();
+            ScheduledFuture<?> timer = timers.scheduleAtFixedRate(() -> {
+                if (closed || !busy.compareAndSet(false, true)) return;
+                try {
+                    submit(pool, () -> {
+                        try {
+                            task.run();
+                        } finally {
+                            busy.set(false);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    busy.set(false);
+                }
+            }, initialDelay, period, unit);
+            track(timer);
+            return timer;
+        }
+
+        private void track(Future<?> future) {
+            tasks.add(future);
+            // Lost a race with close()
+            if (closed) {
+                future.cancel(true);
+            }
+        }
+
+        public int getActiveTasks() {
+            return tasks.size();
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            tasks.clear();
+        }
+    }
+
+    /**
+     * Fan-out scope: fork subtasks, join them, and never leave one running behind
+     * Modelled on StructuredTaskScope.ShutdownOnFailure, which is still a preview
+     * API in Java 21. The first failure, or the deadline passing, cancels the
+     * remaining subtasks; close() cancels whatever is left and waits for it to stop.
+     *
+     *   try (AppExecutors.Scope scope = executors.openScope(executors.http())) {
+     *       Future<Double> a = scope.fork(() -> ...);
+     *       scope.join(Duration.ofSeconds(30));
+     *       scope.throwIfFailed();
+     *       a.resultNow() ...
+     *   }
+     */
+    public final class Scope implements AutoCloseable {
+        private final Pool pool;
+        private final List<FutureTask<?>> forks = new ArrayList<>();
+        private final LinkedBlockingQueue<FutureTask<?>> finished = new LinkedBlockingQueue<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition idle = lock.newCondition();
+        private int active;
+        private int joined;
+
+        private Scope(Pool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Start a subtask; call from the thread that owns the scope, before join()
+         */
+        public <T> Future<T> fork(Callable<T> task) {
+            FutureTask<T> future = new FutureTask<>(task) {
+                @Override
+                protected void done() {
+                    finished.add(this);
+                }
+            };
+            forks.add(future);
+            changeActive(1);
+            try {
+                pool.execute(() -> {
+                    try {
+                        future.run();
+                    } finally {
+                        changeActive(-1);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                changeActive(-1);
+                future.cancel(false);
+                throw e;
+            }
+            return future;
+        }
+
+        /**
+         * Wait until every subtask has finished or one has failed
+         * @throws TimeoutException The timeout passed first; unfinished subtasks were cancelled
+         */
+        public void join(Duration timeout) throws InterruptedException, TimeoutException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (joined < forks.size()) {
+                FutureTask<?> next = finished.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    cancelAll();
+                    throw new TimeoutException((forks.size() - joined) + " of " + forks.size() + " subtasks unfinished");
+                }
+                joined++;
+                if (next.state() == Future.State.FAILED) {
+                    cancelAll();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Rethrow the first subtask failure, if any
+         */
+        public void throwIfFailed() throws ExecutionException {
+            for (FutureTask<?> fork : forks) {
+                if (fork.state() == Future.State.FAILED) {
+                    throw new ExecutionException(fork.exceptionNow());
+                }
+            }
+        }
+
+        private void cancelAll() {
+            for (FutureTask<?> fork : forks) {
+                fork.cancel(true);
+            }
+        }
+
+        private void changeActive(int delta) {
+            lock.lock();
+            try {
+                active += delta;
+                if (active == 0) {
+                    idle.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+            lock.lock();
+            try {
+                long nanos = TimeUnit.SECONDS.toNanos(SCOPE_CLOSE_SECONDS);
+                while (active > 0) {
+                    if (nanos <= 0) {
+                        System.err.println("✗ " + active + " " + pool.getName() + " subtasks ignored cancellation");
+                        return;
+                    }
+                    nanos = idle.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
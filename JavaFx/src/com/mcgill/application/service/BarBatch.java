@@ -0,0 +1,124 @@
+package com.mcgill.application.service;
+
+import com.kx.c;
+
+import java.util.Arrays;
+
+/**
+ * BarBatch - OHLCV bars as columns, ordered by bucket then symbol (result of .api.bars)
+ * Row i is the bar of getSymbols()[i] for the bucket starting at getBuckets()[i].
+ * Immutable; range() and concat() copy.
+ */
+public final class BarBatch {
+
+    // q's xbar aligns buckets to its own epoch, 2000-01-01, not to 1970
+    static final long Q_EPOCH_MILLIS = 946_684_800_000L;
+
+    public static final BarBatch EMPTY = new BarBatch(new long[0], new String[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0], new long[0]);
+
+    private final long[] buckets;
+    private final String[] symbols;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    private final long[] ticks;
+
+    BarBatch(long[] buckets, String[] symbols, double[] open, double[] high, double[] low,
+             double[] close, double[] volume, long[] ticks) {
+        this.buckets = buckets;
+        this.symbols = symbols;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.ticks = ticks;
+    }
+
+    static BarBatch decode(Object result) {
+        c.Flip table = KdbTables.flip(result);
+        return new BarBatch(KdbTables.column(table, "bucket", long[].class),
+                KdbTables.column(table, "sym", String[].class),
+                KdbTables.column(table, "open", double[].class),
+                KdbTables.column(table, "high", double[].class),
+                KdbTables.column(table, "low", double[].class),
+                KdbTables.column(table, "close", double[].class),
+                KdbTables.column(table, "volume", double[].class),
+                KdbTables.column(table, "ticks", long[].class));
+    }
+
+    /**
+     * Start of the bucket holding a time, aligned the way q's xbar aligns it
+     */
+    public static long bucketStart(long timeMillis, long widthMillis) {
+        return Q_EPOCH_MILLIS + Math.floorDiv(timeMillis - Q_EPOCH_MILLIS, widthMillis) * widthMillis;
+    }
+
+    public int size() { return buckets.length; }
+    /** Bucket start of each bar, epoch millis */
+    public long[] getBuckets() { return buckets; }
+    public String[] getSymbols() { return symbols; }
+    public double[] getOpen() { return open; }
+    public double[] getHigh() { return high; }
+    public double[] getLow() { return low; }
+    public double[] getClose() { return close; }
+    public double[] getVolume() { return volume; }
+    public long[] getTicks() { return ticks; }
+
+    /**
+     * Bars whose bucket starts in [fromMillis, toMillis)
+     */
+    public BarBatch range(long fromMillis, long toMillis) {
+        int from = firstAtOrAfter(fromMillis);
+        int to = firstAtOrAfter(toMillis);
+        if (from == 0 && to == buckets.length) return this;
+        if (from >= to) return EMPTY;
+        return new BarBatch(Arrays.copyOfRange(buckets, from, to), Arrays.copyOfRange(symbols, from, to),
+                Arrays.copyOfRange(open, from, to), Arrays.copyOfRange(high, from, to),
+                Arrays.copyOfRange(low, from, to), Arrays.copyOfRange(close, from, to),
+                Arrays.copyOfRange(volume, from, to), Arrays.copyOfRange(ticks, from, to));
+    }
+
+    private int firstAtOrAfter(long bucket) {
+        int lo = 0;
+        int hi = buckets.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (buckets[mid] < bucket) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * This batch followed by a later one
+     */
+    public BarBatch concat(BarBatch later) {
+        if (later.size() == 0) return this;
+        if (size() == 0) return later;
+        return new BarBatch(concat(buckets, later.buckets), concat(symbols, later.symbols),
+                concat(open, later.open), concat(high, later.high), concat(low, later.low),
+                concat(close, later.close), concat(volume, later.volume), concat(ticks, later.ticks));
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static double[] concat(double[] a, double[] b) {
+        double[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        String[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}
@@ -0,0 +1,277 @@
+package com.mcgill.application.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BarEngine - OHLCV bars per symbol at 1 s, 1 m and 5 m, built from the tick stream
+ * Each symbol gets a slot number on its first tick; the open bar of every
+ * resolution lives in primitive arrays indexed by that slot, so a tick is three
+ * array updates with no lookup beyond the symbol map and no allocation once the
+ * slot exists. A bar completes when its symbol ticks in a later bucket, or when
+ * closeBefore() passes its end (so quiet symbols still close on time).
+ *
+ * Completed bars are appended to a per-resolution outbox that drain() hands over
+ * as a BarBatch, and can also be passed on as they close to a TickListener (one
+ * "tick" per bar at its bucket start, priced at its close and sized by its
+ * volume), which is how the real-time chart plots 1 s bars instead of ticks.
+ * Buckets are aligned like .api.bars, so these bars and the RDB's agree.
+ * Not thread-safe: confine to the thread that receives ticks.
+ */
+public class BarEngine implements KdbClientService.TickListener {
+
+    public enum Resolution {
+        SECOND(1_000), MINUTE(60_000), FIVE_MINUTES(300_000);
+
+        private final long widthMillis;
+
+        Resolution(long widthMillis) {
+            this.widthMillis = widthMillis;
+        }
+
+        public long getWidthMillis() {
+            return widthMillis;
+        }
+
+        public int getSeconds() {
+            return (int) (widthMillis / 1000);
+        }
+
+        public String label() {
+            return widthMillis < 60_000 ? getSeconds() + "s" : getSeconds() / 60 + "m";
+        }
+    }
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+    private static final int INITIAL_SYMBOLS = 64;
+    private static final int INITIAL_OUTBOX = 1024;
+    // Bucket of a slot with no open bar
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] symbols = new String[INITIAL_SYMBOLS];
+    private final OpenBars[] open = new OpenBars[RESOLUTIONS.length];
+    private final Outbox[] outboxes = new Outbox[RESOLUTIONS.length];
+    private final KdbClientService.TickListener[] closeListeners = new KdbClientService.TickListener[RESOLUTIONS.length];
+
+    public BarEngine() {
+        for (int r = 0; r < RESOLUTIONS.length; r++) {
+            open[r] = new OpenBars(INITIAL_SYMBOLS);
+            outboxes[r] = new Outbox(INITIAL_OUTBOX);
+        }
+    }
+
+    /**
+     * Pass each completed bar of a resolution on as a tick (bucket start, close, volume)
+     */
+    public void setCloseListener(Resolution resolution, KdbClientService.TickListener listener) {
+        closeListeners[resolution.ordinal()] = listener;
+    }
+
+    /**
+     * Fold one tick into the open bar of every resolution
+     * A tick older than the open bar's bucket (out of order) is folded into the open bar.
+     */
+    @Override
+    public void onTick(String symbol, double price, double size, long timeMillis) {
+        int slot = slot(symbol);
+        for (int r = 0; r < RESOLUTIONS.length; r++) {
+            OpenBars bars = open[r];
+            long bucket = BarBatch.bucketStart(timeMillis, RESOLUTIONS[r].widthMillis);
+            long current = bars.bucket[slot];
+            if (current == NONE || bucket > current) {
+                if (current != NONE) complete(r, slot);
+                bars.bucket[slot] = bucket;
+                bars.open[slot] = price;
+                bars.high[slot] = price;
+                bars.low[slot] = price;
+                bars.close[slot] = price;
+                bars.volume[slot] = size;
+                bars.ticks[slot] = 1;
+            } else {
+                if (price > bars.high[slot]) bars.high[slot] = price;
+                if (price < bars.low[slot]) bars.low[slot] = price;
+                bars.close[slot] = price;
+                bars.volume[slot] += size;
+                bars.ticks[slot]++;
+            }
+        }
+    }
+
+    /**
+     * Complete every open bar whose bucket ends at or before a time (the feed's clock)
+     */
+    public void closeBefore(long nowMillis) {
+        int count = slots.size();
+        for (int r = 0; r < RESOLUTIONS.length; r++) {
+            OpenBars bars = open[r];
+            long width = RESOLUTIONS[r].widthMillis;
+            for (int slot = 0; slot < count; slot++) {
+                long bucket = bars.bucket[slot];
+                if (bucket != NONE && bucket + width <= nowMillis) {
+                    complete(r, slot);
+                    bars.bucket[slot] = NONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand over the bars of a resolution completed since the last drain, ordered by bucket then symbol
+     */
+    public BarBatch drain(Resolution resolution) {
+        return outboxes[resolution.ordinal()].drain(symbols);
+    }
+
+    /**
+     * Bars of a resolution waiting to be drained
+     */
+    public int pending(Resolution resolution) {
+        return outboxes[resolution.ordinal()].size;
+    }
+
+    public int symbolCount() {
+        return slots.size();
+    }
+
+    private int slot(String symbol) {
+        Integer slot = slots.get(symbol);
+        if (slot != null) return slot;
+        int added = slots.size();
+        if (added == symbols.length) {
+            int capacity = added * 2;
+            symbols = Arrays.copyOf(symbols, capacity);
+            for (OpenBars bars : open) bars.grow(capacity);
+        }
+        symbols[added] = symbol;
+        slots.put(symbol, added);
+        return added;
+    }
+
+    private void complete(int r, int slot) {
+        OpenBars bars = open[r];
+        outboxes[r].add(slot, bars.bucket[slot], bars.open[slot], bars.high[slot], bars.low[slot],
+                bars.close[slot], bars.volume[slot], bars.ticks[slot]);
+        KdbClientService.TickListener listener = closeListeners[r];
+        if (listener != null) {
+            listener.onTick(symbols[slot], bars.close[slot], bars.volume[slot], bars.bucket[slot]);
+        }
+    }
+
+    /**
+     * The open bar of each slot at one resolution
+     */
+    private static final class OpenBars {
+        long[] bucket;
+        double[] open;
+        double[] high;
+        double[] low;
+        double[] close;
+        double[] volume;
+        long[] ticks;
+
+        OpenBars(int capacity) {
+            bucket = new long[capacity];
+            Arrays.fill(bucket, NONE);
+            open = new double[capacity];
+            high = new double[capacity];
+            low = new double[capacity];
+            close = new double[capacity];
+            volume = new double[capacity];
+            ticks = new long[capacity];
+        }
+
+        void grow(int capacity) {
+            int old = bucket.length;
+            bucket = Arrays.copyOf(bucket, capacity);
+            Arrays.fill(bucket, old, capacity, NONE);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+            ticks = Arrays.copyOf(ticks, capacity);
+        }
+    }
+
+    /**
+     * Completed bars of one resolution, in completion order; reused across drains
+     */
+    private static final class Outbox {
+        int size;
+        int[] slot;
+        long[] bucket;
+        double[] open;
+        double[] high;
+        double[] low;
+        double[] close;
+        double[] volume;
+        long[] ticks;
+
+        Outbox(int capacity) {
+            slot = new int[capacity];
+            bucket = new long[capacity];
+            open = new double[capacity];
+            high = new double[capacity];
+            low = new double[capacity];
+            close = new double[capacity];
+            volume = new double[capacity];
+            ticks = new long[capacity];
+        }
+
+        void add(int s, long b, double o, double h, double l, double c, double v, long n) {
+            if (size == slot.length) {
+                int capacity = size * 2;
+                slot = Arrays.copyOf(slot, capacity);
+                bucket = Arrays.copyOf(bucket, capacity);
+                open = Arrays.copyOf(open, capacity);
+                high = Arrays.copyOf(high, capacity);
+                low = Arrays.copyOf(low, capacity);
+                close = Arrays.copyOf(close, capacity);
+                volume = Arrays.copyOf(volume, capacity);
+                ticks = Arrays.copyOf(ticks, capacity);
+            }
+            slot[size] = s;
+            bucket[size] = b;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            ticks[size] = n;
+            size++;
+        }
+
+        BarBatch drain(String[] symbols) {
+            if (size == 0) return BarBatch.EMPTY;
+            // Completion order is only bucket order per symbol; sort rows like .api.bars
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> bucket[a] != bucket[b] ? Long.compare(bucket[a], bucket[b])
+                    : symbols[slot[a]].compareTo(symbols[slot[b]]));
+
+            long[] outBucket = new long[size];
+            String[] outSymbol = new String[size];
+            double[] outOpen = new double[size];
+            double[] outHigh = new double[size];
+            double[] outLow = new double[size];
+            double[] outClose = new double[size];
+            double[] outVolume = new double[size];
+            long[] outTicks = new long[size];
+            for (int i = 0; i < size; i++) {
+                int row = order[i];
+                outBucket[i] = bucket[row];
+                outSymbol[i] = symbols[slot[row]];
+                outOpen[i] = open[row];
+                outHigh[i] = high[row];
+                outLow[i] = low[row];
+                outClose[i] = close[row];
+                outVolume[i] = volume[row];
+                outTicks[i] = ticks[row];
+            }
+            size = 0;
+            return new BarBatch(outBucket, outSymbol, outOpen, outHigh, outLow, outClose, outVolume, outTicks);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.repository.BarRepository;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BarStore - Flushes completed bars from a BarEngine to PostgreSQL and the kdb+ RDB
+ * flush() drains the engine on the caller's thread (the one that feeds it
+ * ticks) and hands each non-empty batch to the jdbc pool, where it is written
+ * to price_bar in one JDBC batch and appended to the RDB's bar table. A failed
+ * write is logged and its bars dropped; the ticks they came from are still in
+ * the tick journal.
+ */
+public class BarStore {
+
+    private final BarRepository repository;
+    // Null when bars should only go to PostgreSQL
+    private final KdbClientService kdb;
+    private final AppExecutors.Pool pool;
+
+    public BarStore(BarRepository repository, KdbClientService kdb) {
+        this.repository = repository;
+        this.kdb = kdb;
+        this.pool = AppExecutors.getInstance().jdbc();
+    }
+
+    /**
+     * Drain every resolution of the engine and write what it completed since the last flush
+     */
+    public void flush(BarEngine bars) {
+        for (BarEngine.Resolution resolution : BarEngine.Resolution.values()) {
+            BarBatch batch = bars.drain(resolution);
+            if (batch.size() == 0) continue;
+            pool.execute(() -> save(resolution, batch));
+        }
+    }
+
+    /**
+     * Like flush(), but writes on the calling thread and returns once both stores have the bars
+     * (for a final flush before the kdb+ connection is closed)
+     */
+    public void flushAndWait(BarEngine bars) {
+        for (BarEngine.Resolution resolution : BarEngine.Resolution.values()) {
+            BarBatch batch = bars.drain(resolution);
+            if (batch.size() == 0) continue;
+            save(resolution, batch).join();
+        }
+    }
+
+    private CompletableFuture<Long> save(BarEngine.Resolution resolution, BarBatch batch) {
+        repository.saveBars(resolution.getSeconds(), batch);
+        if (kdb == null) return CompletableFuture.completedFuture(0L);
+        return kdb.putBars(resolution, batch).exceptionally(error -> {
+            System.err.println("✗ Failed to store " + resolution.label() + " bars in kdb+: " + error.getMessage());
+            return 0L;
+        });
+    }
+}
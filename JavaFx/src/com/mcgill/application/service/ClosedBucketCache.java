@@ -0,0 +1,82 @@
+package com.mcgill.application.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ClosedBucketCache - Aggregates from kdb+ over time buckets that can no longer change
+ * Ticks are stamped with their receive time on the RDB, so once a bucket has
+ * ended nothing more can land in it and its bars are final. Bars are kept per
+ * query (symbols and width) as one contiguous run of closed buckets that later
+ * calls extend, so a chart refreshed every second only asks kdb+ for the
+ * buckets after the run. VWAPs over intervals that have ended are kept whole.
+ * The least recently used entries are dropped beyond MAX_ENTRIES.
+ */
+final class ClosedBucketCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    /**
+     * Closed bars for buckets starting in [from, to)
+     */
+    static final class Bars {
+        final long from;
+        final long to;
+        final BarBatch bars;
+
+        Bars(long from, long to, BarBatch bars) {
+            this.from = from;
+            this.to = to;
+            this.bars = bars;
+        }
+    }
+
+    private final Map<String, Bars> bars = lruMap();
+    private final Map<String, VwapBatch> vwaps = lruMap();
+    private long hits;
+    private long misses;
+
+    private static <V> Map<String, V> lruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    synchronized Bars getBars(String key) {
+        Bars cached = bars.get(key);
+        if (cached == null) misses++;
+        else hits++;
+        return cached;
+    }
+
+    /**
+     * Record closed bars for [from, to), extending the cached run when it ends at from
+     */
+    synchronized void putBars(String key, long from, long to, BarBatch closed) {
+        if (to <= from) return;
+        Bars cached = bars.get(key);
+        if (cached != null && cached.from <= from && cached.to == from) {
+            bars.put(key, new Bars(cached.from, to, cached.bars.concat(closed)));
+        } else if (cached == null || from < cached.from || from > cached.to) {
+            bars.put(key, new Bars(from, to, closed));
+        }
+    }
+
+    synchronized VwapBatch getVwap(String key) {
+        VwapBatch cached = vwaps.get(key);
+        if (cached == null) misses++;
+        else hits++;
+        return cached;
+    }
+
+    synchronized void putVwap(String key, VwapBatch vwap) {
+        vwaps.put(key, vwap);
+    }
+
+    synchronized String describe() {
+        return String.format("%d cached, %d hits, %d misses", bars.size() + vwaps.size(), hits, misses);
+    }
+}
@@ -0,0 +1,286 @@
+package com.mcgill.application.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * CovarianceEngine - Exponentially weighted covariance of bar returns, updated as bars close
+ * Fed completed bars as ticks (bucket start, close), e.g. by a BarEngine close
+ * listener. When the first bar of a later bucket arrives, the bucket before it
+ * is complete: each symbol's log return since its previous close is taken (0
+ * for a symbol with no bar in it) and the covariance is updated in place,
+ *   C = lambda * C + (1 - lambda) * r r'
+ * (RiskMetrics, zero mean), so a bar costs O(N²) however long the history is.
+ *
+ * The lower triangle is kept packed by rows in one double[]: cell (i, j), j <= i,
+ * is at i(i+1)/2 + j, so adding a symbol appends a row. Rows are split into
+ * blocks of about equal cell count and updated in parallel on the compute pool
+ * once the matrix is big enough to be worth it. A new symbol's variance starts
+ * at zero and takes about 1 / (1 - lambda) bars to settle.
+ *
+ * Thread-safe: bars and reads may come from any thread.
+ */
+public class CovarianceEngine implements KdbClientService.TickListener {
+
+    // Decay per bar; about 33 bars of memory
+    public static final double DEFAULT_LAMBDA = 0.97;
+    // Symbols beyond this are ignored (2048 rows is about 16 MB of matrix)
+    public static final int MAX_SYMBOLS = 2048;
+
+    // Cells per block below which a block is updated on the calling thread
+    private static final int BLOCK_CELLS = 16_384;
+    private static final int INITIAL_SYMBOLS = 64;
+
+    private final double lambda;
+    private final ForkJoinPool pool;
+    private final Map<String, Integer> index = new HashMap<>();
+    private String[] symbols = new String[INITIAL_SYMBOLS];
+    private int count;
+    private double[] cov = new double[packedSize(INITIAL_SYMBOLS)];
+    private double[] lastClose = new double[INITIAL_SYMBOLS];
+    private double[] bucketClose = new double[INITIAL_SYMBOLS];
+    private double[] returns = new double[INITIAL_SYMBOLS];
+    private long bucket = Long.MIN_VALUE;
+    private long updates;
+    private boolean capReported;
+    private volatile Runnable updateListener;
+
+    public CovarianceEngine() {
+        this(DEFAULT_LAMBDA, AppExecutors.getInstance().compute());
+    }
+
+    public CovarianceEngine(double lambda, ForkJoinPool pool) {
+        if (!(lambda > 0 && lambda < 1)) {
+            throw new IllegalArgumentException("Decay must be between 0 and 1!");
+        }
+        this.lambda = lambda;
+        this.pool = pool;
+        Arrays.fill(lastClose, Double.NaN);
+        Arrays.fill(bucketClose, Double.NaN);
+    }
+
+    /**
+     * Position of cell (i, j), j <= i, in the packed lower triangle
+     */
+    public static int packedIndex(int i, int j) {
+        return i * (i + 1) / 2 + j;
+    }
+
+    private static int packedSize(int rows) {
+        return rows * (rows + 1) / 2;
+    }
+
+    /**
+     * Called on the updating thread after each completed bucket
+     */
+    public void setUpdateListener(Runnable listener) {
+        this.updateListener = listener;
+    }
+
+    /**
+     * One completed bar, as BarEngine passes it on: its close, stamped with its bucket start
+     * A bar older than the bucket being collected counts towards that bucket.
+     */
+    @Override
+    public void onTick(String symbol, double close, double volume, long bucketMillis) {
+        Runnable listener = null;
+        synchronized (this) {
+            if (bucketMillis > bucket) {
+                if (bucket != Long.MIN_VALUE && update()) {
+                    listener = updateListener;
+                }
+                bucket = bucketMillis;
+            }
+            int i = slot(symbol);
+            if (i >= 0 && close > 0) {
+                bucketClose[i] = close;
+            }
+        }
+        if (listener != null) listener.run();
+    }
+
+    private int slot(String symbol) {
+        Integer i = index.get(symbol);
+        if (i != null) return i;
+        if (count == MAX_SYMBOLS) {
+            if (!capReported) {
+                capReported = true;
+                System.err.println("✗ Covariance limited to " + MAX_SYMBOLS + " symbols; ignoring " + symbol + " and later ones");
+            }
+            return -1;
+        }
+        if (count == symbols.length) {
+            int capacity = Math.min(count * 2, MAX_SYMBOLS);
+            symbols = Arrays.copyOf(symbols, capacity);
+            cov = Arrays.copyOf(cov, packedSize(capacity));
+            lastClose = grow(lastClose, capacity);
+            bucketClose = grow(bucketClose, capacity);
+            returns = Arrays.copyOf(returns, capacity);
+        }
+        symbols[count] = symbol;
+        index.put(symbol, count);
+        return count++;
+    }
+
+    private static double[] grow(double[] values, int capacity) {
+        int old = values.length;
+        double[] grown = Arrays.copyOf(values, capacity);
+        Arrays.fill(grown, old, capacity, Double.NaN);
+        return grown;
+    }
+
+    /**
+     * Fold the collected bucket into the covariance
+     * @return false if no symbol has a previous close yet
+     */
+    private boolean update() {
+        boolean any = false;
+        for (int i = 0; i < count; i++) {
+            double close = bucketClose[i];
+            if (Double.isNaN(close)) {
+                returns[i] = 0.0;
+                continue;
+            }
+            returns[i] = Double.isNaN(lastClose[i]) ? 0.0 : Math.log(close / lastClose[i]);
+            any |= !Double.isNaN(lastClose[i]);
+            lastClose[i] = close;
+            bucketClose[i] = Double.NaN;
+        }
+        if (!any && updates == 0) return false;
+
+        RowBlock all = new RowBlock(cov, returns, lambda, 0, count);
+        if (packedSize(count) <= BLOCK_CELLS) {
+            all.compute();
+        } else {
+            pool.invoke(all);
+        }
+        updates++;
+        return true;
+    }
+
+    /**
+     * Rows [from, to) of the triangle; splits at the row that halves its cells
+     */
+    private static final class RowBlock extends RecursiveAction {
+        private final double[] cov;
+        private final double[] returns;
+        private final double lambda;
+        private final int from;
+        private final int to;
+
+        RowBlock(double[] cov, double[] returns, double lambda, int from, int to) {
+            this.cov = cov;
+            this.returns = returns;
+            this.lambda = lambda;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            long cells = (long) packedSize(to) - packedSize(from);
+            if (cells > BLOCK_CELLS && to - from > 1) {
+                double half = (packedSize(from) + (double) packedSize(to)) / 2;
+                int mid = (int) ((Math.sqrt(1 + 8 * half) - 1) / 2);
+                mid = Math.max(from + 1, Math.min(mid, to - 1));
+                invokeAll(new RowBlock(cov, returns, lambda, from, mid), new RowBlock(cov, returns, lambda, mid, to));
+                return;
+            }
+            double weight = 1 - lambda;
+            for (int i = from; i < to; i++) {
+                double ri = weight * returns[i];
+                int row = packedIndex(i, 0);
+                for (int j = 0; j <= i; j++) {
+                    cov[row + j] = lambda * cov[row + j] + ri * returns[j];
+                }
+            }
+        }
+    }
+
+    // ========== Reads ==========
+
+    /**
+     * Buckets folded in so far
+     */
+    public synchronized long getUpdates() {
+        return updates;
+    }
+
+    public synchronized int symbolCount() {
+        return count;
+    }
+
+    public synchronized boolean covers(String symbol) {
+        return index.containsKey(symbol);
+    }
+
+    /**
+     * Variance of a symbol's bar return, or NaN if it has not been seen
+     */
+    public synchronized double variance(String symbol) {
+        Integer i = index.get(symbol);
+        return i == null ? Double.NaN : cov[packedIndex(i, i)];
+    }
+
+    /**
+     * Standard deviation of a portfolio's value over one bar, w'Cw with w the exposure per symbol
+     * @param exposures Market value per symbol; symbols not covered are left out
+     * @return In the exposures' currency, or NaN if none of them is covered
+     */
+    public synchronized double portfolioSigma(Map<String, Double> exposures) {
+        double[] w = new double[count];
+        boolean any = false;
+        for (Map.Entry<String, Double> exposure : exposures.entrySet()) {
+            Integer i = index.get(exposure.getKey());
+            if (i != null) {
+                w[i] += exposure.getValue();
+                any = true;
+            }
+        }
+        if (!any || updates == 0) return Double.NaN;
+        double variance = 0.0;
+        for (int i = 0; i < count; i++) {
+            if (w[i] == 0.0) continue;
+            int row = packedIndex(i, 0);
+            double cross = 0.0;
+            for (int j = 0; j < i; j++) {
+                cross += cov[row + j] * w[j];
+            }
+            variance += w[i] * (cov[row + i] * w[i] + 2 * cross);
+        }
+        return Math.sqrt(Math.max(variance, 0.0));
+    }
+
+    /**
+     * Correlation matrix of some symbols, row-major k×k; NaN where either has no variance yet
+     */
+    public synchronized double[] correlation(String[] of) {
+        int k = of.length;
+        int[] at = new int[k];
+        for (int a = 0; a < k; a++) {
+            Integer i = index.get(of[a]);
+            at[a] = i == null ? -1 : i;
+        }
+        double[] out = new double[k * k];
+        for (int a = 0; a < k; a++) {
+            for (int b = 0; b <= a; b++) {
+                double rho = Double.NaN;
+                if (at[a] >= 0 && at[b] >= 0) {
+                    int i = Math.max(at[a], at[b]);
+                    int j = Math.min(at[a], at[b]);
+                    double vi = cov[packedIndex(i, i)];
+                    double vj = cov[packedIndex(j, j)];
+                    if (vi > 0 && vj > 0) {
+                        rho = Math.max(-1.0, Math.min(1.0, cov[packedIndex(i, j)] / Math.sqrt(vi * vj)));
+                    }
+                }
+                out[a * k + b] = rho;
+                out[b * k + a] = rho;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,239 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.export.ArrowStreamWriter;
+import com.mcgill.application.export.CsvTableWriter;
+import com.mcgill.application.export.ExportColumn;
+import com.mcgill.application.export.ExportColumn.Type;
+import com.mcgill.application.export.TableWriter;
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.model.Transaction;
+import com.mcgill.application.repository.StockRepositoryPostgreSQL;
+import com.mcgill.application.repository.TransactionRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * ExportService - Streams holdings, the ledger and recorded ticks to Arrow or CSV files
+ * Rows go from a PostgreSQL server-side cursor, or from the kdb+ quote table in
+ * chunks, straight into a TableWriter, so no data set is ever held in memory.
+ * The file is written next to the target and renamed when complete; a failed
+ * or cancelled export leaves nothing behind. Every export logs its throughput.
+ */
+public class ExportService {
+
+    public enum Dataset { HOLDINGS, TRANSACTIONS, TICKS }
+
+    public enum Format {
+        ARROW(".arrows"), CSV(".csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * Outcome of one export
+     */
+    public static final class Result {
+        private final long rows;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Result(long rows, long bytes, long elapsedMillis) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public double getMegabytesPerSecond() {
+            return bytes / (1024.0 * 1024.0) / Math.max(elapsedMillis, 1) * 1000.0;
+        }
+    }
+
+    public static final List<ExportColumn> HOLDINGS_COLUMNS = List.of(
+            new ExportColumn("id", Type.INT32),
+            new ExportColumn("symbol", Type.SYMBOL),
+            new ExportColumn("company", Type.STRING),
+            new ExportColumn("shares", Type.INT32),
+            new ExportColumn("purchase_price", Type.FLOAT64),
+            new ExportColumn("current_price", Type.FLOAT64),
+            new ExportColumn("sector", Type.SYMBOL),
+            new ExportColumn("last_refreshed", Type.TIMESTAMP));
+
+    public static final List<ExportColumn> TRANSACTION_COLUMNS = List.of(
+            new ExportColumn("id", Type.INT64),
+            new ExportColumn("txn_type", Type.SYMBOL),
+            new ExportColumn("symbol", Type.SYMBOL),
+            new ExportColumn("shares", Type.INT32),
+            new ExportColumn("price", Type.FLOAT64),
+            new ExportColumn("fees", Type.FLOAT64),
+            new ExportColumn("lot_id", Type.INT64),
+            new ExportColumn("realized_pl", Type.FLOAT64),
+            new ExportColumn("executed_at", Type.TIMESTAMP));
+
+    public static final List<ExportColumn> TICK_COLUMNS = List.of(
+            new ExportColumn("seq", Type.INT64),
+            new ExportColumn("symbol", Type.SYMBOL),
+            new ExportColumn("price", Type.FLOAT64));
+
+    private static final int FETCH_SIZE = 5000;
+    private static final int KDB_CHUNK_ROWS = 100_000;
+    // Rows between checks of the cancel flag
+    private static final int CANCEL_CHECK_ROWS = 10_000;
+
+    private final StockRepositoryPostgreSQL stocks;
+    private final TransactionRepository ledger;
+
+    public ExportService(StockRepositoryPostgreSQL stocks, TransactionRepository ledger) {
+        this.stocks = stocks;
+        this.ledger = ledger;
+    }
+
+    public static List<ExportColumn> columns(Dataset dataset) {
+        return switch (dataset) {
+            case HOLDINGS -> HOLDINGS_COLUMNS;
+            case TRANSACTIONS -> TRANSACTION_COLUMNS;
+            case TICKS -> TICK_COLUMNS;
+        };
+    }
+
+    public static TableWriter openWriter(Format format, OutputStream out, List<ExportColumn> columns) throws IOException {
+        return format == Format.ARROW ? new ArrowStreamWriter(out, columns) : new CsvTableWriter(out, columns);
+    }
+
+    /**
+     * Export a data set to a file (call from a background thread)
+     * @param cancelled Polled every few thousand rows
+     * @throws IOException if the source could not be read or the file written
+     * @throws CancellationException if cancelled
+     */
+    public Result export(Dataset dataset, Format format, Path target, BooleanSupplier cancelled) throws IOException {
+        long start = System.nanoTime();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        boolean complete = false;
+        try {
+            long rows;
+            long bytes;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16)) {
+                TableWriter writer = openWriter(format, out, columns(dataset));
+                switch (dataset) {
+                    case HOLDINGS -> writeHoldings(writer, cancelled);
+                    case TRANSACTIONS -> writeTransactions(writer, cancelled);
+                    case TICKS -> writeTicks(writer, cancelled);
+                }
+                writer.close();
+                rows = writer.getRows();
+                bytes = writer.getBytesWritten();
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            complete = true;
+
+            Result result = new Result(rows, bytes, (System.nanoTime() - start) / 1_000_000);
+            System.out.println(String.format("✓ Exported %,d %s rows to %s: %.1f MB in %.2f s (%.1f MB/s)",
+                    rows, dataset.name().toLowerCase(), target.getFileName(), bytes / (1024.0 * 1024.0),
+                    result.getElapsedMillis() / 1000.0, result.getMegabytesPerSecond()));
+            return result;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    private void writeHoldings(TableWriter writer, BooleanSupplier cancelled) throws IOException {
+        boolean read = stocks.forEachRow(FETCH_SIZE, row -> {
+            try {
+                writeHolding(writer, row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            checkCancelled(writer, cancelled);
+        });
+        if (!read) {
+            throw new IOException("Reading holdings from the database failed");
+        }
+    }
+
+    /**
+     * One holding as a row of HOLDINGS_COLUMNS
+     */
+    public static void writeHolding(TableWriter writer, HoldingRow row) throws IOException {
+        writer.writeInt(row.getId());
+        writer.writeString(row.getSymbol());
+        writer.writeString(row.getCompany());
+        writer.writeInt(row.getShares());
+        writer.writeDouble(row.getPurchasePrice());
+        writer.writeDouble(row.getCurrentPrice());
+        writer.writeString(row.getSector());
+        writer.writeTimestamp(row.getLastRefreshed());
+        writer.endRow();
+    }
+
+    private void writeTransactions(TableWriter writer, BooleanSupplier cancelled) throws IOException {
+        boolean read = ledger.forEachTransaction(FETCH_SIZE, txn -> {
+            try {
+                writer.writeLong(txn.getId());
+                writer.writeString(txn.getType().name());
+                writer.writeString(txn.getSymbol());
+                writer.writeInt(txn.getShares());
+                writer.writeDouble(txn.getPrice());
+                writer.writeDouble(txn.getFees());
+                writer.writeLong(txn.getLotId());
+                writer.writeDouble(txn.getRealizedProfitLoss());
+                writer.writeTimestamp(txn.getExecutedAt());
+                writer.endRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            checkCancelled(writer, cancelled);
+        });
+        if (!read) {
+            throw new IOException("Reading the ledger from the database failed");
+        }
+    }
+
+    private void writeTicks(TableWriter writer, BooleanSupplier cancelled) throws IOException {
+        KdbClientService kdb = new KdbClientService();
+        try {
+            kdb.connect("localhost", 5012);
+            kdb.forEachQuote(KDB_CHUNK_ROWS, (row, symbol, price) -> {
+                writer.writeLong(row);
+                writer.writeString(symbol);
+                writer.writeDouble(price);
+                writer.endRow();
+                checkCancelled(writer, cancelled);
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Reading ticks from kdb+ failed: " + e.getMessage(), e);
+        } finally {
+            kdb.close();
+        }
+    }
+
+    private static void checkCancelled(TableWriter writer, BooleanSupplier cancelled) {
+        if (writer.getRows() % CANCEL_CHECK_ROWS == 0 && cancelled.getAsBoolean()) {
+            throw new CancellationException("Export cancelled");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.mcgill.application.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IndicatorEngine - Streaming technical indicators per symbol
+ * Fed tick by tick from KdbClientService; maintains SMA, EMA, VWAP, min/max and
+ * standard deviation over a count window and a time window.
+ *
+ * Every update is O(1) and allocation-free once a symbol has been seen
+ * (see RollingWindow). Not thread-safe: confine to the thread that receives ticks.
+ */
+public class IndicatorEngine implements KdbClientService.TickListener {
+
+    public static final int DEFAULT_COUNT_WINDOW = 20;
+    public static final Duration DEFAULT_TIME_WINDOW = Duration.ofMinutes(5);
+
+    // Upper bound on ticks kept by a time window (protects memory during bursts)
+    private static final int TIME_WINDOW_CAPACITY = 4096;
+
+    private final int countWindow;
+    private final long timeWindowMillis;
+    private final double emaAlpha;
+    private final Map<String, SymbolState> states = new HashMap<>();
+
+    public IndicatorEngine() {
+        this(DEFAULT_COUNT_WINDOW, DEFAULT_TIME_WINDOW);
+    }
+
+    /**
+     * @param countWindow Ticks in the count window (also the EMA period)
+     * @param timeWindow Span of the time window
+     */
+    public IndicatorEngine(int countWindow, Duration timeWindow) {
+        if (countWindow <= 0 || timeWindow.isNegative() || timeWindow.isZero()) {
+            throw new IllegalArgumentException("Indicator windows must be greater than zero!");
+        }
+        this.countWindow = countWindow;
+        this.timeWindowMillis = timeWindow.toMillis();
+        this.emaAlpha = 2.0 / (countWindow + 1);
+    }
+
+    public int getCountWindow() {
+        return countWindow;
+    }
+
+    public Duration getTimeWindow() {
+        return Duration.ofMillis(timeWindowMillis);
+    }
+
+    /**
+     * Apply one tick to the symbol's indicators
+     */
+    @Override
+    public void onTick(String symbol, double price, double size, long timeMillis) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            state = new SymbolState(countWindow, timeWindowMillis);
+            states.put(symbol, state);
+        }
+        state.countWindow.push(timeMillis, price, size);
+        state.timeWindow.push(timeMillis, price, size);
+        state.ema = Double.isNaN(state.ema) ? price : state.ema + emaAlpha * (price - state.ema);
+        state.lastPrice = price;
+    }
+
+    /**
+     * Copy the current indicator values of a symbol into a caller-owned snapshot
+     * @return false if no tick has been seen for the symbol
+     */
+    public boolean read(String symbol, Snapshot out) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            return false;
+        }
+        out.lastPrice = state.lastPrice;
+        out.sma = state.countWindow.mean();
+        out.ema = state.ema;
+        out.stdDev = state.countWindow.stdDev();
+        out.vwap = state.timeWindow.vwap();
+        out.min = state.timeWindow.min();
+        out.max = state.timeWindow.max();
+        out.timeWindowTicks = state.timeWindow.count();
+        return true;
+    }
+
+    /**
+     * Age out time windows when no ticks arrive (e.g. a symbol goes quiet)
+     */
+    public void expire(long nowMillis) {
+        for (SymbolState state : states.values()) {
+            state.timeWindow.expire(nowMillis);
+        }
+    }
+
+    private static final class SymbolState {
+        final RollingWindow countWindow;
+        final RollingWindow timeWindow;
+        double ema = Double.NaN;
+        double lastPrice;
+
+        SymbolState(int countCapacity, long timeWindowMillis) {
+            countWindow = new RollingWindow(countCapacity, 0);
+            timeWindow = new RollingWindow(TIME_WINDOW_CAPACITY, timeWindowMillis);
+        }
+    }
+
+    /**
+     * Mutable, reusable view of one symbol's indicators
+     * SMA, EMA and standard deviation use the count window; VWAP and min/max the time window.
+     */
+    public static final class Snapshot {
+        private double lastPrice;
+        private double sma;
+        private double ema;
+        private double stdDev;
+        private double vwap;
+        private double min;
+        private double max;
+        private int timeWindowTicks;
+
+        public double getLastPrice() { return lastPrice; }
+        public double getSma() { return sma; }
+        public double getEma() { return ema; }
+        public double getStdDev() { return stdDev; }
+        public double getVwap() { return vwap; }
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public int getTimeWindowTicks() { return timeWindowTicks; }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mcgill.application.service;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * IndicatorEngineBenchmark - Per-tick cost and allocation of the indicator engine
+ * Feeds synthetic ticks (a random walk per symbol, one tick per millisecond
+ * spread round-robin over the symbols) through onTick and read, as the
+ * real-time window does, and prints ticks/s and heap bytes allocated per tick.
+ * Every symbol is seen once before timing starts, so a run only measures the
+ * steady state that should allocate nothing; a few runs let the JIT settle.
+ *
+ * Usage: IndicatorEngineBenchmark [ticks=10000000] [symbols=500] [runs=3]
+ */
+public class IndicatorEngineBenchmark {
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        String[] symbols = new String[symbolCount];
+        double[] prices = new double[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = "S" + i;
+            prices[i] = 10 + i % 490;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.printf("%,d ticks over %d symbols, windows of %d ticks and %d s, %d runs%n", ticks, symbolCount,
+                IndicatorEngine.DEFAULT_COUNT_WINDOW, IndicatorEngine.DEFAULT_TIME_WINDOW.toSeconds(), runs);
+
+        for (int run = 1; run <= runs; run++) {
+            IndicatorEngine indicators = new IndicatorEngine();
+            IndicatorEngine.Snapshot snap = new IndicatorEngine.Snapshot();
+            long time = 0;
+            for (int i = 0; i < symbolCount; i++) {
+                indicators.onTick(symbols[i], prices[i], 1.0, time++);
+            }
+
+            long seed = 42 + run;
+            double checksum = 0;
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                // xorshift, so generating the tick allocates nothing either
+                seed ^= seed << 13;
+                seed ^= seed >>> 7;
+                seed ^= seed << 17;
+                int s = i % symbolCount;
+                prices[s] *= 1 + ((seed & 0xFFFF) - 32_768) * 1e-8;
+                indicators.onTick(symbols[s], prices[s], 1 + (seed >>> 60), time++);
+                indicators.read(symbols[s], snap);
+                checksum += snap.getSma();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            System.out.printf("run %d: %.2f s (%,.0f ticks/s, %.1f ns/tick)  allocated %,d bytes (%.3f bytes/tick)  checksum %.1f%n",
+                    run, seconds, ticks / Math.max(seconds, 1e-9), seconds * 1e9 / ticks,
+                    allocated, (double) allocated / ticks, checksum);
+        }
+    }
+}
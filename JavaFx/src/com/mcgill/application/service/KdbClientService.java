@@ -2,58 +2,328 @@ package com.mcgill.application.service;
 
 import com.kx.c;
 import javafx.application.Platform;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiConsumer;
 
-public class KdbClientService {
-    private c conn;
+/**
+ * KdbClientService - Queries, quote polling and trade subscription against kdb+
+ * Queries (exec, execAsync, the quote poll and reads) share a KdbConnectionPool
+ * of QUERY_CONNECTIONS pipelined connections, so an analysis query no longer
+ * waits behind the tick poll; the trade subscription has a connection of its own.
+ *
+ * Aggregate views use the typed analytics (lastPrices, vwap, bars), which call
+ * the .api functions in kdb/api.q with arguments rather than query strings, so
+ * the RDB does the reduction and only one row per symbol (or bar) comes back,
+ * decoded straight into columnar batches. Results for buckets that have closed
+ * are cached in a ClosedBucketCache and never asked for again.
+ */
+public class KdbClientService implements TickSource {
+    private static final int QUERY_CONNECTIONS = 2;
+    // A bucket that ended this long ago is closed (allows for the RDB's clock running behind ours)
+    private static final long CLOSE_GRACE_MILLIS = 5_000;
+    private static final String[] ALL_SYMBOLS = new String[0];
+
+    private KdbConnectionPool pool;
+    private volatile c subscription;
+    private String host;
+    private int port;
+    private final ClosedBucketCache closedBuckets = new ClosedBucketCache();
+
+    // Rows of the RDB quote table already handed to listeners
+    private long quoteRowsSeen;
+    // Records every polled tick once startRecording() is called
+    private volatile TickJournal journal;
+
+    /**
+     * Receives ticks one at a time (symbol, price, traded size, receive time in epoch millis)
+     */
+    @FunctionalInterface
+    public interface TickListener {
+        void onTick(String symbol, double price, double size, long timeMillis);
+    }
+
+    /**
+     * Receives rows of the quote table with their row number
+     */
+    @FunctionalInterface
+    public interface QuoteRowListener {
+        void onRow(long row, String symbol, double price) throws IOException;
+    }
 
     public void connect(String host, int port) throws Exception {
-        conn = new c(host, port);
+        this.host = host;
+        this.port = port;
+        pool = new KdbConnectionPool(host, port);
+        pool.start(QUERY_CONNECTIONS);
     }
 
+    /**
+     * Run a q expression and wait for the result
+     */
     public Object exec(String query) throws Exception {
-        return conn.k(query);
+        try {
+            return execAsync(query).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Run a q expression without waiting; queries from any thread are pipelined over the pool
+     */
+    public CompletableFuture<Object> execAsync(String query) {
+        KdbConnectionPool queries = pool;
+        if (queries == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Not connected to kdb+"));
+        }
+        return queries.execAsync(query);
+    }
+
+    /**
+     * Call a q function by name with typed arguments; see KdbConnectionPool.callAsync
+     */
+    public CompletableFuture<Object> callAsync(String function, Object... args) {
+        KdbConnectionPool queries = pool;
+        if (queries == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Not connected to kdb+"));
+        }
+        return queries.callAsync(function, args);
+    }
+
+    // ========== Analytics pushed down to kdb+ ==========
+
+    /**
+     * Last price per symbol among ticks received at or after sinceMillis
+     * Pass the batch's maxTimeMillis() back as the next since to fetch only symbols that
+     * ticked; the last millisecond is fetched again, so a tick stamped in it is never missed.
+     * @param symbols Symbols to include, or empty for all
+     */
+    public CompletableFuture<LastPriceBatch> lastPrices(String[] symbols, long sinceMillis) {
+        return callAsync(".api.last", canonical(symbols), sinceMillis).thenApply(LastPriceBatch::decode);
+    }
+
+    /**
+     * VWAP, volume and tick count per symbol over [startMillis, endMillis)
+     * @param symbols Symbols to include, or empty for all
+     */
+    public CompletableFuture<VwapBatch> vwap(String[] symbols, long startMillis, long endMillis) {
+        String[] syms = canonical(symbols);
+        boolean closed = endMillis <= System.currentTimeMillis() - CLOSE_GRACE_MILLIS;
+        String key = String.join(",", syms) + "|" + startMillis + "|" + endMillis;
+        if (closed) {
+            VwapBatch cached = closedBuckets.getVwap(key);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+        return callAsync(".api.vwap", syms, startMillis, endMillis).thenApply(result -> {
+            VwapBatch batch = VwapBatch.decode(result);
+            if (closed) closedBuckets.putVwap(key, batch);
+            return batch;
+        });
+    }
+
+    /**
+     * OHLCV bars over [startMillis, endMillis), ordered by bucket then symbol
+     * Closed buckets come from the cache where it has them; kdb+ is asked only for the rest.
+     * @param symbols Symbols to include, or empty for all
+     * @param width Bar width; buckets are aligned as q's xbar aligns them (see BarBatch.bucketStart)
+     */
+    public CompletableFuture<BarBatch> bars(String[] symbols, long startMillis, long endMillis, Duration width) {
+        long widthMillis = width.toMillis();
+        if (widthMillis <= 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Bar width must be at least 1 ms!"));
+        }
+        String[] syms = canonical(symbols);
+        String key = String.join(",", syms) + "|" + widthMillis;
+        long start = BarBatch.bucketStart(startMillis, widthMillis);
+        // Buckets before closedTo are final and lie wholly inside the range
+        long closedTo = Math.min(BarBatch.bucketStart(System.currentTimeMillis() - CLOSE_GRACE_MILLIS, widthMillis),
+                BarBatch.bucketStart(endMillis, widthMillis));
+
+        BarBatch cachedBars = BarBatch.EMPTY;
+        long fetchFrom = start;
+        ClosedBucketCache.Bars cached = closedBuckets.getBars(key);
+        if (cached != null && cached.from <= start && cached.to > start) {
+            cachedBars = cached.bars.range(start, Math.min(cached.to, endMillis));
+            fetchFrom = cached.to;
+            if (fetchFrom >= endMillis) {
+                return CompletableFuture.completedFuture(cachedBars);
+            }
+        }
+        BarBatch prefix = cachedBars;
+        long from = fetchFrom;
+        return callAsync(".api.bars", syms, from, endMillis, widthMillis).thenApply(result -> {
+            BarBatch fetched = BarBatch.decode(result);
+            closedBuckets.putBars(key, from, closedTo, fetched.range(from, closedTo));
+            return prefix.concat(fetched);
+        });
+    }
+
+    /**
+     * Append completed bars to the RDB's bar table (see .api.putBars)
+     * @return Completes with the number of bars stored
+     */
+    public CompletableFuture<Long> putBars(BarEngine.Resolution resolution, BarBatch bars) {
+        Object[] columns = {bars.getBuckets(), bars.getSymbols(), bars.getOpen(), bars.getHigh(), bars.getLow(),
+                bars.getClose(), bars.getVolume(), bars.getTicks()};
+        return callAsync(".api.putBars", resolution.getSeconds(), columns)
+                .thenApply(result -> result instanceof Number count ? count.longValue() : (long) bars.size());
+    }
+
+    /**
+     * Sorted, without duplicates, so equal requests share cache entries
+     */
+    private static String[] canonical(String[] symbols) {
+        if (symbols == null || symbols.length == 0) return ALL_SYMBOLS;
+        return Arrays.stream(symbols).distinct().sorted().toArray(String[]::new);
+    }
+
+    /**
+     * Query latency so far, or null before connect()
+     */
+    public LatencyHistogram getQueryLatency() {
+        KdbConnectionPool queries = pool;
+        return queries == null ? null : queries.getLatency();
+    }
+
+    public int getConnectionsUp() {
+        KdbConnectionPool queries = pool;
+        return queries == null ? 0 : queries.getConnectionsUp();
+    }
+
+    public int getInFlight() {
+        KdbConnectionPool queries = pool;
+        return queries == null ? 0 : queries.getInFlight();
+    }
+
+    /**
+     * Record every tick received by pollQuotes to a new session journal, until close()
+     */
+    public void startRecording() throws IOException {
+        journal = TickJournal.openSession();
+    }
+
+    /**
+     * @return The journal being recorded, or null
+     */
+    public TickJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Fetch only the quote rows appended since the last poll and pass each to the listener,
+     * with its traded size and the RDB's receive time, as .api.bars aggregates them.
+     * @return Number of new ticks delivered
+     */
+    @Override
+    public int pollQuotes(TickListener listener) throws Exception {
+        Object obj = exec("select sym,px,size,time:.api.ms time from quote where i>=" + quoteRowsSeen);
+        if (!(obj instanceof c.Flip f)) {
+            return 0;
+        }
+        String[] sym = KdbTables.column(f, "sym", String[].class);
+        double[] px = KdbTables.column(f, "px", double[].class);
+        double[] size = KdbTables.column(f, "size", double[].class);
+        long[] time = KdbTables.column(f, "time", long[].class);
+        TickJournal recorder = journal;
+        if (recorder != null) {
+            // Journal first, so a listener that stalls cannot lose the burst that caused it
+            for (int i = 0; i < sym.length; i++) {
+                recorder.append(sym[i], px[i], size[i], time[i] * 1_000_000);
+            }
+        }
+        for (int i = 0; i < sym.length; i++) {
+            listener.onTick(sym[i], px[i], size[i], time[i]);
+        }
+        quoteRowsSeen += sym.length;
+        return sym.length;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Read the whole quote table, chunkRows rows per query, so it is never held in memory at once
+     * @return Rows read
+     */
+    public long forEachQuote(int chunkRows, QuoteRowListener listener) throws Exception {
+        long row = 0;
+        while (true) {
+            Object obj = exec("select sym,px from quote where i within " + row + " " + (row + chunkRows - 1));
+            if (!(obj instanceof c.Flip f)) {
+                return row;
+            }
+            String[] sym = (String[]) f.y[0];
+            double[] px = (double[]) f.y[1];
+            for (int i = 0; i < sym.length; i++) {
+                listener.onRow(row + i, sym[i], px[i]);
+            }
+            row += sym.length;
+            if (sym.length < chunkRows) {
+                return row;
+            }
+        }
     }
     public void subscribeTrades(BiConsumer<String, Double> onTick) {
+        c conn;
         try {
-            // register as subscriber to all trades
-            System.out.println("KDB: Subscribing to RDB...");
+            // register as subscriber to all trades, on a connection of its own
+            conn = new c(host, port);
+            subscription = conn;
             conn.k(".u.sub", "trade", new String[]{});
-            System.out.println("KDB: Subscription successful");
+            System.out.println("✓ Subscribed to kdb+ trades");
         } catch (Exception e) {
-            System.err.println("KDB: Subscription failed: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("✗ kdb+ trade subscription failed: " + e.getMessage());
+            return;
         }
 
-        Thread t = new Thread(() -> {
+        // Blocks on the socket for the life of the subscription, so it gets a virtual thread
+        AppExecutors.getInstance().io().execute(() -> {
             try {
-                System.out.println("KDB: Listening for updates...");
                 while (true) {
                     Object msg = conn.k();
-                    System.out.println("KDB: Received message type: " + msg.getClass().getName());
-                    if (msg instanceof Object[] outer && "upd".equals(outer[0].toString())) {
-                        String table = outer[1].toString();
-                        System.out.println("KDB: Update for table: " + table);
-                        if ("trade".equals(table)) {
-                            c.Flip f = (c.Flip) outer[2];
-                            String[] sym = (String[]) f.y[0];
-                            double[] px  = (double[]) f.y[2];
-                            System.out.println("KDB: Processing " + sym.length + " ticks");
+                    if (msg instanceof Object[] outer && "upd".equals(outer[0].toString())
+                            && "trade".equals(outer[1].toString())) {
+                        c.Flip f = (c.Flip) outer[2];
+                        String[] sym = (String[]) f.y[0];
+                        double[] px  = (double[]) f.y[2];
+                        // One hand-off per update message, not per tick
+                        Platform.runLater(() -> {
                             for (int i = 0; i < sym.length; i++) {
-                                final String s = sym[i]; final double p = px[i];
-                                System.out.println("KDB: " + s + " @ " + p);
-                                Platform.runLater(() -> onTick.accept(s, p));
+                                onTick.accept(sym[i], px[i]);
                             }
-                        }
+                        });
                     }
                 }
             } catch (Exception e) {
-                System.err.println("KDB: Error in listener: " + e.getMessage());
-                e.printStackTrace();
+                // close() ends the subscription by closing its socket
+                if (subscription == conn) {
+                    System.err.println("✗ kdb+ trade subscription lost: " + e.getMessage());
+                }
             }
-        }, "kdb-sub");
-        t.setDaemon(true);
-        t.start();
+        });
+    }
+    @Override
+    public void close() {
+        TickJournal recorder = journal;
+        journal = null;
+        if (recorder != null) recorder.close();
+        KdbConnectionPool queries = pool;
+        if (queries != null) {
+            queries.close();
+            if (queries.getLatency().getCount() > 0) {
+                System.out.println("✓ kdb+ " + queries.getLatency().describe("queries")
+                        + ", closed buckets: " + closedBuckets.describe());
+            }
+        }
+        c subscribed = subscription;
+        subscription = null;
+        try { if (subscribed != null) subscribed.close(); } catch (Exception ignored) {}
     }
-    public void close() { try { if (conn != null) conn.close(); } catch (Exception ignored) {} }
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package com.mcgill.application.service;
+
+import com.kx.c;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KdbConnectionPool - Pipelined, self-healing query connections to one kdb+ process
+ * The kx client's k() is synchronous and a connection can only run one call at
+ * a time, so sharing one made every query wait for the one before. Instead each
+ * query (a q string, or a function name and its arguments) is sent
+ * asynchronously with a correlation id, wrapped in a lambda that evaluates it
+ * on the server and sends back (`kdbReply; id; result), or (`kdbErr; id;
+ * message) if it failed. One reader thread per connection
+ * completes the matching future, so any number of queries can be in flight on
+ * a connection at once, and the server answers them in order.
+ *
+ * Each query goes to the connection with the fewest outstanding. A connection
+ * whose socket fails, or that misses a health check, fails its outstanding
+ * queries and reconnects in the background with exponential backoff (plus
+ * jitter, so a restarted server is not hit by every client at once). Query
+ * latency, send to reply, is kept in a histogram.
+ */
+public class KdbConnectionPool implements AutoCloseable {
+
+    // Runs the query on the server and answers asynchronously on the same handle
+    private static final String REPLY_LAMBDA =
+            "{[id;q] neg[.z.w] @[{(`kdbReply;x;value y)}[id];q;{(`kdbErr;x;y)}[id]]}";
+    private static final String REPLY = "kdbReply";
+    private static final String ERROR = "kdbErr";
+
+    private static final long QUERY_TIMEOUT_SECONDS = 60;
+    private static final long HEALTH_CHECK_SECONDS = 5;
+    private static final long HEALTH_CHECK_TIMEOUT_SECONDS = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final String host;
+    private final int port;
+    private final List<Connection> connections = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AppExecutors.TaskGroup tasks = AppExecutors.getInstance().newGroup("kdb+ pool");
+    private volatile boolean closed;
+
+    /**
+     * One query connection; replaced in place when it reconnects
+     */
+    private final class Connection {
+        final int index;
+        final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+        final Object sendLock = new Object();
+        volatile c conn;
+        volatile boolean up;
+        // Bumped on every reconnect so a stale reader cannot take down its successor
+        volatile int generation;
+
+        Connection(int index) {
+            this.index = index;
+        }
+    }
+
+    private static final class Pending {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final long sentAt = System.nanoTime();
+        final boolean timed;
+
+        Pending(boolean timed) {
+            this.timed = timed;
+        }
+    }
+
+    public KdbConnectionPool(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Open the connections; ones that fail keep retrying in the background
+     * @throws IOException if none could be opened
+     */
+    public void start(int size) throws IOException {
+        Exception lastError = null;
+        for (int i = 0; i < size; i++) {
+            Connection connection = new Connection(i);
+            connections.add(connection);
+            try {
+                open(connection);
+            } catch (Exception e) {
+                lastError = e;
+                AppExecutors.getInstance().io().execute(() -> reconnect(connection));
+            }
+        }
+        if (getConnectionsUp() == 0) {
+            close();
+            throw new IOException("Cannot connect to kdb+ at " + host + ":" + port + ": "
+                    + (lastError == null ? "no connections" : lastError.getMessage()), lastError);
+        }
+        tasks.scheduleAtFixedRate(AppExecutors.getInstance().io(), this::checkHealth,
+                HEALTH_CHECK_SECONDS, HEALTH_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void open(Connection connection) throws Exception {
+        c conn = new c(host, port);
+        int generation = connection.generation + 1;
+        connection.conn = conn;
+        connection.generation = generation;
+        connection.up = true;
+        // c.k() reads inside synchronized blocks, which would pin a virtual thread's
+        // carrier for as long as the socket is idle, so readers get platform threads
+        Thread.ofPlatform().daemon().name("kdb-reader-" + connection.index)
+                .start(() -> read(connection, conn, generation));
+    }
+
+    // ========== Queries ==========
+
+    /**
+     * Run a q expression on the least busy connection
+     * @return Completes with the result, or exceptionally with c.KException for a q error,
+     *         IOException if the connection was lost, or TimeoutException
+     */
+    public CompletableFuture<Object> execAsync(String query) {
+        return sendToLeastBusy(query.toCharArray());
+    }
+
+    /**
+     * Call a q function by name with typed arguments instead of building a query string
+     * (Java arrays arrive as q vectors, String as a symbol); completes as execAsync does
+     */
+    public CompletableFuture<Object> callAsync(String function, Object... args) {
+        Object[] call = new Object[args.length + 1];
+        call[0] = function;
+        System.arraycopy(args, 0, call, 1, args.length);
+        return sendToLeastBusy(call);
+    }
+
+    /**
+     * @param request q string (char[]) to evaluate, or (function name; args...) to apply
+     */
+    private CompletableFuture<Object> sendToLeastBusy(Object request) {
+        Connection best = null;
+        for (Connection connection : connections) {
+            if (connection.up && (best == null || connection.pending.size() < best.pending.size())) {
+                best = connection;
+            }
+        }
+        if (best == null) {
+            return CompletableFuture.failedFuture(new IOException(closed
+                    ? "kdb+ pool is closed" : "No kdb+ connection to " + host + ":" + port));
+        }
+        return send(best, request, true);
+    }
+
+    private CompletableFuture<Object> send(Connection connection, Object request, boolean timed) {
+        long id = nextId.incrementAndGet();
+        Pending pending = new Pending(timed);
+        connection.pending.put(id, pending);
+        try {
+            synchronized (connection.sendLock) {
+                connection.conn.ks(REPLY_LAMBDA, id, request);
+            }
+        } catch (IOException | RuntimeException e) {
+            connection.pending.remove(id);
+            pending.future.completeExceptionally(e);
+            lost(connection, connection.generation, e);
+            return pending.future;
+        }
+        long timeout = timed ? QUERY_TIMEOUT_SECONDS : HEALTH_CHECK_TIMEOUT_SECONDS;
+        return pending.future.orTimeout(timeout, TimeUnit.SECONDS)
+                .whenComplete((result, error) -> connection.pending.remove(id));
+    }
+
+    private void read(Connection connection, c conn, int generation) {
+        try {
+            while (!closed && connection.generation == generation) {
+                Object message = conn.k();
+                if (!(message instanceof Object[] reply) || reply.length != 3 || !(reply[1] instanceof Long id)) {
+                    continue;
+                }
+                Pending request = connection.pending.remove(id);
+                if (request == null) {
+                    // Timed out before the reply came
+                    continue;
+                }
+                if (request.timed) {
+                    latency.record(System.nanoTime() - request.sentAt);
+                }
+                if (ERROR.equals(reply[0])) {
+                    request.future.completeExceptionally(new c.KException(toText(reply[2])));
+                } else if (REPLY.equals(reply[0])) {
+                    request.future.complete(reply[2]);
+                }
+            }
+        } catch (Exception e) {
+            lost(connection, generation, e);
+        }
+    }
+
+    private static String toText(Object value) {
+        return value instanceof char[] chars ? new String(chars) : String.valueOf(value);
+    }
+
+    // ========== Health and reconnect ==========
+
+    private void checkHealth() {
+        for (Connection connection : connections) {
+            if (!connection.up) continue;
+            int generation = connection.generation;
+            try {
+                send(connection, "1b".toCharArray(), false).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                lost(connection, generation, e.getCause() instanceof TimeoutException
+                        ? new TimeoutException("no reply to health check in " + HEALTH_CHECK_TIMEOUT_SECONDS + " s")
+                        : e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Take a failed connection down, fail what it still owed, and start reconnecting
+     */
+    private void lost(Connection connection, int generation, Throwable cause) {
+        synchronized (connection) {
+            if (!connection.up || connection.generation != generation) return;
+            connection.up = false;
+        }
+        closeQuietly(connection.conn);
+        IOException error = new IOException("kdb+ connection lost: " + cause.getMessage(), cause);
+        for (Long id : connection.pending.keySet()) {
+            Pending request = connection.pending.remove(id);
+            if (request != null) {
+                request.future.completeExceptionally(error);
+            }
+        }
+        if (closed) return;
+        System.err.println("✗ kdb+ connection " + connection.index + " lost: " + cause.getMessage());
+        AppExecutors.getInstance().io().execute(() -> reconnect(connection));
+    }
+
+    private void reconnect(Connection connection) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; !closed; attempt++) {
+            try {
+                // Up to 20% jitter either way
+                long jitter = (long) (backoff * 0.2 * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+                Thread.sleep(backoff + jitter);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                synchronized (connection) {
+                    // close() takes the lock after setting closed, so nothing is opened behind it
+                    if (closed) return;
+                    open(connection);
+                }
+                System.out.println("✓ kdb+ connection " + connection.index + " to " + host + ":" + port
+                        + " restored after " + attempt + (attempt == 1 ? " attempt" : " attempts"));
+                return;
+            } catch (Exception e) {
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private static void closeQuietly(c conn) {
+        try {
+            if (conn != null) conn.close();
+        } catch (Exception ignored) {}
+    }
+
+    // ========== Status ==========
+
+    public int getConnectionsUp() {
+        int up = 0;
+        for (Connection connection : connections) {
+            if (connection.up) up++;
+        }
+        return up;
+    }
+
+    public int getInFlight() {
+        int inFlight = 0;
+        for (Connection connection : connections) {
+            inFlight += connection.pending.size();
+        }
+        return inFlight;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public String describe() {
+        return getConnectionsUp() + "/" + connections.size() + " connections up, " + getInFlight()
+                + " in flight, " + latency.describe("queries");
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        tasks.close();
+        for (Connection connection : connections) {
+            lost(connection, connection.generation, new IOException("pool closed"));
+            closeQuietly(connection.conn);
+        }
+    }
+}
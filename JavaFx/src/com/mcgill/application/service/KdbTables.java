@@ -0,0 +1,36 @@
+package com.mcgill.application.service;
+
+import com.kx.c;
+
+/**
+ * KdbTables - Column access on q tables returned by the .api functions
+ */
+final class KdbTables {
+
+    private KdbTables() {
+    }
+
+    static c.Flip flip(Object result) {
+        if (result instanceof c.Flip f) {
+            return f;
+        }
+        throw new IllegalArgumentException("Expected a q table, got "
+                + (result == null ? "nothing" : result.getClass().getSimpleName()));
+    }
+
+    /**
+     * @return The named column, as the primitive array (or String[] for symbols) the client decoded
+     */
+    static <T> T column(c.Flip table, String name, Class<T> type) {
+        for (int i = 0; i < table.x.length; i++) {
+            if (table.x[i].equals(name)) {
+                if (!type.isInstance(table.y[i])) {
+                    throw new IllegalArgumentException("Column " + name + " is " + table.y[i].getClass().getSimpleName()
+                            + ", expected " + type.getSimpleName());
+                }
+                return type.cast(table.y[i]);
+            }
+        }
+        throw new IllegalArgumentException("No column " + name + " in q result");
+    }
+}
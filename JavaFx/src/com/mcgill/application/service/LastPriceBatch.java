@@ -0,0 +1,41 @@
+package com.mcgill.application.service;
+
+import com.kx.c;
+
+/**
+ * LastPriceBatch - Last price per symbol, as columns (result of .api.last)
+ */
+public final class LastPriceBatch {
+
+    private final String[] symbols;
+    private final double[] prices;
+    private final long[] timesMillis;
+
+    LastPriceBatch(String[] symbols, double[] prices, long[] timesMillis) {
+        this.symbols = symbols;
+        this.prices = prices;
+        this.timesMillis = timesMillis;
+    }
+
+    static LastPriceBatch decode(Object result) {
+        c.Flip table = KdbTables.flip(result);
+        return new LastPriceBatch(KdbTables.column(table, "sym", String[].class),
+                KdbTables.column(table, "px", double[].class),
+                KdbTables.column(table, "time", long[].class));
+    }
+
+    public int size() { return symbols.length; }
+    public String[] getSymbols() { return symbols; }
+    public double[] getPrices() { return prices; }
+    /** Receive time of each symbol's last tick, epoch millis (server clock) */
+    public long[] getTimesMillis() { return timesMillis; }
+
+    /**
+     * Latest receive time in the batch, or the given default when empty
+     */
+    public long maxTimeMillis(long ifEmpty) {
+        long max = ifEmpty;
+        for (long t : timesMillis) max = Math.max(max, t);
+        return max;
+    }
+}
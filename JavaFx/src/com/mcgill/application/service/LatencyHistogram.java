@@ -0,0 +1,87 @@
+package com.mcgill.application.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram - Lock-free latency percentiles with about 3% precision
+ * Durations are counted in microsecond buckets: exact below 64 µs, then 32
+ * buckets per power of two, so a few thousand counters cover a microsecond to
+ * hours. Safe to record from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Powers of two above the linear range, up to 2^40 µs (about 12 days)
+    private static final int OCTAVES = 40 - 6 + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR_BUCKETS + OCTAVES * SUB_BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        counts.incrementAndGet(bucket(micros));
+        total.incrementAndGet();
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int bucket(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= 6 + OCTAVES) {
+            return LINEAR_BUCKETS + OCTAVES * SUB_BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Largest value a bucket holds, in microseconds
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 6;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * @param p Fraction of samples at or below the result, e.g. 0.99
+     * @return Latency in microseconds, or 0 before the first sample
+     */
+    public long percentileMicros(double p) {
+        long count = total.get();
+        if (count == 0) return 0;
+        if (p >= 1.0) return maxMicros.get();
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * e.g. "1,204 queries  p50 0.41 ms  p90 0.90 ms  p99 3.10 ms  max 12.00 ms"
+     */
+    public String describe(String what) {
+        return String.format("%,d %s  p50 %.2f ms  p90 %.2f ms  p99 %.2f ms  max %.2f ms", getCount(), what,
+                percentileMicros(0.50) / 1000.0, percentileMicros(0.90) / 1000.0,
+                percentileMicros(0.99) / 1000.0, percentileMicros(1.0) / 1000.0);
+    }
+}
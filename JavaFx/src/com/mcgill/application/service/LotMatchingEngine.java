@@ -0,0 +1,180 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.TaxLot;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LotMatchingEngine - In-memory tax lots per holding
+ * Lots belong to a portfolio row, not a symbol, so two holdings of one symbol never
+ * draw on each other's shares or cost.
+ * Each holding keeps its open lots in acquisition order in a deque, so FIFO takes
+ * from the front and LIFO from the back; specific-ID goes through a lot index.
+ * A sell therefore costs O(lots consumed). It is planned first and applied only
+ * once it has been recorded, so a failed write leaves the lots as they were.
+ * Lots emptied by specific-ID sells stay in the deque and are dropped lazily
+ * when they reach an end.
+ */
+public class LotMatchingEngine {
+
+    public enum Method {
+        FIFO, LIFO, SPECIFIC_ID
+    }
+
+    /**
+     * Shares taken from one lot by a sell
+     */
+    public static final class Fill {
+        private final long lotId;
+        private final int shares;
+        private final double costPrice;
+
+        Fill(long lotId, int shares, double costPrice) {
+            this.lotId = lotId;
+            this.shares = shares;
+            this.costPrice = costPrice;
+        }
+
+        public long getLotId() { return lotId; }
+        public int getShares() { return shares; }
+        public double getCostPrice() { return costPrice; }
+    }
+
+    private static final class LotQueue {
+        final ArrayDeque<TaxLot> lots = new ArrayDeque<>();
+        int openShares;
+        double openCost;
+    }
+
+    private final Map<Integer, LotQueue> queues = new HashMap<>();
+    private final Map<Long, TaxLot> lotsById = new HashMap<>();
+
+    /**
+     * Add a newly bought (or reloaded) lot; lots must arrive in acquisition order
+     */
+    public void addLot(TaxLot lot) {
+        if (lot.getOpenShares() <= 0) return;
+        LotQueue queue = queues.computeIfAbsent(lot.getHoldingId(), k -> new LotQueue());
+        queue.lots.addLast(lot);
+        queue.openShares += lot.getOpenShares();
+        queue.openCost += lot.getOpenShares() * lot.getCostPrice();
+        lotsById.put(lot.getLotId(), lot);
+    }
+
+    /**
+     * Swap a holding's lots for a fresh read of them (after another instance traded it)
+     */
+    public void replaceLots(int holdingId, List<TaxLot> open) {
+        LotQueue queue = queues.remove(holdingId);
+        if (queue != null) {
+            for (TaxLot lot : queue.lots) {
+                lotsById.remove(lot.getLotId());
+            }
+        }
+        for (TaxLot lot : open) {
+            addLot(lot);
+        }
+    }
+
+    public boolean hasLots(int holdingId) {
+        return getOpenShares(holdingId) > 0;
+    }
+
+    public int getOpenShares(int holdingId) {
+        LotQueue queue = queues.get(holdingId);
+        return queue == null ? 0 : queue.openShares;
+    }
+
+    /**
+     * Weighted average cost of the open lots (0 when nothing is open)
+     */
+    public double getAverageCost(int holdingId) {
+        LotQueue queue = queues.get(holdingId);
+        return queue == null || queue.openShares == 0 ? 0.0 : queue.openCost / queue.openShares;
+    }
+
+    public TaxLot getLot(long lotId) {
+        return lotsById.get(lotId);
+    }
+
+    /**
+     * Open lots of a holding in acquisition order
+     */
+    public List<TaxLot> getOpenLots(int holdingId) {
+        List<TaxLot> open = new ArrayList<>();
+        LotQueue queue = queues.get(holdingId);
+        if (queue != null) {
+            for (TaxLot lot : queue.lots) {
+                if (lot.getOpenShares() > 0) open.add(lot);
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Work out which lots a sell would consume, without changing them
+     * Pass the fills to apply() once the sell is recorded.
+     * @param lotId Lot to sell from when method is SPECIFIC_ID (ignored otherwise)
+     * @throws IllegalArgumentException if the lots cannot cover the sell
+     */
+    public List<Fill> plan(int holdingId, int shares, Method method, long lotId) {
+        LotQueue queue = queues.get(holdingId);
+        if (queue == null || shares > queue.openShares) {
+            throw new IllegalArgumentException("Not enough open lots for holding #" + holdingId);
+        }
+
+        List<Fill> fills = new ArrayList<>();
+        if (method == Method.SPECIFIC_ID) {
+            TaxLot lot = lotsById.get(lotId);
+            if (lot == null || lot.getHoldingId() != holdingId || shares > lot.getOpenShares()) {
+                throw new IllegalArgumentException("Lot #" + lotId + " cannot cover " + shares + " shares");
+            }
+            fills.add(new Fill(lot.getLotId(), shares, lot.getCostPrice()));
+            return fills;
+        }
+
+        int remaining = shares;
+        Iterator<TaxLot> lots = method == Method.FIFO ? queue.lots.iterator() : queue.lots.descendingIterator();
+        while (remaining > 0) {
+            TaxLot lot = lots.next();
+            // Lots emptied earlier by a specific-ID sell are skipped
+            int qty = Math.min(remaining, lot.getOpenShares());
+            if (qty == 0) continue;
+            fills.add(new Fill(lot.getLotId(), qty, lot.getCostPrice()));
+            remaining -= qty;
+        }
+        return fills;
+    }
+
+    /**
+     * Consume the planned fills from the holding's lots
+     */
+    public void apply(int holdingId, List<Fill> fills) {
+        LotQueue queue = queues.get(holdingId);
+        for (Fill fill : fills) {
+            take(queue, lotsById.get(fill.getLotId()), fill.getShares());
+        }
+        while (!queue.lots.isEmpty() && queue.lots.peekFirst().getOpenShares() == 0) {
+            queue.lots.pollFirst();
+        }
+        while (!queue.lots.isEmpty() && queue.lots.peekLast().getOpenShares() == 0) {
+            queue.lots.pollLast();
+        }
+    }
+
+    private void take(LotQueue queue, TaxLot lot, int qty) {
+        lot.setOpenShares(lot.getOpenShares() - qty);
+        queue.openShares -= qty;
+        queue.openCost -= qty * lot.getCostPrice();
+        if (queue.openShares == 0) {
+            queue.openCost = 0.0;
+        }
+        if (lot.getOpenShares() == 0) {
+            lotsById.remove(lot.getLotId());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mcgill.application.service;
+
+/**
+ * Lttb - Largest-Triangle-Three-Buckets downsampling of a time series
+ * Keeps the first and last point and, from each of threshold - 2 equal buckets in
+ * between, the point forming the largest triangle with the point kept before it and
+ * the average of the next bucket. Peaks and troughs survive, so a line drawn from
+ * the result looks like the full series at a fraction of the points.
+ *
+ * Works on ring buffers in place: logical index i lives at slot (first + i) & mask.
+ */
+final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * @param count     Points in the series, from logical index 0
+     * @param threshold Points wanted; fewer than 3 or at least count copies the series
+     *                  (as much of it as fits in the output arrays)
+     * @return Points written to outTimes / outPrices
+     */
+    static int downsample(long[] times, double[] prices, int mask, long first, int count,
+                          int threshold, double[] outTimes, double[] outPrices) {
+        threshold = Math.min(threshold, outTimes.length);
+        if (threshold >= count || threshold < 3) {
+            int n = Math.min(count, outTimes.length);
+            for (int i = 0; i < n; i++) {
+                int slot = (int) ((first + i) & mask);
+                outTimes[i] = times[slot];
+                outPrices[i] = prices[slot];
+            }
+            return n;
+        }
+
+        // Times relative to the first point keep the triangle areas well inside double precision
+        long origin = times[(int) (first & mask)];
+        double every = (double) (count - 2) / (threshold - 2);
+        int kept = 0;
+        double ax = 0;
+        double ay = prices[(int) (first & mask)];
+        outTimes[kept] = origin;
+        outPrices[kept++] = ay;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket (the last point for the final bucket)
+            int avgFrom = (int) ((bucket + 1) * every) + 1;
+            int avgTo = Math.min((int) ((bucket + 2) * every) + 1, count);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = avgFrom; i < avgTo; i++) {
+                int slot = (int) ((first + i) & mask);
+                avgX += times[slot] - origin;
+                avgY += prices[slot];
+            }
+            int avgCount = avgTo - avgFrom;
+            avgX /= avgCount;
+            avgY /= avgCount;
+
+            // Point of this bucket with the largest triangle (a, point, average)
+            int from = (int) (bucket * every) + 1;
+            int to = (int) ((bucket + 1) * every) + 1;
+            double maxArea = -1;
+            int next = from;
+            for (int i = from; i < to; i++) {
+                int slot = (int) ((first + i) & mask);
+                double area = Math.abs((ax - avgX) * (prices[slot] - ay)
+                        - (ax - (times[slot] - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            int slot = (int) ((first + next) & mask);
+            ax = times[slot] - origin;
+            ay = prices[slot];
+            outTimes[kept] = times[slot];
+            outPrices[kept++] = ay;
+        }
+
+        int last = (int) ((first + count - 1) & mask);
+        outTimes[kept] = times[last];
+        outPrices[kept++] = prices[last];
+        return kept;
+    }
+}
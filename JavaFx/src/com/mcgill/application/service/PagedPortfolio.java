@@ -0,0 +1,212 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.PortfolioQuery;
+import com.mcgill.application.model.Stock;
+import com.mcgill.application.repository.PortfolioPageRepository;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * PagedPortfolio - Read-only list of holdings backed by pages of PostgreSQL rows
+ * Its size is the number of matching rows, but only the pages around what the
+ * table has asked for recently are held (at most MAX_CACHED_PAGES, least recently
+ * used evicted first), so memory does not grow with the book. A row whose page is
+ * not loaded yet reads as a placeholder; the page is fetched in the background,
+ * together with its neighbours, and the table is told which rows changed.
+ *
+ * Every method must be called on the FX thread. Rows are not kept live: the pages
+ * show the book as it was when they were read, and query() starts over.
+ * A failed count or page is reported once to the error listener and not fetched
+ * again until the next query(), so retrying is query(getQuery()).
+ */
+public class PagedPortfolio extends ObservableListBase<Stock> implements AutoCloseable {
+
+    public static final int PAGE_SIZE = 100;
+    static final int MAX_CACHED_PAGES = 40;
+    // Queued fetches further than this from the page last read are dropped (fast scrolling)
+    private static final int MAX_FETCH_DISTANCE = 3;
+
+    private static final Stock LOADING = new Stock(0, "…", "", 0, 0, 0, "");
+
+    private final PortfolioPageRepository repository;
+    private final Executor fxThread;
+    private final ExecutorService fetcher;
+    private final Map<Integer, PortfolioPageRepository.Page> pages =
+            new LinkedHashMap<>(MAX_CACHED_PAGES * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, PortfolioPageRepository.Page> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+    private final Set<Integer> inFlight = new HashSet<>();
+
+    private PortfolioQuery query = PortfolioQuery.all();
+    private int size;
+    // Bumped by every query() so that answers to an older query are thrown away
+    private volatile int generation;
+    private volatile int focusPage;
+    private Consumer<String> onError = message -> { };
+    private boolean errorReported;
+
+    /**
+     * @param fxThread Runs results on the FX thread (Platform::runLater)
+     */
+    public PagedPortfolio(Executor fxThread) {
+        this.repository = new PortfolioPageRepository();
+        this.fxThread = fxThread;
+        this.fetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "portfolio-pages");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * True for the stand-in row shown while a page is loading
+     */
+    public static boolean isLoading(Stock stock) {
+        return stock == LOADING;
+    }
+
+    /**
+     * @param onError Told (on the FX thread) when the current query's count or a page could not be read
+     */
+    public void setOnError(Consumer<String> onError) {
+        this.onError = onError;
+    }
+
+    /**
+     * Page through the holdings matching a filter, in a server-side sort order
+     */
+    public void query(PortfolioQuery query) {
+        int gen = ++generation;
+        this.query = query;
+        pages.clear();
+        inFlight.clear();
+        errorReported = false;
+        focusPage = 0;
+        resize(0);
+
+        CompletableFuture.supplyAsync(() -> {
+            int total = repository.count(query);
+            if (total < 0) throw new IllegalStateException("Could not count the matching holdings");
+            return total;
+        }, fetcher).whenComplete((total, error) -> fxThread.execute(() -> {
+            if (gen != generation) return;
+            if (error != null) {
+                failed(error);
+            } else {
+                resize(total);
+            }
+        }));
+    }
+
+    public PortfolioQuery getQuery() {
+        return query;
+    }
+
+    @Override
+    public Stock get(int index) {
+        Objects.checkIndex(index, size);
+        int page = index / PAGE_SIZE;
+        focusPage = page;
+        PortfolioPageRepository.Page loaded = pages.get(page);
+        request(page);
+        request(page + 1);
+        request(page - 1);
+        if (loaded == null) return LOADING;
+        int row = index % PAGE_SIZE;
+        return row < loaded.getRows().size() ? loaded.getRows().get(row) : LOADING;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void resize(int newSize) {
+        if (newSize == size) return;
+        beginChange();
+        if (size > 0) {
+            nextRemove(0, Collections.nCopies(size, LOADING));
+        }
+        size = newSize;
+        if (newSize > 0) {
+            nextAdd(0, newSize);
+        }
+        endChange();
+    }
+
+    private void request(int page) {
+        if (page < 0 || page * PAGE_SIZE >= size) return;
+        if (pages.containsKey(page) || !inFlight.add(page)) return;
+
+        // Seek from a loaded neighbour when there is one, the database only needs the key
+        PortfolioPageRepository.Page previous = pages.get(page - 1);
+        PortfolioPageRepository.Page next = pages.get(page + 1);
+        PortfolioQuery q = query;
+        int gen = generation;
+
+        CompletableFuture.supplyAsync(() -> {
+            // Superseded or scrolled past: null drops the page from inFlight without loading it
+            if (gen != generation || Math.abs(page - focusPage) > MAX_FETCH_DISTANCE) return null;
+            PortfolioPageRepository.Page result;
+            if (previous != null && previous.getLast() != null) {
+                result = repository.findAfter(q, previous.getLast(), PAGE_SIZE);
+            } else if (next != null && next.getFirst() != null) {
+                result = repository.findBefore(q, next.getFirst(), PAGE_SIZE);
+            } else {
+                result = repository.findAt(q, page * PAGE_SIZE, PAGE_SIZE);
+            }
+            if (result == null) throw new IllegalStateException("Could not load holdings " + (page * PAGE_SIZE + 1) + "+");
+            return result;
+        }, fetcher).whenComplete((result, error) -> fxThread.execute(() -> loaded(gen, page, result, error)));
+    }
+
+    private void loaded(int gen, int page, PortfolioPageRepository.Page result, Throwable error) {
+        if (gen != generation) return;
+        if (error != null) {
+            // A failed page stays in flight, so it is not retried until the next query()
+            failed(error);
+            return;
+        }
+        inFlight.remove(page);
+        if (result == null) return;
+        pages.put(page, result);
+
+        int from = page * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, size);
+        if (from >= to) return;
+        beginChange();
+        for (int i = from; i < to; i++) {
+            nextSet(i, LOADING);
+        }
+        endChange();
+    }
+
+    private void failed(Throwable error) {
+        if (errorReported) return;
+        errorReported = true;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        onError.accept(cause.getMessage());
+    }
+
+    @Override
+    public void close() {
+        generation++;
+        fetcher.shutdownNow();
+    }
+}
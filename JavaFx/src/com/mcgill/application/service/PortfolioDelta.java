@@ -0,0 +1,146 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.HoldingRow;
+import com.mcgill.application.model.Stock;
+import com.mcgill.application.model.TaxLot;
+import com.mcgill.application.repository.StockRepositoryPostgreSQL;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * PortfolioDelta - Rows to insert, update and delete to bring a local copy of
+ * the portfolio in line with PostgreSQL
+ * Built off the FX thread, either by comparing a streamed read with the local copy
+ * or from the repository's row-version changes; StockService applies it to the
+ * visible list so that only the rows that differ are touched.
+ */
+public class PortfolioDelta {
+
+    // Prices are DECIMAL(10,2) in the database, local averages are not rounded
+    private static final double PRICE_TOLERANCE = 0.005;
+
+    // Rows to overwrite by id, or to append when the id is not shown yet
+    private final List<Stock> upserted = new ArrayList<>();
+    private final Set<Integer> deletedIds = new HashSet<>();
+    // Fresh open lots of holdings whose shares changed, by holding id
+    private final Map<Integer, List<TaxLot>> lots = new HashMap<>();
+    private long version = -1;
+
+    /**
+     * Compare the local holdings with database rows fed in one at a time, matching on id
+     * Only the rows that differ are kept, so the database side is never held in full.
+     */
+    public static Reconciler reconcile(Collection<Stock> local) {
+        return new Reconciler(local);
+    }
+
+    public static final class Reconciler implements Consumer<HoldingRow> {
+        private final Map<Integer, Stock> unmatched;
+        private final PortfolioDelta delta = new PortfolioDelta();
+
+        private Reconciler(Collection<Stock> local) {
+            unmatched = new HashMap<>(local.size() * 2);
+            for (Stock stock : local) {
+                unmatched.put(stock.getId(), stock);
+            }
+        }
+
+        @Override
+        public void accept(HoldingRow row) {
+            Stock mine = unmatched.remove(row.getId());
+            if (mine == null || !sameHolding(mine, row)) {
+                delta.upserted.add(row.toStock());
+            }
+        }
+
+        /**
+         * The delta, once every database row has been accepted; local holdings not seen are deleted
+         */
+        public PortfolioDelta finish() {
+            delta.deletedIds.addAll(unmatched.keySet());
+            unmatched.clear();
+            return delta;
+        }
+    }
+
+    /**
+     * Wrap the rows changed since a known row version
+     */
+    public static PortfolioDelta of(StockRepositoryPostgreSQL.Changes changes) {
+        PortfolioDelta delta = new PortfolioDelta();
+        delta.upserted.addAll(changes.getUpserted());
+        delta.deletedIds.addAll(changes.getDeletedIds());
+        delta.version = changes.getVersion();
+        return delta;
+    }
+
+    static boolean sameHolding(Stock a, HoldingRow b) {
+        return Objects.equals(a.getSymbol(), b.getSymbol())
+                && Objects.equals(a.getCompany(), b.getCompany())
+                && Objects.equals(a.getSector(), b.getSector())
+                && a.getShares() == b.getShares()
+                && Math.abs(a.getPurchasePrice() - b.getPurchasePrice()) < PRICE_TOLERANCE
+                && Math.abs(a.getCurrentPrice() - b.getCurrentPrice()) < PRICE_TOLERANCE
+                && sameTime(a.getLastRefreshed(), b.getLastRefreshed());
+    }
+
+    // The database keeps microseconds, the snapshot milliseconds
+    private static boolean sameTime(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) return a == b;
+        return Math.abs(java.time.Duration.between(a, b).toMillis()) < 1;
+    }
+
+    /**
+     * Copy the database values of a row onto the visible stock
+     */
+    static void copyInto(Stock target, Stock row) {
+        target.setSymbol(row.getSymbol());
+        target.setCompany(row.getCompany());
+        target.setSector(row.getSector());
+        target.setShares(row.getShares());
+        target.setPurchasePrice(row.getPurchasePrice());
+        target.setCurrentPrice(row.getCurrentPrice());
+        target.setLastRefreshed(row.getLastRefreshed());
+    }
+
+    public List<Stock> getUpserted() { return upserted; }
+    public Set<Integer> getDeletedIds() { return deletedIds; }
+    public Map<Integer, List<TaxLot>> getLots() { return lots; }
+
+    /**
+     * Attach the open lots read for some holdings (a holding without any gets an empty list)
+     */
+    void putLots(Collection<Integer> holdingIds, List<TaxLot> open) {
+        for (int id : holdingIds) {
+            lots.put(id, new ArrayList<>());
+        }
+        for (TaxLot lot : open) {
+            lots.get(lot.getHoldingId()).add(lot);
+        }
+    }
+
+    /** Row version this delta brings the copy up to, or -1 if unknown */
+    public long getVersion() { return version; }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isEmpty() {
+        return upserted.isEmpty() && deletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return upserted.size() + " changed, " + deletedIds.size() + " deleted";
+    }
+}
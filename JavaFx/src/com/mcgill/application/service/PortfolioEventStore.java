@@ -0,0 +1,586 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.Stock;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * PortfolioEventStore - Local event-sourced copy of the portfolio
+ * Every add, sell, price change and fee is appended to a compact binary event log;
+ * every SNAPSHOT_INTERVAL events the current state is written to a binary snapshot
+ * and the log is started over. Startup reads the snapshot and replays only the
+ * events after it, so cold start does not grow with history and does not touch
+ * PostgreSQL.
+ *
+ * Event record: [int length][byte type, long seq, long epochMillis, payload][int crc32]
+ * Snapshot:     [int magic][short version][long savedAtMillis][long lastSeq][long dbVersion]
+ *               [double realizedPL][int count][holdings...][int crc32]
+ * A snapshot of another version is ignored and the holdings are loaded from PostgreSQL.
+ * dbVersion is the portfolio row_version the holdings were last synced to. The snapshot is written
+ * after every price refresh and read through a memory mapping, so startup costs
+ * one checksum pass over the file and no copying.
+ *
+ * The directory is shared by every instance the user runs, so a store holds a
+ * lock on it until close(); a store that cannot take the lock keeps its state
+ * in memory only and neither reads nor writes the files.
+ */
+public class PortfolioEventStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x4D435046; // "MCPF"
+    private static final short SNAPSHOT_VERSION = 3;
+    private static final int SNAPSHOT_HEADER_BYTES = 4 + 2 + 8 + 8 + 8 + 8 + 4;
+    private static final int MIN_SNAPSHOT_BYTES = SNAPSHOT_HEADER_BYTES + 4;
+    private static final int SNAPSHOT_INTERVAL = 1000;
+    private static final int MAX_EVENT_BYTES = 4096;
+
+    private static final byte EVENT_ADD = 1;
+    private static final byte EVENT_SELL = 2;
+    private static final byte EVENT_PRICE = 3;
+    private static final byte EVENT_FEE = 4;
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    // State rebuilt from snapshot + log; keyed by stock id in insertion order
+    private final Map<Integer, Holding> holdings = new LinkedHashMap<>();
+    private double realizedProfitLoss;
+    private long lastSeq;
+    private long databaseVersion;
+    private int eventsSinceSnapshot;
+    private DataOutputStream log;
+
+    /**
+     * Plain copy of one portfolio row
+     */
+    static final class Holding {
+        int id;
+        String symbol;
+        String company;
+        String sector;
+        int shares;
+        double purchasePrice;
+        double currentPrice;
+        long refreshedAtMillis = -1;
+    }
+
+    public PortfolioEventStore() {
+        this(Path.of(System.getProperty("user.home"), ".mcgill-portfolio"));
+    }
+
+    public PortfolioEventStore(Path directory) {
+        this.logFile = directory.resolve("events.log");
+        this.snapshotFile = directory.resolve("snapshot.bin");
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve("store.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by another store in this JVM
+        } catch (IOException e) {
+            System.err.println("✗ Cannot lock event store directory: " + e.getMessage());
+        }
+        if (lock == null) {
+            System.err.println("✗ Portfolio event store is in use by another instance; running without a local snapshot");
+            closeLock();
+        }
+    }
+
+    /**
+     * Load the latest snapshot and replay the events after it
+     * A log without a readable snapshot is not trusted, since it only holds a tail.
+     * @return true if local state was restored (false means the caller should bootstrap)
+     */
+    public synchronized boolean recover() {
+        if (lock == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        if (!readSnapshot()) {
+            return false;
+        }
+        int replayed = replayLog();
+
+        System.out.printf("✓ Event store: %d holdings (snapshot + %d events) in %.1f ms%n",
+                holdings.size(), replayed, (System.nanoTime() - start) / 1e6);
+        if (replayed > 0) {
+            snapshot();
+        }
+        return true;
+    }
+
+    /**
+     * Seed the store from the database the first time the app runs with it
+     */
+    public synchronized void bootstrap(List<Stock> stocks, double realized) {
+        holdings.clear();
+        for (Stock stock : stocks) {
+            holdings.put(stock.getId(), toHolding(stock));
+        }
+        realizedProfitLoss = realized;
+        snapshot();
+    }
+
+    public synchronized List<Stock> getStocks() {
+        List<Stock> stocks = new ArrayList<>(holdings.size());
+        for (Holding h : holdings.values()) {
+            Stock stock = new Stock(h.id, h.symbol, h.company, h.shares, h.purchasePrice, h.currentPrice, h.sector);
+            if (h.refreshedAtMillis >= 0) {
+                stock.setLastRefreshed(toDateTime(h.refreshedAtMillis));
+            }
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    /**
+     * Portfolio row_version the holdings are synced to (0 = unknown, reconcile in full)
+     */
+    public synchronized long getDatabaseVersion() {
+        return databaseVersion;
+    }
+
+    /**
+     * Remember the synced row_version; it is saved with the next snapshot
+     */
+    public synchronized void setDatabaseVersion(long version) {
+        databaseVersion = version;
+    }
+
+    /**
+     * Record rows changed in the database by other writers
+     * Upserts are logged as ADD events (which replace a holding by id) and
+     * deletions as sells of every share with no realised P/L.
+     */
+    public synchronized void recordRemoteChanges(List<Stock> upserted, Collection<Integer> deletedIds) {
+        for (Stock stock : upserted) {
+            recordAdd(stock);
+        }
+        for (int id : deletedIds) {
+            if (holdings.containsKey(id)) {
+                recordSell(id, 0, 0.0, 0.0);
+            }
+        }
+    }
+
+    /**
+     * Shares of a holding as last recorded, or -1 if it is not held
+     */
+    public synchronized int getShares(int id) {
+        Holding h = holdings.get(id);
+        return h == null ? -1 : h.shares;
+    }
+
+    public synchronized double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+
+    public synchronized void recordAdd(Stock stock) {
+        Holding h = toHolding(stock);
+        append(EVENT_ADD, out -> writeHolding(out, h));
+        holdings.put(h.id, h);
+    }
+
+    /**
+     * A sale; the holding disappears when remainingShares reaches zero
+     */
+    public synchronized void recordSell(int id, int remainingShares, double purchasePrice, double realized) {
+        append(EVENT_SELL, out -> {
+            out.writeInt(id);
+            out.writeInt(remainingShares);
+            out.writeDouble(purchasePrice);
+            out.writeDouble(realized);
+        });
+        applySell(id, remainingShares, purchasePrice, realized);
+    }
+
+    public synchronized void recordPrice(int id, double price, LocalDateTime refreshedAt) {
+        long millis = refreshedAt == null ? -1 : toMillis(refreshedAt);
+        append(EVENT_PRICE, out -> {
+            out.writeInt(id);
+            out.writeDouble(price);
+            out.writeLong(millis);
+        });
+        applyPrice(id, price, millis);
+    }
+
+    public synchronized void recordFee(double amount) {
+        append(EVENT_FEE, out -> out.writeDouble(amount));
+        realizedProfitLoss -= amount;
+    }
+
+    /**
+     * Write the current state to the snapshot file and start a fresh event log
+     * The file is built in one direct buffer, forced to disk, then moved into place.
+     */
+    public synchronized void snapshot() {
+        if (lock == null) {
+            return;
+        }
+        try {
+            int size = SNAPSHOT_HEADER_BYTES + 4;
+            for (Holding h : holdings.values()) {
+                size += holdingBytes(h);
+            }
+            ByteBuffer out = ByteBuffer.allocateDirect(size);
+            out.putInt(SNAPSHOT_MAGIC);
+            out.putShort(SNAPSHOT_VERSION);
+            out.putLong(System.currentTimeMillis());
+            out.putLong(lastSeq);
+            out.putLong(databaseVersion);
+            out.putDouble(realizedProfitLoss);
+            out.putInt(holdings.size());
+            for (Holding h : holdings.values()) {
+                putHolding(out, h);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(out.duplicate().flip());
+            out.putInt((int) crc.getValue());
+            out.flip();
+
+            Path tmp = snapshotFile.resolveSibling("snapshot.tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (out.hasRemaining()) {
+                    ch.write(out);
+                }
+                ch.force(true);
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            closeLog();
+            Files.write(logFile, new byte[0]);
+            eventsSinceSnapshot = 0;
+        } catch (IOException e) {
+            System.err.println("✗ Failed to write portfolio snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Close the log and release the directory; later changes are kept in memory only
+     */
+    public synchronized void close() {
+        closeLog();
+        closeLock();
+    }
+
+    private void closeLock() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("✗ Failed to release event store lock: " + e.getMessage());
+        }
+        lock = null;
+        lockChannel = null;
+    }
+
+    // ========== Event log ==========
+
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Payload payload) {
+        if (lock == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(type);
+            out.writeLong(lastSeq + 1);
+            out.writeLong(System.currentTimeMillis());
+            payload.write(out);
+            byte[] bytes = body.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            DataOutputStream log = openLog();
+            log.writeInt(bytes.length);
+            log.write(bytes);
+            log.writeInt((int) crc.getValue());
+            log.flush();
+            lastSeq++;
+        } catch (IOException e) {
+            System.err.println("✗ Failed to append portfolio event: " + e.getMessage());
+            return;
+        }
+        if (++eventsSinceSnapshot >= SNAPSHOT_INTERVAL) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Apply events newer than the snapshot; stops at (and cuts off) a torn or corrupt tail
+     */
+    private int replayLog() {
+        if (!Files.exists(logFile)) return 0;
+        int replayed = 0;
+        long goodBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException eof) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_EVENT_BYTES) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                int expected = in.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != expected) {
+                    break;
+                }
+                if (applyEvent(ByteBuffer.wrap(body))) {
+                    replayed++;
+                }
+                goodBytes += 8 + length;
+            }
+        } catch (EOFException torn) {
+            // partial record at the end of the file: keep what was good
+        } catch (IOException e) {
+            System.err.println("✗ Failed to replay portfolio events: " + e.getMessage());
+        }
+
+        try (FileChannel ch = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+            if (ch.size() > goodBytes) {
+                System.err.println("✗ Event log had a corrupt tail; truncating to " + goodBytes + " bytes");
+                ch.truncate(goodBytes);
+            }
+        } catch (IOException e) {
+            System.err.println("✗ Failed to truncate event log: " + e.getMessage());
+        }
+        eventsSinceSnapshot = replayed;
+        return replayed;
+    }
+
+    private boolean applyEvent(ByteBuffer in) {
+        byte type = in.get();
+        long seq = in.getLong();
+        in.getLong(); // event time (kept for auditing)
+        if (seq <= lastSeq) {
+            return false; // already part of the snapshot
+        }
+        lastSeq = seq;
+        switch (type) {
+            case EVENT_ADD -> {
+                Holding h = readHolding(in);
+                holdings.put(h.id, h);
+            }
+            case EVENT_SELL -> applySell(in.getInt(), in.getInt(), in.getDouble(), in.getDouble());
+            case EVENT_PRICE -> applyPrice(in.getInt(), in.getDouble(), in.getLong());
+            case EVENT_FEE -> realizedProfitLoss -= in.getDouble();
+            default -> System.err.println("✗ Unknown portfolio event type " + type);
+        }
+        return true;
+    }
+
+    private void applySell(int id, int remainingShares, double purchasePrice, double realized) {
+        realizedProfitLoss += realized;
+        if (remainingShares == 0) {
+            holdings.remove(id);
+            return;
+        }
+        Holding h = holdings.get(id);
+        if (h != null) {
+            h.shares = remainingShares;
+            h.purchasePrice = purchasePrice;
+        }
+    }
+
+    private void applyPrice(int id, double price, long refreshedAtMillis) {
+        Holding h = holdings.get(id);
+        if (h != null) {
+            h.currentPrice = price;
+            h.refreshedAtMillis = refreshedAtMillis;
+        }
+    }
+
+    private DataOutputStream openLog() throws IOException {
+        if (log == null) {
+            log = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(logFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+        return log;
+    }
+
+    private void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException ignored) {
+        }
+        log = null;
+    }
+
+    // ========== Snapshot ==========
+
+    private boolean readSnapshot() {
+        if (!Files.exists(snapshotFile)) return false;
+        try (FileChannel ch = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < MIN_SNAPSHOT_BYTES || size > Integer.MAX_VALUE) {
+                System.err.println("✗ Ignoring unreadable portfolio snapshot");
+                return false;
+            }
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - 4;
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().limit(end));
+            int magic = in.getInt();
+            short version = in.getShort();
+            if (magic != SNAPSHOT_MAGIC || version != SNAPSHOT_VERSION
+                    || in.getInt(end) != (int) crc.getValue()) {
+                System.err.println("✗ Ignoring unreadable portfolio snapshot");
+                return false;
+            }
+            long savedAt = in.getLong();
+            System.out.printf("✓ Portfolio snapshot is %d s old%n", (System.currentTimeMillis() - savedAt) / 1000);
+            lastSeq = in.getLong();
+            databaseVersion = in.getLong();
+            realizedProfitLoss = in.getDouble();
+            int count = in.getInt();
+            holdings.clear();
+            for (int i = 0; i < count; i++) {
+                Holding h = readHolding(in);
+                holdings.put(h.id, h);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("✗ Failed to read portfolio snapshot: " + e.getMessage());
+            holdings.clear();
+            lastSeq = 0;
+            databaseVersion = 0;
+            realizedProfitLoss = 0.0;
+            return false;
+        }
+    }
+
+    // ========== Encoding ==========
+
+    private static void writeHolding(DataOutputStream out, Holding h) throws IOException {
+        out.writeInt(h.id);
+        writeUtf(out, h.symbol);
+        writeUtf(out, h.company);
+        writeUtf(out, h.sector);
+        out.writeInt(h.shares);
+        out.writeDouble(h.purchasePrice);
+        out.writeDouble(h.currentPrice);
+        out.writeLong(h.refreshedAtMillis);
+    }
+
+    private static void putHolding(ByteBuffer out, Holding h) {
+        out.putInt(h.id);
+        putUtf(out, h.symbol);
+        putUtf(out, h.company);
+        putUtf(out, h.sector);
+        out.putInt(h.shares);
+        out.putDouble(h.purchasePrice);
+        out.putDouble(h.currentPrice);
+        out.putLong(h.refreshedAtMillis);
+    }
+
+    private static int holdingBytes(Holding h) {
+        return 4 + utfBytes(h.symbol) + utfBytes(h.company) + utfBytes(h.sector) + 4 + 8 + 8 + 8;
+    }
+
+    private static Holding readHolding(ByteBuffer in) {
+        Holding h = new Holding();
+        h.id = in.getInt();
+        h.symbol = readUtf(in);
+        h.company = readUtf(in);
+        h.sector = readUtf(in);
+        h.shares = in.getInt();
+        h.purchasePrice = in.getDouble();
+        h.currentPrice = in.getDouble();
+        h.refreshedAtMillis = in.getLong();
+        return h;
+    }
+
+    /**
+     * Strings are [unsigned short length][UTF-8 bytes]
+     */
+    private static String readUtf(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeUtf(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = utf8(s);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void putUtf(ByteBuffer out, String s) {
+        byte[] bytes = utf8(s);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static int utfBytes(String s) {
+        return 2 + utf8(s).length;
+    }
+
+    /** UTF-8 bytes, cut to the 65535 bytes a length prefix can describe */
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= 0xFFFF ? bytes : java.util.Arrays.copyOf(bytes, 0xFFFF);
+    }
+
+    private static Holding toHolding(Stock stock) {
+        Holding h = new Holding();
+        h.id = stock.getId();
+        h.symbol = nonNull(stock.getSymbol());
+        h.company = nonNull(stock.getCompany());
+        h.sector = nonNull(stock.getSector());
+        h.shares = stock.getShares();
+        h.purchasePrice = stock.getPurchasePrice();
+        h.currentPrice = stock.getCurrentPrice();
+        h.refreshedAtMillis = stock.getLastRefreshed() == null ? -1 : toMillis(stock.getLastRefreshed());
+        return h;
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static long toMillis(LocalDateTime t) {
+        return t.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
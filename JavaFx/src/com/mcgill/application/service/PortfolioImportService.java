@@ -0,0 +1,386 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.repository.StockRepositoryPostgreSQL;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * PortfolioImportService - Bulk import of broker CSV statements
+ * The file is read in chunks of lines on the calling thread, each chunk is parsed
+ * and validated on a worker pool, and accepted rows are streamed in file order
+ * into a PostgreSQL COPY. Only a few chunks are in flight at once, so memory
+ * stays flat whatever the size of the statement.
+ *
+ * Rows are checked with StockService.validateHolding; rejected rows are written
+ * to "<file>.rejected.csv" next to the statement with their line and reason.
+ * A symbol already held in several rows is merged into its oldest row only.
+ */
+public class PortfolioImportService {
+
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes, long accepted, long rejected);
+    }
+
+    /**
+     * Outcome of one import
+     */
+    public static final class Result {
+        private long accepted;
+        private long rejected;
+        private int holdingsInserted;
+        private int holdingsUpdated;
+        private Path rejectReport;
+        private long elapsedMillis;
+
+        public long getAccepted() { return accepted; }
+        public long getRejected() { return rejected; }
+        public int getHoldingsInserted() { return holdingsInserted; }
+        public int getHoldingsUpdated() { return holdingsUpdated; }
+        /** Report of rejected rows, or null when every row was accepted */
+        public Path getRejectReport() { return rejectReport; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    private static final int CHUNK_LINES = 2000;
+
+    // Header names accepted for each column (lowercase, spaces as underscores)
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+    static {
+        alias("symbol", "symbol", "ticker");
+        alias("company", "company", "name", "description", "security");
+        alias("shares", "shares", "quantity", "qty");
+        alias("purchase_price", "purchase_price", "price", "cost", "avg_price", "cost_basis_per_share");
+        alias("current_price", "current_price", "last", "last_price", "market_price");
+        alias("sector", "sector");
+    }
+
+    private final StockRepositoryPostgreSQL repository;
+    private final int workers;
+
+    public PortfolioImportService(StockRepositoryPostgreSQL repository) {
+        this.repository = repository;
+        this.workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Import a statement; nothing is written to the portfolio unless the whole file goes through
+     * @param cancelled Polled between chunks; a cancelled import is rolled back
+     * @throws IOException if the file cannot be read or has no usable header
+     * @throws SQLException if the COPY or the merge fails
+     */
+    public Result importCsv(Path csv, ProgressListener listener, BooleanSupplier cancelled)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        long totalBytes = Files.size(csv);
+        String name = csv.getFileName().toString();
+        Path reportFile = csv.resolveSibling(name.replaceFirst("(?i)\\.csv$", "") + ".rejected.csv");
+
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+
+        try (CountingInputStream counting = new CountingInputStream(Files.newInputStream(csv));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8), 1 << 16);
+             BufferedWriter report = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+             StockRepositoryPostgreSQL.BulkLoad load = repository.openBulkLoad()) {
+
+            report.write("line,reason,row");
+            report.newLine();
+
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("The file is empty");
+            }
+            Columns columns = Columns.of(header);
+
+            long lineNo = 1;
+            long firstLine = 2;
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lines.isEmpty()) firstLine = lineNo;
+                lines.add(line);
+                if (lines.size() < CHUNK_LINES) continue;
+
+                submit(pool, inFlight, columns, firstLine, lines);
+                lines = new ArrayList<>(CHUNK_LINES);
+                // Keep at most two chunks per worker in flight; write finished ones in order
+                while (inFlight.size() >= workers * 2 || (!inFlight.isEmpty() && inFlight.peekFirst().isDone())) {
+                    write(inFlight.pollFirst(), load, report, result);
+                }
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("Import cancelled");
+                }
+                listener.onProgress(counting.count, totalBytes, result.accepted, result.rejected);
+            }
+            if (!lines.isEmpty()) {
+                submit(pool, inFlight, columns, firstLine, lines);
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.pollFirst(), load, report, result);
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Import cancelled");
+            }
+            listener.onProgress(totalBytes, totalBytes, result.accepted, result.rejected);
+
+            load.merge();
+            result.holdingsInserted = load.getHoldingsInserted();
+            result.holdingsUpdated = load.getHoldingsUpdated();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (result.rejected > 0) {
+            result.rejectReport = reportFile;
+        } else {
+            Files.deleteIfExists(reportFile);
+        }
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("✓ CSV import: %d accepted, %d rejected in %d ms%n",
+                result.accepted, result.rejected, result.elapsedMillis);
+        return result;
+    }
+
+    private void submit(ExecutorService pool, ArrayDeque<Future<Chunk>> inFlight, Columns columns,
+                        long firstLine, List<String> lines) {
+        inFlight.addLast(pool.submit(() -> validate(columns, firstLine, lines)));
+    }
+
+    private void write(Future<Chunk> future, StockRepositoryPostgreSQL.BulkLoad load,
+                       BufferedWriter report, Result result) throws IOException, SQLException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed: " + e.getCause(), e.getCause());
+        }
+        if (chunk.accepted > 0) {
+            load.write(chunk.copyRows.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        for (String reject : chunk.rejects) {
+            report.write(reject);
+            report.newLine();
+        }
+        result.accepted += chunk.accepted;
+        result.rejected += chunk.rejects.size();
+    }
+
+    /**
+     * Validated rows of one chunk, as COPY text, plus report lines for the rejects
+     */
+    private static final class Chunk {
+        final StringBuilder copyRows = new StringBuilder();
+        final List<String> rejects = new ArrayList<>();
+        int accepted;
+    }
+
+    /**
+     * Parse and validate one chunk (runs on a worker thread)
+     */
+    private static Chunk validate(Columns columns, long firstLine, List<String> lines) {
+        Chunk chunk = new Chunk();
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            long lineNo = firstLine + i;
+            if (line.isBlank()) continue;
+
+            String error;
+            try {
+                parseLine(line, fields);
+                error = appendRow(columns, lineNo, fields, chunk.copyRows);
+            } catch (NumberFormatException e) {
+                error = "Please enter valid numbers for numeric fields!";
+            }
+            if (error == null) {
+                chunk.accepted++;
+            } else {
+                chunk.rejects.add(lineNo + "," + quote(error) + "," + quote(line));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Validate one row and append it as a COPY line
+     * @return Error message if any, null if the row was appended
+     */
+    private static String appendRow(Columns columns, long lineNo, List<String> fields, StringBuilder out) {
+        if (fields.size() < columns.required) {
+            return "Expected at least " + columns.required + " columns but found " + fields.size() + "!";
+        }
+        String symbol = fields.get(columns.symbol).trim().toUpperCase(Locale.ROOT);
+        String company = fields.get(columns.company).trim();
+        int shares = Integer.parseInt(number(fields.get(columns.shares)));
+        double purchasePrice = Double.parseDouble(number(fields.get(columns.purchasePrice)));
+        String current = columns.currentPrice >= 0 && columns.currentPrice < fields.size()
+                ? number(fields.get(columns.currentPrice)) : "";
+        double currentPrice = current.isEmpty() ? purchasePrice : Double.parseDouble(current);
+        String sector = columns.sector >= 0 && columns.sector < fields.size()
+                ? fields.get(columns.sector).trim() : "";
+        if (sector.isEmpty()) {
+            sector = "Unknown";
+        }
+
+        String error = StockService.validateHolding(symbol, company, shares, purchasePrice, currentPrice, sector);
+        if (error != null) {
+            return error;
+        }
+
+        out.append(lineNo).append('\t');
+        copyField(out, symbol).append('\t');
+        copyField(out, company).append('\t');
+        out.append(shares).append('\t')
+           .append(purchasePrice).append('\t')
+           .append(currentPrice).append('\t');
+        copyField(out, sector).append('\n');
+        return null;
+    }
+
+    /**
+     * Split a CSV line into fields (RFC 4180 quoting, no embedded line breaks)
+     */
+    static void parseLine(String line, List<String> out) {
+        out.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                out.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        out.add(field.toString());
+    }
+
+    /** Strip the currency sign and thousands separators brokers put in numbers */
+    private static String number(String raw) {
+        return raw.trim().replace("$", "").replace(",", "");
+    }
+
+    /** Escape a value for COPY text format */
+    private static StringBuilder copyField(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+        return out;
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void alias(String column, String... names) {
+        for (String name : names) {
+            HEADER_ALIASES.put(name, column);
+        }
+    }
+
+    /**
+     * Positions of the known columns in the header
+     */
+    static final class Columns {
+        int symbol = -1, company = -1, shares = -1, purchasePrice = -1, currentPrice = -1, sector = -1;
+        int required;
+
+        static Columns of(String header) throws IOException {
+            List<String> names = new ArrayList<>();
+            parseLine(header.replace("\uFEFF", ""), names);
+            Columns columns = new Columns();
+            for (int i = 0; i < names.size(); i++) {
+                String key = names.get(i).trim().toLowerCase(Locale.ROOT).replaceAll("[\\s-]+", "_");
+                String column = HEADER_ALIASES.get(key);
+                if (column == null) continue;
+                switch (column) {
+                    case "symbol" -> columns.symbol = i;
+                    case "company" -> columns.company = i;
+                    case "shares" -> columns.shares = i;
+                    case "purchase_price" -> columns.purchasePrice = i;
+                    case "current_price" -> columns.currentPrice = i;
+                    case "sector" -> columns.sector = i;
+                    default -> { }
+                }
+            }
+            if (columns.symbol < 0 || columns.company < 0 || columns.shares < 0 || columns.purchasePrice < 0) {
+                throw new IOException("Header must name symbol, company, shares and purchase_price columns");
+            }
+            columns.required = 1 + Math.max(Math.max(columns.symbol, columns.company),
+                    Math.max(columns.shares, columns.purchasePrice));
+            return columns;
+        }
+    }
+
+    /**
+     * Counts raw bytes read so progress can be reported against the file size
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.mcgill.application.service;
+
+import com.mcgill.application.model.PriceUpdate;
+import com.mcgill.application.model.Stock;
+import com.mcgill.application.repository.StockRepositoryPostgreSQL;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PriceRefreshPipeline - Refreshes prices in four stages joined by bounded queues
+ *
+ *   fetch     one Yahoo request per symbol on the http pool
+ *   validate  drop missing quotes and implausible jumps
+ *   apply     set prices on the UI thread, up to APPLY_BATCH quotes at a time
+ *             with one batch in flight, so the table stays responsive
+ *   persist   write applied prices to PostgreSQL in JDBC batches, over one
+ *             dedicated connection for the whole refresh
+ *
+ * A full queue blocks the stage feeding it, so a slow database slows fetching
+ * instead of piling up quotes. cancel() and the timeout stop fetching;
+ * cancelling also drops quotes not yet applied. Prices already applied are
+ * always persisted, so the table and the database agree; if writing fails,
+ * the stage keeps draining its queue and onFinished reports the error.
+ */
+public class PriceRefreshPipeline {
+
+    public enum Outcome { COMPLETED, CANCELLED, TIMED_OUT }
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int APPLY_BATCH = 200;
+    // How long the apply stage waits to fill a batch (and how often progress is reported)
+    private static final long APPLY_LINGER_MILLIS = 100;
+    private static final int PERSIST_BATCH = 500;
+    // A quote more than this factor away from the last price is treated as bad data
+    private static final double MAX_MOVE = 10.0;
+
+    /**
+     * Receives progress on the UI thread
+     */
+    public interface Listener {
+        /** A batch of quotes was applied (possibly none, when only counts moved) */
+        void onBatch(List<Quote> applied, Progress progress);
+
+        /** Every applied price has been persisted */
+        void onFinished(Progress progress);
+    }
+
+    /**
+     * A fetched price for one symbol, with the price it replaces
+     */
+    public static final class Quote {
+        private final String symbol;
+        private final double oldPrice;
+        private final double price;
+
+        Quote(String symbol, double oldPrice, double price) {
+            this.symbol = symbol;
+            this.oldPrice = oldPrice;
+            this.price = price;
+        }
+
+        public String getSymbol() { return symbol; }
+        public double getOldPrice() { return oldPrice; }
+        public double getPrice() { return price; }
+    }
+
+    /**
+     * Counts at one point of a refresh
+     */
+    public static final class Progress {
+        private final int symbols;
+        private final int fetched;
+        private final int rejected;
+        private final int applied;
+        private final int persisted;
+        private final Outcome outcome;
+        private final String persistError;
+
+        Progress(int symbols, int fetched, int rejected, int applied, int persisted, Outcome outcome,
+                 String persistError) {
+            this.symbols = symbols;
+            this.fetched = fetched;
+            this.rejected = rejected;
+            this.applied = applied;
+            this.persisted = persisted;
+            this.outcome = outcome;
+            this.persistError = persistError;
+        }
+
+        /** Distinct symbols requested */
+        public int getSymbols() { return symbols; }
+        /** Symbols that answered (valid or not) */
+        public int getFetched() { return fetched; }
+        public int getRejected() { return rejected; }
+        /** Holdings whose price was set */
+        public int getApplied() { return applied; }
+        public int getPersisted() { return persisted; }
+        /** Null while running */
+        public Outcome getOutcome() { return outcome; }
+        /** Why prices could not be saved, or null */
+        public String getPersistError() { return persistError; }
+
+        public double getFraction() {
+            return symbols == 0 ? 1.0 : (double) fetched / symbols;
+        }
+    }
+
+    // Ends a queue; the stage reading it passes the end on and stops
+    private static final Quote END_OF_QUOTES = new Quote(null, 0, 0);
+    private static final PriceUpdate END_OF_UPDATES = new PriceUpdate(0, 0, null);
+
+    private final StockService stockService;
+    private final StockPriceService stockPriceService;
+    private final Executor uiThread;
+    private final Listener listener;
+    private final Duration timeout;
+    private final AppExecutors executors = AppExecutors.getInstance();
+    private final AppExecutors.TaskGroup stages = executors.newGroup("price refresh");
+
+    // Built on the UI thread before starting
+    private final Map<String, List<Stock>> holdingsBySymbol = new LinkedHashMap<>();
+    private final Map<String, Double> lastPrices = new LinkedHashMap<>();
+
+    private final BlockingQueue<Quote> fetched = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Quote> validated = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<PriceUpdate> toPersist = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final AtomicInteger fetchedCount = new AtomicInteger();
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+    private final AtomicInteger appliedCount = new AtomicInteger();
+    private final AtomicInteger persistedCount = new AtomicInteger();
+    private volatile Outcome outcome = Outcome.COMPLETED;
+    private volatile String persistError;
+    private volatile boolean stopped;
+    private Future<?> fetchStage;
+
+    /**
+     * @param uiThread Runs the apply stage and listener calls (Platform::runLater on the desktop)
+     * @param timeout  Symbols that have not answered by then are given up on
+     */
+    public PriceRefreshPipeline(StockService stockService, StockPriceService stockPriceService,
+                                Executor uiThread, Duration timeout, Listener listener) {
+        this.stockService = stockService;
+        this.stockPriceService = stockPriceService;
+        this.uiThread = uiThread;
+        this.timeout = timeout;
+        this.listener = listener;
+    }
+
+    /**
+     * Start refreshing these holdings; call on the UI thread
+     */
+    public void start(List<Stock> stocks) {
+        for (Stock stock : stocks) {
+            String symbol = stock.getSymbol();
+            if (symbol == null || symbol.isBlank()) continue;
+            holdingsBySymbol.computeIfAbsent(symbol, s -> new ArrayList<>()).add(stock);
+            lastPrices.putIfAbsent(symbol, stock.getCurrentPrice());
+        }
+        stages.submit(executors.jdbc(), this::persist);
+        stages.submit(executors.io(), this::apply);
+        stages.submit(executors.io(), this::validate);
+        fetchStage = stages.submit(executors.io(), this::fetch);
+    }
+
+    /**
+     * Stop fetching and drop quotes not yet applied; onFinished still follows
+     */
+    public void cancel() {
+        if (stopped) return;
+        outcome = Outcome.CANCELLED;
+        stopped = true;
+        if (fetchStage != null) {
+            fetchStage.cancel(true);
+        }
+    }
+
+    // --- Stages ---
+
+    private void fetch() {
+        try (AppExecutors.Scope scope = executors.openScope(executors.http())) {
+            for (String symbol : holdingsBySymbol.keySet()) {
+                double oldPrice = lastPrices.get(symbol);
+                scope.fork(() -> {
+                    fetched.put(new Quote(symbol, oldPrice, stockPriceService.getCurrentPrice(symbol)));
+                    return null;
+                });
+            }
+            scope.join(timeout);
+        } catch (TimeoutException e) {
+            // Quotes that made it in time are still applied
+            outcome = Outcome.TIMED_OUT;
+            System.err.println("✗ Price refresh timed out: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // Cancelled
+        } finally {
+            end(fetched, END_OF_QUOTES);
+        }
+    }
+
+    private void validate() {
+        try {
+            Quote quote;
+            while ((quote = fetched.take()) != END_OF_QUOTES) {
+                fetchedCount.incrementAndGet();
+                if (stopped) continue;
+                if (isPlausible(quote)) {
+                    validated.put(quote);
+                } else {
+                    rejectedCount.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            stopped = true;
+        } finally {
+            end(validated, END_OF_QUOTES);
+        }
+    }
+
+    private static boolean isPlausible(Quote quote) {
+        double price = quote.price;
+        if (!Double.isFinite(price) || price <= 0) return false;
+        double old = quote.oldPrice;
+        return old <= 0 || (price / old <= MAX_MOVE && old / price <= MAX_MOVE);
+    }
+
+    private void apply() {
+        try {
+            boolean done = false;
+            int reported = -1;
+            while (!done) {
+                List<Quote> batch = new ArrayList<>();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(APPLY_LINGER_MILLIS);
+                while (batch.size() < APPLY_BATCH) {
+                    Quote quote = validated.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (quote == null) break;
+                    if (quote == END_OF_QUOTES) {
+                        done = true;
+                        break;
+                    }
+                    batch.add(quote);
+                }
+                if (stopped) batch.clear();
+                // Nothing new to show: skip the trip to the UI thread
+                int progress = fetchedCount.get();
+                if (batch.isEmpty() && progress == reported) continue;
+                reported = progress;
+                for (PriceUpdate update : applyOnUiThread(batch)) {
+                    toPersist.put(update);
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            stopped = true;
+        } finally {
+            end(toPersist, END_OF_UPDATES);
+        }
+    }
+
+    /**
+     * Set the batch's prices on the UI thread and wait for it, so at most one batch is queued there
+     */
+    private List<PriceUpdate> applyOnUiThread(List<Quote> batch) throws InterruptedException, ExecutionException {
+        CompletableFuture<List<PriceUpdate>> applied = new CompletableFuture<>();
+        uiThread.execute(() -> {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                List<PriceUpdate> updates = new ArrayList<>();
+                for (Quote quote : batch) {
+                    for (Stock stock : holdingsBySymbol.get(quote.symbol)) {
+                        stock.setCurrentPrice(quote.price);
+                        stock.setLastRefreshed(now);
+                        updates.add(new PriceUpdate(stock.getId(), quote.price, now));
+                    }
+                }
+                appliedCount.addAndGet(updates.size());
+                listener.onBatch(batch, progress(null));
+                applied.complete(updates);
+            } catch (RuntimeException e) {
+                applied.completeExceptionally(e);
+            }
+        });
+        return applied.get();
+    }
+
+    private void persist() {
+        StockRepositoryPostgreSQL.PriceWriter writer = null;
+        try {
+            List<PriceUpdate> batch = new ArrayList<>(PERSIST_BATCH);
+            boolean done = false;
+            while (!done) {
+                PriceUpdate first = toPersist.take();
+                if (first == END_OF_UPDATES) break;
+                batch.add(first);
+                toPersist.drainTo(batch, PERSIST_BATCH - 1);
+                if (batch.get(batch.size() - 1) == END_OF_UPDATES) {
+                    batch.remove(batch.size() - 1);
+                    done = true;
+                }
+                // After a failure keep draining, so the apply stage is never left blocked
+                if (persistError == null) {
+                    try {
+                        if (writer == null) {
+                            writer = stockService.openPriceWriter();
+                        }
+                        stockService.persistPrices(writer, batch);
+                        persistedCount.addAndGet(batch.size());
+                    } catch (SQLException | RuntimeException e) {
+                        persistFailed(e);
+                    }
+                }
+                batch.clear();
+            }
+            if (persistedCount.get() > 0) {
+                stockService.saveSnapshot();
+            }
+        } catch (InterruptedException e) {
+            // Application is shutting down
+            return;
+        } catch (RuntimeException e) {
+            persistFailed(e);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        Progress last = progress(outcome);
+        uiThread.execute(() -> listener.onFinished(last));
+    }
+
+    private void persistFailed(Exception e) {
+        persistError = e.getMessage() != null ? e.getMessage() : e.toString();
+        System.err.println("✗ Failed to save refreshed prices: " + persistError);
+    }
+
+    /**
+     * Put the end marker even if this stage was interrupted; what is still queued is dropped then
+     */
+    private static <T> void end(BlockingQueue<T> queue, T marker) {
+        try {
+            queue.put(marker);
+        } catch (InterruptedException e) {
+            queue.clear();
+            queue.offer(marker);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Progress progress(Outcome finished) {
+        return new Progress(holdingsBySymbol.size(), fetchedCount.get(), rejectedCount.get(),
+                appliedCount.get(), persistedCount.get(), finished, persistError);
+    }
+}
@@ -0,0 +1,97 @@
+package com.mcgill.application.service;
+
+/**
+ * PriceSeries - Intraday (time, price) history of one symbol, for charts
+ * Ticks sit in primitive ring buffers that start small and double up to
+ * MAX_TICKS, after which the oldest ticks are overwritten. Charts never see the
+ * raw ticks: downsample() reduces the series with LTTB to about one point per
+ * pixel, so drawing costs the same for a thousand ticks as for a million.
+ *
+ * The kdb+ poll thread appends while the FX thread downsamples, so both hold
+ * the series' lock; getVersion() is lock-free for cheap "anything new?" checks.
+ */
+public final class PriceSeries {
+
+    // 16 MB per symbol when full
+    public static final int MAX_TICKS = 1 << 20;
+    private static final int INITIAL_TICKS = 1 << 10;
+
+    private long[] times = new long[INITIAL_TICKS];
+    private double[] prices = new double[INITIAL_TICKS];
+    private int mask = INITIAL_TICKS - 1;
+
+    // Sequence numbers: head = oldest tick kept, tail = next tick to be written
+    private long head;
+    private long tail;
+    private volatile long version;
+
+    public synchronized void add(long timeMillis, double price) {
+        if (tail - head == times.length) {
+            if (times.length < MAX_TICKS) {
+                grow();
+            } else {
+                head++;
+            }
+        }
+        int slot = (int) (tail & mask);
+        times[slot] = timeMillis;
+        prices[slot] = price;
+        tail++;
+        version = tail;
+    }
+
+    /**
+     * Copy into buffers twice the size, oldest tick first
+     */
+    private void grow() {
+        int count = (int) (tail - head);
+        long[] newTimes = new long[times.length * 2];
+        double[] newPrices = new double[prices.length * 2];
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((head + i) & mask);
+            newTimes[i] = times[slot];
+            newPrices[i] = prices[slot];
+        }
+        times = newTimes;
+        prices = newPrices;
+        mask = times.length - 1;
+        head = 0;
+        tail = count;
+    }
+
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * Changes with every tick added; compare with an earlier value to see whether to redraw
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The latest price, or NaN before the first tick
+     */
+    public synchronized double last() {
+        return tail == head ? Double.NaN : prices[(int) ((tail - 1) & mask)];
+    }
+
+    /**
+     * Reduce the series to at most maxPoints (time, price) points, oldest first
+     * @param outTimes  Epoch millis, at least maxPoints long
+     * @param outPrices At least maxPoints long
+     * @return Points written
+     */
+    public int downsample(int maxPoints, double[] outTimes, double[] outPrices) {
+        return downsampleLatest(MAX_TICKS, maxPoints, outTimes, outPrices);
+    }
+
+    /**
+     * Same as downsample(), over the latest ticks only (cheap enough for many sparklines)
+     */
+    public synchronized int downsampleLatest(int ticks, int maxPoints, double[] outTimes, double[] outPrices) {
+        int count = (int) Math.min(tail - head, ticks);
+        return Lttb.downsample(times, prices, mask, tail - count, count, maxPoints, outTimes, outPrices);
+    }
+}
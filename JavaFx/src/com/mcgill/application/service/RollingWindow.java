@@ -0,0 +1,207 @@
+package com.mcgill.application.service;
+
+/**
+ * RollingWindow - Rolling statistics over a stream of ticks
+ * Keeps (time, price, size) in primitive ring buffers together with running sums
+ * and monotonic min/max deques, so push and evict are O(1) (amortised) and never allocate.
+ *
+ * A window is always bounded by a tick count (its capacity) and can additionally be
+ * bounded by a time span; a span of 0 means "count window only".
+ */
+final class RollingWindow {
+
+    // Running sums are recomputed exactly after this many evictions per slot to cancel drift
+    private static final int RESUM_FACTOR = 8;
+
+    private final int capacity;
+    private final long spanMillis;
+
+    private final long[] times;
+    private final double[] prices;
+    private final double[] sizes;
+
+    // Sequence numbers: head = oldest tick still in the window, tail = next tick to be written
+    private long head;
+    private long tail;
+    private long evictions;
+
+    // Sums of (price - shift) keep variance numerically stable when prices are large
+    private double shift = Double.NaN;
+    private double sum;
+    private double sumSq;
+    private double priceVolume;
+    private double volume;
+
+    // Monotonic deques of sequence numbers (front = current min / max)
+    private final LongDeque minDeque;
+    private final LongDeque maxDeque;
+
+    RollingWindow(int capacity, long spanMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Window capacity must be greater than zero!");
+        }
+        this.capacity = capacity;
+        this.spanMillis = spanMillis;
+        this.times = new long[capacity];
+        this.prices = new double[capacity];
+        this.sizes = new double[capacity];
+        this.minDeque = new LongDeque(capacity);
+        this.maxDeque = new LongDeque(capacity);
+    }
+
+    /**
+     * Add a tick and evict whatever fell out of the count or time bound
+     */
+    void push(long timeMillis, double price, double size) {
+        if (count() == capacity) {
+            evictOldest();
+        }
+        if (Double.isNaN(shift)) {
+            shift = price;
+        }
+
+        int slot = slot(tail);
+        times[slot] = timeMillis;
+        prices[slot] = price;
+        sizes[slot] = size;
+
+        double d = price - shift;
+        sum += d;
+        sumSq += d * d;
+        priceVolume += price * size;
+        volume += size;
+
+        while (!maxDeque.isEmpty() && prices[slot(maxDeque.peekLast())] <= price) {
+            maxDeque.pollLast();
+        }
+        maxDeque.addLast(tail);
+        while (!minDeque.isEmpty() && prices[slot(minDeque.peekLast())] >= price) {
+            minDeque.pollLast();
+        }
+        minDeque.addLast(tail);
+
+        tail++;
+        expire(timeMillis);
+    }
+
+    /**
+     * Drop ticks older than the time span (no-op for count-only windows)
+     */
+    void expire(long nowMillis) {
+        if (spanMillis <= 0) return;
+        long cutoff = nowMillis - spanMillis;
+        while (count() > 0 && times[slot(head)] < cutoff) {
+            evictOldest();
+        }
+    }
+
+    int count() {
+        return (int) (tail - head);
+    }
+
+    double mean() {
+        int n = count();
+        return n == 0 ? Double.NaN : shift + sum / n;
+    }
+
+    /**
+     * Sample standard deviation of prices in the window (0 with fewer than two ticks)
+     */
+    double stdDev() {
+        int n = count();
+        if (n < 2) return 0.0;
+        double variance = (sumSq - sum * sum / n) / (n - 1);
+        return variance > 0 ? Math.sqrt(variance) : 0.0;
+    }
+
+    double vwap() {
+        return volume > 0 ? priceVolume / volume : Double.NaN;
+    }
+
+    double min() {
+        return minDeque.isEmpty() ? Double.NaN : prices[slot(minDeque.peekFirst())];
+    }
+
+    double max() {
+        return maxDeque.isEmpty() ? Double.NaN : prices[slot(maxDeque.peekFirst())];
+    }
+
+    private void evictOldest() {
+        int slot = slot(head);
+        double d = prices[slot] - shift;
+        sum -= d;
+        sumSq -= d * d;
+        priceVolume -= prices[slot] * sizes[slot];
+        volume -= sizes[slot];
+
+        if (!minDeque.isEmpty() && minDeque.peekFirst() == head) minDeque.pollFirst();
+        if (!maxDeque.isEmpty() && maxDeque.peekFirst() == head) maxDeque.pollFirst();
+        head++;
+
+        if (count() == 0) {
+            sum = sumSq = priceVolume = volume = 0.0;
+            shift = Double.NaN;
+        } else if (++evictions % ((long) capacity * RESUM_FACTOR) == 0) {
+            resum();
+        }
+    }
+
+    /**
+     * Exact recomputation of the running sums; O(capacity) but amortised to O(1/RESUM_FACTOR)
+     */
+    private void resum() {
+        shift = prices[slot(head)];
+        sum = sumSq = priceVolume = volume = 0.0;
+        for (long seq = head; seq < tail; seq++) {
+            int slot = slot(seq);
+            double d = prices[slot] - shift;
+            sum += d;
+            sumSq += d * d;
+            priceVolume += prices[slot] * sizes[slot];
+            volume += sizes[slot];
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    /**
+     * Fixed-capacity ring deque of primitive longs
+     */
+    private static final class LongDeque {
+        private final long[] items;
+        private int first;
+        private int size;
+
+        LongDeque(int capacity) {
+            items = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekFirst() {
+            return items[first];
+        }
+
+        long peekLast() {
+            return items[(first + size - 1) % items.length];
+        }
+
+        void pollFirst() {
+            first = (first + 1) % items.length;
+            size--;
+        }
+
+        void pollLast() {
+            size--;
+        }
+
+        void addLast(long value) {
+            items[(first + size) % items.length] = value;
+            size++;
+        }
+    }
+}
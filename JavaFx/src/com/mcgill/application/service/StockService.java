@@ -1,12 +1,28 @@
 package com.mcgill.application.service;
 
+import com.mcgill.application.model.PortfolioSummary;
+import com.mcgill.application.model.PriceUpdate;
 import com.mcgill.application.model.Stock;
+import com.mcgill.application.model.TaxLot;
+import com.mcgill.application.model.Transaction;
+import com.mcgill.application.repository.PortfolioChangeListener;
 import com.mcgill.application.repository.StockRepository;
 import com.mcgill.application.repository.StockRepositoryPostgreSQL;
+import com.mcgill.application.repository.TransactionRepository;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * StockService - Business Logic Layer for Portfolio Management
@@ -17,85 +33,378 @@ public class StockService {
     private StockRepositoryPostgreSQL repository;
     private ObservableList<Stock> portfolio;
     
+    // Ledger: every buy/sell/fee is appended; open lots are matched in memory
+    private TransactionRepository ledger;
+    private LotMatchingEngine lots;
+    private double realizedProfitLoss;
+    private double lastRealizedProfitLoss;
+    
+    // Local event log + snapshots: startup restores from here instead of SELECT * FROM portfolio
+    private PortfolioEventStore eventStore;
+    
+    // LISTEN/NOTIFY feed of other instances' changes (started once loaded)
+    private PortfolioChangeListener changeFeed;
+    
+    // Holdings and open lots reloaded by the last CSV import, waiting for applyImport on the FX thread
+    private volatile LotMatchingEngine importedLots;
+    private volatile List<Stock> importedHoldings;
+    
+    // Startup is staged: the constructor only reads the local snapshot, loadFromDatabase
+    // connects in the background; writes are refused until it has finished
+    public static final String LOADING_MESSAGE = "Portfolio is still loading, please try again in a moment!";
+    private static final int LOAD_BATCH_SIZE = 500;
+    // Above this many holdings the stats come from the database instead of the list
+    public static final int LARGE_BOOK_HOLDINGS = 5000;
+    private final boolean restoredFromSnapshot;
+    private volatile boolean ready;
+    private volatile boolean closed;
+    
     public StockService() {
+        eventStore = new PortfolioEventStore();
+        lots = new LotMatchingEngine();
+        portfolio = FXCollections.observableArrayList();
+        restoredFromSnapshot = eventStore.recover();
+        if (restoredFromSnapshot) {
+            portfolio.addAll(eventStore.getStocks());
+            realizedProfitLoss = eventStore.getRealizedProfitLoss();
+        }
+    }
+    
+    /**
+     * Second startup stage (background thread): connect to PostgreSQL and load the
+     * open lots. Without a local snapshot the holdings are streamed in; with one,
+     * only the rows changed since the snapshot's row version are fetched (or, for
+     * an older snapshot, a full read is compared with it) and the differences are
+     * returned for finishLoading to apply.
+     * @param onBatch Receives holdings as they are read; it must hand them to the FX thread
+     * @return Changes to apply to the holdings shown from the snapshot
+     */
+    public PortfolioDelta loadFromDatabase(Consumer<List<Stock>> onBatch) {
         // Use PostgreSQL repository for persistent storage
         repository = new StockRepositoryPostgreSQL();
-        portfolio = FXCollections.observableArrayList();
-        loadPortfolio();
+        ledger = new TransactionRepository();
+        
+        PortfolioDelta delta = new PortfolioDelta();
+        long since = eventStore.getDatabaseVersion();
+        StockRepositoryPostgreSQL.Changes changes =
+                restoredFromSnapshot && since > 0 ? repository.findChangedSince(since) : null;
+        
+        if (changes != null) {
+            delta = PortfolioDelta.of(changes);
+            eventStore.recordRemoteChanges(delta.getUpserted(), delta.getDeletedIds());
+            eventStore.setDatabaseVersion(delta.getVersion());
+            realizedProfitLoss = ledger.findRealizedProfitLoss();
+            System.out.println("✓ Synced snapshot from row version " + since + ": " + delta);
+        } else if (restoredFromSnapshot) {
+            long version = repository.currentVersion();
+            PortfolioDelta.Reconciler reconciler = PortfolioDelta.reconcile(eventStore.getStocks());
+            if (repository.forEachRow(LOAD_BATCH_SIZE, reconciler)) {
+                delta = reconciler.finish();
+                delta.setVersion(version);
+                if (!delta.isEmpty()) {
+                    eventStore.recordRemoteChanges(delta.getUpserted(), delta.getDeletedIds());
+                }
+                eventStore.setDatabaseVersion(Math.max(version, 0));
+                realizedProfitLoss = ledger.findRealizedProfitLoss();
+                System.out.println("✓ Reconciled snapshot with database: " + delta);
+            }
+            // If the database is unreachable, keep working from the snapshot
+        } else {
+            long version = repository.currentVersion();
+            List<Stock> loaded = new ArrayList<>();
+            repository.findAll(LOAD_BATCH_SIZE, batch -> {
+                loaded.addAll(batch);
+                onBatch.accept(batch);
+            });
+            realizedProfitLoss = ledger.findRealizedProfitLoss();
+            // An empty result may just mean the database was unreachable; don't pin it locally
+            if (!loaded.isEmpty()) {
+                eventStore.setDatabaseVersion(Math.max(version, 0));
+                eventStore.bootstrap(loaded, realizedProfitLoss);
+            }
+        }
+        loadLots();
+        return delta;
+    }
+    
+    /**
+     * Fetch the rows other writers changed since the last sync (background thread)
+     * @return The changes, or null if not loaded yet or the database could not be read
+     */
+    public PortfolioDelta fetchChanges() {
+        if (!ready) {
+            return null;
+        }
+        StockRepositoryPostgreSQL.Changes changes = repository.findChangedSince(eventStore.getDatabaseVersion());
+        return changes == null ? null : withLots(PortfolioDelta.of(changes), null);
+    }
+    
+    /**
+     * Attach the open lots of the holdings a delta adds or changes the shares of
+     * (background thread), so applyChanges swaps them in with the rows
+     * @param conn Connection to read them over, or null for a pooled one
+     */
+    private PortfolioDelta withLots(PortfolioDelta delta, Connection conn) {
+        List<Integer> traded = new ArrayList<>();
+        for (Stock row : delta.getUpserted()) {
+            if (eventStore.getShares(row.getId()) != row.getShares()) {
+                traded.add(row.getId());
+            }
+        }
+        if (traded.isEmpty()) {
+            return delta;
+        }
+        List<TaxLot> open = conn == null ? ledger.findOpenLots(traded) : ledger.findOpenLots(conn, traded);
+        if (open != null) {
+            delta.putLots(traded, open);
+        }
+        return delta;
+    }
+    
+    /**
+     * Apply changes from fetchChanges to the visible list, the lots and the local store (FX thread)
+     */
+    public void applyChanges(PortfolioDelta delta) {
+        applyDelta(delta);
+        for (int id : delta.getDeletedIds()) {
+            lots.replaceLots(id, List.of());
+        }
+        for (Map.Entry<Integer, List<TaxLot>> open : delta.getLots().entrySet()) {
+            lots.replaceLots(open.getKey(), open.getValue());
+        }
+        if (!delta.isEmpty()) {
+            eventStore.recordRemoteChanges(delta.getUpserted(), delta.getDeletedIds());
+        }
+        if (delta.getVersion() > eventStore.getDatabaseVersion()) {
+            eventStore.setDatabaseVersion(delta.getVersion());
+        }
+    }
+    
+    /**
+     * Follow other instances' changes through PostgreSQL LISTEN/NOTIFY
+     * Each batch of notifications becomes one delta; after a (re)connect the
+     * rows missed meanwhile are fetched by row version, or in full when no
+     * version is known yet.
+     * @param onDelta Receives deltas on the listener thread; it must hand them to applyChanges on the FX thread
+     */
+    public void startChangeFeed(Consumer<PortfolioDelta> onDelta) {
+        if (changeFeed != null) {
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        changeFeed = new PortfolioChangeListener(AppExecutors.getInstance().io(),
+                (changes, conn) -> onDelta.accept(withLots(PortfolioDelta.of(changes), conn)),
+                conn -> {
+                    PortfolioDelta missed = resync(conn);
+                    if (missed != null && !missed.isEmpty()) {
+                        System.out.println("✓ Resynced portfolio after feed gap: " + missed);
+                        onDelta.accept(withLots(missed, conn));
+                    }
+                });
+        changeFeed.start();
+    }
+    
+    public void stopChangeFeed() {
+        if (changeFeed != null) {
+            changeFeed.close();
+            changeFeed = null;
+        }
+    }
+    
+    /**
+     * Stop following other instances and release the local event store (logout or
+     * window closed); a load still in progress will not start the feed afterwards
+     */
+    public void close() {
+        closed = true;
+        stopChangeFeed();
+        eventStore.close();
+    }
+    
+    /**
+     * Changes missed while no listener was connected, read over the listener's connection
+     */
+    private PortfolioDelta resync(Connection conn) {
+        long since = eventStore.getDatabaseVersion();
+        if (since > 0) {
+            StockRepositoryPostgreSQL.Changes changes = repository.findChangedSince(conn, since);
+            return changes == null ? null : PortfolioDelta.of(changes);
+        }
+        long version = repository.currentVersion(conn);
+        PortfolioDelta.Reconciler reconciler = PortfolioDelta.reconcile(eventStore.getStocks());
+        if (version < 0 || !repository.forEachRow(LOAD_BATCH_SIZE, reconciler)) {
+            return null;
+        }
+        PortfolioDelta delta = reconciler.finish();
+        delta.setVersion(version);
+        return delta;
+    }
+    
+    /**
+     * Last startup stage (FX thread): apply the reconcile result and accept writes
+     */
+    public void finishLoading(PortfolioDelta delta) {
+        applyDelta(delta);
+        ready = true;
+    }
+    
+    /**
+     * Apply inserted, updated and deleted rows to the visible list in place
+     */
+    private void applyDelta(PortfolioDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (!delta.getDeletedIds().isEmpty()) {
+            portfolio.removeIf(stock -> delta.getDeletedIds().contains(stock.getId()));
+        }
+        Map<Integer, Stock> rows = new LinkedHashMap<>();
+        for (Stock row : delta.getUpserted()) {
+            rows.put(row.getId(), row);
+        }
+        for (Stock stock : portfolio) {
+            Stock row = rows.remove(stock.getId());
+            if (row != null) {
+                PortfolioDelta.copyInto(stock, row);
+            }
+        }
+        // Whatever is left is new to this list
+        portfolio.addAll(rows.values());
+    }
+    
+    /**
+     * True once loadFromDatabase has finished and holdings can be changed
+     */
+    public boolean isReady() {
+        return ready;
     }
     
     /**
      * Add a new stock to portfolio (Business Logic)
      */
     public String addStock(Stock stock) {
+        if (!ready) {
+            return LOADING_MESSAGE;
+        }
+        
+        // Business Rule 2: Stock symbol must be uppercase
+        if (stock.getSymbol() != null) {
+            stock.setSymbol(stock.getSymbol().toUpperCase());
+        }
+        
+        String error = validateHolding(stock.getSymbol(), stock.getCompany(), stock.getShares(),
+                stock.getPurchasePrice(), stock.getCurrentPrice(), stock.getSector());
+        if (error != null) {
+            return error;
+        }
+        
+        // Business Rule 3: No duplicate IDs
+        if (repository.existsById(stock.getId())) {
+            return "Stock with this ID already exists in portfolio!";
+        }
+        
+        // All validations passed - save the holding with its opening BUY in one transaction
+        TransactionRepository.Trade trade = ledger.recordAdd(stock, Transaction.buy(stock.getSymbol(),
+                stock.getShares(), stock.getPurchasePrice(), LocalDateTime.now()));
+        if (trade == null) {
+            return "Could not save the holding; nothing was added.";
+        }
+        lots.addLot(trade.getLot());
+        portfolio.add(stock);
+        eventStore.recordAdd(stock);
+        return null; // Success
+    }
+    
+    /**
+     * Business rules 1, 4, 5 and 6 of addStock, without the database lookup
+     * Shared with the CSV importer, which calls it from worker threads.
+     * @param symbol Symbol, already uppercased
+     * @return Error message if any, null if valid
+     */
+    public static String validateHolding(String symbol, String company, int shares,
+                                         double purchasePrice, double currentPrice, String sector) {
         // Business Rule 1: All fields are required
-        if (stock.getSymbol() == null || stock.getSymbol().trim().isEmpty()) {
+        if (symbol == null || symbol.trim().isEmpty()) {
             return "Stock symbol is required!";
         }
-        if (stock.getCompany() == null || stock.getCompany().trim().isEmpty()) {
+        if (company == null || company.trim().isEmpty()) {
             return "Company name is required!";
         }
-        if (stock.getShares() <= 0) {
+        if (shares <= 0) {
             return "Number of shares must be greater than zero!";
         }
-        if (stock.getPurchasePrice() <= 0) {
+        // NaN passes every comparison below, so it has to be refused up front
+        if (!Double.isFinite(purchasePrice) || !Double.isFinite(currentPrice)) {
+            return "Prices must be numbers!";
+        }
+        if (purchasePrice <= 0) {
             return "Purchase price must be greater than zero!";
         }
-        if (stock.getCurrentPrice() <= 0) {
+        if (currentPrice <= 0) {
             return "Current price must be greater than zero!";
         }
         
-        // Business Rule 2: Stock symbol must be uppercase
-        String symbol = stock.getSymbol().toUpperCase();
-        stock.setSymbol(symbol);
-        
-        // Business Rule 3: No duplicate IDs
-        if (repository.existsById(stock.getId())) {
-            return "Stock with this ID already exists in portfolio!";
-        }
-        
         // Business Rule 4: Validate symbol format (3-5 uppercase letters)
-        if (!stock.getSymbol().matches("^[A-Z]{1,5}$")) {
+        if (!symbol.matches("^[A-Z]{1,5}$")) {
             return "Stock symbol must be 1-5 uppercase letters!";
         }
         
         // Business Rule 5: Validate prices are reasonable
-        if (stock.getPurchasePrice() > 10000 || stock.getCurrentPrice() > 10000) {
+        if (purchasePrice > 10000 || currentPrice > 10000) {
             return "Price must be less than $10,000!";
         }
-        if (stock.getPurchasePrice() < 0.01 || stock.getCurrentPrice() < 0.01) {
+        if (purchasePrice < 0.01 || currentPrice < 0.01) {
             return "Price must be greater than $0.01!";
         }
         
-        // All validations passed - save
-        repository.save(stock);
-        portfolio.add(stock);
-        return null; // Success
+        // Business Rule 6: Text must fit the portfolio columns
+        if (company.length() > 100) {
+            return "Company name must be at most 100 characters!";
+        }
+        if (sector != null && sector.length() > 50) {
+            return "Sector must be at most 50 characters!";
+        }
+        return null;
     }
     
     /**
      * Delete a stock from portfolio (sell all shares)
+     * Goes through sellShares, so the ledger, lots and event log record the sale.
      */
     public String deleteStock(Stock stock) {
         if (stock == null) {
             return "Please select a stock to remove from portfolio!";
         }
-        
-        repository.delete(stock.getId());
-        portfolio.remove(stock);
-        return null; // Success
+        return sellShares(stock, stock.getShares());
     }
     
     /**
-     * Sell partial shares of a stock
+     * Sell partial shares of a stock, matching lots first-in first-out
      * @param stock The stock to sell from
      * @param sharesToSell Number of shares to sell
      * @return Error message if any, null if success
      */
     public String sellShares(Stock stock, int sharesToSell) {
+        return sellShares(stock, sharesToSell, LotMatchingEngine.Method.FIFO, 0);
+    }
+    
+    /**
+     * Sell shares at the stock's current price, matching tax lots with the given method
+     * Appends one SELL per lot consumed and updates the holding in the same database
+     * transaction: shares drop by the amount sold and the purchase price becomes the
+     * average cost of the lots left open. Memory changes only once that has committed.
+     * @param lotId Lot to sell from for SPECIFIC_ID (ignored otherwise)
+     * @return Error message if any, null if success
+     */
+    public String sellShares(Stock stock, int sharesToSell, LotMatchingEngine.Method method, long lotId) {
         if (stock == null) {
             return "Please select a stock to sell!";
         }
+        if (!ready) {
+            return LOADING_MESSAGE;
+        }
         
         if (sharesToSell <= 0) {
             return "Shares to sell must be greater than zero!";
@@ -107,20 +416,113 @@ public class StockService {
             return "Cannot sell more shares than you own! You own " + currentShares + " shares.";
         }
         
-        // Update the shares
-        int remainingShares = currentShares - sharesToSell;
+        String symbol = stock.getSymbol();
+        int holdingId = stock.getId();
+        if (lots.getOpenShares(holdingId) < sharesToSell) {
+            return "Ledger has only " + lots.getOpenShares(holdingId) + " open shares of " + symbol + "!";
+        }
+        if (method == LotMatchingEngine.Method.SPECIFIC_ID) {
+            TaxLot lot = lots.getLot(lotId);
+            if (lot == null || lot.getHoldingId() != holdingId) {
+                return "Please choose an open lot of " + symbol + "!";
+            }
+            if (sharesToSell > lot.getOpenShares()) {
+                return "Lot #" + lotId + " only has " + lot.getOpenShares() + " shares!";
+            }
+        }
+        
+        // Match lots and write the sells and the holding; the lots change only once that is committed
+        double sellPrice = stock.getCurrentPrice();
+        LocalDateTime now = LocalDateTime.now();
+        List<LotMatchingEngine.Fill> fills = lots.plan(holdingId, sharesToSell, method, lotId);
+        List<Transaction> sells = new ArrayList<>();
+        double realized = 0.0;
+        for (LotMatchingEngine.Fill fill : fills) {
+            double pl = (sellPrice - fill.getCostPrice()) * fill.getShares();
+            realized += pl;
+            sells.add(new Transaction(0, Transaction.Type.SELL, symbol, fill.getShares(), sellPrice,
+                    0.0, fill.getLotId(), pl, now));
+        }
+        TransactionRepository.Trade trade = ledger.recordSell(stock, sells);
+        if (trade == null) {
+            return "Could not record the sale; nothing was sold.";
+        }
+        lots.apply(holdingId, fills);
+        lastRealizedProfitLoss = realized;
+        realizedProfitLoss += realized;
+        
+        // Take the committed shares and purchase price
+        int remainingShares = trade.getShares();
         stock.setShares(remainingShares);
+        if (remainingShares > 0) {
+            stock.setPurchasePrice(trade.getPurchasePrice());
+        }
+        eventStore.recordSell(stock.getId(), remainingShares, stock.getPurchasePrice(), realized);
         
-        // If no shares left, remove from portfolio
+        // If no shares left, the row is gone
         if (remainingShares == 0) {
-            repository.delete(stock.getId());
             portfolio.remove(stock);
-            return null; // Success - removed entirely
-        } else {
-            // Update in repository
-            repository.update(stock);
-            return null; // Success - partial sell
         }
+        return null; // Success
+    }
+    
+    /**
+     * Buy more shares of a holding at the given price
+     * Appends a BUY that opens a new lot and grows the holding in the same database
+     * transaction; the purchase price becomes the average cost of the open lots.
+     * @return Error message if any, null if success
+     */
+    public String buyShares(Stock stock, int sharesToBuy, double price) {
+        if (stock == null) {
+            return "Please select a stock to buy!";
+        }
+        if (!ready) {
+            return LOADING_MESSAGE;
+        }
+        
+        if (sharesToBuy <= 0) {
+            return "Shares to buy must be greater than zero!";
+        }
+        String error = validateHolding(stock.getSymbol(), stock.getCompany(), stock.getShares() + sharesToBuy,
+                price, stock.getCurrentPrice(), stock.getSector());
+        if (error != null) {
+            return error;
+        }
+        
+        TransactionRepository.Trade trade = ledger.recordBuy(stock,
+                Transaction.buy(stock.getSymbol(), sharesToBuy, price, LocalDateTime.now()));
+        if (trade == null) {
+            return "Could not record the purchase; nothing was bought.";
+        }
+        lots.addLot(trade.getLot());
+        stock.setShares(trade.getShares());
+        stock.setPurchasePrice(trade.getPurchasePrice());
+        eventStore.recordAdd(stock);
+        return null; // Success
+    }
+    
+    /**
+     * Change a holding's share count through the ledger
+     * More shares are a buy at the given price; fewer are a FIFO sell at the current
+     * price. The purchase price is the average cost of the open lots, so it cannot
+     * be edited on its own.
+     * @return Error message if any, null if success
+     */
+    public String updateHolding(Stock stock, int newShares, double purchasePrice) {
+        if (stock == null) {
+            return "Please select a stock to update!";
+        }
+        int change = newShares - stock.getShares();
+        if (change > 0) {
+            return buyShares(stock, change, purchasePrice);
+        }
+        if (change < 0) {
+            return sellShares(stock, -change);
+        }
+        if (Math.abs(purchasePrice - stock.getPurchasePrice()) >= 0.005) {
+            return "The purchase price is the average cost of the holding's lots; change the shares to buy or sell.";
+        }
+        return null; // Nothing to change
     }
     
     /**
@@ -134,19 +536,152 @@ public class StockService {
      * Check if stock ID already exists
      */
     public boolean isDuplicateId(int id) {
-        return repository.existsById(id);
+        return ready && repository.existsById(id);
     }
     
     /**
-     * Load all stocks from repository
+     * Save a refreshed price (database + event log)
      */
-    private void loadPortfolio() {
-        portfolio.clear();
-        portfolio.addAll(repository.findAll());
-    }
-
     public void persist(Stock stock) {
+        if (!ready) {
+            return;
+        }
         repository.update(stock);
+        eventStore.recordPrice(stock.getId(), stock.getCurrentPrice(), stock.getLastRefreshed());
+    }
+    
+    /**
+     * Save a batch of refreshed prices through the refresh's writer (one database round trip + event log)
+     */
+    public void persistPrices(StockRepositoryPostgreSQL.PriceWriter writer, List<PriceUpdate> updates) throws SQLException {
+        if (!ready) {
+            return;
+        }
+        writer.write(updates);
+        for (PriceUpdate update : updates) {
+            eventStore.recordPrice(update.getId(), update.getPrice(), update.getRefreshedAt());
+        }
+    }
+    
+    /**
+     * Open a price writer on a dedicated connection, for one price refresh
+     */
+    public StockRepositoryPostgreSQL.PriceWriter openPriceWriter() throws SQLException {
+        return repository.openPriceWriter();
+    }
+    
+    /**
+     * Write a fresh local snapshot (after a price refresh) so the next start shows these prices
+     */
+    public void saveSnapshot() {
+        eventStore.snapshot();
+    }
+    
+    /**
+     * Record a brokerage fee against a symbol (reduces realised P/L)
+     */
+    public String recordFee(String symbol, double amount) {
+        if (symbol == null || symbol.trim().isEmpty()) {
+            return "Fee symbol is required!";
+        }
+        if (amount <= 0) {
+            return "Fee must be greater than zero!";
+        }
+        if (!ready) {
+            return LOADING_MESSAGE;
+        }
+        ledger.recordFee(Transaction.fee(symbol.trim().toUpperCase(), amount, LocalDateTime.now()));
+        eventStore.recordFee(amount);
+        realizedProfitLoss -= amount;
+        return null; // Success
+    }
+    
+    /**
+     * Bulk import a broker CSV statement (call from a background thread)
+     * Reloads the merged portfolio and its open lots once the import has committed;
+     * they only replace the lots, event store and visible list in applyImport on the FX thread.
+     * @return The import outcome
+     */
+    public PortfolioImportService.Result importStatement(Path csv, PortfolioImportService.ProgressListener listener,
+                                                         BooleanSupplier cancelled) throws IOException, SQLException {
+        if (!ready) {
+            throw new IllegalStateException(LOADING_MESSAGE);
+        }
+        PortfolioImportService.Result result = new PortfolioImportService(repository)
+                .importCsv(csv, listener, cancelled);
+        
+        List<Stock> stocks = new ArrayList<>();
+        repository.findAll(LOAD_BATCH_SIZE, stocks::addAll);
+        LotMatchingEngine reloaded = new LotMatchingEngine();
+        for (TaxLot lot : ledger.findOpenLots()) {
+            reloaded.addLot(lot);
+        }
+        importedLots = reloaded;
+        importedHoldings = stocks;
+        return result;
+    }
+    
+    /**
+     * Export holdings, the ledger or recorded ticks to a file (call from a background thread)
+     * @return The export outcome
+     */
+    public ExportService.Result export(ExportService.Dataset dataset, ExportService.Format format, Path target,
+                                       BooleanSupplier cancelled) throws IOException {
+        if (!ready) {
+            throw new IllegalStateException(LOADING_MESSAGE);
+        }
+        return new ExportService(repository, ledger).export(dataset, format, target, cancelled);
+    }
+    
+    /**
+     * Publish the holdings and lots merged by the last importStatement (FX thread)
+     */
+    public void applyImport() {
+        List<Stock> stocks = importedHoldings;
+        if (stocks == null) {
+            return;
+        }
+        lots = importedLots;
+        eventStore.bootstrap(stocks, realizedProfitLoss);
+        portfolio.setAll(stocks);
+        importedLots = null;
+        importedHoldings = null;
+    }
+    
+    /**
+     * Open tax lots of a holding, oldest first (for specific-ID sells)
+     */
+    public List<TaxLot> getOpenLots(Stock stock) {
+        return lots.getOpenLots(stock.getId());
+    }
+    
+    /**
+     * Realised P/L of every sale so far, net of fees
+     */
+    public double getRealizedProfitLoss() {
+        return realizedProfitLoss;
+    }
+    
+    /**
+     * Realised P/L of the most recent sellShares call
+     */
+    public double getLastRealizedProfitLoss() {
+        return lastRealizedProfitLoss;
+    }
+    
+    /**
+     * Load open lots, once they have been brought in line with the holdings'
+     * share counts (see TransactionRepository.reconcileLots)
+     */
+    private void loadLots() {
+        List<TaxLot> open = ledger.reconcileLots();
+        if (open == null) {
+            // Sells still check each lot they draw on, so the unreconciled lots are safe to use
+            open = ledger.findOpenLots();
+        }
+        for (TaxLot lot : open) {
+            lots.addLot(lot);
+        }
     }
     
     /**
@@ -185,6 +720,28 @@ public class StockService {
         return (getTotalProfitLoss() / totalInvestment) * 100.0;
     }
     
+    /**
+     * True when the book is big enough that summing it on the FX thread gets slow
+     */
+    public boolean isLargeBook() {
+        return portfolio.size() > LARGE_BOOK_HOLDINGS;
+    }
+    
+    /**
+     * Totals and sector breakdown of the holdings in memory
+     */
+    public PortfolioSummary summarize() {
+        return PortfolioSummary.of(portfolio);
+    }
+    
+    /**
+     * Totals and sector breakdown aggregated by PostgreSQL (background thread)
+     * @return The summary, or null if not loaded yet or the database could not be read
+     */
+    public PortfolioSummary fetchSummary() {
+        return ready ? repository.summarize() : null;
+    }
+    
     /**
      * Get portfolio statistics as formatted string
      */
@@ -0,0 +1,38 @@
+package com.mcgill.application.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TickHistory - PriceSeries per symbol, filled from the kdb+ tick stream
+ * Safe to feed from the poll thread while the FX thread reads.
+ */
+public class TickHistory implements KdbClientService.TickListener {
+
+    private final Map<String, PriceSeries> series = new ConcurrentHashMap<>();
+
+    @Override
+    public void onTick(String symbol, double price, double size, long timeMillis) {
+        series.computeIfAbsent(symbol, s -> new PriceSeries()).add(timeMillis, price);
+    }
+
+    /**
+     * @return The symbol's series, or null before its first tick
+     */
+    public PriceSeries get(String symbol) {
+        return series.get(symbol);
+    }
+
+    public int symbolCount() {
+        return series.size();
+    }
+
+    /**
+     * Symbols seen so far, in no particular order
+     */
+    public List<String> symbols() {
+        return new ArrayList<>(series.keySet());
+    }
+}
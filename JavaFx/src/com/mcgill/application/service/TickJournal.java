@@ -0,0 +1,352 @@
+package com.mcgill.application.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TickJournal - Append-only, memory-mapped binary journal of received ticks
+ * The receiving thread only copies each tick into a ring of primitive arrays;
+ * a writer on a virtual thread drains the ring into the mapped file, so a
+ * burst costs the receiver a few array stores per tick and no I/O. When the
+ * ring is full the tick is dropped from the journal (never blocked on) and
+ * counted. The file is mapped SEGMENT_BYTES at a time and grows a segment
+ * whenever the current one is full; the page cache writes it out.
+ *
+ * Header:   [int magic][short version][int segmentBytes][long createdAtEpochNanos], padded to 32 bytes
+ * Symbol:   [int -1][int symbolId][short length][UTF-8 bytes]   (before the symbol's first tick)
+ * Tick:     [int symbolId][long epochNanos][double price][double size]   (symbolId >= 1)
+ * Skip:     [int -2]   (rest of the segment unused; records never straddle segments)
+ * End:      [int 0]    (the zero-filled tail of the last segment)
+ * A tick's time is its event time at the source (the RDB's), not when it was
+ * received, so a replay sees the same times and sizes the live window did.
+ * One journal per session, under ~/.mcgill-portfolio/ticks; the oldest are
+ * deleted beyond MAX_JOURNALS.
+ */
+public class TickJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x4D43544A; // "MCTJ"
+    static final short VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int SEGMENT_BYTES = 64 << 20;
+    static final int TICK_BYTES = 4 + 8 + 8 + 8;
+    static final int RECORD_SYMBOL = -1;
+    static final int RECORD_SKIP = -2;
+    public static final String EXTENSION = ".ticks";
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int MAX_SYMBOL_BYTES = 255;
+    private static final int MAX_JOURNALS = 20;
+    // Writer's sleep when the ring is empty
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final Path file;
+    private final FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+
+    // Single-producer, single-consumer ring: the receiver advances tail, the writer head
+    private final String[] ringSymbols = new String[RING_CAPACITY];
+    private final double[] ringPrices = new double[RING_CAPACITY];
+    private final double[] ringSizes = new double[RING_CAPACITY];
+    private final long[] ringNanos = new long[RING_CAPACITY];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile boolean closing;
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    // Writer thread only
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private long written;
+    // Receiving thread only
+    private volatile long droppedTotal;
+
+    private TickJournal(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        segment.putInt(MAGIC);
+        segment.putShort(VERSION);
+        segment.putInt(SEGMENT_BYTES);
+        segment.putLong(epochNanos());
+        segment.position(HEADER_BYTES);
+        AppExecutors.getInstance().io().execute(this::drain);
+    }
+
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".mcgill-portfolio", "ticks");
+    }
+
+    /**
+     * Start a new journal named after the current time in the default directory
+     */
+    public static TickJournal openSession() throws IOException {
+        return openSession(defaultDirectory());
+    }
+
+    public static TickJournal openSession(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        deleteOldJournals(directory);
+        String name = "session-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = directory.resolve(name + EXTENSION);
+        for (int n = 2; Files.exists(file); n++) {
+            file = directory.resolve(name + "-" + n + EXTENSION);
+        }
+        TickJournal journal = new TickJournal(file);
+        System.out.println("✓ Recording ticks to " + file);
+        return journal;
+    }
+
+    private static void deleteOldJournals(Path directory) {
+        List<Path> journals = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            files.forEach(journals::add);
+        } catch (IOException e) {
+            System.err.println("✗ Cannot list tick journals: " + e.getMessage());
+            return;
+        }
+        // Names sort by start time
+        journals.sort(null);
+        for (int i = 0; i <= journals.size() - MAX_JOURNALS; i++) {
+            try {
+                Files.deleteIfExists(journals.get(i));
+            } catch (IOException e) {
+                System.err.println("✗ Cannot delete old tick journal: " + e.getMessage());
+            }
+        }
+    }
+
+    static long epochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * Queue one tick for the journal; call from one receiving thread at a time
+     * @param epochNanos The tick's event time
+     * @return false if the ring was full and the tick was not recorded
+     */
+    public boolean append(String symbol, double price, double size, long epochNanos) {
+        long t = tail.get();
+        if (t - head.get() >= RING_CAPACITY || closing) {
+            droppedTotal++;
+            return false;
+        }
+        int slot = (int) t & (RING_CAPACITY - 1);
+        ringSymbols[slot] = symbol;
+        ringPrices[slot] = price;
+        ringSizes[slot] = size;
+        ringNanos[slot] = epochNanos;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Ticks not recorded because the writer fell a full ring behind
+     */
+    public long getDropped() {
+        return droppedTotal;
+    }
+
+    // ========== Writer ==========
+
+    private void drain() {
+        try {
+            while (true) {
+                long h = head.get();
+                long t = tail.get();
+                if (h == t) {
+                    if (closing && tail.get() == h) break;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (long i = h; i < t; i++) {
+                    int slot = (int) i & (RING_CAPACITY - 1);
+                    writeTick(ringSymbols[slot], ringPrices[slot], ringSizes[slot], ringNanos[slot]);
+                }
+                head.lazySet(t);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("✗ Tick journal stopped: " + e.getMessage());
+        } finally {
+            drained.countDown();
+        }
+    }
+
+    private void writeTick(String symbol, double price, double size, long epochNanos) throws IOException {
+        Integer id = symbolIds.get(symbol);
+        if (id == null) {
+            id = symbolIds.size() + 1;
+            symbolIds.put(symbol, id);
+            byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(name.length, MAX_SYMBOL_BYTES);
+            reserve(4 + 4 + 2 + length);
+            segment.putInt(RECORD_SYMBOL);
+            segment.putInt(id);
+            segment.putShort((short) length);
+            segment.put(name, 0, length);
+        }
+        reserve(TICK_BYTES);
+        segment.putInt(id);
+        segment.putLong(epochNanos);
+        segment.putDouble(price);
+        segment.putDouble(size);
+        written++;
+    }
+
+    /**
+     * Make room for a record, moving on to a fresh segment if this one is too full
+     */
+    private void reserve(int bytes) throws IOException {
+        // Keep four bytes free so a skip marker always fits
+        if (segment.remaining() >= bytes + 4) return;
+        segment.putInt(RECORD_SKIP);
+        segmentStart += SEGMENT_BYTES;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_BYTES);
+    }
+
+    /**
+     * Write out what is queued, flush the mapping and trim the unused tail of the file
+     * Call once the receiving thread has stopped appending.
+     */
+    @Override
+    public void close() {
+        if (closing) return;
+        closing = true;
+        try {
+            drained.await();
+            segment.force();
+            long end = segmentStart + segment.position();
+            // Leave a zero end marker; trimming a file that is still mapped may fail on some platforms
+            try {
+                channel.truncate(Math.min(end + 4, segmentStart + SEGMENT_BYTES));
+            } catch (IOException ignored) {}
+            channel.close();
+            System.out.printf("✓ Recorded %,d ticks to %s%s%n", written, file.getFileName(),
+                    droppedTotal > 0 ? String.format(" (%,d dropped)", droppedTotal) : "");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("✗ Error closing tick journal: " + e.getMessage());
+        }
+    }
+
+    // ========== Reading ==========
+
+    /**
+     * Sequential reader over a journal, one tick at a time
+     * Reads a journal still being written up to the last complete record.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long size;
+        private final int segmentBytes;
+        private final long createdAtNanos;
+        private final List<String> symbols = new ArrayList<>();
+        private MappedByteBuffer segment;
+        private long segmentStart;
+
+        private String symbol;
+        private double price;
+        private double tickSize;
+        private long epochNanos;
+
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                size = channel.size();
+                if (size < HEADER_BYTES) {
+                    throw new IOException("Not a tick journal: " + file.getFileName());
+                }
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                int magic = segment.getInt();
+                short version = segment.getShort();
+                segmentBytes = segment.getInt();
+                createdAtNanos = segment.getLong();
+                if (magic != MAGIC || version != VERSION || segmentBytes < HEADER_BYTES) {
+                    throw new IOException("Not a tick journal: " + file.getFileName());
+                }
+                mapSegment(0);
+                segment.position(HEADER_BYTES);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void mapSegment(long start) throws IOException {
+            segmentStart = start;
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, size - start));
+        }
+
+        /**
+         * Advance to the next tick
+         * @return false at the end of the journal
+         */
+        public boolean next() throws IOException {
+            while (segment.remaining() >= 4) {
+                int record = segment.getInt();
+                if (record > 0) {
+                    if (segment.remaining() < TICK_BYTES - 4) return false;
+                    if (record > symbols.size()) {
+                        throw new IOException("Tick for undefined symbol " + record);
+                    }
+                    symbol = symbols.get(record - 1);
+                    epochNanos = segment.getLong();
+                    price = segment.getDouble();
+                    tickSize = segment.getDouble();
+                    return true;
+                }
+                if (record == RECORD_SYMBOL) {
+                    if (segment.remaining() < 6) return false;
+                    int id = segment.getInt();
+                    int length = segment.getShort() & 0xFFFF;
+                    if (segment.remaining() < length) return false;
+                    byte[] name = new byte[length];
+                    segment.get(name);
+                    if (id != symbols.size() + 1) {
+                        throw new IOException("Symbol ids out of order at " + (segmentStart + segment.position()));
+                    }
+                    symbols.add(new String(name, StandardCharsets.UTF_8));
+                } else if (record == RECORD_SKIP) {
+                    if (segmentStart + segmentBytes >= size) return false;
+                    mapSegment(segmentStart + segmentBytes);
+                } else {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        public String getSymbol() { return symbol; }
+        public double getPrice() { return price; }
+        public double getSize() { return tickSize; }
+        public long getEpochNanos() { return epochNanos; }
+        public long getCreatedAtNanos() { return createdAtNanos; }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.mcgill.application.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TickReplay - Feeds a recorded TickJournal back through the tick pipeline
+ * Ticks keep their recorded event times, sizes and order, so indicators and charts see
+ * exactly what they saw live; only the pacing changes. At 1x the gaps between
+ * ticks are reproduced as recorded, at Nx they are divided by N, and at max
+ * speed there are none. Either poll it like the live kdb+ source (the real-time
+ * window does) or push the whole session through a listener with run().
+ */
+public class TickReplay implements TickSource {
+
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    // Most ticks one poll hands over, so a max-speed replay cannot build one unbounded batch
+    private static final int MAX_POLL_TICKS = 1_000_000;
+
+    private final Path file;
+    private final double speed;
+    private final TickJournal.Reader reader;
+
+    // The reader is positioned on a tick not yet delivered
+    private boolean pending;
+    // Written under the lock; volatile so progress can be read while run() holds it
+    private volatile boolean finished;
+    private long startedAtNanos;
+    // Set once, after startedAtNanos, when the first tick is read
+    private volatile long firstTickNanos = -1;
+    private volatile long lastTickNanos;
+    private volatile long delivered;
+    private volatile long maxLagNanos;
+
+    /**
+     * @param speed Replay rate relative to the recording (1 = as recorded), or MAX_SPEED
+     */
+    public TickReplay(Path file, double speed) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be greater than zero!");
+        }
+        this.file = file;
+        this.speed = speed;
+        this.reader = new TickJournal.Reader(file);
+    }
+
+    /**
+     * Parse "1", "10x", "0.5×" or "max"
+     */
+    public static double parseSpeed(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("max")) {
+            return MAX_SPEED;
+        }
+        if (value.endsWith("x") || value.endsWith("×")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Double.parseDouble(value);
+    }
+
+    public static String describeSpeed(double speed) {
+        if (speed == MAX_SPEED) return "max speed";
+        return (speed == Math.rint(speed) ? String.valueOf((long) speed) : String.valueOf(speed)) + "×";
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public boolean isMaxSpeed() {
+        return speed == MAX_SPEED;
+    }
+
+    /**
+     * Deliver every tick that is due by now (all remaining ones at max speed, up to MAX_POLL_TICKS)
+     */
+    @Override
+    public synchronized int pollQuotes(KdbClientService.TickListener listener) throws IOException {
+        int count = 0;
+        while (count < MAX_POLL_TICKS && nextTick()) {
+            if (!isMaxSpeed() && dueAt(reader.getEpochNanos()) > System.nanoTime()) break;
+            deliver(listener);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Push the rest of the session through the listener on the calling thread, paced to the replay speed
+     * @return Ticks delivered
+     */
+    public synchronized long run(KdbClientService.TickListener listener) throws IOException, InterruptedException {
+        long before = delivered;
+        while (nextTick()) {
+            if (!isMaxSpeed()) {
+                long wait = dueAt(reader.getEpochNanos()) - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Replay interrupted");
+                }
+            }
+            deliver(listener);
+        }
+        return delivered - before;
+    }
+
+    /**
+     * Read ahead to the next undelivered tick, starting the replay clock on the first one
+     * @return false at the end of the journal
+     */
+    private boolean nextTick() throws IOException {
+        if (pending) return true;
+        if (finished) return false;
+        if (!reader.next()) {
+            finished = true;
+            reader.close();
+            return false;
+        }
+        if (firstTickNanos < 0) {
+            startedAtNanos = System.nanoTime();
+            lastTickNanos = reader.getEpochNanos();
+            firstTickNanos = reader.getEpochNanos();
+        }
+        pending = true;
+        return true;
+    }
+
+    private long dueAt(long tickNanos) {
+        return startedAtNanos + (long) ((tickNanos - firstTickNanos) / speed);
+    }
+
+    private void deliver(KdbClientService.TickListener listener) {
+        long tickNanos = reader.getEpochNanos();
+        if (!isMaxSpeed()) {
+            maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - dueAt(tickNanos));
+        }
+        pending = false;
+        lastTickNanos = tickNanos;
+        delivered++;
+        listener.onTick(reader.getSymbol(), reader.getPrice(), reader.getSize(), tickNanos / 1_000_000);
+    }
+
+    /**
+     * Recorded time the replay has reached: the last tick's at max speed, otherwise the scaled wall clock
+     */
+    @Override
+    public long currentTimeMillis() {
+        long firstTick = firstTickNanos;
+        if (firstTick < 0) {
+            return reader.getCreatedAtNanos() / 1_000_000;
+        }
+        if (isMaxSpeed()) {
+            return lastTickNanos / 1_000_000;
+        }
+        return (firstTick + (long) ((System.nanoTime() - startedAtNanos) * speed)) / 1_000_000;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Furthest a tick was delivered behind its paced time, i.e. how far the pipeline fell behind
+     */
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,90 @@
+package com.mcgill.application.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * TickReplayBenchmark - Analytics throughput against a recorded session
+ * Replays a tick journal through the real-time window's analytics (indicators,
+ * 1s/1m/5m bars and the history fed from them) and prints ticks/s, the per-tick
+ * cost percentiles and, when paced, how far the pipeline fell behind the
+ * recording. Run it at max speed to
+ * compare builds on the same session; at 1x it shows whether a burst can be
+ * absorbed live. Without a path it uses the newest journal in ~/.mcgill-portfolio/ticks.
+ *
+ * Usage: TickReplayBenchmark [journal] [speed=max] [runs=3]
+ */
+public class TickReplayBenchmark {
+
+    // Histogram buckets of 100 ns, up to one millisecond
+    private static final int BUCKETS = 10_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path journal = args.length > 0 ? Path.of(args[0]) : newestJournal();
+        double speed = args.length > 1 ? TickReplay.parseSpeed(args[1]) : TickReplay.MAX_SPEED;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        if (journal == null) {
+            System.err.println("✗ No tick journal in " + TickJournal.defaultDirectory());
+            return;
+        }
+        System.out.printf("Replaying %s at %s, %d runs%n", journal.getFileName(), TickReplay.describeSpeed(speed), runs);
+
+        for (int run = 1; run <= runs; run++) {
+            IndicatorEngine indicators = new IndicatorEngine();
+            TickHistory history = new TickHistory();
+            BarEngine bars = new BarEngine();
+            bars.setCloseListener(BarEngine.Resolution.SECOND, history);
+            IndicatorEngine.Snapshot snap = new IndicatorEngine.Snapshot();
+            long[] costs = new long[BUCKETS + 1];
+
+            long start = System.nanoTime();
+            long ticks;
+            try (TickReplay replay = new TickReplay(journal, speed)) {
+                ticks = replay.run((symbol, price, size, time) -> {
+                    long t0 = System.nanoTime();
+                    indicators.onTick(symbol, price, size, time);
+                    bars.onTick(symbol, price, size, time);
+                    indicators.read(symbol, snap);
+                    costs[(int) Math.min((System.nanoTime() - t0) / 100, BUCKETS)]++;
+                });
+                double seconds = (System.nanoTime() - start) / 1e9;
+                bars.closeBefore(Long.MAX_VALUE);
+                System.out.printf("run %d: %,d ticks, %d symbols in %.2f s (%,.0f ticks/s)  per tick p50 %s  p99 %s  p99.9 %s  max %s%s%n",
+                        run, ticks, history.symbolCount(), seconds, ticks / Math.max(seconds, 1e-9),
+                        percentile(costs, 0.50), percentile(costs, 0.99), percentile(costs, 0.999), percentile(costs, 1.0),
+                        replay.isMaxSpeed() ? "" : String.format("  max lag %.1f ms", replay.getMaxLagNanos() / 1e6));
+            }
+        }
+    }
+
+    private static Path newestJournal() throws IOException {
+        Path directory = TickJournal.defaultDirectory();
+        if (!Files.isDirectory(directory)) return null;
+        Path newest = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TickJournal.EXTENSION)) {
+            for (Path file : files) {
+                if (newest == null || file.getFileName().toString().compareTo(newest.getFileName().toString()) > 0) {
+                    newest = file;
+                }
+            }
+        }
+        return newest;
+    }
+
+    private static String percentile(long[] counts, double p) {
+        long total = 0;
+        for (long count : counts) total += count;
+        if (total == 0) return "-";
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == BUCKETS ? ">1ms" : String.format("%.1fµs", i / 10.0);
+            }
+        }
+        return "-";
+    }
+}
@@ -0,0 +1,24 @@
+package com.mcgill.application.service;
+
+/**
+ * TickSource - Where the real-time window gets its ticks from
+ * Either the live kdb+ quote table or a replay of a recorded session; both are
+ * polled the same way, so the window and the analytics behind it cannot tell
+ * them apart.
+ */
+public interface TickSource extends AutoCloseable {
+
+    /**
+     * Pass every tick that arrived since the last poll to the listener
+     * @return Number of ticks delivered
+     */
+    int pollQuotes(KdbClientService.TickListener listener) throws Exception;
+
+    /**
+     * The clock the ticks are stamped with: the wall clock when live (ticks carry the RDB's receive time), the recorded session's time on replay
+     */
+    long currentTimeMillis();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,90 @@
+package com.mcgill.application.service;
+
+/**
+ * TreemapLayout - Squarified treemap (Bruls, Huizing and van Wijk)
+ * Splits a rectangle into tiles whose areas are proportional to the values.
+ * Tiles are laid in rows along the shorter side of the space still free, and a
+ * row takes another tile only while that keeps its worst aspect ratio from
+ * getting worse, so tiles come out close to square and easy to read.
+ */
+public final class TreemapLayout {
+
+    private TreemapLayout() {
+    }
+
+    /**
+     * Lay out values, largest first, in the rectangle (x, y, width, height)
+     * @param values Sorted descending; zero and negative values get empty tiles
+     * @param rects  Receives x, y, width, height of tile i at 4i .. 4i + 3
+     */
+    public static void layout(double[] values, int count, double x, double y, double width, double height, double[] rects) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[i] > 0) sum += values[i];
+        }
+        for (int i = 0; i < count * 4; i++) {
+            rects[i] = 0;
+        }
+        if (sum <= 0 || width <= 0 || height <= 0) return;
+        // Values scaled to the area they cover
+        double scale = width * height / sum;
+
+        int start = 0;
+        while (start < count && values[start] > 0) {
+            double side = Math.min(width, height);
+            double rowArea = values[start] * scale;
+            double rowMin = rowArea;
+            double rowMax = rowArea;
+            int end = start + 1;
+            while (end < count && values[end] > 0) {
+                double area = values[end] * scale;
+                double nextArea = rowArea + area;
+                if (worstRatio(nextArea, Math.min(rowMin, area), Math.max(rowMax, area), side)
+                        > worstRatio(rowArea, rowMin, rowMax, side)) {
+                    break;
+                }
+                rowArea = nextArea;
+                rowMin = Math.min(rowMin, area);
+                rowMax = Math.max(rowMax, area);
+                end++;
+            }
+
+            // The row fills a strip across the short side; the rest of the space shrinks by it
+            double thickness = rowArea / side;
+            double offset = 0;
+            for (int i = start; i < end; i++) {
+                double length = values[i] * scale / thickness;
+                int r = i * 4;
+                if (width >= height) {
+                    rects[r] = x;
+                    rects[r + 1] = y + offset;
+                    rects[r + 2] = thickness;
+                    rects[r + 3] = length;
+                } else {
+                    rects[r] = x + offset;
+                    rects[r + 1] = y;
+                    rects[r + 2] = length;
+                    rects[r + 3] = thickness;
+                }
+                offset += length;
+            }
+            if (width >= height) {
+                x += thickness;
+                width -= thickness;
+            } else {
+                y += thickness;
+                height -= thickness;
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Largest aspect ratio (long side over short side) of a row's tiles
+     */
+    private static double worstRatio(double rowArea, double minArea, double maxArea, double side) {
+        double sideSq = side * side;
+        double areaSq = rowArea * rowArea;
+        return Math.max(sideSq * maxArea / areaSq, areaSq / (sideSq * minArea));
+    }
+}
@@ -0,0 +1,35 @@
+package com.mcgill.application.service;
+
+import com.kx.c;
+
+/**
+ * VwapBatch - VWAP, volume and tick count per symbol over an interval, as columns (result of .api.vwap)
+ */
+public final class VwapBatch {
+
+    private final String[] symbols;
+    private final double[] vwaps;
+    private final double[] volumes;
+    private final long[] ticks;
+
+    VwapBatch(String[] symbols, double[] vwaps, double[] volumes, long[] ticks) {
+        this.symbols = symbols;
+        this.vwaps = vwaps;
+        this.volumes = volumes;
+        this.ticks = ticks;
+    }
+
+    static VwapBatch decode(Object result) {
+        c.Flip table = KdbTables.flip(result);
+        return new VwapBatch(KdbTables.column(table, "sym", String[].class),
+                KdbTables.column(table, "vwap", double[].class),
+                KdbTables.column(table, "volume", double[].class),
+                KdbTables.column(table, "ticks", long[].class));
+    }
+
+    public int size() { return symbols.length; }
+    public String[] getSymbols() { return symbols; }
+    public double[] getVwaps() { return vwaps; }
+    public double[] getVolumes() { return volumes; }
+    public long[] getTicks() { return ticks; }
+}